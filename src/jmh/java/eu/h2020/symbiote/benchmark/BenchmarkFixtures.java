@@ -0,0 +1,134 @@
+package eu.h2020.symbiote.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.model.cim.Resource;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import eu.h2020.symbiote.security.commons.exceptions.custom.InvalidArgumentsException;
+import eu.h2020.symbiote.security.communication.payloads.SecurityRequest;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Generator of realistic inputs of benchmarks.
+ * <p>
+ * Resources are stationary sensors described the same way platforms describe them when registering, each with
+ * a distinct name, location and set of observed properties, so that serialization cannot benefit from repeated values.
+ */
+public final class BenchmarkFixtures {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String[] PROPERTIES = {"Temperature", "Humidity", "AirQuality", "Pressure", "NoiseLevel",
+            "CarbonMonoxideConcentration", "Luminosity", "WindSpeed"};
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Generates JSON of a map of resources, keyed by internal IDs used by the platform.
+     *
+     * @param count   number of resources
+     * @param withIds whether resources have symbIoTe IDs assigned, as in responses of core services
+     * @return JSON of the map
+     */
+    public static String resourcesJson(int count, boolean withIds) {
+        StringBuilder json = new StringBuilder(count * 700 + 2);
+        json.append('{');
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("\"internal-").append(i).append("\":{")
+                    .append("\"@c\":\".StationarySensor\",")
+                    .append("\"name\":\"Stationary sensor ").append(i).append("\",");
+            if (withIds)
+                json.append("\"id\":\"5a2f").append(String.format("%020x", i)).append("\",");
+            json.append("\"description\":[\"Sensor ").append(i).append(" mounted in building ").append(i % 97)
+                    .append("\",\"Maintained by the city council\"],")
+                    .append("\"interworkingServiceURL\":\"https://platform-").append(i % 13).append(".example.com/rap\",")
+                    .append("\"locatedAt\":{")
+                    .append("\"@c\":\".WGS84Location\",")
+                    .append("\"longitude\":").append(2.0 + (i % 1000) / 1000.0).append(',')
+                    .append("\"latitude\":").append(45.0 + (i % 997) / 997.0).append(',')
+                    .append("\"altitude\":").append(100 + i % 50).append(',')
+                    .append("\"name\":\"Location ").append(i).append("\",")
+                    .append("\"description\":[\"Street ").append(i % 211).append("\"]},")
+                    .append("\"featureOfInterest\":{")
+                    .append("\"name\":\"Room ").append(i).append("\",")
+                    .append("\"description\":[\"This is room ").append(i).append("\"],")
+                    .append("\"hasProperty\":[\"").append(PROPERTIES[i % PROPERTIES.length]).append("\"]},")
+                    .append("\"observesProperty\":[\"").append(PROPERTIES[i % PROPERTIES.length]).append("\",\"")
+                    .append(PROPERTIES[(i + 3) % PROPERTIES.length]).append("\"]}");
+        }
+        json.append('}');
+        return json.toString();
+    }
+
+    /**
+     * Generates a map of resources.
+     *
+     * @param count   number of resources
+     * @param withIds whether resources have symbIoTe IDs assigned
+     * @return map of resources keyed by internal IDs
+     */
+    public static Map<String, Resource> resources(int count, boolean withIds) {
+        try {
+            return MAPPER.readValue(resourcesJson(count, withIds), new TypeReference<Map<String, Resource>>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates Turtle description of resources.
+     *
+     * @param count number of resources
+     * @return RDF in Turtle format
+     */
+    public static String rdf(int count) {
+        StringBuilder rdf = new StringBuilder(count * 500 + 200);
+        rdf.append("@prefix core: <http://www.symbiote-h2020.eu/ontology/core#> .\n")
+                .append("@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n")
+                .append("@prefix geo: <http://www.w3.org/2003/01/geo/wgs84_pos#> .\n\n");
+        for (int i = 0; i < count; i++) {
+            rdf.append(":sensor").append(i).append(" a core:StationarySensor ;\n")
+                    .append("    core:id \"internal-").append(i).append("\" ;\n")
+                    .append("    core:name \"Stationary sensor ").append(i).append("\" ;\n")
+                    .append("    core:description \"Sensor ").append(i).append(" mounted in building ").append(i % 97).append("\" ;\n")
+                    .append("    core:locatedAt [ a core:WGS84Location ; geo:long ").append(2.0 + (i % 1000) / 1000.0)
+                    .append(" ; geo:lat ").append(45.0 + (i % 997) / 997.0).append(" ] ;\n")
+                    .append("    core:observesProperty \"").append(PROPERTIES[i % PROPERTIES.length]).append("\" .\n\n");
+        }
+        return rdf.toString();
+    }
+
+    /**
+     * @return security headers as sent by platforms
+     */
+    public static HttpHeaders securityHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"token\"," +
+                "\"authenticationChallenge\":\"authenticationChallenge\"," +
+                "\"clientCertificate\":\"clientCertificate\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"clientCertificateSigningAAMCertificate\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"foreignTokenIssuingAAMCertificate\"}");
+        return headers;
+    }
+
+    /**
+     * @return security request built from {@link #securityHeaders()}
+     */
+    public static SecurityRequest securityRequest() {
+        try {
+            return new SecurityRequest(securityHeaders().toSingleValueMap());
+        } catch (InvalidArgumentsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
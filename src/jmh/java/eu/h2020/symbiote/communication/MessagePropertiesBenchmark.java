@@ -0,0 +1,52 @@
+package eu.h2020.symbiote.communication;
+
+import com.rabbitmq.client.AMQP;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+
+/**
+ * Benchmark of building properties of RPC and asynchronous messages: with the builder and random UUIDs,
+ * as RabbitManager used to, and with {@link MessageProperties}. Run with several threads to see contention
+ * on the shared random number generator.
+ */
+@State(Scope.Benchmark)
+public class MessagePropertiesBenchmark {
+
+    private final MessageProperties messageProperties = new MessageProperties();
+    private final Integer priority = 4;
+
+    @Benchmark
+    @Threads(4)
+    public AMQP.BasicProperties rpcBuilder() {
+        String replyQueueName = UUID.randomUUID().toString();
+        return new AMQP.BasicProperties()
+                .builder()
+                .correlationId(UUID.randomUUID().toString())
+                .replyTo(replyQueueName)
+                .contentType("application/json")
+                .priority(priority)
+                .build();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AMQP.BasicProperties rpcTemplate() {
+        String replyQueueName = messageProperties.nextId();
+        return messageProperties.rpc(priority, messageProperties.nextId(), replyQueueName);
+    }
+
+    @Benchmark
+    public AMQP.BasicProperties asyncBuilder() {
+        return new AMQP.BasicProperties()
+                .builder()
+                .contentType("application/json")
+                .priority(priority)
+                .build();
+    }
+
+    @Benchmark
+    public AMQP.BasicProperties asyncTemplate() {
+        return messageProperties.async(priority);
+    }
+}
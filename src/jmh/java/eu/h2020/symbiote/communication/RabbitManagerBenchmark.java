@@ -0,0 +1,51 @@
+package eu.h2020.symbiote.communication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.benchmark.BenchmarkFixtures;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryRequest;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryResponse;
+import eu.h2020.symbiote.core.internal.DescriptionType;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark of JSON marshalling and unmarshalling of resource messages sent to core services via RabbitMQ.
+ * <p>
+ * The broker is not involved: {@link RabbitManager#sendRpcBytes(String, String, byte[])} is stubbed
+ * to return a precomputed response immediately.
+ */
+@State(Scope.Benchmark)
+public class RabbitManagerBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    public int resources;
+
+    private RabbitManager rabbitManager;
+    private CoreResourceRegistryRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        request = new CoreResourceRegistryRequest();
+        request.setSecurityRequest(BenchmarkFixtures.securityRequest());
+        request.setDescriptionType(DescriptionType.BASIC);
+        request.setPlatformId("platformId");
+        request.setBody(BenchmarkFixtures.resourcesJson(resources, false));
+
+        CoreResourceRegistryResponse response = new CoreResourceRegistryResponse();
+        response.setStatus(200);
+        response.setMessage("OK");
+        response.setBody(BenchmarkFixtures.resourcesJson(resources, true));
+        byte[] responseMsg = new ObjectMapper().writeValueAsBytes(response);
+
+        rabbitManager = new RabbitManager() {
+            @Override
+            public byte[] sendRpcBytes(String exchangeName, String routingKey, byte[] body) {
+                return responseMsg;
+            }
+        };
+    }
+
+    @Benchmark
+    public CoreResourceRegistryResponse sendRpcResourceMessage() {
+        return rabbitManager.sendRpcResourceMessage("symbIoTe.resource", "symbIoTe.resource.creationRequested", request);
+    }
+}
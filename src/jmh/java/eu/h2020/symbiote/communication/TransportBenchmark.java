@@ -0,0 +1,120 @@
+package eu.h2020.symbiote.communication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.*;
+import eu.h2020.symbiote.benchmark.BenchmarkFixtures;
+import eu.h2020.symbiote.communication.http.HttpTransport;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryRequest;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryResponse;
+import eu.h2020.symbiote.core.internal.DescriptionType;
+import eu.h2020.symbiote.loadtest.EmbeddedBroker;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Comparison of a resource creation request sent to core services via RabbitMQ RPC and via HTTP/2.
+ * <p>
+ * RabbitMQ messages are sent by {@link RabbitManager} through an AMQP broker embedded in the JVM to a consumer
+ * replying with a precomputed response; HTTP requests are sent by {@link HttpTransport} to a local
+ * {@link MockWebServer} replying with the same response. Both sides marshal the request and unmarshal the response,
+ * so the difference is the cost of the transport.
+ */
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+    private static final String EXCHANGE = "symbIoTe.resource";
+    private static final String ROUTING_KEY = "symbIoTe.resource.creationRequested";
+
+    @Param({"1", "100", "10000"})
+    public int resources;
+
+    private EmbeddedBroker broker;
+    private Connection connection;
+    private RabbitManager rabbitManager;
+    private MockWebServer server;
+    private HttpTransport httpTransport;
+    private CoreResourceRegistryRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        request = new CoreResourceRegistryRequest();
+        request.setSecurityRequest(BenchmarkFixtures.securityRequest());
+        request.setDescriptionType(DescriptionType.BASIC);
+        request.setPlatformId("platformId");
+        request.setBody(BenchmarkFixtures.resourcesJson(resources, false));
+
+        CoreResourceRegistryResponse response = new CoreResourceRegistryResponse();
+        response.setStatus(200);
+        response.setMessage("OK");
+        response.setBody(BenchmarkFixtures.resourcesJson(resources, true));
+        byte[] responseMsg = new ObjectMapper().writeValueAsBytes(response);
+
+        broker = new EmbeddedBroker();
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost("localhost");
+        factory.setPort(broker.getPort());
+        connection = factory.newConnection();
+        startStubConsumer(connection.createChannel(), responseMsg);
+
+        rabbitManager = new RabbitManager();
+        ReflectionTestUtils.setField(rabbitManager, "connection", connection);
+        ReflectionTestUtils.setField(rabbitManager, "channel", connection.createChannel());
+
+        server = new MockWebServer();
+        server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest recordedRequest) {
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(new Buffer().write(responseMsg));
+            }
+        });
+        server.start();
+        httpTransport = new HttpTransport(server.url("/core").toString(), 2000, 20000, 4, 300000);
+    }
+
+    private static void startStubConsumer(Channel channel, byte[] responseMsg) throws IOException {
+        channel.exchangeDeclare(EXCHANGE, "topic", false, false, false, null);
+        String queueName = channel.queueDeclare().getQueue();
+        channel.queueBind(queueName, EXCHANGE, ROUTING_KEY);
+        channel.basicConsume(queueName, true, new DefaultConsumer(channel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
+                    throws IOException {
+                AMQP.BasicProperties props = new AMQP.BasicProperties()
+                        .builder()
+                        .correlationId(properties.getCorrelationId())
+                        .contentType("application/json")
+                        .build();
+                getChannel().basicPublish("", properties.getReplyTo(), props, responseMsg);
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpTransport.close();
+        server.shutdown();
+        connection.close();
+        broker.close();
+    }
+
+    @Benchmark
+    public CoreResourceRegistryResponse amqp() {
+        return rabbitManager.sendRpcResourceMessage(EXCHANGE, ROUTING_KEY, request);
+    }
+
+    @Benchmark
+    public CoreResourceRegistryResponse http() {
+        return httpTransport.sendResourceCreationRequest(request);
+    }
+}
@@ -0,0 +1,74 @@
+package eu.h2020.symbiote.communication.spool;
+
+import eu.h2020.symbiote.communication.local.LocalTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of the message spool: appending a message, and appending a batch of messages followed by their replay
+ * through {@link SpoolReplayer} to a transport which accepts every message at once, so only the cost of the spool
+ * is measured. Run with and without forcing every record to the storage device.
+ */
+@State(Scope.Benchmark)
+public class MessageSpoolBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"512", "8192"})
+    public int payloadBytes;
+
+    @Param({"false", "true"})
+    public boolean forceOnWrite;
+
+    private Path directory;
+    private MessageSpool spool;
+    private SpoolReplayer replayer;
+    private byte[] payload;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("spool-benchmark");
+        spool = new MessageSpool(true, directory.toString(), 64 * 1024 * 1024, 4, forceOnWrite);
+        spool.open();
+        replayer = new SpoolReplayer(spool, new LocalTransport() {
+            @Override
+            public boolean replaySpooledMessage(SpooledMessage message) {
+                return true;
+            }
+        }, 1000, BATCH);
+
+        payload = new byte[payloadBytes];
+        Arrays.fill(payload, (byte) 'x');
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        spool.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Appends a message and removes it without reading, so the spool does not fill up during the iteration.
+     */
+    @Benchmark
+    public boolean append() {
+        boolean appended = spool.append("symbIoTe.CoreResourceAccessMonitor", "symbIoTe.CoreResourceAccessMonitor.coreAPI.accessNotifications", payload);
+        spool.skip();
+        return appended;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int appendAndReplay() {
+        for (int i = 0; i < BATCH; i++)
+            spool.append("symbIoTe.CoreResourceAccessMonitor", "symbIoTe.CoreResourceAccessMonitor.coreAPI.accessNotifications", payload);
+        return replayer.replay();
+    }
+}
@@ -0,0 +1,109 @@
+package eu.h2020.symbiote.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.benchmark.BenchmarkFixtures;
+import eu.h2020.symbiote.communication.CoreOperation;
+import eu.h2020.symbiote.communication.local.LocalTransport;
+import eu.h2020.symbiote.core.cci.*;
+import eu.h2020.symbiote.core.internal.*;
+import eu.h2020.symbiote.json.ParallelMapSerializer;
+import eu.h2020.symbiote.json.ResourceMapDeserializer;
+import eu.h2020.symbiote.security.communication.payloads.SecurityRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+
+/**
+ * Benchmarks of the controller paths which do not depend on the transport: preparation of requests to core services,
+ * parsing of their responses and wrapping of SSP requests.
+ * <p>
+ * Core services are replaced by {@link LocalTransport} handlers returning precomputed responses. Resource maps are
+ * serialized and deserialized by {@link ParallelMapSerializer} and {@link ResourceMapDeserializer} with their default
+ * settings, as in the application.
+ */
+@State(Scope.Benchmark)
+public class ControllerBenchmark {
+
+    @Param({"1", "100", "10000", "100000"})
+    public int resources;
+
+    private ParallelMapSerializer parallelMapSerializer;
+    private CloudCoreInterfaceController controller;
+    private HttpHeaders headers;
+    private SecurityRequest securityRequest;
+    private ResourceRegistryRequest basicRequest;
+    private ResourceRegistryRequest singleResourceRequest;
+    private RDFResourceRegistryRequest rdfRequest;
+    private SspResourceRegistryRequest sspRequest;
+
+    @Setup
+    public void setUp() throws Exception {
+        headers = BenchmarkFixtures.securityHeaders();
+        securityRequest = BenchmarkFixtures.securityRequest();
+
+        basicRequest = new ResourceRegistryRequest();
+        basicRequest.setBody(BenchmarkFixtures.resources(resources, false));
+
+        singleResourceRequest = new ResourceRegistryRequest();
+        singleResourceRequest.setBody(BenchmarkFixtures.resources(1, false));
+
+        RDFInfo rdfInfo = new RDFInfo();
+        rdfInfo.setRdf(BenchmarkFixtures.rdf(resources));
+        rdfInfo.setRdfFormat(RDFFormat.Turtle);
+        rdfRequest = new RDFResourceRegistryRequest();
+        rdfRequest.setBody(rdfInfo);
+
+        sspRequest = new ObjectMapper().readValue(
+                "{\"body\":" + BenchmarkFixtures.resourcesJson(resources, false) + "}", SspResourceRegistryRequest.class);
+
+        CoreResourceRegistryResponse modificationResponse = new CoreResourceRegistryResponse();
+        modificationResponse.setStatus(200);
+        modificationResponse.setMessage("OK");
+        modificationResponse.setBody(BenchmarkFixtures.resourcesJson(resources, true));
+
+        CoreSspResourceRegistryResponse sspResponse = new CoreSspResourceRegistryResponse();
+        sspResponse.setStatus(200);
+        sspResponse.setMessage("OK");
+        sspResponse.setBody(new HashMap<>());
+
+        LocalTransport transport = new LocalTransport();
+        transport.registerHandler(CoreOperation.RESOURCE_MODIFICATION, (CoreResourceRegistryRequest request) -> modificationResponse);
+        transport.registerHandler(CoreOperation.SSP_RESOURCE_CREATION, (CoreSspResourceRegistryRequest request) -> sspResponse);
+
+        parallelMapSerializer = new ParallelMapSerializer(true, 10000, 1000, 0);
+        controller = new CloudCoreInterfaceController(transport);
+        controller.setParallelMapSerializer(parallelMapSerializer);
+        controller.setResourceMapDeserializer(new ResourceMapDeserializer(true, 65536, 256, false));
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallelMapSerializer.close();
+    }
+
+    @Benchmark
+    public CoreResourceRegistryRequest prepareBasicRequest() {
+        return controller.prepareBasicRequest("platformId", basicRequest, securityRequest);
+    }
+
+    @Benchmark
+    public CoreResourceRegistryRequest prepareRdfRequest() {
+        return controller.prepareRdfRequest("platformId", rdfRequest, securityRequest);
+    }
+
+    /**
+     * Modifies a single resource while core services respond with the benchmarked number of resources, so that
+     * the time is dominated by parsing of the response.
+     */
+    @Benchmark
+    public ResponseEntity parseCoreResourceResponse() {
+        return controller.modifyResource("platformId", singleResourceRequest, headers);
+    }
+
+    @Benchmark
+    public ResponseEntity wrapSspResourceRequest() {
+        return controller.createSspResource("sspId", "sdevId", sspRequest, headers);
+    }
+}
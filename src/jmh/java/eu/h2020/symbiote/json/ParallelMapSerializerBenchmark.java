@@ -0,0 +1,43 @@
+package eu.h2020.symbiote.json;
+
+import eu.h2020.symbiote.benchmark.BenchmarkFixtures;
+import eu.h2020.symbiote.model.cim.Resource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+
+/**
+ * Benchmark of serialization of resource maps on the calling thread and in parallel.
+ */
+@State(Scope.Benchmark)
+public class ParallelMapSerializerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int resources;
+
+    private Map<String, Resource> map;
+    private ParallelMapSerializer sequential;
+    private ParallelMapSerializer parallel;
+
+    @Setup
+    public void setUp() {
+        map = BenchmarkFixtures.resources(resources, false);
+        sequential = new ParallelMapSerializer(false, 1, 1000, 0);
+        parallel = new ParallelMapSerializer(true, 1, 1000, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallel.close();
+    }
+
+    @Benchmark
+    public String sequential() throws Exception {
+        return sequential.writeValueAsString(map, Resource.class);
+    }
+
+    @Benchmark
+    public String parallel() throws Exception {
+        return parallel.writeValueAsString(map, Resource.class);
+    }
+}
@@ -0,0 +1,54 @@
+package eu.h2020.symbiote.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.benchmark.BenchmarkFixtures;
+import eu.h2020.symbiote.model.cim.Resource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+
+/**
+ * Benchmark of parsing of resource maps returned by core services: as they are, with repeated strings canonicalized,
+ * and lazily, followed by access of every resource as when the response is written.
+ */
+@State(Scope.Benchmark)
+public class ResourceMapDeserializerBenchmark {
+
+    @Param({"1000", "100000"})
+    public int resources;
+
+    private String json;
+    private ObjectMapper mapper;
+    private ResourceMapDeserializer interning;
+    private ResourceMapDeserializer lazy;
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkFixtures.resourcesJson(resources, true);
+        mapper = new ObjectMapper();
+        interning = new ResourceMapDeserializer(true, 65536, 256, false);
+        lazy = new ResourceMapDeserializer(true, 65536, 256, true);
+    }
+
+    @Benchmark
+    public Map<String, Resource> plain() throws Exception {
+        return mapper.readValue(json, new TypeReference<Map<String, Resource>>() {
+        });
+    }
+
+    @Benchmark
+    public Map<String, Resource> interning() throws Exception {
+        return interning.readResources(json);
+    }
+
+    @Benchmark
+    public int lazy() throws Exception {
+        int count = 0;
+        for (Resource resource : lazy.readResources(json).values()) {
+            if (resource != null)
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,172 @@
+package eu.h2020.symbiote.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.CloudCoreInterfaceApplication;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringDevice;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatform;
+import eu.h2020.symbiote.cloud.monitoring.model.Metric;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.core.cci.accessNotificationMessages.NotificationMessage;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Load test of CloudCoreInterface with an embedded AMQP broker and stub core services, run with <i>gradle loadTest</i>.
+ * <p>
+ * The real application is started and its REST endpoints are driven concurrently with a mix of resource registration,
+ * monitoring, access notification and SSP requests. Throughput, latency percentiles and error rates are printed
+ * and written as JSON to <i>loadTest.reportDir</i>.
+ * <p>
+ * The load is configured with system properties <i>loadTest.threads</i>, <i>loadTest.warmupMillis</i>,
+ * <i>loadTest.durationMillis</i> and <i>loadTest.resourcesPerRequest</i>; behaviour of stub services
+ * is described in {@link StubProfile}.
+ */
+public class CloudCoreInterfaceLoadTest {
+    private static Log log = LogFactory.getLog(CloudCoreInterfaceLoadTest.class);
+
+    private static EmbeddedBroker broker;
+    private static StubCoreServices coreServices;
+    private static ConfigurableApplicationContext application;
+    private static int serverPort;
+
+    @BeforeClass
+    public static void startEnvironment() throws Exception {
+        Properties config = new Properties();
+        try (InputStream in = CloudCoreInterfaceLoadTest.class.getClassLoader().getResourceAsStream("loadtest.properties")) {
+            config.load(in);
+        }
+
+        broker = new EmbeddedBroker();
+        config.setProperty("rabbit.port", String.valueOf(broker.getPort()));
+
+        coreServices = new StubCoreServices(broker.getPort(), config,
+                StubProfile.fromSystemProperties("registry"),
+                StubProfile.fromSystemProperties("crm"),
+                StubProfile.fromSystemProperties("cram"),
+                StubProfile.fromSystemProperties("ssp"));
+
+        // system properties are visible to the bootstrap context too, which disables the config server
+        for (String name : config.stringPropertyNames()) {
+            if (System.getProperty(name) == null)
+                System.setProperty(name, config.getProperty(name));
+        }
+        application = new SpringApplicationBuilder(CloudCoreInterfaceApplication.class).run();
+        application.getBean(RabbitManager.class).initCommunicationAsync().get(30, TimeUnit.SECONDS);
+        serverPort = Integer.parseInt(application.getEnvironment().getProperty("local.server.port"));
+    }
+
+    @AfterClass
+    public static void stopEnvironment() throws Exception {
+        if (application != null)
+            application.close();
+        if (coreServices != null)
+            coreServices.close();
+        if (broker != null)
+            broker.close();
+    }
+
+    @Test
+    public void mixedLoad() throws Exception {
+        int threads = Integer.getInteger("loadTest.threads", 16);
+        long warmupMillis = Long.getLong("loadTest.warmupMillis", 10000);
+        long durationMillis = Long.getLong("loadTest.durationMillis", 30000);
+        int resourcesPerRequest = Integer.getInteger("loadTest.resourcesPerRequest", 10);
+
+        LoadDriver driver = new LoadDriver("http://localhost:" + serverPort, securityHeaders(), threads);
+        LoadReport report = driver.run(requestMix(resourcesPerRequest), threads, warmupMillis, durationMillis);
+
+        String text = report.toText();
+        log.info("Load test finished with " + threads + " threads\n" + text);
+        log.info("Stub core services answered " + coreServices.getAnswered() + ", failed " + coreServices.getFailed()
+                + ", dropped " + coreServices.getDropped() + " requests");
+        writeReport(report);
+
+        assertTrue("No request was completed", report.getCount() > 0);
+        double maxFailureRate = Double.parseDouble(System.getProperty("loadTest.maxFailureRate", "1"));
+        assertTrue("Failure rate " + report.getFailureRate() + " above " + maxFailureRate,
+                report.getFailureRate() <= maxFailureRate);
+    }
+
+    private static List<LoadDriver.RequestType> requestMix(int resourcesPerRequest) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        String resources = "{\"body\":" + resourcesJson(resourcesPerRequest) + "}";
+
+        Metric metric = new Metric();
+        metric.setTag("availability");
+        metric.setValue("1");
+        CloudMonitoringDevice device = new CloudMonitoringDevice();
+        device.setId("device1");
+        device.setMetrics(Collections.singletonList(metric));
+        CloudMonitoringPlatform monitoring = new CloudMonitoringPlatform();
+        monitoring.setPlatformId("loadTestPlatform");
+        monitoring.setMetrics(Collections.singletonList(device));
+
+        return Arrays.asList(
+                new LoadDriver.RequestType("createResources", "POST", "/platforms/loadTestPlatform/resources", resources, 4),
+                new LoadDriver.RequestType("modifyResources", "PUT", "/platforms/loadTestPlatform/resources", resources, 2),
+                new LoadDriver.RequestType("deleteResources", "DELETE", "/platforms/loadTestPlatform/resources", resources, 1),
+                new LoadDriver.RequestType("monitoring", "POST", "/crm/Monitoring/loadTestPlatform/devices/status",
+                        mapper.writeValueAsString(monitoring), 4),
+                new LoadDriver.RequestType("accessNotifications", "POST", "/accessNotifications",
+                        mapper.writeValueAsString(new NotificationMessage()), 4),
+                new LoadDriver.RequestType("createSspResources", "POST", "/ssps/loadTestSsp/sdevs/sdev1/resources", resources, 1));
+    }
+
+    private static String resourcesJson(int count) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("\"internal-").append(i).append("\":{")
+                    .append("\"@c\":\".StationarySensor\",")
+                    .append("\"name\":\"Stationary sensor ").append(i).append("\",")
+                    .append("\"description\":[\"Sensor ").append(i).append(" used in load tests\"],")
+                    .append("\"interworkingServiceURL\":\"https://loadtest.example.com/rap\",")
+                    .append("\"locatedAt\":{\"@c\":\".WGS84Location\",\"longitude\":2.345,\"latitude\":15.1617,")
+                    .append("\"altitude\":100,\"name\":\"Location\",\"description\":[\"This is location\"]},")
+                    .append("\"featureOfInterest\":{\"name\":\"Room ").append(i)
+                    .append("\",\"description\":[\"This is room\"],\"hasProperty\":[\"temperature\"]},")
+                    .append("\"observesProperty\":[\"Temperature\",\"Humidity\"]}");
+        }
+        return json.append('}').toString();
+    }
+
+    private static Map<String, String> securityHeaders() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"token\"," +
+                "\"authenticationChallenge\":\"authenticationChallenge\"," +
+                "\"clientCertificate\":\"clientCertificate\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"clientCertificateSigningAAMCertificate\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"foreignTokenIssuingAAMCertificate\"}");
+        return headers;
+    }
+
+    private static void writeReport(LoadReport report) throws IOException {
+        String reportDir = System.getProperty("loadTest.reportDir");
+        if (reportDir == null)
+            return;
+        File dir = new File(reportDir);
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create " + dir);
+        Files.write(new File(dir, "load-test-" + System.currentTimeMillis() + ".json").toPath(),
+                report.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+}
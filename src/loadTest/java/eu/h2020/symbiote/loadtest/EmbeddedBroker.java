@@ -0,0 +1,73 @@
+package eu.h2020.symbiote.loadtest;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.qpid.server.SystemLauncher;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AMQP 0-9-1 broker (Apache Qpid Broker-J) running in the JVM of the load test, with in-memory storage.
+ * <p>
+ * The broker listens on a free port of the loopback interface and accepts guest/guest credentials,
+ * so that CloudCoreInterface can connect to it with its default configuration apart from the port.
+ */
+public class EmbeddedBroker implements AutoCloseable {
+    private static Log log = LogFactory.getLog(EmbeddedBroker.class);
+
+    private static final String INITIAL_CONFIGURATION = "embedded-broker.json";
+
+    private final SystemLauncher launcher = new SystemLauncher();
+    private final int port;
+
+    /**
+     * Starts the broker.
+     *
+     * @throws Exception if the broker fails to start
+     */
+    public EmbeddedBroker() throws Exception {
+        this.port = findFreePort();
+
+        URL initialConfiguration = EmbeddedBroker.class.getClassLoader().getResource(INITIAL_CONFIGURATION);
+        if (initialConfiguration == null)
+            throw new IllegalStateException(INITIAL_CONFIGURATION + " not found on classpath");
+
+        Map<String, String> context = new HashMap<>();
+        context.put("qpid.amqp_port", String.valueOf(port));
+        context.put("qpid.work_dir", Files.createTempDirectory("cci-broker").toString());
+        context.put("qpid.broker.defaultPreferenceStoreAttributes", "{\"type\": \"Noop\"}");
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("type", "Memory");
+        attributes.put("initialConfigurationLocation", initialConfiguration.toExternalForm());
+        attributes.put("startupLoggedToSystemOut", false);
+        attributes.put("context", context);
+
+        launcher.startup(attributes);
+        log.info("Embedded AMQP broker listening on port " + port);
+    }
+
+    /**
+     * @return port the broker listens on
+     */
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        launcher.shutdown();
+        log.info("Embedded AMQP broker stopped");
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package eu.h2020.symbiote.loadtest;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues a weighted mix of requests against REST endpoints of CloudCoreInterface from many threads at once.
+ * <p>
+ * Every thread sends requests back to back (closed model), so the offered load adapts to the latency of the service.
+ * Requests completed during the warm-up period are not reported.
+ */
+public class LoadDriver {
+    private static Log log = LogFactory.getLog(LoadDriver.class);
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    /**
+     * Type of requests of the mix.
+     */
+    public static final class RequestType {
+        private final String name;
+        private final String method;
+        private final String path;
+        private final String body;
+        private final int weight;
+
+        /**
+         * @param name   name of the request type used in the report
+         * @param method HTTP method
+         * @param path   path of the endpoint, relative to the base URL
+         * @param body   JSON body of the request
+         * @param weight relative frequency of the request type in the mix
+         */
+        public RequestType(String name, String method, String path, String body, int weight) {
+            this.name = name;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+            this.weight = weight;
+        }
+    }
+
+    private final String baseUrl;
+    private final Headers headers;
+    private final OkHttpClient client;
+
+    /**
+     * @param baseUrl base URL of CloudCoreInterface
+     * @param headers headers sent with every request
+     * @param threads number of concurrent clients
+     */
+    public LoadDriver(String baseUrl, Map<String, String> headers, int threads) {
+        this.baseUrl = baseUrl;
+        this.headers = Headers.of(headers);
+        this.client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(threads, 5, TimeUnit.MINUTES))
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Runs the load.
+     *
+     * @param mix            request types
+     * @param threads        number of concurrent clients
+     * @param warmupMillis   duration of the warm-up period
+     * @param durationMillis duration of the measured period
+     * @return report of the measured period
+     * @throws InterruptedException if interrupted while waiting for clients to finish
+     */
+    public LoadReport run(List<RequestType> mix, int threads, long warmupMillis, long durationMillis) throws InterruptedException {
+        int totalWeight = mix.stream().mapToInt(type -> type.weight).sum();
+        long measureStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        long end = measureStart + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        LoadReport report = new LoadReport();
+
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < end) {
+                    RequestType type = pick(mix, totalWeight);
+                    long startNanos = System.nanoTime();
+                    int status = call(type);
+                    if (startNanos >= measureStart && System.nanoTime() < end)
+                        report.record(type.name, status, startNanos);
+                }
+            });
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(warmupMillis + durationMillis + 120000, TimeUnit.MILLISECONDS))
+            log.warn("Clients did not finish on time");
+
+        report.setDurationMillis(durationMillis);
+        client.connectionPool().evictAll();
+        return report;
+    }
+
+    private static RequestType pick(List<RequestType> mix, int totalWeight) {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (RequestType type : mix) {
+            r -= type.weight;
+            if (r < 0)
+                return type;
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    private int call(RequestType type) {
+        Request request = new Request.Builder()
+                .url(baseUrl + type.path)
+                .headers(headers)
+                .method(type.method, RequestBody.create(JSON, type.body))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (body != null)
+                body.bytes();
+            return response.code();
+        } catch (IOException e) {
+            log.debug("Request " + type.name + " failed", e);
+            return -1;
+        }
+    }
+}
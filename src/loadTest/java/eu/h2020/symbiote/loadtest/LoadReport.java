@@ -0,0 +1,103 @@
+package eu.h2020.symbiote.loadtest;
+
+import eu.h2020.symbiote.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput, latency percentiles and error rates of requests issued by {@link LoadDriver}, per request type.
+ * <p>
+ * Responses with status 504 are counted as timeouts, other responses with status of at least 400 and failed
+ * HTTP calls as errors.
+ */
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private volatile long durationMillis;
+
+    void record(String name, int status, long startNanos) {
+        Series s = series.computeIfAbsent(name, n -> new Series());
+        s.latency.recordSince(startNanos);
+        if (status == 504)
+            s.timeouts.increment();
+        else if (status >= 400 || status < 0)
+            s.errors.increment();
+    }
+
+    void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return total number of requests
+     */
+    public long getCount() {
+        return series.values().stream().mapToLong(s -> s.latency.getCount()).sum();
+    }
+
+    /**
+     * @return fraction of requests which failed or timed out
+     */
+    public double getFailureRate() {
+        long count = getCount();
+        long failures = series.values().stream().mapToLong(s -> s.errors.sum() + s.timeouts.sum()).sum();
+        return count == 0 ? 0 : (double) failures / count;
+    }
+
+    /**
+     * @return report as a table, one row per request type
+     */
+    public String toText() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-24s %10s %10s %10s %10s %10s %10s %8s %8s%n",
+                "request", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "err %", "t/o %"));
+        for (Map.Entry<String, Series> entry : new TreeMap<>(series).entrySet()) {
+            Series s = entry.getValue();
+            long count = s.latency.getCount();
+            out.append(String.format("%-24s %10d %10.1f", entry.getKey(), count, count * 1000.0 / Math.max(1, durationMillis)));
+            for (double percentile : PERCENTILES)
+                out.append(String.format(" %10.2f", s.latency.getValueAtPercentile(percentile) / 1000.0));
+            out.append(String.format(" %8.2f %8.2f%n", 100.0 * s.errors.sum() / Math.max(1, count),
+                    100.0 * s.timeouts.sum() / Math.max(1, count)));
+        }
+        out.append(String.format("total %d requests in %d ms, %.1f req/s, failure rate %.2f %%%n",
+                getCount(), durationMillis, getCount() * 1000.0 / Math.max(1, durationMillis), 100 * getFailureRate()));
+        return out.toString();
+    }
+
+    /**
+     * @return report as JSON, for comparison between runs
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"durationMillis\":").append(durationMillis).append(",\"requests\":{");
+        boolean first = true;
+        for (Map.Entry<String, Series> entry : new TreeMap<>(series).entrySet()) {
+            Series s = entry.getValue();
+            if (!first)
+                out.append(',');
+            first = false;
+            out.append('"').append(entry.getKey()).append("\":{\"count\":").append(s.latency.getCount())
+                    .append(",\"errors\":").append(s.errors.sum())
+                    .append(",\"timeouts\":").append(s.timeouts.sum())
+                    .append(",\"meanMicros\":").append(s.latency.getSumMicros() / Math.max(1, s.latency.getCount()));
+            for (double percentile : PERCENTILES)
+                out.append(",\"p").append(String.valueOf(percentile).replace(".0", "").replace('.', '_'))
+                        .append("Micros\":").append(s.latency.getValueAtPercentile(percentile));
+            out.append('}');
+        }
+        out.append("}}");
+        return out.toString();
+    }
+
+    private static final class Series {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+    }
+}
@@ -0,0 +1,179 @@
+package eu.h2020.symbiote.loadtest;
+
+import eu.h2020.symbiote.capture.CaptureReader;
+import eu.h2020.symbiote.capture.CapturedRequest;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-issues requests from a capture file written by CloudCoreInterface against a running instance.
+ * <p>
+ * Requests are sent at their original pace multiplied by a speed factor (1 keeps the original rate, 2 doubles it),
+ * or as fast as possible with speed 0, in every case with at most <i>concurrency</i> requests in flight.
+ * Latencies and statuses are compared with the captured ones in a {@link ReplayReport}.
+ * <p>
+ * Usage: <i>ReplayDriver captureFile baseUrl [speed|max] [concurrency]</i>, or <i>gradle replay</i>.
+ */
+public class ReplayDriver {
+    private static Log log = LogFactory.getLog(ReplayDriver.class);
+
+    private static final Set<String> SKIPPED_HEADERS = new HashSet<>(Arrays.asList(
+            "host", "content-length", "connection", "transfer-encoding", "accept-encoding", "keep-alive"));
+
+    private final String baseUrl;
+    private final int concurrency;
+    private final OkHttpClient client;
+
+    /**
+     * @param baseUrl     base URL of the CloudCoreInterface instance
+     * @param concurrency maximum number of requests in flight
+     */
+    public ReplayDriver(String baseUrl, int concurrency) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.concurrency = concurrency;
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(concurrency);
+        dispatcher.setMaxRequestsPerHost(concurrency);
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(concurrency, 5, TimeUnit.MINUTES))
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Replays all requests of a capture.
+     *
+     * @param reader reader of the capture
+     * @param speed  factor the original rate is multiplied by, or 0 to send requests as fast as possible
+     * @return comparison of replayed requests with the captured ones
+     * @throws IOException          if the capture cannot be read
+     * @throws InterruptedException if interrupted while replaying
+     */
+    public ReplayReport replay(CaptureReader reader, double speed) throws IOException, InterruptedException {
+        ReplayReport report = new ReplayReport();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long startNanos = System.nanoTime();
+        long firstTimestamp = -1;
+
+        CapturedRequest captured;
+        while ((captured = reader.next()) != null) {
+            if (firstTimestamp < 0)
+                firstTimestamp = captured.getTimestampMillis();
+            if (speed > 0) {
+                long dueNanos = startNanos + (long) ((captured.getTimestampMillis() - firstTimestamp) * 1e6 / speed);
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0)
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+
+            inFlight.acquire();
+            send(captured, report, inFlight);
+        }
+
+        inFlight.acquire(concurrency);
+        report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        return report;
+    }
+
+    private void send(CapturedRequest captured, ReplayReport report, Semaphore inFlight) {
+        Headers.Builder headers = new Headers.Builder();
+        for (Map.Entry<String, String> header : captured.getHeaders().entrySet()) {
+            if (!SKIPPED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT)))
+                headers.add(header.getKey(), header.getValue());
+        }
+
+        RequestBody body = null;
+        if (captured.getBody().length > 0 || requiresBody(captured.getMethod())) {
+            String contentType = captured.getHeaders().entrySet().stream()
+                    .filter(header -> header.getKey().equalsIgnoreCase("content-type"))
+                    .map(Map.Entry::getValue).findFirst().orElse("application/json");
+            body = RequestBody.create(MediaType.parse(contentType), captured.getBody());
+        }
+
+        Request request = new Request.Builder()
+                .url(baseUrl + captured.getUri())
+                .headers(headers.build())
+                .method(captured.getMethod(), body)
+                .build();
+
+        long startNanos = System.nanoTime();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.debug("Replay of " + captured.getMethod() + " " + captured.getUri() + " failed", e);
+                complete(-1);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try {
+                    response.body().bytes();
+                    complete(response.code());
+                } finally {
+                    response.close();
+                }
+            }
+
+            private void complete(int status) {
+                report.record(captured.getEndpoint(), captured.getStatus(), captured.getDurationMicros(), status,
+                        (System.nanoTime() - startNanos) / 1000);
+                inFlight.release();
+            }
+        });
+    }
+
+    private static boolean requiresBody(String method) {
+        return method.equals("POST") || method.equals("PUT") || method.equals("PATCH");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ReplayDriver captureFile baseUrl [speed|max] [concurrency]");
+            System.exit(1);
+        }
+        double speed = args.length > 2 && !args[2].equals("max") ? Double.parseDouble(args[2]) : args.length > 2 ? 0 : 1;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        ReplayReport report;
+        try (CaptureReader reader = new CaptureReader(Paths.get(args[0]))) {
+            report = new ReplayDriver(args[1], concurrency).replay(reader, speed);
+        }
+        System.out.println(report.toText());
+
+        String reportDir = System.getProperty("loadTest.reportDir");
+        if (reportDir != null) {
+            File dir = new File(reportDir);
+            if (!dir.isDirectory() && !dir.mkdirs())
+                throw new IOException("Cannot create " + dir);
+            Files.write(new File(dir, "replay-" + System.currentTimeMillis() + ".json").toPath(),
+                    report.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package eu.h2020.symbiote.loadtest;
+
+import eu.h2020.symbiote.metrics.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Comparison of latencies and statuses of replayed requests with the ones recorded in the capture, per endpoint.
+ */
+public class ReplayReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private volatile long durationMillis;
+
+    void record(String endpoint, int originalStatus, long originalMicros, int status, long micros) {
+        Series s = series.computeIfAbsent(endpoint.isEmpty() ? "unmatched" : endpoint, e -> new Series());
+        s.original.recordMicros(originalMicros);
+        s.replayed.recordMicros(micros);
+        if (status < 0)
+            s.failures.increment();
+        else if (status != originalStatus)
+            s.statusMismatches.increment();
+    }
+
+    void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return number of replayed requests
+     */
+    public long getCount() {
+        return series.values().stream().mapToLong(s -> s.replayed.getCount()).sum();
+    }
+
+    /**
+     * @return report as a table of original and replayed latency percentiles in milliseconds, one row per endpoint
+     */
+    public String toText() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-48s %8s", "endpoint", "count"));
+        for (double percentile : PERCENTILES)
+            out.append(String.format(" %10s %10s %7s", "p" + (int) percentile + " orig", "p" + (int) percentile + " now", "diff %"));
+        out.append(String.format(" %9s %9s%n", "status !=", "failed"));
+
+        for (Map.Entry<String, Series> entry : new TreeMap<>(series).entrySet()) {
+            Series s = entry.getValue();
+            out.append(String.format("%-48s %8d", entry.getKey(), s.replayed.getCount()));
+            for (double percentile : PERCENTILES) {
+                long original = s.original.getValueAtPercentile(percentile);
+                long replayed = s.replayed.getValueAtPercentile(percentile);
+                out.append(String.format(" %10.2f %10.2f %+7.1f", original / 1000.0, replayed / 1000.0,
+                        100.0 * (replayed - original) / Math.max(1, original)));
+            }
+            out.append(String.format(" %9d %9d%n", s.statusMismatches.sum(), s.failures.sum()));
+        }
+        out.append(String.format("replayed %d requests in %d ms, %.1f req/s%n",
+                getCount(), durationMillis, getCount() * 1000.0 / Math.max(1, durationMillis)));
+        return out.toString();
+    }
+
+    /**
+     * @return report as JSON, for comparison between runs
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"durationMillis\":").append(durationMillis).append(",\"endpoints\":{");
+        boolean first = true;
+        for (Map.Entry<String, Series> entry : new TreeMap<>(series).entrySet()) {
+            Series s = entry.getValue();
+            if (!first)
+                out.append(',');
+            first = false;
+            out.append('"').append(entry.getKey().replace("\"", "\\\"")).append("\":{\"count\":").append(s.replayed.getCount())
+                    .append(",\"statusMismatches\":").append(s.statusMismatches.sum())
+                    .append(",\"failures\":").append(s.failures.sum());
+            for (double percentile : PERCENTILES) {
+                out.append(",\"p").append((int) percentile).append("OriginalMicros\":").append(s.original.getValueAtPercentile(percentile))
+                        .append(",\"p").append((int) percentile).append("Micros\":").append(s.replayed.getValueAtPercentile(percentile));
+            }
+            out.append('}');
+        }
+        out.append("}}");
+        return out.toString();
+    }
+
+    private static final class Series {
+        private final LatencyHistogram original = new LatencyHistogram();
+        private final LatencyHistogram replayed = new LatencyHistogram();
+        private final LongAdder statusMismatches = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+    }
+}
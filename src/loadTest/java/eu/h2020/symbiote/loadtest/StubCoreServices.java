@@ -0,0 +1,178 @@
+package eu.h2020.symbiote.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.*;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.communication.local.LocalTransport;
+import eu.h2020.symbiote.communication.local.StubRegistry;
+import eu.h2020.symbiote.core.internal.ClearDataRequest;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryRequest;
+import eu.h2020.symbiote.core.internal.CoreSdevRegistryRequest;
+import eu.h2020.symbiote.core.internal.CoreSspResourceRegistryRequest;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Stub Registry, CRM, CRAM and SSP services answering RPC requests of CloudCoreInterface over AMQP.
+ * <p>
+ * Requests are answered by the handlers of {@link StubRegistry}, after the processing time and with the failures
+ * drawn from the {@link StubProfile} of the service. Replies are delayed on a scheduler, so slow responses
+ * do not limit the number of requests processed concurrently.
+ */
+public class StubCoreServices implements AutoCloseable {
+    private static Log log = LogFactory.getLog(StubCoreServices.class);
+
+    private static final byte[] ERROR_RESPONSE = "{\"status\":500,\"message\":\"Error simulated by stub core service\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final Properties config;
+    private final Connection connection;
+    private final Channel replyChannel;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LocalTransport core = new LocalTransport();
+
+    private final AtomicLong answered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Connects to the broker and starts consuming requests.
+     *
+     * @param port     port of the broker on localhost
+     * @param config   CloudCoreInterface configuration with names of exchanges and routing keys
+     * @param registry profile of Registry, used for resource operations
+     * @param crm      profile of Core Resource Monitor
+     * @param cram     profile of Core Resource Access Monitor
+     * @param ssp      profile of SSP related operations of Registry
+     * @throws IOException      if declaring exchanges or queues fails
+     * @throws TimeoutException if connecting to the broker times out
+     */
+    public StubCoreServices(int port, Properties config, StubProfile registry, StubProfile crm, StubProfile cram,
+                            StubProfile ssp) throws IOException, TimeoutException {
+        this.config = config;
+
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost("localhost");
+        factory.setPort(port);
+        factory.setUsername(config.getProperty("rabbit.username"));
+        factory.setPassword(config.getProperty("rabbit.password"));
+        this.connection = factory.newConnection();
+        this.replyChannel = connection.createChannel();
+
+        new StubRegistry(core, 0).register();
+
+        bind("resource", "resource.creationRequested", CoreResourceRegistryRequest.class, core::sendResourceCreationRequest, registry);
+        bind("resource", "resource.modificationRequested", CoreResourceRegistryRequest.class, core::sendResourceModificationRequest, registry);
+        bind("resource", "resource.removalRequested", CoreResourceRegistryRequest.class, core::sendResourceRemovalRequest, registry);
+        bind("resource", "resource.clearDataRequested", ClearDataRequest.class, core::sendClearDataRequest, registry);
+        bind("crm", "crm.monitoring", CloudMonitoringPlatformRequest.class, core::sendMonitoringMessage, crm);
+        bind("cram", "cram.accessNotifications", NotificationMessageSecured.class, core::sendAccessNotificationMessage, cram);
+        bind("ssp", "ssp.sdev.creationRequested", CoreSdevRegistryRequest.class, core::sendSdevCreationRequest, ssp);
+        bind("ssp", "ssp.sdev.modificationRequested", CoreSdevRegistryRequest.class, core::sendSdevModificationRequest, ssp);
+        bind("ssp", "ssp.sdev.removalRequested", CoreSdevRegistryRequest.class, core::sendSdevRemovalRequest, ssp);
+        bind("resource", "ssp.sdev.resource.creationRequested", CoreSspResourceRegistryRequest.class, core::sendSspResourceCreationRequest, ssp);
+        bind("resource", "ssp.sdev.resource.modificationRequested", CoreSspResourceRegistryRequest.class, core::sendSspResourceModificationRequest, ssp);
+        bind("resource", "ssp.sdev.resource.removalRequested", CoreSspResourceRegistryRequest.class, core::sendSspResourceRemovalRequest, ssp);
+
+        log.info("Stub core services started: registry " + registry + "; crm " + crm + "; cram " + cram + "; ssp " + ssp);
+    }
+
+    private <Q> void bind(String exchange, String routingKeyName, Class<Q> requestType, Function<Q, ?> handler,
+                          StubProfile profile) throws IOException {
+        String exchangeName = config.getProperty("rabbit.exchange." + exchange + ".name");
+        String routingKey = config.getProperty("rabbit.routingKey." + routingKeyName);
+
+        Channel channel = connection.createChannel();
+        channel.exchangeDeclare(exchangeName,
+                config.getProperty("rabbit.exchange." + exchange + ".type"),
+                Boolean.parseBoolean(config.getProperty("rabbit.exchange." + exchange + ".durable")),
+                Boolean.parseBoolean(config.getProperty("rabbit.exchange." + exchange + ".autodelete")),
+                Boolean.parseBoolean(config.getProperty("rabbit.exchange." + exchange + ".internal")),
+                null);
+        String queueName = channel.queueDeclare().getQueue();
+        channel.queueBind(queueName, exchangeName, routingKey);
+
+        channel.basicConsume(queueName, true, new DefaultConsumer(channel) {
+            @Override
+            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+                StubProfile.Outcome outcome = profile.sampleOutcome();
+                if (outcome == StubProfile.Outcome.TIMEOUT) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+
+                byte[] response;
+                if (outcome == StubProfile.Outcome.ERROR) {
+                    failed.incrementAndGet();
+                    response = ERROR_RESPONSE;
+                } else {
+                    try {
+                        response = mapper.writeValueAsBytes(handler.apply(mapper.readValue(body, requestType)));
+                        answered.incrementAndGet();
+                    } catch (IOException e) {
+                        log.error("Stub could not handle request sent to " + routingKey, e);
+                        failed.incrementAndGet();
+                        response = ERROR_RESPONSE;
+                    }
+                }
+
+                byte[] reply = response;
+                scheduler.schedule(() -> reply(properties, reply), profile.sampleLatencyMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private void reply(AMQP.BasicProperties request, byte[] response) {
+        AMQP.BasicProperties props = new AMQP.BasicProperties()
+                .builder()
+                .correlationId(request.getCorrelationId())
+                .contentType("application/json")
+                .build();
+        try {
+            synchronized (replyChannel) {
+                replyChannel.basicPublish("", request.getReplyTo(), props, response);
+            }
+        } catch (IOException e) {
+            log.error("Stub could not send reply to " + request.getReplyTo(), e);
+        }
+    }
+
+    /**
+     * @return number of requests answered successfully
+     */
+    public long getAnswered() {
+        return answered.get();
+    }
+
+    /**
+     * @return number of requests answered with an error
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of requests left without a response
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() throws IOException, TimeoutException {
+        scheduler.shutdownNow();
+        connection.close();
+    }
+}
@@ -0,0 +1,78 @@
+package eu.h2020.symbiote.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Behaviour of a stub core service: distribution of its processing time and of its failures.
+ * <p>
+ * Processing time is a fixed minimum plus an exponentially distributed part, which approximates the long tail
+ * of real services. A request fails with a 500 response with probability <i>errorRate</i>, or is never answered,
+ * which makes CloudCoreInterface time out, with probability <i>timeoutRate</i>.
+ */
+public class StubProfile {
+
+    /**
+     * Outcome of a request handled by a stub service.
+     */
+    public enum Outcome {OK, ERROR, TIMEOUT}
+
+    private final long minLatencyMillis;
+    private final double meanExtraLatencyMillis;
+    private final double errorRate;
+    private final double timeoutRate;
+
+    /**
+     * @param minLatencyMillis       minimum processing time in milliseconds
+     * @param meanExtraLatencyMillis mean of the exponentially distributed processing time above the minimum
+     * @param errorRate              probability of an error response
+     * @param timeoutRate            probability of no response at all
+     */
+    public StubProfile(long minLatencyMillis, double meanExtraLatencyMillis, double errorRate, double timeoutRate) {
+        this.minLatencyMillis = minLatencyMillis;
+        this.meanExtraLatencyMillis = meanExtraLatencyMillis;
+        this.errorRate = errorRate;
+        this.timeoutRate = timeoutRate;
+    }
+
+    /**
+     * Reads profile of a service from system properties <i>loadTest.{service}.minLatencyMillis</i>,
+     * <i>.meanExtraLatencyMillis</i>, <i>.errorRate</i> and <i>.timeoutRate</i>.
+     *
+     * @param service name of the service, e.g. registry
+     * @return profile of the service
+     */
+    public static StubProfile fromSystemProperties(String service) {
+        String prefix = "loadTest." + service + ".";
+        return new StubProfile(
+                Long.getLong(prefix + "minLatencyMillis", 2),
+                Double.parseDouble(System.getProperty(prefix + "meanExtraLatencyMillis", "8")),
+                Double.parseDouble(System.getProperty(prefix + "errorRate", "0")),
+                Double.parseDouble(System.getProperty(prefix + "timeoutRate", "0")));
+    }
+
+    /**
+     * @return processing time of a request in milliseconds
+     */
+    public long sampleLatencyMillis() {
+        double uniform = ThreadLocalRandom.current().nextDouble();
+        return minLatencyMillis + Math.round(-Math.log(1 - uniform) * meanExtraLatencyMillis);
+    }
+
+    /**
+     * @return outcome of a request
+     */
+    public Outcome sampleOutcome() {
+        double uniform = ThreadLocalRandom.current().nextDouble();
+        if (uniform < timeoutRate)
+            return Outcome.TIMEOUT;
+        if (uniform < timeoutRate + errorRate)
+            return Outcome.ERROR;
+        return Outcome.OK;
+    }
+
+    @Override
+    public String toString() {
+        return "min " + minLatencyMillis + " ms + exp(" + meanExtraLatencyMillis + " ms), error rate " + errorRate
+                + ", timeout rate " + timeoutRate;
+    }
+}
@@ -1,6 +1,7 @@
 package eu.h2020.symbiote;
 
 import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.RoutingTransport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
@@ -31,15 +32,18 @@ public class CloudCoreInterfaceApplication {
     public static class CLR implements CommandLineRunner {
 
         private final RabbitManager rabbitManager;
+        private final RoutingTransport routingTransport;
 
         @Autowired
-        public CLR(RabbitManager rabbitManager) {
+        public CLR(RabbitManager rabbitManager, RoutingTransport routingTransport) {
             this.rabbitManager = rabbitManager;
+            this.routingTransport = routingTransport;
         }
 
         @Override
         public void run(String... args) throws Exception {
-            this.rabbitManager.initCommunication();
+            if (this.routingTransport.isUsed(this.rabbitManager) && !this.rabbitManager.isInitializationStarted())
+                this.rabbitManager.initCommunication();
         }
     }
 
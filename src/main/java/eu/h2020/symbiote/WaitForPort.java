@@ -1,28 +1,38 @@
 package eu.h2020.symbiote;
 
 import java.io.IOException;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class for waiting other services to startup.
  *
  *  It is checking if service is available on specified host and port.
+ *  All services are probed at once with non-blocking connects; a service which is not available
+ *  is probed again after an exponentially growing, jittered delay.
  *
  * @author Mario Kušek
  *
  */
 public class WaitForPort {
 
-    private int waitTimeInMilis;
-    private int maxIteration;
+    private final long connectTimeoutMillis;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long deadlineMillis;
 
     /**
      * Waits for services in format "host1:port1;host2:port2;..."
      *
-     * It waits with default values of 1000 ms between checks and max
-     * number of checks per host is 1000.
+     * Connect attempts time out after 1000 ms, delays between attempts grow from 50 ms to 2000 ms
+     * and all services have to be available within 1000 s.
      *
      * @param hostWithPorts string that represents hosts and ports
      */
@@ -31,18 +41,32 @@ public class WaitForPort {
             System.out.println("No service to wait for. Continuing immediately.");
             return;
         }
-        new WaitForPort(1000, 1000).start(hostWithPorts);
+        new WaitForPort(1000, 50, 2000, 1000000).start(hostWithPorts);
     }
 
     /**
      * Creates object that implements waiting for other services.
      *
-     * @param waitTimeInMilis time beetween checks
-     * @param maxIteration maximal number of iteretion per pair of host and port
+     * @param waitTimeInMilis maximal time beetween checks
+     * @param maxIteration maximal number of iteretion per pair of host and port, which bounds the total wait time
      */
     public WaitForPort(int waitTimeInMilis, int maxIteration) {
-        this.waitTimeInMilis = waitTimeInMilis;
-        this.maxIteration = maxIteration;
+        this(waitTimeInMilis, Math.min(50, waitTimeInMilis), waitTimeInMilis, (long) waitTimeInMilis * maxIteration);
+    }
+
+    /**
+     * Creates object that implements waiting for other services.
+     *
+     * @param connectTimeoutMillis time after which a connect attempt is abandoned
+     * @param initialBackoffMillis delay before the second attempt to connect to a service
+     * @param maxBackoffMillis maximal delay between attempts, reached by doubling the initial one
+     * @param deadlineMillis time within which all services have to be available
+     */
+    public WaitForPort(long connectTimeoutMillis, long initialBackoffMillis, long maxBackoffMillis, long deadlineMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.deadlineMillis = deadlineMillis;
     }
 
     /**
@@ -53,26 +77,108 @@ public class WaitForPort {
      * @throws RuntimeException when max wait time for some host is reached.
      */
     public void start(String hostsWithPorts) {
-        List<HostPort> hostPorts = parse(hostsWithPorts);
-
-        for(HostPort hp: hostPorts) {
+        List<Probe> pending = new ArrayList<>();
+        for(HostPort hp: parse(hostsWithPorts)) {
             System.out.println("Checking availability of service: " + hp);
-            for(int i = 1; i <= maxIteration; i++) {
-                try (Socket socket = new Socket(hp.host, hp.port)) {
+            pending.add(new Probe(hp, initialBackoffMillis));
+        }
+        List<Probe> probes = new ArrayList<>(pending);
+
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        try (Selector selector = Selector.open()) {
+            while(!pending.isEmpty()) {
+                long now = System.nanoTime();
+                if(now - deadlineNanos >= 0)
                     break;
-                } catch (IOException e) {
-                    System.out.println("Waiting for " + hp);
+
+                long wakeUpNanos = deadlineNanos;
+                for(Probe probe: pending) {
+                    if(probe.channel == null && now - probe.nextAttemptNanos >= 0)
+                        connect(probe, selector, now);
+                    if(probe.channel != null && now - probe.connectStartNanos >= TimeUnit.MILLISECONDS.toNanos(connectTimeoutMillis))
+                        retry(probe, now);
+                    long due = probe.channel != null
+                            ? probe.connectStartNanos + TimeUnit.MILLISECONDS.toNanos(connectTimeoutMillis)
+                            : probe.nextAttemptNanos;
+                    if(probe.readyNanos < 0 && due - wakeUpNanos < 0)
+                        wakeUpNanos = due;
+                }
+                pending.removeIf(probe -> probe.readyNanos >= 0);
+                if(pending.isEmpty())
+                    break;
+
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wakeUpNanos - System.nanoTime())));
+                for(SelectionKey key: selector.selectedKeys()) {
+                    Probe probe = (Probe) key.attachment();
                     try {
-                        Thread.sleep(waitTimeInMilis);
-                    } catch (InterruptedException waitException) {
+                        if(probe.channel.finishConnect())
+                            ready(probe, System.nanoTime());
+                    } catch (IOException e) {
+                        retry(probe, System.nanoTime());
                     }
                 }
-                if(i == maxIteration) {
-                    throw new RuntimeException("Max wait time reached for service " + hp.host + ":" + hp.port);
-                }
+                selector.selectedKeys().clear();
+                pending.removeIf(probe -> probe.readyNanos >= 0);
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot probe services", e);
+        } finally {
+            for(Probe probe: pending)
+                probe.close();
+            report(probes, startNanos);
         }
 
+        if(!pending.isEmpty()) {
+            StringBuilder services = new StringBuilder();
+            for(Probe probe: pending)
+                services.append(services.length() == 0 ? "" : ", ").append(probe.hostPort);
+            throw new RuntimeException("Max wait time reached for service " + services);
+        }
+    }
+
+    private void connect(Probe probe, Selector selector, long now) {
+        probe.attempts++;
+        probe.connectStartNanos = now;
+        InetSocketAddress address = new InetSocketAddress(probe.hostPort.host, probe.hostPort.port);
+        if(address.isUnresolved()) {
+            retry(probe, now);
+            return;
+        }
+        try {
+            probe.channel = SocketChannel.open();
+            probe.channel.configureBlocking(false);
+            if(probe.channel.connect(address))
+                ready(probe, now);
+            else
+                probe.channel.register(selector, SelectionKey.OP_CONNECT, probe);
+        } catch (IOException e) {
+            retry(probe, now);
+        }
+    }
+
+    private void retry(Probe probe, long now) {
+        probe.close();
+        System.out.println("Waiting for " + probe.hostPort);
+        long jitteredBackoff = probe.backoffMillis / 2 + ThreadLocalRandom.current().nextLong(probe.backoffMillis / 2 + 1);
+        probe.nextAttemptNanos = now + TimeUnit.MILLISECONDS.toNanos(jitteredBackoff);
+        probe.backoffMillis = Math.min(maxBackoffMillis, probe.backoffMillis * 2);
+    }
+
+    private static void ready(Probe probe, long now) {
+        probe.readyNanos = now;
+        probe.close();
+    }
+
+    private static void report(List<Probe> probes, long startNanos) {
+        for(Probe probe: probes) {
+            if(probe.readyNanos >= 0)
+                System.out.println("Service " + probe.hostPort + " available after "
+                        + TimeUnit.NANOSECONDS.toMillis(probe.readyNanos - startNanos) + " ms and " + probe.attempts + " attempts");
+            else
+                System.out.println("Service " + probe.hostPort + " not available after " + probe.attempts + " attempts");
+        }
     }
 
     /**
@@ -107,6 +213,35 @@ public class WaitForPort {
         return value;
     }
 
+    /**
+     * State of probing of a single service.
+     */
+    private static class Probe {
+        private final HostPort hostPort;
+        private long backoffMillis;
+        private long nextAttemptNanos = System.nanoTime();
+        private long connectStartNanos;
+        private long readyNanos = -1;
+        private int attempts;
+        private SocketChannel channel;
+
+        Probe(HostPort hostPort, long backoffMillis) {
+            this.hostPort = hostPort;
+            this.backoffMillis = backoffMillis;
+        }
+
+        void close() {
+            if(channel == null)
+                return;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing to do, the channel is abandoned
+            }
+            channel = null;
+        }
+    }
+
     /**
      * Helper class that contains host and port data.
      *
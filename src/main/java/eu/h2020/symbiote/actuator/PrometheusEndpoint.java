@@ -0,0 +1,32 @@
+package eu.h2020.symbiote.actuator;
+
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import eu.h2020.symbiote.metrics.PayloadMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint exposing latency histograms and payload metrics in the Prometheus text format.
+ */
+@Component
+public class PrometheusEndpoint extends AbstractEndpoint<String> {
+
+    private final LatencyMetrics latencyMetrics;
+    private final PayloadMetrics payloadMetrics;
+
+    @Autowired
+    public PrometheusEndpoint(LatencyMetrics latencyMetrics, PayloadMetrics payloadMetrics) {
+        super("prometheus", false);
+        this.latencyMetrics = latencyMetrics;
+        this.payloadMetrics = payloadMetrics;
+    }
+
+    @Override
+    public String invoke() {
+        StringBuilder out = new StringBuilder();
+        latencyMetrics.writePrometheus(out);
+        payloadMetrics.writePrometheus(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package eu.h2020.symbiote.actuator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.mvc.EndpointMvcAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Exposes {@link PrometheusEndpoint} over HTTP as plain text, as expected by Prometheus scrapers.
+ */
+@Component
+public class PrometheusMvcEndpoint extends EndpointMvcAdapter {
+
+    public static final String CONTENT_TYPE = "text/plain;version=0.0.4;charset=utf-8";
+
+    @Autowired
+    public PrometheusMvcEndpoint(PrometheusEndpoint delegate) {
+        super(delegate);
+    }
+
+    @Override
+    @RequestMapping(method = RequestMethod.GET, produces = CONTENT_TYPE)
+    @ResponseBody
+    public Object invoke() {
+        return super.invoke();
+    }
+}
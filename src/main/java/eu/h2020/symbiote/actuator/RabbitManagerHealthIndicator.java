@@ -0,0 +1,62 @@
+package eu.h2020.symbiote.actuator;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.RoutingTransport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health of the RabbitMQ connection used by {@link RabbitManager}.
+ * <p>
+ * Reports DOWN while the connection is being initialised or is not open, and OUT_OF_SERVICE while the broker blocks
+ * publishing on it. Reports UP if no operation is sent via RabbitMQ, as the connection is then not initialised.
+ */
+@Component
+public class RabbitManagerHealthIndicator extends AbstractHealthIndicator {
+
+    private final RabbitManager rabbitManager;
+    private final RoutingTransport routingTransport;
+
+    /**
+     * Creates indicator of RabbitManager used by all operations.
+     *
+     * @param rabbitManager RabbitManager bean
+     */
+    public RabbitManagerHealthIndicator(RabbitManager rabbitManager) {
+        this(rabbitManager, null);
+    }
+
+    @Autowired
+    public RabbitManagerHealthIndicator(RabbitManager rabbitManager, RoutingTransport routingTransport) {
+        this.rabbitManager = rabbitManager;
+        this.routingTransport = routingTransport;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (routingTransport != null && !routingTransport.isUsed(rabbitManager)) {
+            builder.up().withDetail("used", false);
+            return;
+        }
+        if (rabbitManager.isInitializing()) {
+            builder.down().withDetail("ready", false).withDetail("initializing", true);
+            return;
+        }
+        if (!rabbitManager.isConnected()) {
+            builder.down().withDetail("connected", false);
+            return;
+        }
+
+        builder.withDetail("connected", true)
+                .withDetail("blocked", rabbitManager.isBlocked());
+        if (rabbitManager.isBlocked()) {
+            builder.outOfService()
+                    .withDetail("blockedReason", rabbitManager.getBlockedReason())
+                    .withDetail("blockedMillis", rabbitManager.getBlockedMillis());
+        } else {
+            builder.up();
+        }
+    }
+}
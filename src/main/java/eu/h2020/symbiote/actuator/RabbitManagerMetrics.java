@@ -0,0 +1,60 @@
+package eu.h2020.symbiote.actuator;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.limit.ConcurrencyLimits;
+import eu.h2020.symbiote.communication.limit.GradientLimiter;
+import eu.h2020.symbiote.web.BrokerFlowControlInterceptor;
+import eu.h2020.symbiote.web.DeadlineInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes state of the RabbitMQ connection used by {@link RabbitManager} and concurrency limits of RPC requests
+ * through the metrics endpoint.
+ */
+@Component
+public class RabbitManagerMetrics implements PublicMetrics {
+
+    private final RabbitManager rabbitManager;
+    private final BrokerFlowControlInterceptor brokerFlowControlInterceptor;
+    private final ConcurrencyLimits concurrencyLimits;
+    private final DeadlineInterceptor deadlineInterceptor;
+
+    @Autowired
+    public RabbitManagerMetrics(RabbitManager rabbitManager, BrokerFlowControlInterceptor brokerFlowControlInterceptor,
+                                ConcurrencyLimits concurrencyLimits, DeadlineInterceptor deadlineInterceptor) {
+        this.rabbitManager = rabbitManager;
+        this.brokerFlowControlInterceptor = brokerFlowControlInterceptor;
+        this.concurrencyLimits = concurrencyLimits;
+        this.deadlineInterceptor = deadlineInterceptor;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("rabbit.connected", rabbitManager.isConnected() ? 1 : 0));
+        metrics.add(new Metric<>("rabbit.blocked", rabbitManager.isBlocked() ? 1 : 0));
+        metrics.add(new Metric<>("rabbit.blocked.millis", rabbitManager.getBlockedMillis()));
+        metrics.add(new Metric<>("rabbit.blocked.count", rabbitManager.getBlockedCount()));
+        metrics.add(new Metric<>("rabbit.blocked.rejectedMessages", rabbitManager.getRejectedWhileBlockedCount()));
+        metrics.add(new Metric<>("rabbit.blocked.shedRequests", brokerFlowControlInterceptor.getShedCount()));
+        metrics.add(new Metric<>("rabbit.deadline.rejectedMessages", rabbitManager.getRejectedPastDeadlineCount()));
+        metrics.add(new Metric<>("rabbit.deadline.shedRequests", deadlineInterceptor.getShedCount()));
+        for (Map.Entry<String, GradientLimiter> entry : concurrencyLimits.getLimiters().entrySet()) {
+            String prefix = "rabbit.limit." + entry.getKey();
+            GradientLimiter limiter = entry.getValue();
+            metrics.add(new Metric<>(prefix + ".limit", limiter.getLimit()));
+            metrics.add(new Metric<>(prefix + ".inFlight", limiter.getInFlight()));
+            metrics.add(new Metric<>(prefix + ".rejected", limiter.getRejected()));
+            metrics.add(new Metric<>(prefix + ".rttMicros", limiter.getRttMicros()));
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,32 @@
+package eu.h2020.symbiote.actuator;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing tuning parameters currently in effect in {@link RabbitManager}, including its
+ * concurrency limits.
+ * <p>
+ * Parameters are changed at runtime through the env endpoint or a config server refresh; see
+ * {@link RabbitManager#applyTuning(org.springframework.core.env.PropertyResolver)}.
+ */
+@Component
+public class RabbitTuningEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private final RabbitManager rabbitManager;
+
+    @Autowired
+    public RabbitTuningEndpoint(RabbitManager rabbitManager) {
+        super("rabbitTuning");
+        this.rabbitManager = rabbitManager;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        return rabbitManager.getTuning();
+    }
+}
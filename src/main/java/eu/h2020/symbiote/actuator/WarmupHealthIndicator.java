@@ -0,0 +1,37 @@
+package eu.h2020.symbiote.actuator;
+
+import eu.h2020.symbiote.warmup.Warmup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports DOWN while the startup {@link Warmup} is in progress, so that no traffic is routed to the instance before
+ * its request handling code paths are warmed up.
+ */
+@Component
+public class WarmupHealthIndicator extends AbstractHealthIndicator {
+
+    private final Warmup warmup;
+
+    @Autowired
+    public WarmupHealthIndicator(Warmup warmup) {
+        this.warmup = warmup;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (!warmup.isEnabled()) {
+            builder.up().withDetail("enabled", false);
+            return;
+        }
+
+        builder.withDetail("complete", warmup.isComplete())
+                .withDetail("iterations", warmup.getIterations());
+        if (warmup.isComplete())
+            builder.up();
+        else
+            builder.down();
+    }
+}
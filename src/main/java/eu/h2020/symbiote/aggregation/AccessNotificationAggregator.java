@@ -0,0 +1,329 @@
+package eu.h2020.symbiote.aggregation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.communication.CoreTransport;
+import eu.h2020.symbiote.communication.spool.MessageSpool;
+import eu.h2020.symbiote.communication.spool.SpooledMessage;
+import eu.h2020.symbiote.core.cci.accessNotificationMessages.NotificationMessage;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
+import eu.h2020.symbiote.security.communication.payloads.SecurityRequest;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulator of access notifications sent to Core Resource Access Monitor.
+ * <p>
+ * Successful attempts, successful pushes and failed attempts from many notifications are merged into a single
+ * {@link NotificationMessageSecured} per flush interval and per security context. Security context is identified
+ * by the tokens of the security credentials headers, so that notifications sent by the same RAP end up in the same
+ * message, although every request carries its own timestamp and authentication challenge. The merged message carries
+ * the security request of the latest notification, whose challenge is the most recent one of the window.
+ * <p>
+ * Every notification is written to a journal before it is accepted, so an accepted notification survives a restart.
+ * A journal record is removed when the merged message containing it has been delivered to CRAM or written to the
+ * message spool. Merged messages which could not be delivered are put back and retried in the next window, and
+ * records left in the journal by a previous run are delivered after start.
+ * <p>
+ * Number of entries waiting for delivery is limited. When the limit is reached, or the notification cannot be
+ * journaled, notifications are not accepted by the accumulator and should be sent directly.
+ */
+@Component
+public class AccessNotificationAggregator extends WindowedAggregator<AccessNotificationAggregator.ContextBuffer> {
+    private static Log log = LogFactory.getLog(AccessNotificationAggregator.class);
+
+    private static final int JOURNAL_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int JOURNAL_MAX_SEGMENTS = 16;
+    private static final String RECOVERED_KEY_PREFIX = "journal-";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final CoreTransport coreTransport;
+    private final MessageSpool journal;
+    private final long maxPendingEntries;
+    private final AtomicLong pendingEntries = new AtomicLong();
+
+    private final Object journalLock = new Object();
+    private final Set<Long> deliveredSequences = new HashSet<>();
+    private long nextSequence;
+    private long oldestSequence;
+
+    /**
+     * @param coreTransport     transport used to reach core services
+     * @param enabled           whether access notifications should be aggregated
+     * @param windowMillis      flush interval in milliseconds
+     * @param maxEntries        number of entries buffered for a single security context which causes an immediate flush
+     * @param maxPendingEntries total number of entries waiting for delivery above which notifications are not accepted
+     * @param flushThreads      number of threads sending merged notifications
+     * @param journalDirectory  directory of the journal of accepted notifications
+     * @param forceOnWrite      whether every journaled notification should be forced to the storage device
+     */
+    @Autowired
+    public AccessNotificationAggregator(CoreTransport coreTransport,
+                                        @Value("${cci.aggregation.accessNotifications.enabled:false}") boolean enabled,
+                                        @Value("${cci.aggregation.accessNotifications.windowMillis:1000}") long windowMillis,
+                                        @Value("${cci.aggregation.accessNotifications.maxEntries:5000}") int maxEntries,
+                                        @Value("${cci.aggregation.accessNotifications.maxPendingEntries:100000}") long maxPendingEntries,
+                                        @Value("${cci.aggregation.flushThreads:2}") int flushThreads,
+                                        @Value("${cci.aggregation.accessNotifications.journalDirectory:journal/accessNotifications}") String journalDirectory,
+                                        @Value("${cci.spool.forceOnWrite:false}") boolean forceOnWrite) {
+        this(coreTransport, new MessageSpool(enabled, journalDirectory, JOURNAL_SEGMENT_SIZE, JOURNAL_MAX_SEGMENTS, forceOnWrite),
+                enabled, windowMillis, maxEntries, maxPendingEntries, flushThreads);
+    }
+
+    /**
+     * @param coreTransport     transport used to reach core services
+     * @param journal           journal of accepted notifications
+     * @param enabled           whether access notifications should be aggregated
+     * @param windowMillis      flush interval in milliseconds
+     * @param maxEntries        number of entries buffered for a single security context which causes an immediate flush
+     * @param maxPendingEntries total number of entries waiting for delivery above which notifications are not accepted
+     * @param flushThreads      number of threads sending merged notifications
+     */
+    public AccessNotificationAggregator(CoreTransport coreTransport, MessageSpool journal, boolean enabled,
+                                        long windowMillis, int maxEntries, long maxPendingEntries, int flushThreads) {
+        super("accessNotifications", enabled, windowMillis, maxEntries, flushThreads);
+        this.coreTransport = coreTransport;
+        this.journal = journal;
+        this.maxPendingEntries = maxPendingEntries;
+    }
+
+    /**
+     * Opens the journal, schedules delivery of notifications left in it by a previous run and starts periodic flushing.
+     */
+    @Override
+    @PostConstruct
+    public void start() {
+        if (isEnabled()) {
+            try {
+                journal.open();
+                recover();
+            } catch (IOException e) {
+                log.error("Access notification journal cannot be opened, notifications will be sent directly", e);
+            }
+        }
+        super.start();
+    }
+
+    /**
+     * Stops periodic flushing, flushes all pending notifications and closes the journal. Notifications which could
+     * not be delivered stay in the journal.
+     */
+    @Override
+    @PreDestroy
+    public void stop() {
+        super.stop();
+        journal.close();
+    }
+
+    /**
+     * Buffers an access notification.
+     *
+     * @param securityHeaders headers of the HTTP request carrying the notification
+     * @param securityRequest security request created from the headers
+     * @param notification    access notification
+     * @return true if the notification was journaled and buffered, false if it should be sent directly
+     */
+    public boolean aggregate(Map<String, String> securityHeaders, SecurityRequest securityRequest, NotificationMessage notification) {
+        int entries = countEntries(notification);
+        if (pendingEntries.addAndGet(entries) > maxPendingEntries) {
+            pendingEntries.addAndGet(-entries);
+            log.warn("Access notification accumulator is full, notification will be sent directly");
+            return false;
+        }
+
+        long sequence = journal(new NotificationMessageSecured(securityRequest, notification));
+        if (sequence < 0) {
+            pendingEntries.addAndGet(-entries);
+            return false;
+        }
+
+        offer(securityContextKey(securityHeaders), buffer -> buffer.add(notification, entries, securityRequest, sequence));
+        return true;
+    }
+
+    /**
+     * @return number of access entries waiting for delivery
+     */
+    public long getPendingEntries() {
+        return pendingEntries.get();
+    }
+
+    @Override
+    protected ContextBuffer createBuffer(String key) {
+        return new ContextBuffer();
+    }
+
+    @Override
+    protected void send(String key, ContextBuffer buffer) {
+        NotificationMessage merged = new NotificationMessage();
+        merged.setSuccessfulAttempts(new ArrayList<>());
+        merged.setSuccessfulPushes(new ArrayList<>());
+        merged.setFailedAttempts(new ArrayList<>());
+
+        for (NotificationMessage notification : buffer.notifications) {
+            addAll(merged.getSuccessfulAttempts(), notification.getSuccessfulAttempts());
+            addAll(merged.getSuccessfulPushes(), notification.getSuccessfulPushes());
+            addAll(merged.getFailedAttempts(), notification.getFailedAttempts());
+        }
+
+        int entries = buffer.entries.get();
+        log.debug("Sending " + buffer.notifications.size() + " aggregated access notifications with " + entries + " entries");
+        NotificationMessageSecured request = new NotificationMessageSecured(buffer.securityRequest, merged);
+        if (deliver(request)) {
+            pendingEntries.addAndGet(-entries);
+            acknowledge(buffer.sequences);
+        } else if (isRunning()) {
+            log.info("Aggregated access notification with " + entries + " entries was not delivered to CRAM, will retry in next window");
+            offer(key, target -> target.addAll(buffer), false);
+        } else {
+            pendingEntries.addAndGet(-entries);
+            log.warn("Aggregated access notification with " + entries + " entries was not delivered to CRAM, it is kept in the journal");
+        }
+    }
+
+    private boolean deliver(NotificationMessageSecured request) {
+        NotificationMessageResponseSecured response;
+        try {
+            response = coreTransport.sendAccessNotificationMessage(request);
+        } catch (ServiceUnavailableException e) {
+            log.debug("Core Services rejected aggregated update: " + e.getMessage());
+            response = null;
+        }
+        return response != null || coreTransport.spoolAccessNotificationMessage(request);
+    }
+
+    /**
+     * Writes a notification to the journal.
+     *
+     * @return sequence number of the journal record or -1 if the notification was not journaled
+     */
+    private long journal(NotificationMessageSecured request) {
+        byte[] payload;
+        try {
+            payload = mapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            log.error("Access notification cannot be journaled, it will be sent directly", e);
+            return -1;
+        }
+
+        synchronized (journalLock) {
+            if (!journal.append("", "", payload)) {
+                log.debug("Access notification journal rejected notification, it will be sent directly");
+                return -1;
+            }
+            return nextSequence++;
+        }
+    }
+
+    /**
+     * Marks journal records as delivered and removes the oldest records as long as all of them have been delivered.
+     */
+    private void acknowledge(Collection<Long> sequences) {
+        synchronized (journalLock) {
+            deliveredSequences.addAll(sequences);
+            while (deliveredSequences.remove(oldestSequence)) {
+                journal.skip();
+                oldestSequence++;
+            }
+        }
+    }
+
+    /**
+     * Buffers records left in the journal by a previous run. Security context of these records is not known, so every
+     * record is delivered in a message of its own.
+     */
+    private void recover() {
+        List<SpooledMessage> records = journal.readPending();
+        synchronized (journalLock) {
+            deliveredSequences.clear();
+            oldestSequence = 0;
+            nextSequence = records.size();
+        }
+
+        for (int i = 0; i < records.size(); i++) {
+            long sequence = i;
+            NotificationMessageSecured request;
+            try {
+                request = mapper.readValue(records.get(i).getPayload(), NotificationMessageSecured.class);
+            } catch (IOException e) {
+                log.error("Journaled access notification cannot be read and is dropped", e);
+                acknowledge(Collections.singletonList(sequence));
+                continue;
+            }
+
+            NotificationMessage notification = request.getBody();
+            int entries = countEntries(notification);
+            pendingEntries.addAndGet(entries);
+            offer(RECOVERED_KEY_PREFIX + sequence,
+                    buffer -> buffer.add(notification, entries, request.getSecurityRequest(), sequence), false);
+        }
+
+        if (!records.isEmpty())
+            log.info("Recovered " + records.size() + " access notifications from the journal");
+    }
+
+    private static int countEntries(NotificationMessage notification) {
+        if (notification == null)
+            return 0;
+        return size(notification.getSuccessfulAttempts())
+                + size(notification.getSuccessfulPushes())
+                + size(notification.getFailedAttempts());
+    }
+
+    private static int size(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private static <T> void addAll(List<T> target, List<T> source) {
+        if (source != null)
+            target.addAll(source);
+    }
+
+    /**
+     * Buffer of notifications sharing a single security context, together with sequence numbers of their journal records.
+     */
+    static class ContextBuffer extends AggregationBuffer {
+        private final Queue<NotificationMessage> notifications = new ConcurrentLinkedQueue<>();
+        private final Queue<Long> sequences = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger entries = new AtomicInteger();
+        private volatile SecurityRequest securityRequest;
+
+        int add(NotificationMessage notification, int notificationEntries, SecurityRequest securityRequest, long sequence) {
+            this.securityRequest = securityRequest;
+            if (notification != null)
+                notifications.add(notification);
+            sequences.add(sequence);
+            return entries.addAndGet(notificationEntries);
+        }
+
+        int addAll(ContextBuffer other) {
+            // notifications put back after a failed delivery are older than the ones already in this buffer
+            if (securityRequest == null)
+                securityRequest = other.securityRequest;
+            notifications.addAll(other.notifications);
+            sequences.addAll(other.sequences);
+            return entries.addAndGet(other.entries.get());
+        }
+    }
+}
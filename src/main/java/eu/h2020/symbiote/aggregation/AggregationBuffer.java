@@ -0,0 +1,53 @@
+package eu.h2020.symbiote.aggregation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for buffers filled concurrently by request threads and drained by a single flushing thread.
+ * <p>
+ * Writers register themselves with {@link #enter()} and deregister with {@link #exit()}. Flushing thread
+ * calls {@link #seal()}, which forbids new writers and waits for the ones already inside to leave, so that
+ * no update is written to a buffer after it has been drained. No locks are used - the state is a single
+ * counter of active writers with the sign bit marking a sealed buffer.
+ */
+abstract class AggregationBuffer {
+    private static final int SEALED = Integer.MIN_VALUE;
+
+    private final AtomicInteger state = new AtomicInteger();
+
+    /**
+     * Registers a writer.
+     *
+     * @return true if writer may write to the buffer, false if the buffer is sealed and a new one should be used
+     */
+    boolean enter() {
+        for (; ; ) {
+            int current = state.get();
+            if (current < 0)
+                return false;
+            if (state.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Deregisters a writer previously registered with {@link #enter()}.
+     */
+    void exit() {
+        state.decrementAndGet();
+    }
+
+    /**
+     * Seals the buffer and waits until all writers leave it. After this method returns the buffer content is stable.
+     */
+    void seal() {
+        for (; ; ) {
+            int current = state.get();
+            if (current < 0 || state.compareAndSet(current, current | SEALED))
+                break;
+        }
+        while (state.get() != SEALED) {
+            Thread.yield();
+        }
+    }
+}
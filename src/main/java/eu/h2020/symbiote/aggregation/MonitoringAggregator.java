@@ -0,0 +1,136 @@
+package eu.h2020.symbiote.aggregation;
+
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringDevice;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatform;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.communication.CoreTransport;
+import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import eu.h2020.symbiote.security.communication.payloads.SecurityRequest;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aggregator of device status updates sent to Core Resource Monitor.
+ * <p>
+ * Updates are buffered per platform and per security context for the duration of the aggregation window. Only
+ * the latest status of every device is kept, and at the end of the window a single merged request is sent to CRM for
+ * each platform and security context. Security context is identified by the tokens of the security credentials
+ * headers, so updates of a client are merged even though every request carries its own timestamp and authentication
+ * challenge, while updates sent with different tokens are never merged.
+ * <p>
+ * The merged request carries the security request of the latest update in its buffer. Its timestamp and challenge
+ * are the most recent ones of the window, so it is the least likely to be stale when the request is sent at the end
+ * of the window; the security requests of the earlier updates are dropped.
+ */
+@Component
+public class MonitoringAggregator extends WindowedAggregator<MonitoringAggregator.PlatformBuffer> {
+    private static Log log = LogFactory.getLog(MonitoringAggregator.class);
+
+    private final CoreTransport coreTransport;
+
+    /**
+     * @param coreTransport transport used to reach core services
+     * @param enabled       whether monitoring updates should be aggregated
+     * @param windowMillis  length of the aggregation window in milliseconds
+     * @param maxDevices    number of devices buffered for a single platform which causes an immediate flush
+     * @param flushThreads  number of threads sending merged requests
+     */
+    @Autowired
+    public MonitoringAggregator(CoreTransport coreTransport,
+                                @Value("${cci.aggregation.monitoring.enabled:false}") boolean enabled,
+                                @Value("${cci.aggregation.monitoring.windowMillis:5000}") long windowMillis,
+                                @Value("${cci.aggregation.monitoring.maxDevices:10000}") int maxDevices,
+                                @Value("${cci.aggregation.flushThreads:2}") int flushThreads) {
+        super("monitoring", enabled, windowMillis, maxDevices, flushThreads);
+        this.coreTransport = coreTransport;
+    }
+
+    /**
+     * Buffers status update of a platform.
+     *
+     * @param platformId      ID of the platform
+     * @param securityHeaders headers of the HTTP request carrying the update
+     * @param securityRequest security request created from the headers
+     * @param update          status of platform devices
+     */
+    public void aggregate(String platformId, Map<String, String> securityHeaders, SecurityRequest securityRequest,
+                          CloudMonitoringPlatform update) {
+        offer(platformId + "/" + securityContextKey(securityHeaders), buffer -> buffer.add(platformId, update, securityRequest));
+    }
+
+    @Override
+    protected PlatformBuffer createBuffer(String key) {
+        return new PlatformBuffer();
+    }
+
+    @Override
+    protected void send(String key, PlatformBuffer buffer) {
+        String platformId = buffer.platformId;
+        CloudMonitoringPlatform merged = new CloudMonitoringPlatform();
+        merged.setPlatformId(platformId);
+        merged.setMetrics(buffer.getDevices());
+
+        log.debug("Sending aggregated status of " + merged.getMetrics().size() + " devices of platform " + platformId);
+        CloudMonitoringPlatformRequest request = new CloudMonitoringPlatformRequest(buffer.securityRequest, merged);
+        MonitoringResponseSecured response;
+        try {
+            response = coreTransport.sendMonitoringMessage(request);
+        } catch (ServiceUnavailableException e) {
+            log.debug("Core Services rejected aggregated update: " + e.getMessage());
+            response = null;
+        }
+
+        if (response == null && !coreTransport.spoolMonitoringMessage(request))
+            log.warn("Aggregated monitoring update of platform " + platformId + " was not delivered to CRM");
+    }
+
+    /**
+     * Buffer of updates of a single platform sharing a single security context, keeping the latest status per device ID.
+     */
+    static class PlatformBuffer extends AggregationBuffer {
+        private final ConcurrentMap<String, CloudMonitoringDevice> devices = new ConcurrentHashMap<>();
+        private final Queue<CloudMonitoringDevice> devicesWithoutId = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile String platformId;
+        private volatile SecurityRequest securityRequest;
+
+        int add(String platformId, CloudMonitoringPlatform update, SecurityRequest securityRequest) {
+            this.platformId = platformId;
+            this.securityRequest = securityRequest;
+            if (update == null || update.getMetrics() == null)
+                return size.get();
+
+            for (CloudMonitoringDevice device : update.getMetrics()) {
+                if (device == null)
+                    continue;
+                if (device.getId() == null) {
+                    devicesWithoutId.add(device);
+                    size.incrementAndGet();
+                } else if (devices.put(device.getId(), device) == null) {
+                    size.incrementAndGet();
+                }
+            }
+            return size.get();
+        }
+
+        List<CloudMonitoringDevice> getDevices() {
+            List<CloudMonitoringDevice> result = new ArrayList<>(size.get());
+            result.addAll(devices.values());
+            result.addAll(devicesWithoutId);
+            return result;
+        }
+    }
+}
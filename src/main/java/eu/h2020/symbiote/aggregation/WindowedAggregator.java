@@ -0,0 +1,254 @@
+package eu.h2020.symbiote.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Base class for aggregators which collect updates in per-key buffers and periodically flush each buffer
+ * as a single merged message.
+ * <p>
+ * Updates are written without locking (see {@link AggregationBuffer}). Every window all buffers are detached
+ * from the map and flushed, so that updates coming in the meantime go to fresh buffers. When a buffer reaches
+ * the configured maximum size it is detached at once and flushed without waiting for the end of the window.
+ *
+ * @param <B> type of the per-key buffer
+ */
+public abstract class WindowedAggregator<B extends AggregationBuffer> {
+    private static Log log = LogFactory.getLog(WindowedAggregator.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final ConcurrentMap<String, B> buffers = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxEntries;
+    private final int flushThreads;
+
+    private volatile ScheduledExecutorService executor;
+
+    /**
+     * @param name          name of the aggregator, used for logging and naming flushing threads
+     * @param enabled       whether the aggregation is enabled
+     * @param windowMillis  length of the aggregation window in milliseconds
+     * @param maxEntries    number of entries in a single buffer which causes an immediate flush
+     * @param flushThreads  number of threads used for flushing
+     */
+    protected WindowedAggregator(String name, boolean enabled, long windowMillis, int maxEntries, int flushThreads) {
+        this.name = name;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxEntries = maxEntries;
+        this.flushThreads = flushThreads;
+    }
+
+    /**
+     * @return true if updates should be passed to this aggregator instead of being sent directly
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts periodic flushing, if the aggregation is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(flushThreads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-flush-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::flushWindow, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        log.info("Started " + name + " aggregation with window of " + windowMillis + " ms and limit of " + maxEntries + " entries");
+    }
+
+    /**
+     * Stops periodic flushing and flushes all pending updates.
+     */
+    @PreDestroy
+    public void stop() {
+        ScheduledExecutorService current = this.executor;
+        this.executor = null;
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(windowMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushAll();
+    }
+
+    /**
+     * Flushes all buffers on the calling thread.
+     */
+    public void flushAll() {
+        for (Map.Entry<String, B> entry : buffers.entrySet()) {
+            if (buffers.remove(entry.getKey(), entry.getValue()))
+                drain(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @return true if periodic flushing is running, false before start and after stop
+     */
+    protected boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * @return number of keys with pending updates
+     */
+    public int getPendingKeys() {
+        return buffers.size();
+    }
+
+    /**
+     * Writes an update to the buffer of given key.
+     *
+     * @param key    aggregation key
+     * @param writer function writing the update to the buffer and returning the resulting number of entries in it
+     */
+    protected void offer(String key, ToIntFunction<B> writer) {
+        offer(key, writer, true);
+    }
+
+    /**
+     * Writes an update to the buffer of given key.
+     *
+     * @param key           aggregation key
+     * @param writer        function writing the update to the buffer and returning the resulting number of entries in it
+     * @param flushWhenFull whether the buffer should be flushed at once when it reaches the maximum size; updates put
+     *                      back after a failed delivery wait for the end of the window instead
+     */
+    protected void offer(String key, ToIntFunction<B> writer, boolean flushWhenFull) {
+        for (; ; ) {
+            B buffer = buffers.computeIfAbsent(key, this::createBuffer);
+            if (!buffer.enter())
+                continue;
+
+            int size;
+            try {
+                size = writer.applyAsInt(buffer);
+            } finally {
+                buffer.exit();
+            }
+
+            if (flushWhenFull && size >= maxEntries && buffers.remove(key, buffer)) {
+                log.debug("Buffer of " + name + " for " + key + " reached " + size + " entries, flushing immediately");
+                dispatch(() -> drain(key, buffer));
+            }
+            return;
+        }
+    }
+
+    /**
+     * Creates an empty buffer for given key.
+     *
+     * @param key aggregation key
+     * @return new buffer
+     */
+    protected abstract B createBuffer(String key);
+
+    /**
+     * Sends the content of a sealed buffer. Called at most once per buffer.
+     *
+     * @param key    aggregation key
+     * @param buffer sealed buffer
+     */
+    protected abstract void send(String key, B buffer);
+
+    /**
+     * Creates a key identifying the security context of a request: the tokens of all security credentials headers.
+     * <p>
+     * Authentication challenges, and the timestamp they are bound to, differ in every request of the same client, so
+     * they are left out of the key. Credentials which cannot be parsed take part in the key as they are.
+     *
+     * @param headers request headers
+     * @return security context key
+     */
+    protected static String securityContextKey(Map<String, String> headers) {
+        if (headers == null)
+            return "";
+
+        String prefix = SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX.toLowerCase();
+        String timestampHeader = SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER.toLowerCase();
+        String sizeHeader = SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER.toLowerCase();
+        Set<String> tokens = new TreeSet<>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String name = header.getKey().toLowerCase();
+            if (name.startsWith(prefix) && !name.equals(timestampHeader) && !name.equals(sizeHeader))
+                tokens.add(tokenOf(header.getValue()));
+        }
+        return tokens.toString();
+    }
+
+    private static String tokenOf(String credentials) {
+        if (credentials == null)
+            return "";
+        try {
+            JsonNode token = mapper.readTree(credentials).get("token");
+            if (token != null && token.isTextual())
+                return token.asText();
+        } catch (IOException e) {
+            log.debug("Security credentials cannot be parsed, they are used as they are: " + e.getMessage());
+        }
+        return credentials;
+    }
+
+    private void flushWindow() {
+        for (Map.Entry<String, B> entry : buffers.entrySet()) {
+            String key = entry.getKey();
+            B buffer = entry.getValue();
+            if (buffers.remove(key, buffer))
+                dispatch(() -> drain(key, buffer));
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        ScheduledExecutorService current = this.executor;
+        if (current != null) {
+            try {
+                current.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                log.debug("Flushing executor of " + name + " is shut down, flushing on calling thread");
+            }
+        }
+        task.run();
+    }
+
+    private void drain(String key, B buffer) {
+        buffer.seal();
+        try {
+            send(key, buffer);
+        } catch (RuntimeException e) {
+            log.error("Error while flushing " + name + " updates for " + key, e);
+        }
+    }
+}
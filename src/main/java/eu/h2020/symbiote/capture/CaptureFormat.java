@@ -0,0 +1,82 @@
+package eu.h2020.symbiote.capture;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary encoding of {@link CapturedRequest} records in capture files.
+ * <p>
+ * A capture file is a gzip stream of records. Every record starts with a version byte, followed by the timestamp,
+ * method, endpoint, URI, path variables, headers, body, response status and duration. Strings are written as
+ * their UTF-8 length followed by the bytes, maps as the number of entries followed by keys and values.
+ */
+final class CaptureFormat {
+    static final int VERSION = 1;
+
+    private CaptureFormat() {
+    }
+
+    static void write(DataOutputStream out, CapturedRequest request) throws IOException {
+        out.writeByte(VERSION);
+        out.writeLong(request.getTimestampMillis());
+        writeString(out, request.getMethod());
+        writeString(out, request.getEndpoint());
+        writeString(out, request.getUri());
+        writeMap(out, request.getPathVariables());
+        writeMap(out, request.getHeaders());
+        out.writeInt(request.getBody().length);
+        out.write(request.getBody());
+        out.writeShort(request.getStatus());
+        out.writeLong(request.getDurationMicros());
+    }
+
+    static CapturedRequest read(DataInputStream in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported capture record version " + version);
+
+        long timestampMillis = in.readLong();
+        String method = readString(in);
+        String endpoint = readString(in);
+        String uri = readString(in);
+        Map<String, String> pathVariables = readMap(in);
+        Map<String, String> headers = readMap(in);
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        int status = in.readUnsignedShort();
+        long durationMicros = in.readLong();
+        return new CapturedRequest(timestampMillis, method, endpoint, uri, pathVariables, headers, body, status, durationMicros);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeShort(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        Map<String, String> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++)
+            map.put(readString(in), readString(in));
+        return map;
+    }
+}
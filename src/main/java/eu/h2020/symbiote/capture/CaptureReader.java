@@ -0,0 +1,61 @@
+package eu.h2020.symbiote.capture;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Sequential reader of capture files written by {@link CaptureWriter}.
+ * <p>
+ * A file cut short, e.g. because the process writing it was killed, is read up to its last complete record.
+ */
+public class CaptureReader implements Closeable {
+    private static Log log = LogFactory.getLog(CaptureReader.class);
+
+    private final Path file;
+    private final BufferedInputStream buffered;
+    private final DataInputStream in;
+
+    /**
+     * @param file capture file
+     * @throws IOException if the file cannot be opened
+     */
+    public CaptureReader(Path file) throws IOException {
+        this.file = file;
+        this.buffered = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 65536), 65536);
+        this.in = new DataInputStream(buffered);
+    }
+
+    /**
+     * Reads the next request.
+     *
+     * @return next request or null if there are no more complete records
+     * @throws IOException if the file cannot be read or contains an invalid record
+     */
+    public CapturedRequest next() throws IOException {
+        try {
+            buffered.mark(1);
+            if (buffered.read() < 0)
+                return null;
+            buffered.reset();
+            return CaptureFormat.read(in);
+        } catch (EOFException | ZipException e) {
+            log.warn("Capture file " + file + " ends with an incomplete record: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,202 @@
+package eu.h2020.symbiote.capture;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only, compressed capture of requests handled by CloudCoreInterface, used to replay real traffic.
+ * <p>
+ * Every run writes a new gzip file named after its start time in the capture directory; the format of records is
+ * described in {@link CaptureFormat}. Request threads only put records in a bounded queue, which is drained
+ * by a single background thread; when the queue is full, records are dropped rather than slowing requests down.
+ * Compressed data is flushed periodically, so a file is readable up to the last flush even while it is written.
+ * <p>
+ * Capturing is disabled by default and enabled by setting <i>cci.capture.enabled</i> to true.
+ */
+@Component
+public class CaptureWriter {
+    private static Log log = LogFactory.getLog(CaptureWriter.class);
+
+    private static final CapturedRequest STOP = new CapturedRequest(0, "", "", "", null, null, new byte[0], 0, 0);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int maxBodyBytes;
+    private final long flushIntervalMillis;
+    private final BlockingQueue<CapturedRequest> queue;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private Path file;
+    private Thread writerThread;
+
+    /**
+     * @param enabled             whether requests should be captured
+     * @param directory           directory of capture files
+     * @param queueSize           maximum number of records waiting to be written
+     * @param maxBodyBytes        requests with larger bodies are not captured
+     * @param flushIntervalMillis maximum time records stay buffered in memory
+     */
+    @Autowired
+    public CaptureWriter(@Value("${cci.capture.enabled:false}") boolean enabled,
+                         @Value("${cci.capture.directory:capture}") String directory,
+                         @Value("${cci.capture.queueSize:10000}") int queueSize,
+                         @Value("${cci.capture.maxBodyBytes:4194304}") int maxBodyBytes,
+                         @Value("${cci.capture.flushIntervalMillis:1000}") long flushIntervalMillis) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxBodyBytes = maxBodyBytes;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.queue = new ArrayBlockingQueue<>(enabled ? queueSize : 1);
+    }
+
+    /**
+     * @return true if capturing is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Creates a new capture file and starts the background writer.
+     *
+     * @throws IOException if the capture file cannot be created
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled || writerThread != null)
+            return;
+
+        Files.createDirectories(directory);
+        file = directory.resolve("requests-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".cap");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 65536, true), 65536));
+
+        writerThread = new Thread(() -> drain(out), "traffic-capture");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Capturing requests to " + file.toAbsolutePath());
+    }
+
+    /**
+     * Writes all queued records and closes the capture file.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (writerThread == null)
+            return;
+        try {
+            if (queue.offer(STOP, 10, TimeUnit.SECONDS))
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+        log.info("Capture " + file + " closed with " + written.get() + " requests, " + dropped.get() + " dropped");
+    }
+
+    /**
+     * Queues a request for writing without blocking.
+     *
+     * @param request request to capture
+     * @return true if the request was queued, false if capturing is disabled, the queue is full or the body too large
+     */
+    public boolean offer(CapturedRequest request) {
+        if (!enabled)
+            return false;
+        if (request.getBody().length > maxBodyBytes || !queue.offer(request)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counts a request which is not captured because its body exceeds the maximum size.
+     */
+    public void dropOversized() {
+        if (enabled)
+            dropped.incrementAndGet();
+    }
+
+    /**
+     * @return maximum size of captured request bodies in bytes
+     */
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * @return number of requests written to the capture file
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return number of requests which were not captured
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return current capture file, or null if capturing has not started
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    private void drain(DataOutputStream out) {
+        try {
+            long lastFlush = System.currentTimeMillis();
+            boolean dirty = false;
+            while (true) {
+                CapturedRequest request = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (request == STOP)
+                    break;
+                if (request != null) {
+                    CaptureFormat.write(out, request);
+                    written.incrementAndGet();
+                    dirty = true;
+                }
+                if (dirty && System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+                    out.flush();
+                    lastFlush = System.currentTimeMillis();
+                    dirty = false;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error while writing capture file " + file + ", capturing stopped", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.error("Error while closing capture file " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package eu.h2020.symbiote.capture;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Request handled by CloudCoreInterface, as written to and read back from a capture file.
+ */
+public class CapturedRequest {
+    private final long timestampMillis;
+    private final String method;
+    private final String endpoint;
+    private final String uri;
+    private final Map<String, String> pathVariables;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final int status;
+    private final long durationMicros;
+
+    /**
+     * @param timestampMillis time the request was received
+     * @param method          HTTP method
+     * @param endpoint        URI pattern of the endpoint which handled the request, or empty string if not known
+     * @param uri             request URI including the query string
+     * @param pathVariables   values of path variables of the endpoint
+     * @param headers         request headers, with secrets redacted
+     * @param body            request body
+     * @param status          status of the response
+     * @param durationMicros  time spent on handling the request in microseconds
+     */
+    public CapturedRequest(long timestampMillis, String method, String endpoint, String uri, Map<String, String> pathVariables,
+                           Map<String, String> headers, byte[] body, int status, long durationMicros) {
+        this.timestampMillis = timestampMillis;
+        this.method = method;
+        this.endpoint = endpoint;
+        this.uri = uri;
+        this.pathVariables = pathVariables;
+        this.headers = headers;
+        this.body = body;
+        this.status = status;
+        this.durationMicros = durationMicros;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public Map<String, String> getPathVariables() {
+        return pathVariables;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return body decoded as UTF-8 string
+     */
+    public String getBodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+}
@@ -0,0 +1,19 @@
+package eu.h2020.symbiote.communication;
+
+/**
+ * Operations performed by core services on behalf of CloudCoreInterface, one for each {@link CoreTransport} operation.
+ */
+public enum CoreOperation {
+    RESOURCE_CREATION,
+    RESOURCE_MODIFICATION,
+    RESOURCE_REMOVAL,
+    CLEAR_DATA,
+    MONITORING,
+    ACCESS_NOTIFICATION,
+    SDEV_CREATION,
+    SDEV_MODIFICATION,
+    SDEV_REMOVAL,
+    SSP_RESOURCE_CREATION,
+    SSP_RESOURCE_MODIFICATION,
+    SSP_RESOURCE_REMOVAL
+}
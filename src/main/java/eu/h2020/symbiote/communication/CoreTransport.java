@@ -0,0 +1,143 @@
+package eu.h2020.symbiote.communication;
+
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.communication.spool.SpooledMessage;
+import eu.h2020.symbiote.core.internal.*;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
+import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+
+/**
+ * Transport used to pass requests received by CloudCoreInterface to core services.
+ * <p>
+ * Every operation returns the response of the core service, or null if the response did not arrive
+ * (timeout or communication error). The default implementation is {@link RabbitManager}, which uses RabbitMQ RPC.
+ */
+public interface CoreTransport {
+
+    /**
+     * Sends request to create resources.
+     *
+     * @param coreResourceRequest resources to be created
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreResourceRegistryResponse sendResourceCreationRequest(CoreResourceRegistryRequest coreResourceRequest);
+
+    /**
+     * Sends request to remove resources.
+     *
+     * @param coreResourceRequest resources to be removed
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreResourceRegistryResponse sendResourceRemovalRequest(CoreResourceRegistryRequest coreResourceRequest);
+
+    /**
+     * Sends request to modify resources.
+     *
+     * @param coreResourceRequest resources to be modified
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreResourceRegistryResponse sendResourceModificationRequest(CoreResourceRegistryRequest coreResourceRequest);
+
+    /**
+     * Sends request to clear resource data of a platform.
+     *
+     * @param clearDataRequest request containing platform id
+     * @return response of Registry or null if it did not arrive
+     */
+    ClearDataResponse sendClearDataRequest(ClearDataRequest clearDataRequest);
+
+    /**
+     * Sends platform status to Core Resource Monitor.
+     *
+     * @param cloudMonitoringPlatformRequest message from platform
+     * @return response of CRM or null if it did not arrive
+     */
+    MonitoringResponseSecured sendMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest);
+
+    /**
+     * Sends access notification to Core Resource Access Monitor.
+     *
+     * @param notificationMessage access notification message
+     * @return response of CRAM or null if it did not arrive
+     */
+    NotificationMessageResponseSecured sendAccessNotificationMessage(NotificationMessageSecured notificationMessage);
+
+    /**
+     * Sends request to create a smart device.
+     *
+     * @param coreSdevRequest smart device to be created
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreSdevRegistryResponse sendSdevCreationRequest(CoreSdevRegistryRequest coreSdevRequest);
+
+    /**
+     * Sends request to remove a smart device.
+     *
+     * @param coreSdevRequest smart device to be removed
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreSdevRegistryResponse sendSdevRemovalRequest(CoreSdevRegistryRequest coreSdevRequest);
+
+    /**
+     * Sends request to modify a smart device.
+     *
+     * @param coreSdevRequest smart device to be modified
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreSdevRegistryResponse sendSdevModificationRequest(CoreSdevRegistryRequest coreSdevRequest);
+
+    /**
+     * Sends request to create an SSP resource.
+     *
+     * @param coreSspResourceRequest SSP resource to be created
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreSspResourceRegistryResponse sendSspResourceCreationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest);
+
+    /**
+     * Sends request to modify an SSP resource.
+     *
+     * @param coreSspResourceRequest SSP resource to be modified
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreSspResourceRegistryResponse sendSspResourceModificationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest);
+
+    /**
+     * Sends request to delete an SSP resource.
+     *
+     * @param coreSspResourceRequest SSP resource to be deleted
+     * @return response of Registry or null if it did not arrive
+     */
+    CoreSspResourceRegistryResponse sendSspResourceRemovalRequest(CoreSspResourceRegistryRequest coreSspResourceRequest);
+
+    /**
+     * Journals monitoring message which could not be delivered, for later delivery.
+     *
+     * @param cloudMonitoringPlatformRequest message from platform
+     * @return true if message was journaled, false if the transport does not support journaling or the journal is full
+     */
+    default boolean spoolMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest) {
+        return false;
+    }
+
+    /**
+     * Journals access notification message which could not be delivered, for later delivery.
+     *
+     * @param notificationMessage access notification message
+     * @return true if message was journaled, false if the transport does not support journaling or the journal is full
+     */
+    default boolean spoolAccessNotificationMessage(NotificationMessageSecured notificationMessage) {
+        return false;
+    }
+
+    /**
+     * Delivers message journaled by {@link #spoolMonitoringMessage} or {@link #spoolAccessNotificationMessage}.
+     *
+     * @param message journaled message
+     * @return true if message was delivered, false if it should be replayed later
+     */
+    default boolean replaySpooledMessage(SpooledMessage message) {
+        return false;
+    }
+}
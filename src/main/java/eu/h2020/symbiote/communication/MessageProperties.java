@@ -0,0 +1,69 @@
+package eu.h2020.symbiote.communication;
+
+import com.rabbitmq.client.AMQP;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Properties of AMQP messages sent by {@link RabbitManager} and identifiers of their reply queues and correlations.
+ * <p>
+ * All messages are JSON and differ only in priority, so properties of asynchronous messages are built once per
+ * priority and shared. Properties of RPC messages, which also carry a correlation ID and a reply queue, are created
+ * with the constructor rather than a builder. Identifiers consist of a random prefix chosen once per instance
+ * and a counter; they are unique without consulting the shared {@link java.security.SecureRandom}
+ * behind {@link UUID#randomUUID()} on every message.
+ */
+final class MessageProperties {
+
+    static final String CONTENT_TYPE = "application/json";
+
+    private static final int MAX_PRIORITY = 255;
+
+    private final AMQP.BasicProperties withoutPriority = create(null, null, null);
+    private final AtomicReferenceArray<AMQP.BasicProperties> byPriority = new AtomicReferenceArray<>(MAX_PRIORITY + 1);
+
+    private final String idPrefix = UUID.randomUUID().toString() + "-";
+    private final AtomicLong idCounter = new AtomicLong();
+
+    /**
+     * @param priority priority of the message, or null
+     * @return shared properties of an asynchronous message
+     */
+    AMQP.BasicProperties async(Integer priority) {
+        if (priority == null)
+            return withoutPriority;
+        if (priority < 0 || priority > MAX_PRIORITY)
+            return create(priority, null, null);
+
+        AMQP.BasicProperties properties = byPriority.get(priority);
+        if (properties == null) {
+            properties = create(priority, null, null);
+            byPriority.lazySet(priority, properties);
+        }
+        return properties;
+    }
+
+    /**
+     * @param priority      priority of the message, or null
+     * @param correlationId correlation ID of the request
+     * @param replyTo       name of the reply queue
+     * @return properties of an RPC message
+     */
+    AMQP.BasicProperties rpc(Integer priority, String correlationId, String replyTo) {
+        return create(priority, correlationId, replyTo);
+    }
+
+    /**
+     * @return identifier unique across instances, usable as a correlation ID or a queue name
+     */
+    String nextId() {
+        return idPrefix + Long.toHexString(idCounter.incrementAndGet());
+    }
+
+    private static AMQP.BasicProperties create(Integer priority, String correlationId, String replyTo) {
+        return new AMQP.BasicProperties(CONTENT_TYPE, null, null, null, priority, correlationId, replyTo,
+                null, null, null, null, null, null, null);
+    }
+}
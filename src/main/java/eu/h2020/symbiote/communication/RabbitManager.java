@@ -3,35 +3,62 @@ package eu.h2020.symbiote.communication;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rabbitmq.client.*;
 import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.communication.limit.AdmissionControl;
+import eu.h2020.symbiote.communication.limit.ConcurrencyLimits;
+import eu.h2020.symbiote.communication.limit.GradientLimiter;
+import eu.h2020.symbiote.communication.spool.MessageSpool;
+import eu.h2020.symbiote.communication.spool.SpooledMessage;
 import eu.h2020.symbiote.core.internal.*;
 import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
 import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
 import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertyResolver;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class used for all internal communication using RabbitMQ AMQP implementation.
  * It works as a Spring Bean, and should be used via autowiring.
  * <p>
  * RabbitManager uses properties taken from CoreConfigServer to set up communication (exchange parameters, routing keys etc.)
+ * <p>
+ * RabbitManager is the default {@link CoreTransport}.
  */
 @Component
-public class RabbitManager {
+public class RabbitManager implements CoreTransport {
     private static Log log = LogFactory.getLog(RabbitManager.class);
 
+    private static final ObjectMapper mapper = new ObjectMapper();
+
     @Value("${rabbit.host}")
     private String rabbitHost;
 
+    @Value("${rabbit.port:5672}")
+    private int rabbitPort = ConnectionFactory.DEFAULT_AMQP_PORT;
+
     @Value("${rabbit.username}")
     private String rabbitUsername;
 
@@ -39,7 +66,10 @@ public class RabbitManager {
     private String rabbitPassword;
 
     @Value("${spring.rabbitmq.template.reply-timeout}")
-    private Integer rabbitMessageTimeout;
+    private volatile Integer rabbitMessageTimeout;
+
+    @Value("${rabbit.rpc.replyTimeoutMillis:20000}")
+    private volatile long rpcReplyTimeoutMillis = 20000;
 
     @Value("${rabbit.exchange.resource.name}")
     private String resourceExchangeName;
@@ -137,10 +167,116 @@ public class RabbitManager {
     @Value("${rabbit.routingKey.ssp.sdev.resource.modificationRequested}")
     private String sspResourceModificationRequestedRoutingKey;
 
-    private Connection connection;
-    private Channel channel;
+    @Value("${rabbit.init.async:true}")
+    private boolean asyncInitialization;
+
+    @Value("${rabbit.init.maxRetryBackoffMillis:30000}")
+    private long initMaxRetryBackoffMillis = 30000;
+
+    @Value("${rabbit.blocked.maxWaitMillis:2000}")
+    private volatile long blockedMaxWaitMillis;
+
+    @Value("${rabbit.priority.clearData:9}")
+    private volatile int clearDataPriority;
+
+    @Value("${rabbit.priority.delete:8}")
+    private volatile int deletePriority;
+
+    @Value("${rabbit.priority.modify:6}")
+    private volatile int modifyPriority;
+
+    @Value("${rabbit.priority.create:4}")
+    private volatile int createPriority;
+
+    @Value("${rabbit.priority.monitoring:2}")
+    private volatile int monitoringPriority;
+
+    @Value("${rabbit.priority.accessNotification:1}")
+    private volatile int accessNotificationPriority;
+
+    @Value("${rabbit.priority.hint.enabled:false}")
+    private volatile boolean priorityHintEnabled;
+
+    @Value("${rabbit.priority.hint.defaultCap:4}")
+    private volatile int priorityHintDefaultCap;
+
+    @Value("${rabbit.priority.hint.platformCaps:}")
+    private volatile String priorityHintPlatformCaps;
+
+    private volatile Connection connection;
+    private volatile Channel channel;
+
+    private volatile boolean ready;
+    private volatile boolean shuttingDown;
+    private volatile CompletableFuture<Boolean> initialization;
+    private volatile Thread initializationThread;
 
-    private Map<String, Object> queueArgs;
+    private static final Set<String> TUNING_PROPERTIES = new HashSet<>(Arrays.asList(
+            "rabbit.rpc.replyTimeoutMillis", "spring.rabbitmq.template.reply-timeout", "rabbit.blocked.maxWaitMillis"));
+
+    private final Object blockedMonitor = new Object();
+    private volatile boolean blocked;
+    private volatile String blockedReason;
+    private volatile long blockedSince;
+    private final AtomicLong blockedCount = new AtomicLong();
+    private final AtomicLong rejectedWhileBlockedCount = new AtomicLong();
+    private final AtomicLong rejectedPastDeadlineCount = new AtomicLong();
+
+    private final Object idleMonitor = new Object();
+    private final AtomicInteger rpcInFlight = new AtomicInteger();
+
+    private volatile Map<String, Object> queueArgs;
+    private final MessageProperties messageProperties = new MessageProperties();
+    private volatile Map<String, Integer> priorityHintCaps;
+
+    private MessageSpool messageSpool;
+
+    private LatencyMetrics latencyMetrics;
+
+    private Environment environment;
+
+    private ConcurrencyLimits concurrencyLimits;
+
+    /**
+     * Sets spool used to journal monitoring and access notification messages which could not be delivered.
+     *
+     * @param messageSpool MessageSpool bean
+     */
+    @Autowired(required = false)
+    public void setMessageSpool(MessageSpool messageSpool) {
+        this.messageSpool = messageSpool;
+    }
+
+    /**
+     * Sets registry of latency histograms. If it is not set, latencies of RPC stages are not recorded.
+     *
+     * @param latencyMetrics LatencyMetrics bean
+     */
+    @Autowired(required = false)
+    public void setLatencyMetrics(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * Sets adaptive concurrency limits of RPC requests. If they are not set, the number of requests in flight
+     * is not limited.
+     *
+     * @param concurrencyLimits ConcurrencyLimits bean
+     */
+    @Autowired(required = false)
+    public void setConcurrencyLimits(ConcurrencyLimits concurrencyLimits) {
+        this.concurrencyLimits = concurrencyLimits;
+    }
+
+    /**
+     * Sets environment tuning parameters are reloaded from when it changes.
+     *
+     * @param environment Environment of the application
+     */
+    @Autowired(required = false)
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
 
     /**
      * Method used to override connection parameters.
@@ -186,64 +322,155 @@ public class RabbitManager {
         this.sspExchangeInternal = exchangeInternal;
     }
 
+    /**
+     * Starts initialisation of RabbitMQ communication in the background, so that it runs in parallel with the rest
+     * of the application startup, if <i>rabbit.init.async</i> is enabled (default). Called by {@link RoutingTransport}
+     * when some operation is sent via RabbitMQ.
+     */
+    public void startInitialization() {
+        if (this.asyncInitialization)
+            initCommunicationAsync();
+    }
+
+    /**
+     * Initialises RabbitMQ communication on a background thread, retrying with exponential backoff until it succeeds
+     * or RabbitManager is shut down. Only the first call starts the initialisation.
+     *
+     * @return future completed with true when RabbitManager is ready, or with false if it was shut down before
+     */
+    public synchronized CompletableFuture<Boolean> initCommunicationAsync() {
+        if (this.initialization == null) {
+            this.initialization = new CompletableFuture<>();
+            this.initializationThread = new Thread(this::initializeWithRetries, "rabbit-init");
+            this.initializationThread.setDaemon(true);
+            this.initializationThread.start();
+        }
+        return this.initialization;
+    }
+
+    private void initializeWithRetries() {
+        long backoffMillis = 500;
+        while (!this.shuttingDown) {
+            if (initCommunication()) {
+                if (this.shuttingDown)
+                    closeConnection();
+                this.initialization.complete(!this.shuttingDown);
+                return;
+            }
+            long delayMillis = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+            log.info("RabbitMQ communication not initialised, retrying in " + delayMillis + " ms");
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoffMillis = Math.min(this.initMaxRetryBackoffMillis, backoffMillis * 2);
+        }
+        this.initialization.complete(false);
+    }
+
     /**
      * Method used to initialise RabbitMQ connection and declare all required exchanges.
      * This method should be called once, after bean initialization (so that properties from CoreConfigServer are obtained),
      * but before using RabbitManager to send any message.
+     * <p>
+     * Exchanges are declared without waiting for each declaration to be confirmed; a single passive declaration
+     * at the end confirms all of them, as the broker processes them in order and closes the channel on the first failure.
+     *
+     * @return true if the connection is open and all exchanges are declared
      */
-    public void initCommunication() {
+    public boolean initCommunication() {
         try {
 
-            queueArgs = new HashMap<>();
-            queueArgs.put("x-message-ttl", rabbitMessageTimeout);
+            queueArgs = createQueueArgs(this.rabbitMessageTimeout);
 
             ConnectionFactory factory = new ConnectionFactory();
 
             factory.setHost(this.rabbitHost);
+            factory.setPort(this.rabbitPort);
             factory.setUsername(this.rabbitUsername);
             factory.setPassword(this.rabbitPassword);
 
             this.connection = factory.newConnection();
+            addConnectionListeners(this.connection);
 
             this.channel = this.connection.createChannel();
-            this.channel.exchangeDeclare(this.resourceExchangeName,
+            this.channel.exchangeDeclareNoWait(this.resourceExchangeName,
                     this.resourceExchangeType,
                     this.resourceExchangeDurable,
                     this.resourceExchangeAutodelete,
                     this.resourceExchangeInternal,
                     null);
 
-            this.channel.exchangeDeclare(this.crmExchangeName,
+            this.channel.exchangeDeclareNoWait(this.crmExchangeName,
                     this.crmExchangeType,
                     this.crmExchangeDurable,
                     this.crmExchangeAutodelete,
                     this.crmExchangeInternal,
                     null);
 
-            this.channel.exchangeDeclare(this.cramExchangeName,
+            this.channel.exchangeDeclareNoWait(this.cramExchangeName,
                     this.cramExchangeType,
                     this.cramExchangeDurable,
                     this.cramExchangeAutodelete,
                     this.cramExchangeInternal,
                     null);
 
-            this.channel.exchangeDeclare(this.sspExchangeName,
+            this.channel.exchangeDeclareNoWait(this.sspExchangeName,
                     this.sspExchangeType,
                     this.sspExchangeDurable,
                     this.sspExchangeAutodelete,
                     this.sspExchangeInternal,
                     null);
 
-        } catch (IOException | TimeoutException e) {
+            this.channel.exchangeDeclarePassive(this.sspExchangeName);
+
+            this.ready = true;
+            log.info("RabbitMQ communication initialised");
+            return true;
+        } catch (IOException | TimeoutException | ShutdownSignalException e) {
             log.error("Error while initiating communication via RabbitMQ", e);
+            closeConnection();
+            return false;
         }
     }
 
+    /**
+     * Tracks blocking of publishing on the connection. The broker does not unblock a connection which has been closed,
+     * so the blocked state is also cleared when the connection shuts down, and a connection recovered by the client
+     * starts unblocked.
+     */
+    private void addConnectionListeners(Connection connection) {
+        connection.addBlockedListener(new BlockedListener() {
+            @Override
+            public void handleBlocked(String reason) {
+                onBlocked(reason);
+            }
+
+            @Override
+            public void handleUnblocked() {
+                onUnblocked();
+            }
+        });
+        connection.addShutdownListener(cause -> clearBlocked("connection shut down"));
+    }
+
     /**
      * Cleanup method, used to close RabbitMQ channel and connection.
      */
     @PreDestroy
     public void cleanup() {
+        this.shuttingDown = true;
+        Thread initializationThread = this.initializationThread;
+        if (initializationThread != null)
+            initializationThread.interrupt();
+        closeConnection();
+    }
+
+    private void closeConnection() {
+        this.ready = false;
+        clearBlocked("connection closed");
         try {
             if (this.channel != null && this.channel.isOpen())
                 this.channel.close();
@@ -254,73 +481,510 @@ public class RabbitManager {
         }
     }
 
+    /**
+     * Checks whether connection and channel with RabbitMQ are open.
+     *
+     * @return true if messages can be sent
+     */
+    public boolean isConnected() {
+        Connection connection = this.connection;
+        Channel channel = this.channel;
+        return connection != null && connection.isOpen() && channel != null && channel.isOpen();
+    }
+
+    /**
+     * Checks whether RabbitManager has been initialised and its connection is usable.
+     *
+     * @return true if exchanges have been declared and messages can be sent
+     */
+    public boolean isReady() {
+        return this.ready && isConnected();
+    }
+
+    /**
+     * @return true while background initialisation is in progress
+     */
+    public boolean isInitializing() {
+        CompletableFuture<Boolean> initialization = this.initialization;
+        return initialization != null && !initialization.isDone();
+    }
+
+    /**
+     * @return true if initialisation has been started in the background
+     */
+    public boolean isInitializationStarted() {
+        return this.initialization != null;
+    }
+
+    /**
+     * Checks whether RabbitMQ is currently blocking publishing on this connection (memory or disk alarm).
+     *
+     * @return true if the connection is blocked
+     */
+    public boolean isBlocked() {
+        return this.blocked;
+    }
+
+    /**
+     * @return reason given by the broker for blocking the connection, or null if it is not blocked
+     */
+    public String getBlockedReason() {
+        return this.blocked ? this.blockedReason : null;
+    }
+
+    /**
+     * @return time in milliseconds since the connection has been blocked, or 0 if it is not blocked
+     */
+    public long getBlockedMillis() {
+        return this.blocked ? System.currentTimeMillis() - this.blockedSince : 0;
+    }
+
+    /**
+     * @return number of times the connection has been blocked by the broker
+     */
+    public long getBlockedCount() {
+        return this.blockedCount.get();
+    }
+
+    /**
+     * @return number of messages not sent because the connection was blocked
+     */
+    public long getRejectedWhileBlockedCount() {
+        return this.rejectedWhileBlockedCount.get();
+    }
+
+    /**
+     * @return number of RPC messages waiting for a reply
+     */
+    public int getRpcInFlight() {
+        return this.rpcInFlight.get();
+    }
+
+    /**
+     * Waits until no RPC message is waiting for a reply.
+     *
+     * @param timeoutMillis maximum time to wait in milliseconds
+     * @return number of RPC messages still waiting for a reply
+     */
+    public int awaitRpcIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this.idleMonitor) {
+            while (this.rpcInFlight.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    break;
+                try {
+                    this.idleMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return this.rpcInFlight.get();
+    }
+
+    /**
+     * @return number of messages not sent because they could not be answered before the deadline of the request
+     */
+    public long getRejectedPastDeadlineCount() {
+        return this.rejectedPastDeadlineCount.get();
+    }
+
+    /**
+     * Checks whether messages sent with given routing key are high priority operations, which are allowed to wait
+     * for a short time for the broker to unblock the connection instead of being rejected at once.
+     *
+     * @param routingKey routing key of the message
+     * @return true for removal and clear data requests
+     */
+    public boolean isHighPriority(String routingKey) {
+        return routingKey != null && (routingKey.equals(this.resourceRemovalRequestedRoutingKey)
+                || routingKey.equals(this.resourceClearDataRequestedRoutingKey)
+                || routingKey.equals(this.sdevRemovalRequestedRoutingKey)
+                || routingKey.equals(this.sspResourceRemovalRequestedRoutingKey));
+    }
+
+    /**
+     * Returns AMQP priority of a message sent with given routing key.
+     * <p>
+     * Every operation class has its own configurable priority, so that e.g. removals are not queued behind bulk
+     * creations. If priority hints are enabled and the client of the currently handled request passed one, the hint
+     * is used instead, capped by the limit configured for the platform the request refers to.
+     * Priorities are only honoured by queues declared with the <i>x-max-priority</i> argument.
+     *
+     * @param routingKey routing key of the message
+     * @return priority of the message or null if no priority is configured for the routing key
+     */
+    public Integer getMessagePriority(String routingKey) {
+        Integer priority = getOperationPriority(routingKey);
+
+        RequestContext context = RequestContext.current();
+        if (this.priorityHintEnabled && context != null && context.getPriorityHint() != null) {
+            int cap = getPriorityHintCap(context.getPlatformId());
+            priority = Math.max(0, Math.min(context.getPriorityHint(), cap));
+        }
+        return priority;
+    }
+
+    private Integer getOperationPriority(String routingKey) {
+        if (routingKey == null)
+            return null;
+        if (routingKey.equals(this.resourceClearDataRequestedRoutingKey))
+            return this.clearDataPriority;
+        if (routingKey.equals(this.resourceRemovalRequestedRoutingKey)
+                || routingKey.equals(this.sdevRemovalRequestedRoutingKey)
+                || routingKey.equals(this.sspResourceRemovalRequestedRoutingKey))
+            return this.deletePriority;
+        if (routingKey.equals(this.resourceModificationRequestedRoutingKey)
+                || routingKey.equals(this.sdevModificationRequestedRoutingKey)
+                || routingKey.equals(this.sspResourceModificationRequestedRoutingKey))
+            return this.modifyPriority;
+        if (routingKey.equals(this.resourceCreationRequestedRoutingKey)
+                || routingKey.equals(this.sdevCreationRequestedRoutingKey)
+                || routingKey.equals(this.sspResourceCreationRequestedRoutingKey))
+            return this.createPriority;
+        if (routingKey.equals(this.crmMonitoringRoutingKey))
+            return this.monitoringPriority;
+        if (routingKey.equals(this.cramAccessNotificationRoutingKey))
+            return this.accessNotificationPriority;
+        return null;
+    }
+
+    private int getPriorityHintCap(String platformId) {
+        Map<String, Integer> caps = this.priorityHintCaps;
+        if (caps == null) {
+            caps = parsePriorityHintCaps(this.priorityHintPlatformCaps);
+            this.priorityHintCaps = caps;
+        }
+        Integer cap = platformId == null ? null : caps.get(platformId);
+        return cap != null ? cap : this.priorityHintDefaultCap;
+    }
+
+    /**
+     * Parses per-platform priority hint caps given as comma separated <i>platformId:cap</i> pairs.
+     */
+    private static Map<String, Integer> parsePriorityHintCaps(String value) {
+        Map<String, Integer> caps = new HashMap<>();
+        if (value == null || value.trim().isEmpty())
+            return caps;
+
+        for (String entry : value.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) {
+                log.warn("Ignoring invalid priority hint cap: " + entry);
+                continue;
+            }
+            try {
+                caps.put(entry.substring(0, separator).trim(), Integer.valueOf(entry.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid priority hint cap: " + entry);
+            }
+        }
+        return caps;
+    }
+
+    /**
+     * Reloads tuning parameters when they change in the environment, e.g. after a config refresh
+     * or a POST to the env endpoint.
+     *
+     * @param event event listing changed property names
+     */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (this.environment != null && event.getKeys().stream().anyMatch(key ->
+                TUNING_PROPERTIES.contains(key) || key.startsWith("rabbit.priority.") || key.startsWith("rabbit.limit.")))
+            applyTuning(this.environment);
+    }
+
+    /**
+     * Applies tuning parameters: reply timeout, TTL of reply queues, maximum wait while the connection is blocked,
+     * message priorities and concurrency limits. Each request reads the parameters once, so a request in flight completes with the values
+     * it started with and subsequent requests use the new ones. Invalid values are ignored, and properties missing
+     * from the environment keep their current values.
+     *
+     * @param properties properties to read parameters from
+     */
+    public void applyTuning(PropertyResolver properties) {
+        this.rpcReplyTimeoutMillis = tuned(properties, "rabbit.rpc.replyTimeoutMillis", this.rpcReplyTimeoutMillis, 1);
+        int messageTimeout = (int) tuned(properties, "spring.rabbitmq.template.reply-timeout",
+                this.rabbitMessageTimeout != null ? this.rabbitMessageTimeout : 0, 1);
+        if (this.rabbitMessageTimeout == null || messageTimeout != this.rabbitMessageTimeout) {
+            this.rabbitMessageTimeout = messageTimeout;
+            this.queueArgs = createQueueArgs(messageTimeout);
+        }
+        this.blockedMaxWaitMillis = tuned(properties, "rabbit.blocked.maxWaitMillis", this.blockedMaxWaitMillis, 0);
+
+        this.clearDataPriority = (int) tuned(properties, "rabbit.priority.clearData", this.clearDataPriority, 0);
+        this.deletePriority = (int) tuned(properties, "rabbit.priority.delete", this.deletePriority, 0);
+        this.modifyPriority = (int) tuned(properties, "rabbit.priority.modify", this.modifyPriority, 0);
+        this.createPriority = (int) tuned(properties, "rabbit.priority.create", this.createPriority, 0);
+        this.monitoringPriority = (int) tuned(properties, "rabbit.priority.monitoring", this.monitoringPriority, 0);
+        this.accessNotificationPriority = (int) tuned(properties, "rabbit.priority.accessNotification", this.accessNotificationPriority, 0);
+        this.priorityHintDefaultCap = (int) tuned(properties, "rabbit.priority.hint.defaultCap", this.priorityHintDefaultCap, 0);
+
+        String enabled = properties.getProperty("rabbit.priority.hint.enabled");
+        if (enabled != null && Boolean.parseBoolean(enabled.trim()) != this.priorityHintEnabled) {
+            log.info("Tuning rabbit.priority.hint.enabled: " + this.priorityHintEnabled + " -> " + enabled.trim());
+            this.priorityHintEnabled = Boolean.parseBoolean(enabled.trim());
+        }
+        String platformCaps = properties.getProperty("rabbit.priority.hint.platformCaps");
+        if (platformCaps != null && !platformCaps.equals(this.priorityHintPlatformCaps)) {
+            log.info("Tuning rabbit.priority.hint.platformCaps: " + this.priorityHintPlatformCaps + " -> " + platformCaps);
+            this.priorityHintPlatformCaps = platformCaps;
+            this.priorityHintCaps = null;
+        }
+
+        if (this.concurrencyLimits != null)
+            this.concurrencyLimits.applyTuning(properties);
+    }
+
+    /**
+     * @return current values of tuning parameters, by property name
+     */
+    public Map<String, Object> getTuning() {
+        Map<String, Object> tuning = new LinkedHashMap<>();
+        tuning.put("rabbit.rpc.replyTimeoutMillis", this.rpcReplyTimeoutMillis);
+        tuning.put("spring.rabbitmq.template.reply-timeout", this.rabbitMessageTimeout);
+        tuning.put("rabbit.blocked.maxWaitMillis", this.blockedMaxWaitMillis);
+        tuning.put("rabbit.priority.clearData", this.clearDataPriority);
+        tuning.put("rabbit.priority.delete", this.deletePriority);
+        tuning.put("rabbit.priority.modify", this.modifyPriority);
+        tuning.put("rabbit.priority.create", this.createPriority);
+        tuning.put("rabbit.priority.monitoring", this.monitoringPriority);
+        tuning.put("rabbit.priority.accessNotification", this.accessNotificationPriority);
+        tuning.put("rabbit.priority.hint.enabled", this.priorityHintEnabled);
+        tuning.put("rabbit.priority.hint.defaultCap", this.priorityHintDefaultCap);
+        tuning.put("rabbit.priority.hint.platformCaps", this.priorityHintPlatformCaps);
+        if (this.concurrencyLimits != null)
+            tuning.putAll(this.concurrencyLimits.getTuning());
+        return tuning;
+    }
+
+    private static long tuned(PropertyResolver properties, String name, long current, long min) {
+        String value = properties.getProperty(name);
+        if (value == null)
+            return current;
+        try {
+            long tuned = Long.parseLong(value.trim());
+            if (tuned < min) {
+                log.warn("Ignoring invalid value of " + name + ": " + value);
+                return current;
+            }
+            if (tuned != current)
+                log.info("Tuning " + name + ": " + current + " -> " + tuned);
+            return tuned;
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid value of " + name + ": " + value);
+            return current;
+        }
+    }
+
+    private static Map<String, Object> createQueueArgs(Integer messageTimeout) {
+        Map<String, Object> queueArgs = new HashMap<>();
+        queueArgs.put("x-message-ttl", messageTimeout);
+        return queueArgs;
+    }
+
+    /**
+     * Waits until the broker unblocks the connection.
+     *
+     * @param timeoutMillis maximum time to wait in milliseconds
+     * @return true if the connection is not blocked
+     */
+    public boolean awaitUnblocked(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this.blockedMonitor) {
+            while (this.blocked) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    return false;
+                try {
+                    this.blockedMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return !this.blocked;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void onBlocked(String reason) {
+        synchronized (this.blockedMonitor) {
+            this.blockedReason = reason;
+            this.blockedSince = System.currentTimeMillis();
+            this.blocked = true;
+        }
+        this.blockedCount.incrementAndGet();
+        log.warn("RabbitMQ blocked publishing on the connection: " + reason);
+    }
+
+    private void onUnblocked() {
+        synchronized (this.blockedMonitor) {
+            this.blocked = false;
+            this.blockedMonitor.notifyAll();
+        }
+        log.info("RabbitMQ unblocked publishing on the connection");
+    }
+
+    private void clearBlocked(String cause) {
+        synchronized (this.blockedMonitor) {
+            if (!this.blocked)
+                return;
+            this.blocked = false;
+            this.blockedReason = null;
+            this.blockedMonitor.notifyAll();
+        }
+        log.info("Blocking of publishing on the connection with RabbitMQ cleared: " + cause);
+    }
+
+    /**
+     * Publishing on a blocked connection hangs until the broker unblocks it, so messages are rejected instead.
+     * High priority operations are allowed to wait for a short, bounded time.
+     */
+    private boolean checkPublishingAllowed(String routingKey) {
+        if (!this.blocked)
+            return true;
+        if (isHighPriority(routingKey) && awaitUnblocked(this.blockedMaxWaitMillis))
+            return true;
+
+        this.rejectedWhileBlockedCount.incrementAndGet();
+        log.warn("Connection with RabbitMQ is blocked (" + this.blockedReason + "), message to " + routingKey + " not sent");
+        return false;
+    }
+
     /**
      * Method used to send message via RPC (Remote Procedure Call) pattern.
      * In this implementation it covers asynchronous Rabbit communication with synchronous one, as it is used by conventional REST facade.
      * Before sending a message, a temporary response queue is declared and its name is passed along with the message.
      * When a consumer handles the message, it returns the result via the response queue.
-     * Since this is a synchronous pattern, it uses timeout of 20 seconds. If the response doesn't come in that time, the method returns with null result.
+     * Since this is a synchronous pattern, it uses timeout of <i>rabbit.rpc.replyTimeoutMillis</i> (20 seconds by default).
+     * If the response doesn't come in that time, the method returns with null result.
+     * <p>
+     * The number of requests in flight to every exchange is limited by {@link ConcurrencyLimits}. Requests above
+     * the limit are rejected with {@link ServiceUnavailableException}, except for removal and clear data requests.
+     * <p>
+     * If the handled REST request has a deadline, the message is rejected the same way when the deadline does not leave
+     * enough time for the usual round trip to the exchange, and the wait for the reply ends at the deadline.
      *
      * @param exchangeName name of the exchange to send message to
      * @param routingKey   routing key to send message to
      * @param message      message to be sent
      * @return response from the consumer or null if timeout occurs
+     * @throws ServiceUnavailableException if the concurrency limit of the exchange is reached or the message cannot be
+     *                                     answered before the deadline of the request
      */
     public String sendRpcMessage(String exchangeName, String routingKey, String message) {
-        QueueingConsumer consumer = new QueueingConsumer(channel);
+        byte[] response = sendRpcBytes(exchangeName, routingKey, message.getBytes(StandardCharsets.UTF_8));
+        return response != null ? new String(response, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Method used to send message via RPC pattern, like {@link #sendRpcMessage(String, String, String)}, with the body
+     * of the message and of the response passed as UTF-8 encoded bytes, which spares copying them to and from strings.
+     *
+     * @param exchangeName name of the exchange to send message to
+     * @param routingKey   routing key to send message to
+     * @param body         body of the message to be sent
+     * @return body of the response from the consumer or null if timeout occurs
+     * @throws ServiceUnavailableException if the concurrency limit of the exchange is reached or the message cannot be
+     *                                     answered before the deadline of the request
+     */
+    public byte[] sendRpcBytes(String exchangeName, String routingKey, byte[] body) {
+        long remainingMillis;
+        try {
+            remainingMillis = AdmissionControl.checkDeadline(this.concurrencyLimits, exchangeName, routingKey);
+        } catch (ServiceUnavailableException e) {
+            this.rejectedPastDeadlineCount.incrementAndGet();
+            throw e;
+        }
+        if (!isConnected()) {
+            log.warn("Connection with RabbitMQ is not available, message to " + routingKey + " not sent");
+            return null;
+        }
+        if (!checkPublishingAllowed(routingKey))
+            return null;
+
+        GradientLimiter.Permit permit = null;
+        this.rpcInFlight.incrementAndGet();
+        String outcome = LatencyMetrics.OUTCOME_ERROR;
+        boolean waitBoundByDeadline = remainingMillis < this.rpcReplyTimeoutMillis;
+        long replyTimeoutMillis = Math.max(1, Math.min(this.rpcReplyTimeoutMillis, remainingMillis));
+        QueueingConsumer consumer = null;
+        String stage = LatencyMetrics.STAGE_PUBLISH;
+        long stageStartNanos = System.nanoTime();
 
         try {
+            permit = AdmissionControl.acquire(this.concurrencyLimits, exchangeName, isHighPriority(routingKey), routingKey);
+            consumer = new QueueingConsumer(channel);
             log.debug("Sending message...");
 
-            String replyQueueName = UUID.randomUUID().toString();
+            String replyQueueName = this.messageProperties.nextId();
             this.channel.queueDeclare(replyQueueName, false, true, true, queueArgs);
 //            this.channel.queueDeclare(replyQueueName, false, true, true, null);
 
 
-            String correlationId = UUID.randomUUID().toString();
-            AMQP.BasicProperties props = new AMQP.BasicProperties()
-                    .builder()
-                    .correlationId(correlationId)
-                    .replyTo(replyQueueName)
-                    .contentType("application/json")
-                    .build();
+            String correlationId = this.messageProperties.nextId();
+            AMQP.BasicProperties props = this.messageProperties.rpc(getMessagePriority(routingKey), correlationId, replyQueueName);
 
             channel.basicConsume(replyQueueName, true, consumer);
 
-            String responseMsg = null;
+            byte[] responseBody;
+
+            this.channel.basicPublish(exchangeName, routingKey, props, body);
+            RequestContext context = RequestContext.current();
+            if (context != null)
+                context.addOutboundBytes(body.length);
+            recordLatency(stage, routingKey, LatencyMetrics.OUTCOME_OK, stageStartNanos);
 
-            this.channel.basicPublish(exchangeName, routingKey, props, message.getBytes());
+            stage = LatencyMetrics.STAGE_WAIT;
+            stageStartNanos = System.nanoTime();
             while (true) {
-                QueueingConsumer.Delivery delivery = consumer.nextDelivery(20000);
+                QueueingConsumer.Delivery delivery = consumer.nextDelivery(replyTimeoutMillis);
                 if (delivery == null) {
                     log.info("Timeout in response retrieval");
+                    outcome = LatencyMetrics.OUTCOME_TIMEOUT;
+                    recordLatency(stage, routingKey, LatencyMetrics.OUTCOME_TIMEOUT, stageStartNanos);
                     return null;
                 }
 
                 if (delivery.getProperties().getCorrelationId().equals(correlationId)) {
                     log.debug("Got reply with correlationId: " + correlationId + " and delivery: " + delivery);
-                    responseMsg = new String(delivery.getBody());
+                    responseBody = delivery.getBody();
+                    if (context != null)
+                        context.addReplyBytes(responseBody.length);
                     break;
                 } else {
                     log.debug("Got answer with wrong correlationId... should be " + correlationId + " but got " + delivery.getProperties().getCorrelationId());
                 }
             }
             log.debug("Finished rpc loop");
+            outcome = LatencyMetrics.OUTCOME_OK;
+            recordLatency(stage, routingKey, LatencyMetrics.OUTCOME_OK, stageStartNanos);
 
-            return responseMsg;
+            return responseBody;
         } catch (IOException | InterruptedException e) {
             log.error("Error while sending RPC Message via RabbitMQ", e);
+            recordLatency(stage, routingKey, LatencyMetrics.OUTCOME_ERROR, stageStartNanos);
         } finally {
-            try {
-                this.channel.basicCancel(consumer.getConsumerTag());
-            } catch (IOException e) {
-                log.error(e.getMessage(), e);
+            if (consumer != null && consumer.getConsumerTag() != null) {
+                try {
+                    this.channel.basicCancel(consumer.getConsumerTag());
+                } catch (IOException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+            AdmissionControl.release(permit, outcome, waitBoundByDeadline);
+            if (this.rpcInFlight.decrementAndGet() == 0) {
+                synchronized (this.idleMonitor) {
+                    this.idleMonitor.notifyAll();
+                }
             }
         }
         return null;
     }
 
-
     /**
      * Method used to send an asynchronous message, without expecting any returning result.
      * Exchange should be declared before sending the message.
@@ -331,12 +995,20 @@ public class RabbitManager {
      * @return true if publish went ok, false otherwise
      */
     public boolean sendAsyncMessage(String exchangeName, String routingKey, String message) {
+        if (!isConnected()) {
+            log.warn("Connection with RabbitMQ is not available, message to " + routingKey + " not sent");
+            return false;
+        }
+        if (!checkPublishingAllowed(routingKey))
+            return false;
+
         try {
-            AMQP.BasicProperties props = new AMQP.BasicProperties()
-                    .builder()
-                    .contentType("application/json")
-                    .build();
-            this.channel.basicPublish(exchangeName, routingKey, props, message.getBytes());
+            AMQP.BasicProperties props = this.messageProperties.async(getMessagePriority(routingKey));
+            byte[] body = message.getBytes(StandardCharsets.UTF_8);
+            this.channel.basicPublish(exchangeName, routingKey, props, body);
+            RequestContext context = RequestContext.current();
+            if (context != null)
+                context.addOutboundBytes(body.length);
             return true;
         } catch (IOException e) {
             log.error("Error while sending async message via RabbitMQ", e);
@@ -344,6 +1016,41 @@ public class RabbitManager {
         }
     }
 
+    private void recordLatency(String stage, String routingKey, String outcome, long startNanos) {
+        if (this.latencyMetrics != null)
+            this.latencyMetrics.record(stage, routingKey, outcome, startNanos);
+    }
+
+    /**
+     * Marshals request straight to UTF-8 encoded bytes, without an intermediate String. The shared mapper recycles
+     * the output buffer of the generator and the first segment of its ByteArrayBuilder between calls on the same
+     * thread. A larger message still allocates further segments as it grows, and toByteArray() copies all of them into
+     * the array which is published, so about twice the size of the message is allocated per call.
+     */
+    private byte[] serialize(String routingKey, Object request) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            byte[] message = mapper.writeValueAsBytes(request);
+            recordLatency(LatencyMetrics.STAGE_SERIALIZE, routingKey, LatencyMetrics.OUTCOME_OK, startNanos);
+            return message;
+        } catch (IOException e) {
+            recordLatency(LatencyMetrics.STAGE_SERIALIZE, routingKey, LatencyMetrics.OUTCOME_ERROR, startNanos);
+            throw e;
+        }
+    }
+
+    private <T> T deserialize(String routingKey, byte[] responseMsg, Class<T> responseType) throws IOException {
+        long startNanos = System.nanoTime();
+        try {
+            T response = mapper.readValue(responseMsg, responseType);
+            recordLatency(LatencyMetrics.STAGE_PARSE, routingKey, LatencyMetrics.OUTCOME_OK, startNanos);
+            return response;
+        } catch (IOException e) {
+            recordLatency(LatencyMetrics.STAGE_PARSE, routingKey, LatencyMetrics.OUTCOME_ERROR, startNanos);
+            throw e;
+        }
+    }
+
     /**
      * Helper method that provides JSON marshalling and unmarshalling for the sake of Rabbit communication.
      *
@@ -354,17 +1061,14 @@ public class RabbitManager {
      */
     public CoreResourceRegistryResponse sendRpcResourceMessage(String exchangeName, String routingKey, CoreResourceRegistryRequest coreResourceRequest) {
         try {
-            String message;
-            ObjectMapper mapper = new ObjectMapper();
-            message = mapper.writeValueAsString(coreResourceRequest);
+            byte[] message = serialize(routingKey, coreResourceRequest);
 
-            String responseMsg = this.sendRpcMessage(exchangeName, routingKey, message);
+            byte[] responseMsg = this.sendRpcBytes(exchangeName, routingKey, message);
 
             if (responseMsg == null)
                 return null;
 
-            mapper = new ObjectMapper();
-            return mapper.readValue(responseMsg, CoreResourceRegistryResponse.class);
+            return deserialize(routingKey, responseMsg, CoreResourceRegistryResponse.class);
         } catch (IOException e) {
             log.error("Failed (un)marshalling of rpc resource message", e);
         }
@@ -381,17 +1085,14 @@ public class RabbitManager {
      */
     public CoreSdevRegistryResponse sendRpcSdevMessage(String exchangeName, String routingKey, CoreSdevRegistryRequest coreSdevRequest) {
         try {
-            String message;
-            ObjectMapper mapper = new ObjectMapper();
-            message = mapper.writeValueAsString(coreSdevRequest);
+            byte[] message = serialize(routingKey, coreSdevRequest);
 
-            String responseMsg = this.sendRpcMessage(exchangeName, routingKey, message);
+            byte[] responseMsg = this.sendRpcBytes(exchangeName, routingKey, message);
 
             if (responseMsg == null)
                 return null;
 
-            mapper = new ObjectMapper();
-            return mapper.readValue(responseMsg, CoreSdevRegistryResponse.class);
+            return deserialize(routingKey, responseMsg, CoreSdevRegistryResponse.class);
         } catch (IOException e) {
             log.error("Failed (un)marshalling of rpc sdev message", e);
         }
@@ -408,17 +1109,14 @@ public class RabbitManager {
      */
     public CoreSspResourceRegistryResponse sendRpcSspResourceMessage(String exchangeName, String routingKey, CoreSspResourceRegistryRequest coreSspResourceRequest) {
         try {
-            String message;
-            ObjectMapper mapper = new ObjectMapper();
-            message = mapper.writeValueAsString(coreSspResourceRequest);
+            byte[] message = serialize(routingKey, coreSspResourceRequest);
 
-            String responseMsg = this.sendRpcMessage(exchangeName, routingKey, message);
+            byte[] responseMsg = this.sendRpcBytes(exchangeName, routingKey, message);
 
             if (responseMsg == null)
                 return null;
 
-            mapper = new ObjectMapper();
-            return mapper.readValue(responseMsg, CoreSspResourceRegistryResponse.class);
+            return deserialize(routingKey, responseMsg, CoreSspResourceRegistryResponse.class);
         } catch (IOException e) {
             log.error("Failed (un)marshalling of rpc sdev message", e);
         }
@@ -435,17 +1133,14 @@ public class RabbitManager {
      */
     public ClearDataResponse sendRpcClearDataMessage(String exchangeName, String routingKey, ClearDataRequest request) {
         try {
-            String message;
-            ObjectMapper mapper = new ObjectMapper();
-            message = mapper.writeValueAsString(request);
+            byte[] message = serialize(routingKey, request);
 
-            String responseMsg = this.sendRpcMessage(exchangeName, routingKey, message);
+            byte[] responseMsg = this.sendRpcBytes(exchangeName, routingKey, message);
 
             if (responseMsg == null)
                 return null;
 
-            mapper = new ObjectMapper();
-            return mapper.readValue(responseMsg, ClearDataResponse.class);
+            return deserialize(routingKey, responseMsg, ClearDataResponse.class);
         } catch (IOException e) {
             log.error("Failed (un)marshalling of rpc resource message for clearData", e);
         }
@@ -462,17 +1157,14 @@ public class RabbitManager {
      */
     public NotificationMessageResponseSecured sendRpcAccessNotificationMessage(String exchangeName, String routingKey, NotificationMessageSecured request) {
         try {
-            String message;
-            ObjectMapper mapper = new ObjectMapper();
-            message = mapper.writeValueAsString(request);
+            byte[] message = serialize(routingKey, request);
 
-            String responseMsg = this.sendRpcMessage(exchangeName, routingKey, message);
+            byte[] responseMsg = this.sendRpcBytes(exchangeName, routingKey, message);
 
             if (responseMsg == null)
                 return null;
 
-            mapper = new ObjectMapper();
-            return mapper.readValue(responseMsg, NotificationMessageResponseSecured.class);
+            return deserialize(routingKey, responseMsg, NotificationMessageResponseSecured.class);
         } catch (IOException e) {
             log.error("Failed (un)marshalling of rpc resource message for sendRpcAccessNotificationMessage", e);
         }
@@ -490,19 +1182,18 @@ public class RabbitManager {
     public MonitoringResponseSecured sendRpcMonitoringMessage(String exchangeName, String routingKey,
                                                               CloudMonitoringPlatformRequest request) {
         try {
-            String message;
-            ObjectMapper mapper = new ObjectMapper();
-            message = mapper.writeValueAsString(request);
+            byte[] message = serialize(routingKey, request);
 
-            log.debug("sendRpcMonitoringMessage: Sending " + message);
-            String responseMsg = this.sendRpcMessage(exchangeName, routingKey, message);
-            log.debug("sendRpcMonitoringMessage: Received " + responseMsg);
+            if (log.isDebugEnabled())
+                log.debug("sendRpcMonitoringMessage: Sending " + new String(message, StandardCharsets.UTF_8));
+            byte[] responseMsg = this.sendRpcBytes(exchangeName, routingKey, message);
+            if (log.isDebugEnabled() && responseMsg != null)
+                log.debug("sendRpcMonitoringMessage: Received " + new String(responseMsg, StandardCharsets.UTF_8));
 
             if (responseMsg == null)
                 return null;
 
-            mapper = new ObjectMapper();
-            return mapper.readValue(responseMsg, MonitoringResponseSecured.class);
+            return deserialize(routingKey, responseMsg, MonitoringResponseSecured.class);
         } catch (IOException e) {
             log.error("Failed (un)marshalling of rpc resource message for sendRpcMonitoringMessage", e);
         }
@@ -515,6 +1206,7 @@ public class RabbitManager {
      * @param coreResourceRequest resource to be created
      * @return object containing status of requested operation and, if successful, a resource object containing assigned ID
      */
+    @Override
     public CoreResourceRegistryResponse sendResourceCreationRequest(CoreResourceRegistryRequest coreResourceRequest) {
         return sendRpcResourceMessage(this.resourceExchangeName, this.resourceCreationRequestedRoutingKey, coreResourceRequest);
     }
@@ -525,6 +1217,7 @@ public class RabbitManager {
      * @param coreResourceRequest resource to be removed
      * @return object containing status of requested operation and, if successful, a resource object
      */
+    @Override
     public CoreResourceRegistryResponse sendResourceRemovalRequest(CoreResourceRegistryRequest coreResourceRequest) {
         return sendRpcResourceMessage(this.resourceExchangeName, this.resourceRemovalRequestedRoutingKey, coreResourceRequest);
     }
@@ -535,6 +1228,7 @@ public class RabbitManager {
      * @param coreResourceRequest resource to be modified
      * @return object containing status of requested operation and, if successful, a resource object
      */
+    @Override
     public CoreResourceRegistryResponse sendResourceModificationRequest(CoreResourceRegistryRequest coreResourceRequest) {
         return sendRpcResourceMessage(this.resourceExchangeName, this.resourceModificationRequestedRoutingKey, coreResourceRequest);
     }
@@ -545,6 +1239,7 @@ public class RabbitManager {
      * @param clearDataRequest request containing platform id
      * @return response containing status of requested operation
      */
+    @Override
     public ClearDataResponse sendClearDataRequest(ClearDataRequest clearDataRequest) {
         return sendRpcClearDataMessage(this.resourceExchangeName, this.resourceClearDataRequestedRoutingKey, clearDataRequest);
     }
@@ -555,6 +1250,7 @@ public class RabbitManager {
      * @param cloudMonitoringPlatformRequest message from platform
      * @return true if message is sent ok, false otherwise
      */
+    @Override
     public MonitoringResponseSecured sendMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest) {
         log.debug("SendMonitoringMessage, exchange = " + this.crmExchangeName + ", routingKey = " + this.crmMonitoringRoutingKey);
         return sendRpcMonitoringMessage(this.crmExchangeName, this.crmMonitoringRoutingKey, cloudMonitoringPlatformRequest);
@@ -566,6 +1262,7 @@ public class RabbitManager {
      * @param notificationMessage access notification message
      * @return the response of CRAM
      */
+    @Override
     public NotificationMessageResponseSecured sendAccessNotificationMessage(NotificationMessageSecured notificationMessage) {
         log.debug("sendAccessNotificationMessage, exchange = " + this.cramExchangeName + ", routingKey = " + this.cramAccessNotificationRoutingKey);
 
@@ -574,12 +1271,65 @@ public class RabbitManager {
 
     }
 
+    /**
+     * Method used to journal monitoring message which could not be delivered to Core Resource Monitor.
+     * The message is replayed when the connection with RabbitMQ is available.
+     *
+     * @param cloudMonitoringPlatformRequest message from platform
+     * @return true if message was journaled, false if spool is disabled or full
+     */
+    @Override
+    public boolean spoolMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest) {
+        return spoolMessage(this.crmExchangeName, this.crmMonitoringRoutingKey, cloudMonitoringPlatformRequest);
+    }
+
+    /**
+     * Method used to journal access notification message which could not be delivered to Core Resource Access Monitor.
+     * The message is replayed when the connection with RabbitMQ is available.
+     *
+     * @param notificationMessage access notification message
+     * @return true if message was journaled, false if spool is disabled or full
+     */
+    @Override
+    public boolean spoolAccessNotificationMessage(NotificationMessageSecured notificationMessage) {
+        return spoolMessage(this.cramExchangeName, this.cramAccessNotificationRoutingKey, notificationMessage);
+    }
+
+    /**
+     * Sends journaled message via RPC pattern. Nothing is sent until RabbitManager is ready.
+     *
+     * @param message journaled message
+     * @return true if the response arrived
+     */
+    @Override
+    public boolean replaySpooledMessage(SpooledMessage message) {
+        if (!isReady())
+            return false;
+        return sendRpcBytes(message.getExchangeName(), message.getRoutingKey(), message.getPayload()) != null;
+    }
+
+    private boolean spoolMessage(String exchangeName, String routingKey, Object request) {
+        if (this.messageSpool == null || !this.messageSpool.isEnabled())
+            return false;
+
+        try {
+            boolean spooled = this.messageSpool.append(exchangeName, routingKey, mapper.writeValueAsBytes(request));
+            if (spooled)
+                log.info("Message to " + routingKey + " journaled in spool for later delivery");
+            return spooled;
+        } catch (IOException e) {
+            log.error("Failed marshalling of message to be spooled", e);
+            return false;
+        }
+    }
+
     /**
      * Method used to send RPC request to create a smart device.
      *
      * @param coreSdevRequest smart device to be created
      * @return object containing status of requested operation and, if successful, a smart device object containing assigned ID
      */
+    @Override
     public CoreSdevRegistryResponse sendSdevCreationRequest(CoreSdevRegistryRequest coreSdevRequest) {
         return sendRpcSdevMessage(this.sspExchangeName, this.sdevCreationRequestedRoutingKey, coreSdevRequest);
     }
@@ -590,6 +1340,7 @@ public class RabbitManager {
      * @param coreSdevRequest smart device to be removed
      * @return object containing status of requested operation and, if successful, a smart device object
      */
+    @Override
     public CoreSdevRegistryResponse sendSdevRemovalRequest(CoreSdevRegistryRequest coreSdevRequest) {
         return sendRpcSdevMessage(this.sspExchangeName, this.sdevRemovalRequestedRoutingKey, coreSdevRequest);
     }
@@ -600,6 +1351,7 @@ public class RabbitManager {
      * @param coreSdevRequest smart device to be modified
      * @return object containing status of requested operation and, if successful, a smart device object
      */
+    @Override
     public CoreSdevRegistryResponse sendSdevModificationRequest(CoreSdevRegistryRequest coreSdevRequest) {
         return sendRpcSdevMessage(this.sspExchangeName, this.sdevModificationRequestedRoutingKey, coreSdevRequest);
     }
@@ -610,6 +1362,7 @@ public class RabbitManager {
      * @param coreSspResourceRequest SSP resource to be created
      * @return object containing status of requested operation and, if successful, an SSP Resource object containing assigned ID
      */
+    @Override
     public CoreSspResourceRegistryResponse sendSspResourceCreationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
         return sendRpcSspResourceMessage(this.resourceExchangeName, this.sspResourceCreationRequestedRoutingKey, coreSspResourceRequest);
     }
@@ -620,6 +1373,7 @@ public class RabbitManager {
      * @param coreSspResourceRequest SSP resource to be modified
      * @return object containing status of requested operation and, if successful, an SSP Resource object
      */
+    @Override
     public CoreSspResourceRegistryResponse sendSspResourceModificationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
         return sendRpcSspResourceMessage(this.resourceExchangeName, this.sspResourceModificationRequestedRoutingKey, coreSspResourceRequest);
     }
@@ -630,6 +1384,7 @@ public class RabbitManager {
      * @param coreSspResourceRequest SSP resource to be deleted
      * @return object containing status of requested operation and, if successful, an SSP Resource object
      */
+    @Override
     public CoreSspResourceRegistryResponse sendSspResourceRemovalRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
         return sendRpcSspResourceMessage(this.resourceExchangeName, this.sspResourceRemovalRequestedRoutingKey, coreSspResourceRequest);
     }
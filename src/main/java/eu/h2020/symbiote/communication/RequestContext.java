@@ -0,0 +1,154 @@
+package eu.h2020.symbiote.communication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Information about the REST request handled by the current thread, made available to the communication layer.
+ * <p>
+ * The context is opened when a request enters CloudCoreInterface and closed when its handling completes.
+ * Messages sent from other threads (e.g. aggregated or replayed messages) have no context.
+ */
+public class RequestContext {
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private String endpoint;
+    private String platformId;
+    private Integer priorityHint;
+    private long bindingStartNanos;
+    private long allocatedBytesAtStart = -1;
+    private long outboundBytes;
+    private long replyBytes;
+    private long deadlineNanos;
+
+    /**
+     * Opens a new context for the current thread.
+     *
+     * @return opened context
+     */
+    public static RequestContext open() {
+        RequestContext context = new RequestContext();
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * @return context of the request handled by the current thread, or null if there is none
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Closes the context of the current thread.
+     */
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return time the request handling started, taken from {@link System#nanoTime()}
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return time by which the request has to be completed, taken from {@link System#nanoTime()}, or 0 if there is
+     * no deadline
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public void setDeadlineNanos(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @return milliseconds left until the deadline, negative if it has passed, or {@link Long#MAX_VALUE} if there is
+     * no deadline
+     */
+    public long getRemainingMillis() {
+        if (deadlineNanos == 0)
+            return Long.MAX_VALUE;
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * @return URI pattern of the endpoint handling the request, if known
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return ID of the platform (or SSP) the request refers to, if known
+     */
+    public String getPlatformId() {
+        return platformId;
+    }
+
+    public void setPlatformId(String platformId) {
+        this.platformId = platformId;
+    }
+
+    /**
+     * @return message priority requested by the client, if any
+     */
+    public Integer getPriorityHint() {
+        return priorityHint;
+    }
+
+    public void setPriorityHint(Integer priorityHint) {
+        this.priorityHint = priorityHint;
+    }
+
+    /**
+     * @return time binding of the request body started, taken from {@link System#nanoTime()}
+     */
+    public long getBindingStartNanos() {
+        return bindingStartNanos;
+    }
+
+    public void setBindingStartNanos(long bindingStartNanos) {
+        this.bindingStartNanos = bindingStartNanos;
+    }
+
+    /**
+     * @return bytes allocated by the handling thread when the request handling started, negative if unknown
+     */
+    public long getAllocatedBytesAtStart() {
+        return allocatedBytesAtStart;
+    }
+
+    public void setAllocatedBytesAtStart(long allocatedBytesAtStart) {
+        this.allocatedBytesAtStart = allocatedBytesAtStart;
+    }
+
+    /**
+     * @return bytes of messages sent to core services on behalf of the request
+     */
+    public long getOutboundBytes() {
+        return outboundBytes;
+    }
+
+    public void addOutboundBytes(long bytes) {
+        this.outboundBytes += bytes;
+    }
+
+    /**
+     * @return bytes of replies received from core services on behalf of the request
+     */
+    public long getReplyBytes() {
+        return replyBytes;
+    }
+
+    public void addReplyBytes(long bytes) {
+        this.replyBytes += bytes;
+    }
+}
@@ -0,0 +1,198 @@
+package eu.h2020.symbiote.communication;
+
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.communication.http.HttpTransport;
+import eu.h2020.symbiote.communication.local.LocalTransport;
+import eu.h2020.symbiote.communication.spool.SpooledMessage;
+import eu.h2020.symbiote.core.internal.*;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
+import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link CoreTransport} used by CloudCoreInterface, choosing the transport separately for every operation.
+ * <p>
+ * By default all operations use RabbitMQ ({@link RabbitManager}), or {@link LocalTransport} if it is enabled.
+ * Operations listed in <i>cci.transport.http.operations</i> (comma separated {@link CoreOperation} names)
+ * are sent directly to core services by {@link HttpTransport}. Messages journaled in the message spool are replayed
+ * by the default transport, as HTTP transport does not journal messages.
+ * <p>
+ * The connection of RabbitManager is initialised only if some operation is sent via RabbitMQ.
+ */
+@Component
+@Primary
+public class RoutingTransport implements CoreTransport {
+    private static Log log = LogFactory.getLog(RoutingTransport.class);
+
+    private final Map<CoreOperation, CoreTransport> routes = new EnumMap<>(CoreOperation.class);
+    private final CoreTransport defaultTransport;
+    private final RabbitManager rabbitManager;
+
+    /**
+     * @param rabbitManager  RabbitManager bean
+     * @param localTransport LocalTransport bean, if enabled
+     * @param httpTransport  HttpTransport bean, if enabled
+     * @param httpOperations operations sent by HttpTransport
+     */
+    @Autowired
+    public RoutingTransport(RabbitManager rabbitManager,
+                            Optional<LocalTransport> localTransport,
+                            Optional<HttpTransport> httpTransport,
+                            @Value("${cci.transport.http.operations:}") String httpOperations) {
+        this(localTransport.isPresent() ? localTransport.get() : rabbitManager,
+                httpTransport.isPresent() ? httpTransport.get() : null,
+                httpOperations, rabbitManager);
+    }
+
+    /**
+     * @param defaultTransport transport of operations not sent via HTTP
+     * @param httpTransport    transport of operations sent via HTTP, may be null
+     * @param httpOperations   comma separated names of operations sent via HTTP
+     */
+    public RoutingTransport(CoreTransport defaultTransport, CoreTransport httpTransport, String httpOperations) {
+        this(defaultTransport, httpTransport, httpOperations, null);
+    }
+
+    private RoutingTransport(CoreTransport defaultTransport, CoreTransport httpTransport, String httpOperations,
+                             RabbitManager rabbitManager) {
+        this.defaultTransport = defaultTransport;
+        this.rabbitManager = rabbitManager;
+        for (CoreOperation operation : CoreOperation.values())
+            routes.put(operation, defaultTransport);
+
+        if (httpOperations == null || httpOperations.trim().isEmpty())
+            return;
+        if (httpTransport == null) {
+            log.warn("HTTP transport is not configured, operations " + httpOperations + " will use the default transport");
+            return;
+        }
+        for (String operation : httpOperations.split(","))
+            routes.put(parseOperation(operation.trim()), httpTransport);
+        log.info("Operations " + httpOperations + " will be sent to core services via HTTP");
+    }
+
+    /**
+     * Starts initialisation of the RabbitMQ connection if some operation is sent via RabbitMQ.
+     */
+    @PostConstruct
+    public void start() {
+        if (rabbitManager == null)
+            return;
+        if (isUsed(rabbitManager))
+            rabbitManager.startInitialization();
+        else
+            log.info("No operation is sent via RabbitMQ, connection with the broker will not be initialised");
+    }
+
+    private static CoreOperation parseOperation(String name) {
+        try {
+            return CoreOperation.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown operation '" + name + "' in cci.transport.http.operations, valid operations are "
+                    + Arrays.toString(CoreOperation.values()), e);
+        }
+    }
+
+    /**
+     * @param operation core operation
+     * @return transport used for the operation
+     */
+    public CoreTransport getTransport(CoreOperation operation) {
+        return routes.get(operation);
+    }
+
+    /**
+     * @param transport transport
+     * @return true if at least one operation is sent by the transport
+     */
+    public boolean isUsed(CoreTransport transport) {
+        return routes.containsValue(transport);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceCreationRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return getTransport(CoreOperation.RESOURCE_CREATION).sendResourceCreationRequest(coreResourceRequest);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceRemovalRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return getTransport(CoreOperation.RESOURCE_REMOVAL).sendResourceRemovalRequest(coreResourceRequest);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceModificationRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return getTransport(CoreOperation.RESOURCE_MODIFICATION).sendResourceModificationRequest(coreResourceRequest);
+    }
+
+    @Override
+    public ClearDataResponse sendClearDataRequest(ClearDataRequest clearDataRequest) {
+        return getTransport(CoreOperation.CLEAR_DATA).sendClearDataRequest(clearDataRequest);
+    }
+
+    @Override
+    public MonitoringResponseSecured sendMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest) {
+        return getTransport(CoreOperation.MONITORING).sendMonitoringMessage(cloudMonitoringPlatformRequest);
+    }
+
+    @Override
+    public NotificationMessageResponseSecured sendAccessNotificationMessage(NotificationMessageSecured notificationMessage) {
+        return getTransport(CoreOperation.ACCESS_NOTIFICATION).sendAccessNotificationMessage(notificationMessage);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevCreationRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return getTransport(CoreOperation.SDEV_CREATION).sendSdevCreationRequest(coreSdevRequest);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevRemovalRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return getTransport(CoreOperation.SDEV_REMOVAL).sendSdevRemovalRequest(coreSdevRequest);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevModificationRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return getTransport(CoreOperation.SDEV_MODIFICATION).sendSdevModificationRequest(coreSdevRequest);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceCreationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return getTransport(CoreOperation.SSP_RESOURCE_CREATION).sendSspResourceCreationRequest(coreSspResourceRequest);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceModificationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return getTransport(CoreOperation.SSP_RESOURCE_MODIFICATION).sendSspResourceModificationRequest(coreSspResourceRequest);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceRemovalRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return getTransport(CoreOperation.SSP_RESOURCE_REMOVAL).sendSspResourceRemovalRequest(coreSspResourceRequest);
+    }
+
+    @Override
+    public boolean spoolMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest) {
+        return getTransport(CoreOperation.MONITORING).spoolMonitoringMessage(cloudMonitoringPlatformRequest);
+    }
+
+    @Override
+    public boolean spoolAccessNotificationMessage(NotificationMessageSecured notificationMessage) {
+        return getTransport(CoreOperation.ACCESS_NOTIFICATION).spoolAccessNotificationMessage(notificationMessage);
+    }
+
+    @Override
+    public boolean replaySpooledMessage(SpooledMessage message) {
+        return defaultTransport.replaySpooledMessage(message);
+    }
+}
@@ -0,0 +1,272 @@
+package eu.h2020.symbiote.communication.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.communication.CoreOperation;
+import eu.h2020.symbiote.communication.CoreTransport;
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.communication.limit.AdmissionControl;
+import eu.h2020.symbiote.communication.limit.ConcurrencyLimits;
+import eu.h2020.symbiote.communication.limit.GradientLimiter;
+import eu.h2020.symbiote.core.internal.*;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
+import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CoreTransport} calling core services directly over HTTP/2.
+ * <p>
+ * Every operation is a POST of the JSON request to <i>{cci.transport.http.url}/{operation}</i>, where operation is
+ * the lower-case, hyphenated name of the {@link CoreOperation} (e.g. <i>resource-creation</i>). The response body is
+ * the JSON response of the operation, of the same type as in the RabbitMQ RPC. Statuses other than 2xx are treated
+ * as a missing response.
+ * <p>
+ * Requests are subject to the same deadline, concurrency limits and latency metrics as RabbitMQ RPC messages, with
+ * limiters named <i>http:{operation}</i>.
+ * <p>
+ * Connections are persistent and pooled. Plain HTTP URLs use HTTP/2 with prior knowledge (h2c), HTTPS URLs
+ * negotiate HTTP/2 with a fallback to HTTP/1.1. Requests of all threads are multiplexed over the pooled connections.
+ * <p>
+ * The transport is created when <i>cci.transport.http.url</i> is set.
+ */
+@Component
+@ConditionalOnProperty(name = "cci.transport.http.url")
+public class HttpTransport implements CoreTransport {
+    private static Log log = LogFactory.getLog(HttpTransport.class);
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private static final Set<CoreOperation> HIGH_PRIORITY_OPERATIONS = EnumSet.of(CoreOperation.RESOURCE_REMOVAL,
+            CoreOperation.CLEAR_DATA, CoreOperation.SDEV_REMOVAL, CoreOperation.SSP_RESOURCE_REMOVAL);
+
+    private final HttpUrl baseUrl;
+    private final OkHttpClient client;
+    private final long readTimeoutMillis;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ConcurrencyLimits concurrencyLimits;
+
+    private LatencyMetrics latencyMetrics;
+
+    /**
+     * @param url                  base URL of core services
+     * @param connectTimeoutMillis connection timeout in milliseconds
+     * @param readTimeoutMillis    time of waiting for the response in milliseconds
+     * @param maxIdleConnections   number of idle connections kept in the pool
+     * @param keepAliveMillis      time an idle connection is kept in the pool in milliseconds
+     */
+    @Autowired
+    public HttpTransport(@Value("${cci.transport.http.url}") String url,
+                         @Value("${cci.transport.http.connectTimeoutMillis:2000}") long connectTimeoutMillis,
+                         @Value("${cci.transport.http.readTimeoutMillis:20000}") long readTimeoutMillis,
+                         @Value("${cci.transport.http.maxIdleConnections:4}") int maxIdleConnections,
+                         @Value("${cci.transport.http.keepAliveMillis:300000}") long keepAliveMillis) {
+        this.baseUrl = HttpUrl.get(url);
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.client = new OkHttpClient.Builder()
+                .protocols(baseUrl.isHttps()
+                        ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    /**
+     * Closes pooled connections.
+     */
+    @PreDestroy
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * Sets adaptive concurrency limits. If they are not set, the number of requests in flight is not limited.
+     *
+     * @param concurrencyLimits ConcurrencyLimits bean
+     */
+    @Autowired(required = false)
+    public void setConcurrencyLimits(ConcurrencyLimits concurrencyLimits) {
+        this.concurrencyLimits = concurrencyLimits;
+    }
+
+    /**
+     * Sets registry of latency histograms. If it is not set, latencies of HTTP requests are not recorded.
+     *
+     * @param latencyMetrics LatencyMetrics bean
+     */
+    @Autowired(required = false)
+    public void setLatencyMetrics(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * Sends request of an operation and reads its response.
+     * <p>
+     * Requests are limited the same way as RabbitMQ RPC messages: the number of requests in flight to every operation
+     * is limited by {@link ConcurrencyLimits} (removals and clearing data are never rejected), a request which cannot
+     * be answered before the deadline of the handled REST request is rejected, and the wait for the response ends
+     * at the deadline. Latencies of marshalling, of the exchange and of unmarshalling are recorded in
+     * {@link LatencyMetrics}, labelled with the path segment of the operation.
+     *
+     * @throws ServiceUnavailableException if the concurrency limit of the operation is reached or the request cannot
+     *                                     be answered before the deadline of the handled request
+     */
+    private <R> R send(CoreOperation operation, Object request, Class<R> responseType) {
+        String segment = operation.name().toLowerCase().replace('_', '-');
+        String limiterName = "http:" + segment;
+        long remainingMillis = AdmissionControl.checkDeadline(concurrencyLimits, limiterName, segment);
+        boolean waitBoundByDeadline = remainingMillis < readTimeoutMillis;
+        GradientLimiter.Permit permit = null;
+        String outcome = LatencyMetrics.OUTCOME_ERROR;
+        String stage = LatencyMetrics.STAGE_SERIALIZE;
+        long stageStartNanos = System.nanoTime();
+
+        try {
+            permit = AdmissionControl.acquire(concurrencyLimits, limiterName, HIGH_PRIORITY_OPERATIONS.contains(operation),
+                    segment);
+            byte[] body = mapper.writeValueAsBytes(request);
+            recordLatency(stage, segment, LatencyMetrics.OUTCOME_OK, stageStartNanos);
+
+            Request httpRequest = new Request.Builder()
+                    .url(baseUrl.newBuilder().addPathSegment(segment).build())
+                    .post(RequestBody.create(JSON, body))
+                    .build();
+            Call call = client.newCall(httpRequest);
+            if (waitBoundByDeadline)
+                call.timeout().timeout(Math.max(1, remainingMillis), TimeUnit.MILLISECONDS);
+            RequestContext context = RequestContext.current();
+            if (context != null)
+                context.addOutboundBytes(body.length);
+
+            stage = LatencyMetrics.STAGE_WAIT;
+            stageStartNanos = System.nanoTime();
+            byte[] responseBody;
+            try (Response response = call.execute()) {
+                ResponseBody content = response.body();
+                if (!response.isSuccessful() || content == null) {
+                    log.warn("Core services responded with status " + response.code() + " to " + operation);
+                    recordLatency(stage, segment, LatencyMetrics.OUTCOME_ERROR, stageStartNanos);
+                    return null;
+                }
+                responseBody = content.bytes();
+            }
+            outcome = LatencyMetrics.OUTCOME_OK;
+            recordLatency(stage, segment, LatencyMetrics.OUTCOME_OK, stageStartNanos);
+            if (context != null)
+                context.addReplyBytes(responseBody.length);
+
+            stage = LatencyMetrics.STAGE_PARSE;
+            stageStartNanos = System.nanoTime();
+            R result = mapper.readValue(responseBody, responseType);
+            recordLatency(stage, segment, LatencyMetrics.OUTCOME_OK, stageStartNanos);
+            return result;
+        } catch (InterruptedIOException e) {
+            log.info("Timeout of " + operation + " request via HTTP");
+            outcome = LatencyMetrics.OUTCOME_TIMEOUT;
+            recordLatency(stage, segment, LatencyMetrics.OUTCOME_TIMEOUT, stageStartNanos);
+            return null;
+        } catch (IOException e) {
+            log.error("Error while sending " + operation + " request via HTTP", e);
+            recordLatency(stage, segment, LatencyMetrics.OUTCOME_ERROR, stageStartNanos);
+            return null;
+        } finally {
+            AdmissionControl.release(permit, outcome, waitBoundByDeadline);
+        }
+    }
+
+    private void recordLatency(String stage, String segment, String outcome, long startNanos) {
+        if (latencyMetrics != null)
+            latencyMetrics.record(stage, segment, outcome, startNanos);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceCreationRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return send(CoreOperation.RESOURCE_CREATION, coreResourceRequest, CoreResourceRegistryResponse.class);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceRemovalRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return send(CoreOperation.RESOURCE_REMOVAL, coreResourceRequest, CoreResourceRegistryResponse.class);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceModificationRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return send(CoreOperation.RESOURCE_MODIFICATION, coreResourceRequest, CoreResourceRegistryResponse.class);
+    }
+
+    @Override
+    public ClearDataResponse sendClearDataRequest(ClearDataRequest clearDataRequest) {
+        return send(CoreOperation.CLEAR_DATA, clearDataRequest, ClearDataResponse.class);
+    }
+
+    @Override
+    public MonitoringResponseSecured sendMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest) {
+        return send(CoreOperation.MONITORING, cloudMonitoringPlatformRequest, MonitoringResponseSecured.class);
+    }
+
+    @Override
+    public NotificationMessageResponseSecured sendAccessNotificationMessage(NotificationMessageSecured notificationMessage) {
+        return send(CoreOperation.ACCESS_NOTIFICATION, notificationMessage, NotificationMessageResponseSecured.class);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevCreationRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return send(CoreOperation.SDEV_CREATION, coreSdevRequest, CoreSdevRegistryResponse.class);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevRemovalRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return send(CoreOperation.SDEV_REMOVAL, coreSdevRequest, CoreSdevRegistryResponse.class);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevModificationRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return send(CoreOperation.SDEV_MODIFICATION, coreSdevRequest, CoreSdevRegistryResponse.class);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceCreationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return send(CoreOperation.SSP_RESOURCE_CREATION, coreSspResourceRequest, CoreSspResourceRegistryResponse.class);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceModificationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return send(CoreOperation.SSP_RESOURCE_MODIFICATION, coreSspResourceRequest, CoreSspResourceRegistryResponse.class);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceRemovalRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return send(CoreOperation.SSP_RESOURCE_REMOVAL, coreSspResourceRequest, CoreSspResourceRegistryResponse.class);
+    }
+}
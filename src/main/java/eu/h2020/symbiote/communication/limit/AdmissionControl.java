@@ -0,0 +1,95 @@
+package eu.h2020.symbiote.communication.limit;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Deadline and concurrency limit policy shared by all transports sending requests to core services.
+ * <p>
+ * A request which cannot be answered before the deadline of the handled REST request is rejected; the time the
+ * answer usually takes is estimated from the round-trip time observed by the limiter of the request. Requests in
+ * flight are limited by {@link ConcurrencyLimits}, except for high priority requests, which wait for a permit.
+ */
+public final class AdmissionControl {
+    private static Log log = LogFactory.getLog(AdmissionControl.class);
+
+    private AdmissionControl() {
+    }
+
+    /**
+     * Rejects a request which cannot be answered before the deadline of the handled request.
+     *
+     * @param limits      concurrency limits, or null if requests are not limited
+     * @param limiterName name of the limiter of the request
+     * @param target      destination of the request, used for logging
+     * @return milliseconds left until the deadline, or {@link Long#MAX_VALUE} if there is none
+     * @throws ServiceUnavailableException if the request cannot be answered before the deadline
+     */
+    public static long checkDeadline(ConcurrencyLimits limits, String limiterName, String target) {
+        RequestContext context = RequestContext.current();
+        if (context == null)
+            return Long.MAX_VALUE;
+        long remainingMillis = context.getRemainingMillis();
+        if (remainingMillis == Long.MAX_VALUE)
+            return remainingMillis;
+
+        GradientLimiter limiter = limits != null ? limits.get(limiterName) : null;
+        long expectedMillis = limiter != null ? limiter.getRttMicros() / 1000 : 0;
+        if (remainingMillis <= expectedMillis) {
+            log.debug("Request to " + target + " not sent, " + remainingMillis + " ms left until deadline of the request, "
+                    + expectedMillis + " ms expected");
+            throw new ServiceUnavailableException("Core Services are not able to handle the request before its deadline",
+                    limits != null ? limits.getRetryAfterSeconds() : 1);
+        }
+        return remainingMillis;
+    }
+
+    /**
+     * Takes a permit of the limiter of a request.
+     *
+     * @param limits       concurrency limits, or null if requests are not limited
+     * @param limiterName  name of the limiter of the request
+     * @param highPriority whether the request waits for a permit instead of being rejected
+     * @param target       destination of the request, used for logging
+     * @return permit to be released with {@link #release}, or null if the request is not limited
+     * @throws ServiceUnavailableException if the limit is reached
+     */
+    public static GradientLimiter.Permit acquire(ConcurrencyLimits limits, String limiterName, boolean highPriority,
+                                                 String target) {
+        GradientLimiter limiter = limits != null ? limits.get(limiterName) : null;
+        if (limiter == null)
+            return null;
+        if (highPriority)
+            return limiter.acquire();
+
+        GradientLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            log.debug("Concurrency limit " + limiter.getLimit() + " of " + limiterName + " reached, request to " + target + " not sent");
+            throw new ServiceUnavailableException("Core Services are temporarily unavailable: too many requests in progress",
+                    limits.getRetryAfterSeconds());
+        }
+        return permit;
+    }
+
+    /**
+     * Releases a permit with the outcome of the request. A timeout caused by the deadline of the handled request,
+     * rather than by the downstream service, does not reduce the limit.
+     *
+     * @param permit              permit taken by {@link #acquire}, or null
+     * @param outcome             outcome of the request, one of the {@link LatencyMetrics} outcomes
+     * @param waitBoundByDeadline whether the wait for the answer was shortened to the deadline of the handled request
+     */
+    public static void release(GradientLimiter.Permit permit, String outcome, boolean waitBoundByDeadline) {
+        if (permit == null)
+            return;
+        if (LatencyMetrics.OUTCOME_OK.equals(outcome))
+            permit.onSuccess();
+        else if (LatencyMetrics.OUTCOME_TIMEOUT.equals(outcome) && !waitBoundByDeadline)
+            permit.onDropped();
+        else
+            permit.onIgnore();
+    }
+}
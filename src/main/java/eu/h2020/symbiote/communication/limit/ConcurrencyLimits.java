@@ -0,0 +1,179 @@
+package eu.h2020.symbiote.communication.limit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Adaptive concurrency limits of RPC requests, one {@link GradientLimiter} per downstream exchange.
+ * <p>
+ * The <i>rabbit.limit.*</i> parameters can be changed at runtime with {@link #applyTuning(PropertyResolver)}.
+ */
+@Component
+public class ConcurrencyLimits {
+    private static Log log = LogFactory.getLog(ConcurrencyLimits.class);
+
+    private volatile boolean enabled;
+    private volatile int initialLimit;
+    private volatile int minLimit;
+    private volatile int maxLimit;
+    private volatile double smoothing;
+    private volatile double rttTolerance;
+    private volatile double backoffRatio;
+    private volatile int longRttWindow;
+    private volatile long retryAfterSeconds;
+
+    private final ConcurrentMap<String, GradientLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConcurrencyLimits(@Value("${rabbit.limit.enabled:true}") boolean enabled,
+                             @Value("${rabbit.limit.initialLimit:20}") int initialLimit,
+                             @Value("${rabbit.limit.minLimit:4}") int minLimit,
+                             @Value("${rabbit.limit.maxLimit:500}") int maxLimit,
+                             @Value("${rabbit.limit.smoothing:0.2}") double smoothing,
+                             @Value("${rabbit.limit.rttTolerance:1.5}") double rttTolerance,
+                             @Value("${rabbit.limit.backoffRatio:0.9}") double backoffRatio,
+                             @Value("${rabbit.limit.longRttWindow:600}") int longRttWindow,
+                             @Value("${rabbit.limit.retryAfterSeconds:1}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.backoffRatio = backoffRatio;
+        this.longRttWindow = longRttWindow;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return number of seconds clients are asked to wait before retrying a rejected request
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Returns limiter of a downstream exchange, creating it on first use.
+     *
+     * @param exchangeName name of the exchange
+     * @return limiter of the exchange, or null if limiting is disabled
+     */
+    public GradientLimiter get(String exchangeName) {
+        if (!enabled)
+            return null;
+        return limiters.computeIfAbsent(exchangeName, name -> new GradientLimiter(initialLimit, minLimit, maxLimit,
+                smoothing, rttTolerance, backoffRatio, longRttWindow));
+    }
+
+    /**
+     * @return limiters created so far, by exchange name
+     */
+    public Map<String, GradientLimiter> getLimiters() {
+        return Collections.unmodifiableMap(new TreeMap<>(limiters));
+    }
+
+    /**
+     * Applies <i>rabbit.limit.*</i> parameters. Bounds and adaptation parameters also apply to limiters already
+     * created, which keep their current limit within the new bounds; the initial limit only applies to limiters
+     * created afterwards. Invalid values are ignored, and properties missing from the environment keep their
+     * current values.
+     *
+     * @param properties properties to read parameters from
+     */
+    public synchronized void applyTuning(PropertyResolver properties) {
+        String enabledValue = properties.getProperty("rabbit.limit.enabled");
+        if (enabledValue != null && Boolean.parseBoolean(enabledValue.trim()) != this.enabled) {
+            log.info("Tuning rabbit.limit.enabled: " + this.enabled + " -> " + enabledValue.trim());
+            this.enabled = Boolean.parseBoolean(enabledValue.trim());
+        }
+        this.retryAfterSeconds = tuned(properties, "rabbit.limit.retryAfterSeconds", this.retryAfterSeconds, 0);
+        this.initialLimit = (int) tuned(properties, "rabbit.limit.initialLimit", this.initialLimit, 1);
+
+        int newMinLimit = (int) tuned(properties, "rabbit.limit.minLimit", this.minLimit, 1);
+        int newMaxLimit = (int) tuned(properties, "rabbit.limit.maxLimit", this.maxLimit, 1);
+        if (newMaxLimit < newMinLimit) {
+            log.warn("Ignoring invalid values of rabbit.limit.minLimit and rabbit.limit.maxLimit: " + newMinLimit
+                    + ", " + newMaxLimit);
+        } else {
+            this.minLimit = newMinLimit;
+            this.maxLimit = newMaxLimit;
+        }
+        this.smoothing = tuned(properties, "rabbit.limit.smoothing", this.smoothing, 0, 1);
+        this.rttTolerance = tuned(properties, "rabbit.limit.rttTolerance", this.rttTolerance, 1, Double.MAX_VALUE);
+        this.backoffRatio = tuned(properties, "rabbit.limit.backoffRatio", this.backoffRatio, 0, 1);
+        this.longRttWindow = (int) tuned(properties, "rabbit.limit.longRttWindow", this.longRttWindow, 1);
+
+        for (GradientLimiter limiter : limiters.values())
+            limiter.setParameters(minLimit, maxLimit, smoothing, rttTolerance, backoffRatio, longRttWindow);
+    }
+
+    /**
+     * @return current values of <i>rabbit.limit.*</i> parameters, by property name
+     */
+    public Map<String, Object> getTuning() {
+        Map<String, Object> tuning = new LinkedHashMap<>();
+        tuning.put("rabbit.limit.enabled", this.enabled);
+        tuning.put("rabbit.limit.initialLimit", this.initialLimit);
+        tuning.put("rabbit.limit.minLimit", this.minLimit);
+        tuning.put("rabbit.limit.maxLimit", this.maxLimit);
+        tuning.put("rabbit.limit.smoothing", this.smoothing);
+        tuning.put("rabbit.limit.rttTolerance", this.rttTolerance);
+        tuning.put("rabbit.limit.backoffRatio", this.backoffRatio);
+        tuning.put("rabbit.limit.longRttWindow", this.longRttWindow);
+        tuning.put("rabbit.limit.retryAfterSeconds", this.retryAfterSeconds);
+        return tuning;
+    }
+
+    private static long tuned(PropertyResolver properties, String name, long current, long min) {
+        String value = properties.getProperty(name);
+        if (value == null)
+            return current;
+        try {
+            long tuned = Long.parseLong(value.trim());
+            if (tuned < min || tuned > Integer.MAX_VALUE) {
+                log.warn("Ignoring invalid value of " + name + ": " + value);
+                return current;
+            }
+            if (tuned != current)
+                log.info("Tuning " + name + ": " + current + " -> " + tuned);
+            return tuned;
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid value of " + name + ": " + value);
+            return current;
+        }
+    }
+
+    private static double tuned(PropertyResolver properties, String name, double current, double min, double max) {
+        String value = properties.getProperty(name);
+        if (value == null)
+            return current;
+        try {
+            double tuned = Double.parseDouble(value.trim());
+            if (!(tuned >= min && tuned <= max)) {
+                log.warn("Ignoring invalid value of " + name + ": " + value);
+                return current;
+            }
+            if (tuned != current)
+                log.info("Tuning " + name + ": " + current + " -> " + tuned);
+            return tuned;
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid value of " + name + ": " + value);
+            return current;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package eu.h2020.symbiote.communication.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit of requests sent to one downstream service, adapted to the observed round-trip time.
+ * <p>
+ * The limiter keeps a long-term, exponentially smoothed average of round-trip times as the baseline and compares every
+ * new sample with it. While round trips stay close to the baseline, the limit grows by about its square root, which
+ * allows a small queue in the downstream service. When round trips get longer than the baseline by more than
+ * the tolerance, the limit is reduced in proportion, but at most by half per sample. A timed out request reduces
+ * the limit by the backoff ratio. The limit only grows while at least half of it is actually used, so that an idle
+ * downstream does not end up with a limit far above what it was ever tested with.
+ * <p>
+ * Requests above the limit are rejected at once rather than queued.
+ */
+public class GradientLimiter {
+
+    private int minLimit;
+    private int maxLimit;
+    private double smoothing;
+    private double rttTolerance;
+    private double backoffRatio;
+    private double longRttSmoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile double limit;
+    private double longRttNanos;
+
+    /**
+     * @param initialLimit  limit before any round trip is observed
+     * @param minLimit      lowest limit
+     * @param maxLimit      highest limit
+     * @param smoothing     weight of a new limit estimate, between 0 and 1
+     * @param rttTolerance  ratio of the round-trip time to the baseline which is not considered a slowdown
+     * @param backoffRatio  factor the limit is multiplied by when a request times out
+     * @param longRttWindow number of samples the baseline round-trip time is averaged over
+     */
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing, double rttTolerance,
+                           double backoffRatio, int longRttWindow) {
+        this.limit = initialLimit;
+        setParameters(minLimit, maxLimit, smoothing, rttTolerance, backoffRatio, longRttWindow);
+    }
+
+    /**
+     * Changes parameters of the limiter while it is in use. The current limit is kept within the new bounds and
+     * the baseline round-trip time observed so far is kept.
+     *
+     * @param minLimit      lowest limit
+     * @param maxLimit      highest limit
+     * @param smoothing     weight of a new limit estimate, between 0 and 1
+     * @param rttTolerance  ratio of the round-trip time to the baseline which is not considered a slowdown
+     * @param backoffRatio  factor the limit is multiplied by when a request times out
+     * @param longRttWindow number of samples the baseline round-trip time is averaged over
+     */
+    public synchronized void setParameters(int minLimit, int maxLimit, double smoothing, double rttTolerance,
+                                           double backoffRatio, int longRttWindow) {
+        if (minLimit < 1 || maxLimit < minLimit)
+            throw new IllegalArgumentException("Invalid limits: min " + minLimit + ", max " + maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.backoffRatio = backoffRatio;
+        this.longRttSmoothing = 2.0 / (longRttWindow + 1);
+        update(limit);
+    }
+
+    /**
+     * Acquires a permit for a request if the number of requests in flight is below the limit.
+     *
+     * @return permit to be completed when the request finishes, or null if the request is rejected
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1))
+                return new Permit(current + 1);
+        }
+    }
+
+    /**
+     * Acquires a permit regardless of the limit, for requests which must not be rejected.
+     * The request still counts as in flight and its round trip is sampled.
+     *
+     * @return permit to be completed when the request finishes
+     */
+    public Permit acquire() {
+        return new Permit(inFlight.incrementAndGet());
+    }
+
+    /**
+     * @return current concurrency limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of requests rejected because of the limit
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return baseline round-trip time in microseconds, or 0 if no round trip has been observed yet
+     */
+    public synchronized long getRttMicros() {
+        return (long) (longRttNanos / 1000);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0)
+            longRttNanos = rttNanos;
+        else
+            longRttNanos += (rttNanos - longRttNanos) * longRttSmoothing;
+
+        // after a slowdown the baseline recovers slowly, so it is pulled down while round trips are much shorter
+        if (longRttNanos / rttNanos > 2)
+            longRttNanos *= 0.95;
+
+        double currentLimit = limit;
+        if (inFlightAtStart < currentLimit / 2 && rttNanos <= longRttNanos * rttTolerance)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / rttNanos));
+        double estimate = currentLimit * gradient + Math.sqrt(currentLimit);
+        update(currentLimit * (1 - smoothing) + estimate * smoothing);
+    }
+
+    private synchronized void onDropped() {
+        update(limit * backoffRatio);
+    }
+
+    private void update(double newLimit) {
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * Permit of a request in flight. Exactly one of its methods has to be called when the request finishes.
+     */
+    public final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The downstream replied; the round trip is used to adapt the limit.
+         */
+        public void onSuccess() {
+            inFlight.decrementAndGet();
+            onSample(Math.max(1, System.nanoTime() - startNanos), inFlightAtStart);
+        }
+
+        /**
+         * The request timed out, which is taken as a sign of overload.
+         */
+        public void onDropped() {
+            inFlight.decrementAndGet();
+            GradientLimiter.this.onDropped();
+        }
+
+        /**
+         * The request failed for a reason unrelated to the load of the downstream; the limit is left as it is.
+         */
+        public void onIgnore() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package eu.h2020.symbiote.communication.local;
+
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.communication.CoreOperation;
+import eu.h2020.symbiote.communication.CoreTransport;
+import eu.h2020.symbiote.core.internal.*;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
+import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-process {@link CoreTransport}, dispatching requests to handlers registered in the same JVM.
+ * <p>
+ * Requests and responses are passed by reference, without any serialization, so handlers must not modify
+ * the requests they receive. If no handler is registered for an operation, or the handler fails, null is returned
+ * as if the response did not arrive.
+ * <p>
+ * The transport is created and used by default instead of RabbitMQ when <i>cci.transport</i> is set to <i>local</i>.
+ */
+@Component
+@ConditionalOnProperty(name = "cci.transport", havingValue = "local")
+public class LocalTransport implements CoreTransport {
+    private static Log log = LogFactory.getLog(LocalTransport.class);
+
+    private final Map<CoreOperation, Function<?, ?>> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * Registers handler of an operation, replacing the previously registered one.
+     *
+     * @param operation operation handled
+     * @param handler   function returning response to the request of the operation
+     * @param <Q>       type of the request
+     * @param <R>       type of the response
+     */
+    public <Q, R> void registerHandler(CoreOperation operation, Function<Q, R> handler) {
+        handlers.put(operation, handler);
+    }
+
+    /**
+     * Removes handler of an operation.
+     *
+     * @param operation operation handled
+     */
+    public void unregisterHandler(CoreOperation operation) {
+        handlers.remove(operation);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <Q, R> R dispatch(CoreOperation operation, Q request) {
+        Function<Q, R> handler = (Function<Q, R>) handlers.get(operation);
+        if (handler == null) {
+            log.warn("No local handler registered for " + operation);
+            return null;
+        }
+        try {
+            return handler.apply(request);
+        } catch (RuntimeException e) {
+            log.error("Local handler of " + operation + " failed", e);
+            return null;
+        }
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceCreationRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return dispatch(CoreOperation.RESOURCE_CREATION, coreResourceRequest);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceRemovalRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return dispatch(CoreOperation.RESOURCE_REMOVAL, coreResourceRequest);
+    }
+
+    @Override
+    public CoreResourceRegistryResponse sendResourceModificationRequest(CoreResourceRegistryRequest coreResourceRequest) {
+        return dispatch(CoreOperation.RESOURCE_MODIFICATION, coreResourceRequest);
+    }
+
+    @Override
+    public ClearDataResponse sendClearDataRequest(ClearDataRequest clearDataRequest) {
+        return dispatch(CoreOperation.CLEAR_DATA, clearDataRequest);
+    }
+
+    @Override
+    public MonitoringResponseSecured sendMonitoringMessage(CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest) {
+        return dispatch(CoreOperation.MONITORING, cloudMonitoringPlatformRequest);
+    }
+
+    @Override
+    public NotificationMessageResponseSecured sendAccessNotificationMessage(NotificationMessageSecured notificationMessage) {
+        return dispatch(CoreOperation.ACCESS_NOTIFICATION, notificationMessage);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevCreationRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return dispatch(CoreOperation.SDEV_CREATION, coreSdevRequest);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevRemovalRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return dispatch(CoreOperation.SDEV_REMOVAL, coreSdevRequest);
+    }
+
+    @Override
+    public CoreSdevRegistryResponse sendSdevModificationRequest(CoreSdevRegistryRequest coreSdevRequest) {
+        return dispatch(CoreOperation.SDEV_MODIFICATION, coreSdevRequest);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceCreationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return dispatch(CoreOperation.SSP_RESOURCE_CREATION, coreSspResourceRequest);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceModificationRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return dispatch(CoreOperation.SSP_RESOURCE_MODIFICATION, coreSspResourceRequest);
+    }
+
+    @Override
+    public CoreSspResourceRegistryResponse sendSspResourceRemovalRequest(CoreSspResourceRegistryRequest coreSspResourceRequest) {
+        return dispatch(CoreOperation.SSP_RESOURCE_REMOVAL, coreSspResourceRequest);
+    }
+}
@@ -0,0 +1,111 @@
+package eu.h2020.symbiote.communication.local;
+
+import eu.h2020.symbiote.communication.CoreOperation;
+import eu.h2020.symbiote.core.internal.*;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
+import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Stand-in for Registry, CRM and CRAM used in load tests of CloudCoreInterface with {@link LocalTransport}.
+ * <p>
+ * Every request is accepted: registry operations return the body of the request, monitoring and access
+ * notifications return an empty successful response. Optional delay simulates processing time of core services.
+ * <p>
+ * The stub is enabled by setting <i>cci.transport.local.stubRegistry</i> to true.
+ */
+@Component
+@ConditionalOnProperty(name = "cci.transport.local.stubRegistry", havingValue = "true")
+public class StubRegistry {
+    private static Log log = LogFactory.getLog(StubRegistry.class);
+
+    private final LocalTransport localTransport;
+    private final long delayMillis;
+
+    /**
+     * @param localTransport LocalTransport bean the stub registers its handlers in
+     * @param delayMillis    time spent on handling every request in milliseconds
+     */
+    @Autowired
+    public StubRegistry(LocalTransport localTransport,
+                        @Value("${cci.transport.local.stubRegistry.delayMillis:0}") long delayMillis) {
+        this.localTransport = localTransport;
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Registers handlers of all operations.
+     */
+    @PostConstruct
+    public void register() {
+        localTransport.registerHandler(CoreOperation.RESOURCE_CREATION, this::handleResourceRequest);
+        localTransport.registerHandler(CoreOperation.RESOURCE_MODIFICATION, this::handleResourceRequest);
+        localTransport.registerHandler(CoreOperation.RESOURCE_REMOVAL, this::handleResourceRequest);
+        localTransport.registerHandler(CoreOperation.CLEAR_DATA, this::handleClearDataRequest);
+        localTransport.registerHandler(CoreOperation.MONITORING, request -> {
+            simulateProcessing();
+            return new MonitoringResponseSecured(HttpStatus.OK.value(), "OK", null);
+        });
+        localTransport.registerHandler(CoreOperation.ACCESS_NOTIFICATION, request -> {
+            simulateProcessing();
+            return new NotificationMessageResponseSecured();
+        });
+        localTransport.registerHandler(CoreOperation.SDEV_CREATION, this::handleSdevRequest);
+        localTransport.registerHandler(CoreOperation.SDEV_MODIFICATION, this::handleSdevRequest);
+        localTransport.registerHandler(CoreOperation.SDEV_REMOVAL, this::handleSdevRequest);
+        localTransport.registerHandler(CoreOperation.SSP_RESOURCE_CREATION, this::handleSspResourceRequest);
+        localTransport.registerHandler(CoreOperation.SSP_RESOURCE_MODIFICATION, this::handleSspResourceRequest);
+        localTransport.registerHandler(CoreOperation.SSP_RESOURCE_REMOVAL, this::handleSspResourceRequest);
+        log.info("Stub registry registered in local transport, delay " + delayMillis + " ms");
+    }
+
+    private CoreResourceRegistryResponse handleResourceRequest(CoreResourceRegistryRequest request) {
+        simulateProcessing();
+        CoreResourceRegistryResponse response = new CoreResourceRegistryResponse();
+        response.setStatus(HttpStatus.OK.value());
+        response.setMessage("OK");
+        response.setBody(request.getBody());
+        return response;
+    }
+
+    private ClearDataResponse handleClearDataRequest(ClearDataRequest request) {
+        simulateProcessing();
+        return new ClearDataResponse(HttpStatus.OK.value(), "OK", null);
+    }
+
+    private CoreSdevRegistryResponse handleSdevRequest(CoreSdevRegistryRequest request) {
+        simulateProcessing();
+        CoreSdevRegistryResponse response = new CoreSdevRegistryResponse();
+        response.setStatus(HttpStatus.OK.value());
+        response.setMessage("OK");
+        response.setBody(request.getBody());
+        return response;
+    }
+
+    private CoreSspResourceRegistryResponse handleSspResourceRequest(CoreSspResourceRegistryRequest request) {
+        simulateProcessing();
+        CoreSspResourceRegistryResponse response = new CoreSspResourceRegistryResponse();
+        response.setStatus(HttpStatus.OK.value());
+        response.setMessage("OK");
+        response.setBody(request.getBody());
+        return response;
+    }
+
+    private void simulateProcessing() {
+        if (delayMillis <= 0)
+            return;
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package eu.h2020.symbiote.communication.spool;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Append-only journal of outbound messages which could not be delivered to the broker.
+ * <p>
+ * Messages are stored in fixed-size, memory-mapped segment files in the spool directory. Every record consists of
+ * its length followed by the exchange name, the routing key and the payload. The length is written last, so a record
+ * becomes visible only when it is complete. When a segment is full, an end marker is written and a new segment is
+ * started. Segments are read in order; the read position is kept in a memory-mapped cursor file and a segment is
+ * deleted as soon as all of its records have been acknowledged. Delivery is at-least-once - a record may be replayed
+ * again if the process stops between its delivery and acknowledgement.
+ * <p>
+ * Appending copies the message straight into the mapped segment; names of exchanges and routing keys are encoded once
+ * and cached.
+ */
+@Component
+public class MessageSpool {
+    private static Log log = LogFactory.getLog(MessageSpool.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CURSOR_FILE = "cursor";
+    private static final int LENGTH_SIZE = 4;
+    private static final int END_OF_SEGMENT = -1;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean forceOnWrite;
+
+    private final ConcurrentMap<String, byte[]> encodedNames = new ConcurrentHashMap<>();
+
+    private boolean open;
+    private MappedByteBuffer cursor;
+
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private int writePosition;
+
+    private long readSegment;
+    private MappedByteBuffer readBuffer;
+    private int readPosition;
+    private int peekedPosition = -1;
+
+    private long pendingMessages;
+
+    /**
+     * @param enabled      whether messages should be spooled
+     * @param directory    directory of segment files
+     * @param segmentSize  size of a single segment file in bytes
+     * @param maxSegments  maximum number of segment files; when reached, new messages are rejected
+     * @param forceOnWrite whether every appended record should be forced to the storage device
+     */
+    @Autowired
+    public MessageSpool(@Value("${cci.spool.enabled:false}") boolean enabled,
+                        @Value("${cci.spool.directory:spool}") String directory,
+                        @Value("${cci.spool.segmentSizeBytes:67108864}") int segmentSize,
+                        @Value("${cci.spool.maxSegments:16}") int maxSegments,
+                        @Value("${cci.spool.forceOnWrite:false}") boolean forceOnWrite) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.forceOnWrite = forceOnWrite;
+    }
+
+    /**
+     * @return true if spooling is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Opens the spool, recovering segments and read position left by a previous run.
+     *
+     * @throws IOException when spool files cannot be opened
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (!enabled || open)
+            return;
+
+        Files.createDirectories(directory);
+        cursor = map(directory.resolve(CURSOR_FILE), 2 * Long.BYTES);
+        readSegment = cursor.getLong(0);
+        readPosition = (int) cursor.getLong(Long.BYTES);
+
+        List<Long> segments = listSegments();
+        for (Long segment : segments) {
+            if (segment < readSegment)
+                Files.deleteIfExists(segmentPath(segment));
+        }
+        segments.removeIf(segment -> segment < readSegment);
+
+        if (segments.isEmpty() || segments.get(0) > readSegment) {
+            readSegment = segments.isEmpty() ? readSegment : segments.get(0);
+            readPosition = 0;
+        }
+        writeSegment = segments.isEmpty() ? readSegment : segments.get(segments.size() - 1);
+        writeBuffer = mapSegment(writeSegment);
+        writePosition = findEnd(writeBuffer);
+
+        pendingMessages = 0;
+        for (Long segment : segments) {
+            MappedByteBuffer buffer = segment == writeSegment ? writeBuffer : mapSegment(segment);
+            pendingMessages += countRecords(buffer, segment == readSegment ? readPosition : 0);
+        }
+        readBuffer = readSegment == writeSegment ? writeBuffer : mapSegment(readSegment);
+        storeCursor();
+        open = true;
+
+        log.info("Message spool opened in " + directory.toAbsolutePath() + " with " + pendingMessages + " pending messages");
+    }
+
+    /**
+     * Forces all pending changes to the storage device and closes the spool.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (!open)
+            return;
+        writeBuffer.force();
+        cursor.force();
+        open = false;
+        writeBuffer = null;
+        readBuffer = null;
+        cursor = null;
+    }
+
+    /**
+     * Appends a message to the spool.
+     *
+     * @param exchangeName name of the exchange the message should be sent to
+     * @param routingKey   routing key of the message
+     * @param payload      message body
+     * @return true if the message was journaled, false if the spool is disabled, full or the message is too large
+     */
+    public synchronized boolean append(String exchangeName, String routingKey, byte[] payload) {
+        if (!open)
+            return false;
+
+        byte[] exchange = encode(exchangeName);
+        byte[] key = encode(routingKey);
+        int length = Short.BYTES + exchange.length + Short.BYTES + key.length + payload.length;
+        int required = LENGTH_SIZE + length;
+
+        if (required > segmentSize) {
+            log.error("Message of " + payload.length + " bytes does not fit in a spool segment");
+            return false;
+        }
+        if (writePosition + required > segmentSize && !rotate())
+            return false;
+
+        MappedByteBuffer buffer = writeBuffer;
+        buffer.position(writePosition + LENGTH_SIZE);
+        buffer.putShort((short) exchange.length);
+        buffer.put(exchange);
+        buffer.putShort((short) key.length);
+        buffer.put(key);
+        buffer.put(payload);
+        buffer.putInt(writePosition, length);
+        if (forceOnWrite)
+            buffer.force();
+
+        writePosition += required;
+        pendingMessages++;
+        return true;
+    }
+
+    /**
+     * Reads the oldest message which has not been acknowledged yet, without removing it.
+     *
+     * @return oldest pending message or null if there is none
+     */
+    public synchronized SpooledMessage peek() {
+        if (!open)
+            return null;
+
+        try {
+            int length = nextRecordLength();
+            if (length <= 0)
+                return null;
+
+            peekedPosition = readPosition + LENGTH_SIZE + length;
+            return readRecord(readBuffer, readPosition, length);
+        } catch (IOException e) {
+            log.error("Error while reading message spool", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads all messages which have not been acknowledged yet, oldest first, without removing them.
+     *
+     * @return pending messages
+     */
+    public synchronized List<SpooledMessage> readPending() {
+        List<SpooledMessage> messages = new ArrayList<>();
+        if (!open)
+            return messages;
+
+        try {
+            for (long segment = readSegment; segment <= writeSegment; segment++) {
+                MappedByteBuffer buffer;
+                if (segment == readSegment)
+                    buffer = readBuffer;
+                else if (segment == writeSegment)
+                    buffer = writeBuffer;
+                else if (Files.exists(segmentPath(segment)))
+                    buffer = mapSegment(segment);
+                else
+                    continue;
+
+                int position = segment == readSegment ? readPosition : 0;
+                while (position + LENGTH_SIZE <= segmentSize) {
+                    int length = buffer.getInt(position);
+                    if (length <= 0)
+                        break;
+                    messages.add(readRecord(buffer, position, length));
+                    position += LENGTH_SIZE + length;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error while reading message spool", e);
+        }
+        return messages;
+    }
+
+    /**
+     * Removes the oldest message which has not been acknowledged yet, without reading it.
+     *
+     * @return true if a message was removed, false if there was none
+     */
+    public synchronized boolean skip() {
+        if (!open)
+            return false;
+
+        try {
+            int length = nextRecordLength();
+            if (length <= 0)
+                return false;
+
+            readPosition += LENGTH_SIZE + length;
+            peekedPosition = -1;
+            pendingMessages--;
+            storeCursor();
+            return true;
+        } catch (IOException e) {
+            log.error("Error while reading message spool", e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the message returned by the last {@link #peek()} call.
+     */
+    public synchronized void acknowledge() {
+        if (!open || peekedPosition < 0)
+            return;
+        readPosition = peekedPosition;
+        peekedPosition = -1;
+        pendingMessages--;
+        storeCursor();
+    }
+
+    /**
+     * @return number of messages waiting for replay
+     */
+    public synchronized long getPendingMessages() {
+        return pendingMessages;
+    }
+
+    private boolean rotate() {
+        if (writeSegment - readSegment + 1 >= maxSegments) {
+            log.warn("Message spool is full, message is rejected");
+            return false;
+        }
+        try {
+            MappedByteBuffer next = mapSegment(writeSegment + 1);
+            if (writePosition + LENGTH_SIZE <= segmentSize)
+                writeBuffer.putInt(writePosition, END_OF_SEGMENT);
+            writeBuffer.force();
+
+            writeSegment++;
+            writeBuffer = next;
+            writePosition = 0;
+            return true;
+        } catch (IOException e) {
+            log.error("Error while creating new message spool segment", e);
+            return false;
+        }
+    }
+
+    /**
+     * Moves to the segment of the oldest pending record, if necessary.
+     *
+     * @return length of the oldest pending record or 0 if there is none
+     */
+    private int nextRecordLength() throws IOException {
+        for (; ; ) {
+            int length = readPosition + LENGTH_SIZE <= segmentSize ? readBuffer.getInt(readPosition) : END_OF_SEGMENT;
+            if (length > 0)
+                return length;
+            if (readSegment == writeSegment)
+                return 0;
+            nextReadSegment();
+        }
+    }
+
+    private static SpooledMessage readRecord(MappedByteBuffer buffer, int position, int length) {
+        buffer.position(position + LENGTH_SIZE);
+        String exchangeName = decode(buffer, buffer.getShort() & 0xFFFF);
+        String routingKey = decode(buffer, buffer.getShort() & 0xFFFF);
+        byte[] payload = new byte[position + LENGTH_SIZE + length - buffer.position()];
+        buffer.get(payload);
+        return new SpooledMessage(exchangeName, routingKey, payload);
+    }
+
+    private void nextReadSegment() throws IOException {
+        long finished = readSegment;
+        do {
+            readSegment++;
+        } while (readSegment < writeSegment && !Files.exists(segmentPath(readSegment)));
+
+        readBuffer = readSegment == writeSegment ? writeBuffer : mapSegment(readSegment);
+        readPosition = 0;
+        peekedPosition = -1;
+        storeCursor();
+        Files.deleteIfExists(segmentPath(finished));
+    }
+
+    private void storeCursor() {
+        // position goes first, so that an interrupted update results in replaying messages rather than skipping them
+        cursor.putLong(Long.BYTES, readPosition);
+        cursor.putLong(0, readSegment);
+    }
+
+    private int findEnd(MappedByteBuffer buffer) {
+        int position = 0;
+        while (position + LENGTH_SIZE <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length == END_OF_SEGMENT)
+                return segmentSize;
+            if (length <= 0)
+                return position;
+            position += LENGTH_SIZE + length;
+        }
+        return segmentSize;
+    }
+
+    private long countRecords(MappedByteBuffer buffer, int from) {
+        long count = 0;
+        int position = from;
+        while (position + LENGTH_SIZE <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0)
+                break;
+            count++;
+            position += LENGTH_SIZE + length;
+        }
+        return count;
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer mapSegment(long segment) throws IOException {
+        return map(segmentPath(segment), segmentSize);
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private byte[] encode(String name) {
+        return encodedNames.computeIfAbsent(name == null ? "" : name, value -> value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(MappedByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
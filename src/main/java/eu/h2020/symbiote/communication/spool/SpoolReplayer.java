@@ -0,0 +1,98 @@
+package eu.h2020.symbiote.communication.spool;
+
+import eu.h2020.symbiote.communication.CoreTransport;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays spooled messages through the {@link CoreTransport} once it is able to deliver them.
+ * <p>
+ * Messages are sent in the order they were journaled, one at a time, waiting for the response, so the pace of replay
+ * is set by the consumers. A message is removed from the spool only after its response arrives; on the first failure
+ * replay stops until the next run.
+ */
+@Component
+public class SpoolReplayer {
+    private static Log log = LogFactory.getLog(SpoolReplayer.class);
+
+    private final MessageSpool messageSpool;
+    private final CoreTransport coreTransport;
+    private final long intervalMillis;
+    private final int batchSize;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param messageSpool   MessageSpool bean
+     * @param coreTransport  transport used to reach core services
+     * @param intervalMillis delay between replay runs in milliseconds
+     * @param batchSize      maximum number of messages replayed in a single run
+     */
+    @Autowired
+    public SpoolReplayer(MessageSpool messageSpool,
+                         CoreTransport coreTransport,
+                         @Value("${cci.spool.replayIntervalMillis:1000}") long intervalMillis,
+                         @Value("${cci.spool.replayBatchSize:1000}") int batchSize) {
+        this.messageSpool = messageSpool;
+        this.coreTransport = coreTransport;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!messageSpool.isEnabled())
+            return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spool-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::replay, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /**
+     * Replays up to one batch of spooled messages.
+     *
+     * @return number of messages delivered
+     */
+    public int replay() {
+        int delivered = 0;
+        try {
+            while (delivered < batchSize) {
+                SpooledMessage message = messageSpool.peek();
+                if (message == null)
+                    break;
+
+                if (!coreTransport.replaySpooledMessage(message)) {
+                    log.debug("Spooled message to " + message.getRoutingKey() + " was not delivered, will retry later");
+                    break;
+                }
+                messageSpool.acknowledge();
+                delivered++;
+            }
+        } catch (RuntimeException e) {
+            log.error("Error while replaying spooled messages", e);
+        }
+
+        if (delivered > 0)
+            log.info("Replayed " + delivered + " spooled messages, " + messageSpool.getPendingMessages() + " still pending");
+        return delivered;
+    }
+}
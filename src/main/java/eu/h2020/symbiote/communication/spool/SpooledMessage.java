@@ -0,0 +1,37 @@
+package eu.h2020.symbiote.communication.spool;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Message read back from the {@link MessageSpool}.
+ */
+public class SpooledMessage {
+    private final String exchangeName;
+    private final String routingKey;
+    private final byte[] payload;
+
+    public SpooledMessage(String exchangeName, String routingKey, byte[] payload) {
+        this.exchangeName = exchangeName;
+        this.routingKey = routingKey;
+        this.payload = payload;
+    }
+
+    public String getExchangeName() {
+        return exchangeName;
+    }
+
+    public String getRoutingKey() {
+        return routingKey;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return payload decoded as UTF-8 string
+     */
+    public String getPayloadAsString() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
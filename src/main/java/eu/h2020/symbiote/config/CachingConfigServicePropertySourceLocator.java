@@ -0,0 +1,232 @@
+package eu.h2020.symbiote.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.cloud.config.client.ConfigServicePropertySourceLocator;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.retry.annotation.Retryable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Locates properties in Spring Cloud Config server and keeps the last successfully fetched configuration in a local file.
+ * <p>
+ * At startup, when the file exists, the cached configuration is used at once, so that startup does not wait for
+ * the config server, and the configuration is fetched again in the background. The file is then updated, and properties
+ * which differ from the cached ones are logged; they take effect on the next start or refresh. Without the file,
+ * properties are fetched synchronously, as by {@link ConfigServicePropertySourceLocator}, with its retry and fail fast
+ * behaviour. On refresh of a running application, properties are always fetched synchronously; the cached
+ * configuration is used only if the fetch fails.
+ * <p>
+ * There is one file per application name, profiles and label, in the cache directory. The file holds properties
+ * as served by the config server, i.e. with secrets decrypted, so the directory and the files are created readable
+ * by the owner only (on file systems supporting POSIX permissions), and the directory should be on local storage
+ * not shared with other users.
+ */
+public class CachingConfigServicePropertySourceLocator extends ConfigServicePropertySourceLocator {
+    private static Log log = LogFactory.getLog(CachingConfigServicePropertySourceLocator.class);
+
+    static final String PROPERTY_SOURCE_NAME = "configService";
+
+    /**
+     * Property source added by Spring Cloud to the environment of the context built on refresh.
+     */
+    static final String REFRESH_ARGS_PROPERTY_SOURCE = "refreshArgs";
+
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private final ConfigClientProperties properties;
+    private final Path cacheDirectory;
+    private volatile CompletableFuture<Set<String>> refresh = CompletableFuture.completedFuture(Collections.emptySet());
+
+    /**
+     * @param properties     properties of the config client
+     * @param cacheDirectory directory where the last fetched configuration is kept
+     */
+    public CachingConfigServicePropertySourceLocator(ConfigClientProperties properties, Path cacheDirectory) {
+        super(properties);
+        this.properties = properties;
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    @Override
+    @Retryable(interceptor = "configServerRetryInterceptor")
+    public PropertySource<?> locate(Environment environment) {
+        Path cacheFile = cacheFile(environment);
+        Map<String, Object> cached = readCache(cacheFile);
+        if (cached != null && !isRefresh(environment)) {
+            log.info("Using configuration cached in " + cacheFile + ", refreshing it from config server in the background");
+            this.refresh = CompletableFuture.supplyAsync(() -> refreshCache(environment, cacheFile, cached));
+            return cachedSource(cacheFile, cached);
+        }
+
+        PropertySource<?> fetched;
+        try {
+            fetched = fetch(environment);
+        } catch (RuntimeException e) {
+            if (cached == null)
+                throw e;
+            log.warn("Could not fetch configuration from config server, using configuration cached in " + cacheFile, e);
+            return cachedSource(cacheFile, cached);
+        }
+        if (fetched != null) {
+            writeCache(cacheFile, flatten(fetched));
+            return fetched;
+        }
+        if (cached != null) {
+            log.warn("Config server not available, using configuration cached in " + cacheFile);
+            return cachedSource(cacheFile, cached);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether properties are located for a refresh of the running application rather than for its startup.
+     *
+     * @param environment environment of the context the properties are located for
+     * @return true on refresh
+     */
+    protected boolean isRefresh(Environment environment) {
+        return environment instanceof ConfigurableEnvironment
+                && ((ConfigurableEnvironment) environment).getPropertySources().contains(REFRESH_ARGS_PROPERTY_SOURCE);
+    }
+
+    /**
+     * Resolves the cache file of the application name, profiles and label of the config client.
+     *
+     * @param environment environment of the application
+     * @return cache file
+     */
+    Path cacheFile(Environment environment) {
+        ConfigClientProperties client = properties.override(environment);
+        StringBuilder name = new StringBuilder(client.getName());
+        name.append('-').append(client.getProfile());
+        if (client.getLabel() != null && !client.getLabel().isEmpty())
+            name.append('-').append(client.getLabel());
+        return cacheDirectory.resolve(name.toString().replaceAll("[^A-Za-z0-9._-]", "_") + ".properties");
+    }
+
+    private static PropertySource<?> cachedSource(Path cacheFile, Map<String, Object> cached) {
+        CompositePropertySource composite = new CompositePropertySource(PROPERTY_SOURCE_NAME);
+        composite.addPropertySource(new MapPropertySource("configCache:" + cacheFile, cached));
+        return composite;
+    }
+
+    /**
+     * @return future completed with names of properties which changed in the config server since the configuration
+     * was cached, once the background refresh is done
+     */
+    public CompletableFuture<Set<String>> getRefresh() {
+        return refresh;
+    }
+
+    /**
+     * Fetches properties from the config server.
+     *
+     * @param environment environment of the application
+     * @return fetched properties, or null if the config server is not available and fail fast is disabled
+     */
+    protected PropertySource<?> fetch(Environment environment) {
+        return super.locate(environment);
+    }
+
+    private Set<String> refreshCache(Environment environment, Path cacheFile, Map<String, Object> cached) {
+        PropertySource<?> fetched;
+        try {
+            fetched = fetch(environment);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh configuration from config server, keeping cached configuration", e);
+            return Collections.emptySet();
+        }
+        if (fetched == null) {
+            log.warn("Config server not available, keeping cached configuration");
+            return Collections.emptySet();
+        }
+
+        Map<String, Object> current = flatten(fetched);
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            if (!entry.getValue().equals(cached.get(entry.getKey())))
+                changed.add(entry.getKey());
+        }
+        for (String name : cached.keySet()) {
+            if (!current.containsKey(name))
+                changed.add(name);
+        }
+
+        if (changed.isEmpty()) {
+            log.info("Cached configuration is up to date with config server");
+        } else {
+            log.warn("Configuration in config server differs from the cached one used at startup, changed properties: "
+                    + changed + ". Changes take effect after restart or refresh");
+            writeCache(cacheFile, current);
+        }
+        return changed;
+    }
+
+    private static Map<String, Object> flatten(PropertySource<?> source) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        if (source instanceof EnumerablePropertySource) {
+            for (String name : ((EnumerablePropertySource<?>) source).getPropertyNames()) {
+                Object value = source.getProperty(name);
+                if (value != null)
+                    properties.put(name, value.toString());
+            }
+        }
+        return properties;
+    }
+
+    private static Map<String, Object> readCache(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile))
+            return null;
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not read cached configuration from " + cacheFile + ", fetching it from config server", e);
+            return null;
+        }
+        Map<String, Object> cached = new LinkedHashMap<>();
+        for (String name : properties.stringPropertyNames())
+            cached.put(name, properties.getProperty(name));
+        return cached;
+    }
+
+    private static void writeCache(Path cacheFile, Map<String, Object> configuration) {
+        Properties properties = new Properties();
+        configuration.forEach((name, value) -> properties.setProperty(name, value.toString()));
+        try {
+            Path directory = cacheFile.toAbsolutePath().getParent();
+            boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+            if (posix && !Files.exists(directory))
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            else
+                Files.createDirectories(directory);
+            Path temporary = posix
+                    ? Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp", PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE))
+                    : Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                properties.store(out, "Configuration fetched from config server");
+            }
+            Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not cache configuration in " + cacheFile, e);
+        }
+    }
+}
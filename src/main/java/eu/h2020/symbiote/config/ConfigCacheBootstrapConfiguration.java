@@ -0,0 +1,35 @@
+package eu.h2020.symbiote.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.nio.file.Paths;
+
+/**
+ * Bootstrap configuration replacing the config server property source locator with
+ * {@link CachingConfigServicePropertySourceLocator}, unless <i>spring.cloud.config.cache.enabled</i> is false.
+ * <p>
+ * It is ordered before the config client bootstrap configuration, which only defines its own locator when none exists.
+ * The class is registered in <i>META-INF/spring.factories</i> and deliberately not annotated with
+ * {@link org.springframework.context.annotation.Configuration}, so that component scanning of the application
+ * does not pick it up in the main context.
+ * <p>
+ * Cached configuration is kept in <i>spring.cloud.config.cache.directory</i> (default <i>config-cache</i>), in a file
+ * named after the application, profiles and label. It contains decrypted secrets, see
+ * {@link CachingConfigServicePropertySourceLocator}.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(value = {"spring.cloud.config.enabled", "spring.cloud.config.cache.enabled"}, matchIfMissing = true)
+public class ConfigCacheBootstrapConfiguration {
+
+    @Bean
+    public CachingConfigServicePropertySourceLocator configServicePropertySource(
+            ConfigClientProperties properties,
+            @Value("${spring.cloud.config.cache.directory:config-cache}") String cacheDirectory) {
+        return new CachingConfigServicePropertySourceLocator(properties, Paths.get(cacheDirectory));
+    }
+}
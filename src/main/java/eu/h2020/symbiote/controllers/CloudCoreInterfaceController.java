@@ -3,19 +3,28 @@ package eu.h2020.symbiote.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.aggregation.AccessNotificationAggregator;
+import eu.h2020.symbiote.aggregation.MonitoringAggregator;
+import eu.h2020.symbiote.cloud.model.ssp.SspRegInfo;
 import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatform;
 import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
-import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.CoreTransport;
 import eu.h2020.symbiote.core.cci.*;
 import eu.h2020.symbiote.core.cci.accessNotificationMessages.NotificationMessage;
 import eu.h2020.symbiote.core.internal.*;
 import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
 import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
 import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import eu.h2020.symbiote.json.ParallelMapSerializer;
+import eu.h2020.symbiote.json.ResourceMapDeserializer;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
 import eu.h2020.symbiote.model.cim.Resource;
 import eu.h2020.symbiote.security.commons.SecurityConstants;
 import eu.h2020.symbiote.security.commons.exceptions.custom.InvalidArgumentsException;
 import eu.h2020.symbiote.security.communication.payloads.SecurityRequest;
+import eu.h2020.symbiote.validation.RegistrationValidator;
+import eu.h2020.symbiote.validation.ValidationError;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.ApiResponse;
@@ -31,35 +40,118 @@ import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Class defining all REST endpoints.
  * <p>
  * CloudCoreInterface, as the name suggests, is just an interface, therefore it forwards all requests to
- * modules responsible for handling them via RabbitMQ.
+ * modules responsible for handling them via {@link CoreTransport} (RabbitMQ by default).
  */
 @RestController
 public class CloudCoreInterfaceController {
     private static final String LEGACY_URI_PREFIX = "/cloudCoreInterface/v1";
 
+    private static final ObjectMapper VALIDATION_MAPPER = new ObjectMapper();
+
     public static final Log log = LogFactory.getLog(CloudCoreInterfaceController.class);
 
     private enum CoreOperationType {CREATE, MODIFY, DELETE}
 
-    private final RabbitManager rabbitManager;
+    private final CoreTransport coreTransport;
+
+    private MonitoringAggregator monitoringAggregator;
+
+    private AccessNotificationAggregator accessNotificationAggregator;
+
+    private LatencyMetrics latencyMetrics;
+
+    private ParallelMapSerializer parallelMapSerializer;
+
+    private ResourceMapDeserializer resourceMapDeserializer;
+
+    private RegistrationValidator registrationValidator;
 
     /**
-     * Class constructor which autowires RabbitManager bean.
+     * Class constructor which autowires CoreTransport bean.
      *
-     * @param rabbitManager RabbitManager bean
+     * @param coreTransport transport used to reach core services
      */
     @Autowired
-    public CloudCoreInterfaceController(RabbitManager rabbitManager) {
-        this.rabbitManager = rabbitManager;
+    public CloudCoreInterfaceController(CoreTransport coreTransport) {
+        this.coreTransport = coreTransport;
+    }
+
+    /**
+     * Sets aggregator used for monitoring updates. If it is not set or disabled, every update is sent to CRM directly.
+     *
+     * @param monitoringAggregator MonitoringAggregator bean
+     */
+    @Autowired(required = false)
+    public void setMonitoringAggregator(MonitoringAggregator monitoringAggregator) {
+        this.monitoringAggregator = monitoringAggregator;
+    }
+
+    /**
+     * Sets accumulator used for access notifications. If it is not set or disabled, every notification is sent to CRAM directly.
+     *
+     * @param accessNotificationAggregator AccessNotificationAggregator bean
+     */
+    @Autowired(required = false)
+    public void setAccessNotificationAggregator(AccessNotificationAggregator accessNotificationAggregator) {
+        this.accessNotificationAggregator = accessNotificationAggregator;
+    }
+
+    /**
+     * Sets registry of latency histograms. If it is not set, latencies of request handling stages are not recorded.
+     *
+     * @param latencyMetrics LatencyMetrics bean
+     */
+    @Autowired(required = false)
+    public void setLatencyMetrics(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * Sets serializer of resource maps. If it is not set, resources in requests are always serialized on one thread.
+     *
+     * @param parallelMapSerializer ParallelMapSerializer bean
+     */
+    @Autowired(required = false)
+    public void setParallelMapSerializer(ParallelMapSerializer parallelMapSerializer) {
+        this.parallelMapSerializer = parallelMapSerializer;
+    }
+
+    /**
+     * Sets deserializer of resource maps returned by core services. If it is not set, the maps are parsed as they are.
+     *
+     * @param resourceMapDeserializer ResourceMapDeserializer bean
+     */
+    @Autowired(required = false)
+    public void setResourceMapDeserializer(ResourceMapDeserializer resourceMapDeserializer) {
+        this.resourceMapDeserializer = resourceMapDeserializer;
+    }
+
+    /**
+     * Sets validator of registration requests. If it is not set or disabled, all requests are sent to core services.
+     *
+     * @param registrationValidator RegistrationValidator bean
+     */
+    @Autowired(required = false)
+    public void setRegistrationValidator(RegistrationValidator registrationValidator) {
+        this.registrationValidator = registrationValidator;
     }
 
-    private CoreResourceRegistryRequest prepareRdfRequest(String platformId, RDFResourceRegistryRequest resourceRegistryRequest, SecurityRequest securityRequest) {
+    private void recordLatency(String stage, String outcome, long startNanos) {
+        if (latencyMetrics != null)
+            latencyMetrics.record(stage, null, outcome, startNanos);
+    }
+
+    CoreResourceRegistryRequest prepareRdfRequest(String platformId, RDFResourceRegistryRequest resourceRegistryRequest, SecurityRequest securityRequest) {
+        long startNanos = System.nanoTime();
         CoreResourceRegistryRequest coreRequest = new CoreResourceRegistryRequest();
         coreRequest.setSecurityRequest(securityRequest);
         coreRequest.setDescriptionType(DescriptionType.RDF);
@@ -76,16 +168,19 @@ public class CloudCoreInterfaceController {
 
         } catch (JsonProcessingException e) {
             log.error("Error while handling resource creation request", e);
+            recordLatency(LatencyMetrics.STAGE_PREPARE, LatencyMetrics.OUTCOME_ERROR, startNanos);
             return null;
         }
 
+        recordLatency(LatencyMetrics.STAGE_PREPARE, LatencyMetrics.OUTCOME_OK, startNanos);
         return coreRequest;
     }
 
-    private CoreResourceRegistryRequest prepareBasicRequest(String platformId, ResourceRegistryRequest resourceRegistryRequest, SecurityRequest securityRequest) {
+    CoreResourceRegistryRequest prepareBasicRequest(String platformId, ResourceRegistryRequest resourceRegistryRequest, SecurityRequest securityRequest) {
         if (resourceRegistryRequest == null)
             return null;
 
+        long startNanos = System.nanoTime();
         CoreResourceRegistryRequest coreRequest = new CoreResourceRegistryRequest();
         coreRequest.setSecurityRequest(securityRequest);
         coreRequest.setDescriptionType(DescriptionType.BASIC);
@@ -93,10 +188,15 @@ public class CloudCoreInterfaceController {
         coreRequest.setFilteringPolicies(resourceRegistryRequest.getFilteringPolicies());
 
         try {
-            ObjectMapper mapper = new ObjectMapper();
+            String resourcesJson;
+            if (parallelMapSerializer != null) {
+                resourcesJson = parallelMapSerializer.writeValueAsString(resourceRegistryRequest.getBody(), Resource.class);
+            } else {
+                ObjectMapper mapper = new ObjectMapper();
 
-            String resourcesJson = mapper.writerFor(new TypeReference<Map<String, Resource>>() {
-            }).writeValueAsString(resourceRegistryRequest.getBody());
+                resourcesJson = mapper.writerFor(new TypeReference<Map<String, Resource>>() {
+                }).writeValueAsString(resourceRegistryRequest.getBody());
+            }
             coreRequest.setBody(resourcesJson);
 
             log.debug("Request for Core Services prepared");
@@ -104,9 +204,11 @@ public class CloudCoreInterfaceController {
 
         } catch (JsonProcessingException e) {
             log.error("Error while handling resource creation request", e);
+            recordLatency(LatencyMetrics.STAGE_PREPARE, LatencyMetrics.OUTCOME_ERROR, startNanos);
             return null;
         }
 
+        recordLatency(LatencyMetrics.STAGE_PREPARE, LatencyMetrics.OUTCOME_OK, startNanos);
         return coreRequest;
     }
 
@@ -124,13 +226,13 @@ public class CloudCoreInterfaceController {
         CoreResourceRegistryResponse coreResponse = null;
         switch (coreOperationType) {
             case CREATE:
-                coreResponse = rabbitManager.sendResourceCreationRequest(coreResourceRegistryRequest);
+                coreResponse = coreTransport.sendResourceCreationRequest(coreResourceRegistryRequest);
                 break;
             case MODIFY:
-                coreResponse = rabbitManager.sendResourceModificationRequest(coreResourceRegistryRequest);
+                coreResponse = coreTransport.sendResourceModificationRequest(coreResourceRegistryRequest);
                 break;
             case DELETE:
-                coreResponse = rabbitManager.sendResourceRemovalRequest(coreResourceRegistryRequest);
+                coreResponse = coreTransport.sendResourceRemovalRequest(coreResourceRegistryRequest);
                 break;
         }
 
@@ -149,9 +251,13 @@ public class CloudCoreInterfaceController {
 
         if (coreResponse.getBody() != null) {
             try {
-                ObjectMapper mapper = new ObjectMapper();
-                responseMapOfResources = mapper.readValue(coreResponse.getBody(), new TypeReference<Map<String, Resource>>() {
-                });
+                if (resourceMapDeserializer != null) {
+                    responseMapOfResources = resourceMapDeserializer.readResources(coreResponse.getBody());
+                } else {
+                    ObjectMapper mapper = new ObjectMapper();
+                    responseMapOfResources = mapper.readValue(coreResponse.getBody(), new TypeReference<Map<String, Resource>>() {
+                    });
+                }
             } catch (IOException e) {
                 log.error("Error while parsing response body from Core Services", e);
                 response.setMessage("Error while parsing response body from Core Service. Operation might have been performed, but response was malformed.");
@@ -168,6 +274,106 @@ public class CloudCoreInterfaceController {
         return new ResponseEntity<>(response, getHeadersForCoreResponse(coreResponse), HttpStatus.valueOf(coreResponse.getStatus()));
     }
 
+    /**
+     * Validates platform resources of a registration request.
+     *
+     * @return response rejecting the request, or null if the request is valid
+     */
+    private ResponseEntity validateResources(Map<String, Resource> resources, CoreOperationType coreOperationType) {
+        if (registrationValidator == null)
+            return null;
+        List<ValidationError> errors;
+        switch (coreOperationType) {
+            case CREATE:
+                errors = registrationValidator.validateCreation(resources);
+                break;
+            case MODIFY:
+                errors = registrationValidator.validateModification(resources);
+                break;
+            default:
+                errors = registrationValidator.validateRemoval(resources);
+                break;
+        }
+        if (errors.isEmpty())
+            return null;
+        log.debug("Invalid registration request rejected: " + errors);
+
+        ResourceRegistryResponse response = new ResourceRegistryResponse();
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setMessage(getInvalidRequestMessage(errors));
+        response.setBody(null);
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Validates SSP resources of a registration request.
+     *
+     * @return response rejecting the request, or null if the request is valid
+     */
+    private ResponseEntity validateSspResources(Map<String, Resource> resources, CoreOperationType coreOperationType) {
+        if (registrationValidator == null)
+            return null;
+        List<ValidationError> errors;
+        switch (coreOperationType) {
+            case CREATE:
+                errors = registrationValidator.validateSspCreation(resources);
+                break;
+            case MODIFY:
+                errors = registrationValidator.validateSspModification(resources);
+                break;
+            default:
+                errors = registrationValidator.validateSspRemoval(resources);
+                break;
+        }
+        if (errors.isEmpty())
+            return null;
+        log.debug("Invalid registration request rejected: " + errors);
+
+        SspResourceReqistryResponse response = new SspResourceReqistryResponse();
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setMessage(getInvalidRequestMessage(errors));
+        response.setBody(null);
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Validates smart device of a registration request.
+     *
+     * @return response rejecting the request, or null if the request is valid
+     */
+    private ResponseEntity validateSdev(SspRegInfo sdev) {
+        if (registrationValidator == null)
+            return null;
+        List<ValidationError> errors = registrationValidator.validateSdev(sdev);
+        if (errors.isEmpty())
+            return null;
+        log.debug("Invalid registration request rejected: " + errors);
+
+        SdevRegistryResponse response = new SdevRegistryResponse();
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setMessage(getInvalidRequestMessage(errors));
+        response.setBody(null);
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Describes problems of an invalid request as JSON object with a human-readable <i>message</i> and
+     * the <i>errors</i> as a list of <i>{resource, field, message}</i> objects. The object is returned as the message
+     * of the response, so that the response keeps the type declared by the endpoint.
+     */
+    private static String getInvalidRequestMessage(List<ValidationError> errors) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("message", "Request is invalid. No data has been processed by Core Services.");
+        message.put("errors", errors);
+        try {
+            return VALIDATION_MAPPER.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            log.error("Error while serializing validation errors", e);
+            return "Request is invalid: " + errors.stream().map(ValidationError::toString).collect(Collectors.joining("; "))
+                    + ". No data has been processed by Core Services.";
+        }
+    }
+
     private HttpHeaders getHeadersForCoreResponse(AbstractResponseSecured response) {
         HttpHeaders headers = new HttpHeaders();
         if (response != null && response.getServiceResponse() != null) {
@@ -343,6 +549,12 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            if (resourceRegistryRequest != null) {
+                ResponseEntity rejection = validateResources(resourceRegistryRequest.getBody(), CoreOperationType.CREATE);
+                if (rejection != null)
+                    return rejection;
+            }
+
             CoreResourceRegistryRequest coreRequest = prepareBasicRequest(platformId, resourceRegistryRequest, securityRequest);
             return handleCoreResourceRequest(coreRequest, CoreOperationType.CREATE);
         } catch (InvalidArgumentsException e) {
@@ -384,6 +596,12 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            if (resourceRegistryRequest != null) {
+                ResponseEntity rejection = validateResources(resourceRegistryRequest.getBody(), CoreOperationType.MODIFY);
+                if (rejection != null)
+                    return rejection;
+            }
+
             CoreResourceRegistryRequest coreRequest = prepareBasicRequest(platformId, resourceRegistryRequest, securityRequest);
             return handleCoreResourceRequest(coreRequest, CoreOperationType.MODIFY);
         } catch (InvalidArgumentsException e) {
@@ -425,6 +643,12 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            if (resourceRegistryRequest != null) {
+                ResponseEntity rejection = validateResources(resourceRegistryRequest.getBody(), CoreOperationType.DELETE);
+                if (rejection != null)
+                    return rejection;
+            }
+
             CoreResourceRegistryRequest coreRequest = prepareBasicRequest(platformId, resourceRegistryRequest, securityRequest);
             return handleCoreResourceRequest(coreRequest, CoreOperationType.DELETE);
         } catch (InvalidArgumentsException e) {
@@ -464,7 +688,7 @@ public class CloudCoreInterfaceController {
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
             ClearDataRequest request = new ClearDataRequest(securityRequest, platformId);
-            ClearDataResponse response = rabbitManager.sendClearDataRequest(request);
+            ClearDataResponse response = coreTransport.sendClearDataRequest(request);
 
             if (response == null) {
                 log.debug("Timeout on handling request by Core Services");
@@ -491,6 +715,10 @@ public class CloudCoreInterfaceController {
 
     /**
      * Endpoint for notifying Core Resource Monitor of platform status.
+     * <p>
+     * When the update is accepted for aggregated or deferred delivery, 202 is returned before CRM has seen the update,
+     * so the response does not carry the service response header. Clients verifying the service response should
+     * expect it only with status 200.
      *
      * @param platformId              ID of a platform
      * @param cloudMonitoringPlatform status of platform to be sent to CRM
@@ -501,6 +729,7 @@ public class CloudCoreInterfaceController {
             notes = "Notify Core Resource Monitor of platform status",
             response = String.class)
     @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Status update buffered for aggregated or deferred delivery to CRM, no service response header"),
             @ApiResponse(code = 500, message = "Error on server side")})
     @RequestMapping(method = RequestMethod.POST,
             value = "/crm/Monitoring/{platformId}/devices/status")
@@ -511,14 +740,30 @@ public class CloudCoreInterfaceController {
             log.debug("Cloud monitoring platform received for platform " + platformId);
             if (httpHeaders == null)
                 throw new InvalidArgumentsException();
-            SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
+            Map<String, String> headers = httpHeaders.toSingleValueMap();
+            SecurityRequest securityRequest = new SecurityRequest(headers);
+
+            if (monitoringAggregator != null && monitoringAggregator.isEnabled()) {
+                monitoringAggregator.aggregate(platformId, headers, securityRequest, cloudMonitoringPlatform);
+                return new ResponseEntity<>(null, HttpStatus.ACCEPTED);
+            }
 
             CloudMonitoringPlatformRequest cloudMonitoringPlatformRequest =
                     new CloudMonitoringPlatformRequest(securityRequest, cloudMonitoringPlatform);
-            MonitoringResponseSecured result = this.rabbitManager.sendMonitoringMessage(cloudMonitoringPlatformRequest);
+            MonitoringResponseSecured result;
+            try {
+                result = this.coreTransport.sendMonitoringMessage(cloudMonitoringPlatformRequest);
+            } catch (ServiceUnavailableException e) {
+                log.debug("Core Services rejected monitoring update: " + e.getMessage());
+                if (this.coreTransport.spoolMonitoringMessage(cloudMonitoringPlatformRequest))
+                    return new ResponseEntity<>(null, HttpStatus.ACCEPTED);
+                throw e;
+            }
 
             if (result != null)
                 return new ResponseEntity<>(getHeadersForCoreResponse(result), HttpStatus.OK);
+            else if (this.coreTransport.spoolMonitoringMessage(cloudMonitoringPlatformRequest))
+                return new ResponseEntity<>(null, HttpStatus.ACCEPTED);
             else
                 return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         } catch (InvalidArgumentsException e) {
@@ -538,6 +783,10 @@ public class CloudCoreInterfaceController {
 
     /**
      * Endpoint for passing access notifications.
+     * <p>
+     * 202 is returned only after the notification has been written to the journal of the aggregator or to the message
+     * spool. CRAM has not seen the notification yet, so the response does not carry the service response header.
+     * Clients verifying the service response should expect it only with status 200.
      *
      * @param notificationMessage access notification message
      * @param httpHeaders         request headers
@@ -546,6 +795,7 @@ public class CloudCoreInterfaceController {
             notes = "Access notifications handler")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Notification received OK"),
+            @ApiResponse(code = 202, message = "Notification journaled for aggregated or deferred delivery to CRAM, no service response header"),
             @ApiResponse(code = 500, message = "Error on server side")})
     @RequestMapping(method = RequestMethod.POST,
             value = "/accessNotifications")
@@ -555,13 +805,28 @@ public class CloudCoreInterfaceController {
             log.debug("Access notification " + notificationMessage != null ? ReflectionToStringBuilder.toString(notificationMessage) : "Notification is null");
             if (httpHeaders == null)
                 throw new InvalidArgumentsException();
-            SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
+            Map<String, String> headers = httpHeaders.toSingleValueMap();
+            SecurityRequest securityRequest = new SecurityRequest(headers);
+
+            if (accessNotificationAggregator != null && accessNotificationAggregator.isEnabled()
+                    && accessNotificationAggregator.aggregate(headers, securityRequest, notificationMessage))
+                return new ResponseEntity<>(null, HttpStatus.ACCEPTED);
 
             NotificationMessageSecured notificationMessageSecured = new NotificationMessageSecured(securityRequest, notificationMessage);
-            NotificationMessageResponseSecured result = this.rabbitManager.sendAccessNotificationMessage(notificationMessageSecured);
+            NotificationMessageResponseSecured result;
+            try {
+                result = this.coreTransport.sendAccessNotificationMessage(notificationMessageSecured);
+            } catch (ServiceUnavailableException e) {
+                log.debug("Core Services rejected access notification: " + e.getMessage());
+                if (this.coreTransport.spoolAccessNotificationMessage(notificationMessageSecured))
+                    return new ResponseEntity<>(null, HttpStatus.ACCEPTED);
+                throw e;
+            }
 
             if (result != null)
                 return new ResponseEntity<>(getHeadersForCoreResponse(result), HttpStatus.OK);
+            else if (this.coreTransport.spoolAccessNotificationMessage(notificationMessageSecured))
+                return new ResponseEntity<>(null, HttpStatus.ACCEPTED);
             else
                 return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         } catch (InvalidArgumentsException e) {
@@ -588,13 +853,13 @@ public class CloudCoreInterfaceController {
         CoreSdevRegistryResponse coreSdevResponse = null;
         switch (coreOperationType) {
             case CREATE:
-                coreSdevResponse = rabbitManager.sendSdevCreationRequest(coreSdevRegistryRequest);
+                coreSdevResponse = coreTransport.sendSdevCreationRequest(coreSdevRegistryRequest);
                 break;
             case MODIFY:
-                coreSdevResponse = rabbitManager.sendSdevModificationRequest(coreSdevRegistryRequest);
+                coreSdevResponse = coreTransport.sendSdevModificationRequest(coreSdevRegistryRequest);
                 break;
             case DELETE:
-                coreSdevResponse = rabbitManager.sendSdevRemovalRequest(coreSdevRegistryRequest);
+                coreSdevResponse = coreTransport.sendSdevRemovalRequest(coreSdevRegistryRequest);
                 break;
         }
 
@@ -631,13 +896,13 @@ public class CloudCoreInterfaceController {
         CoreSspResourceRegistryResponse coreSspResourceResponse = null;
         switch (coreOperationType) {
             case CREATE:
-                coreSspResourceResponse  = rabbitManager.sendSspResourceCreationRequest(coreSspResourceRegistryRequest);
+                coreSspResourceResponse  = coreTransport.sendSspResourceCreationRequest(coreSspResourceRegistryRequest);
                 break;
             case MODIFY:
-                coreSspResourceResponse  = rabbitManager.sendSspResourceModificationRequest(coreSspResourceRegistryRequest);
+                coreSspResourceResponse  = coreTransport.sendSspResourceModificationRequest(coreSspResourceRegistryRequest);
                 break;
             case DELETE:
-                coreSspResourceResponse  = rabbitManager.sendSspResourceRemovalRequest(coreSspResourceRegistryRequest);
+                coreSspResourceResponse  = coreTransport.sendSspResourceRemovalRequest(coreSspResourceRegistryRequest);
                 break;
         }
 
@@ -685,6 +950,10 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            ResponseEntity rejection = validateSdev(sdevRegistryRequest.getBody());
+            if (rejection != null)
+                return rejection;
+
             CoreSdevRegistryRequest coreRequest = new CoreSdevRegistryRequest(securityRequest, sdevRegistryRequest.getBody(), sspId);
 
             return handleCoreSdevRequest(coreRequest, CoreOperationType.CREATE);
@@ -717,6 +986,10 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            ResponseEntity rejection = validateSdev(sdevRegistryRequest.getBody());
+            if (rejection != null)
+                return rejection;
+
             CoreSdevRegistryRequest coreRequest = new CoreSdevRegistryRequest(securityRequest, sdevRegistryRequest.getBody(), sspId);
 
             return handleCoreSdevRequest(coreRequest, CoreOperationType.MODIFY);
@@ -749,6 +1022,10 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            ResponseEntity rejection = validateSdev(sdevRegistryRequest.getBody());
+            if (rejection != null)
+                return rejection;
+
             CoreSdevRegistryRequest coreRequest = new CoreSdevRegistryRequest(securityRequest, sdevRegistryRequest.getBody(), sspId);
 
             return handleCoreSdevRequest(coreRequest, CoreOperationType.DELETE);
@@ -782,6 +1059,10 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            ResponseEntity rejection = validateSspResources(sspResourceRegistryRequest.getBody(), CoreOperationType.CREATE);
+            if (rejection != null)
+                return rejection;
+
             CoreSspResourceRegistryRequest coreRequest = new CoreSspResourceRegistryRequest(securityRequest, sspResourceRegistryRequest.getBody(), sspId, sdevId, sspResourceRegistryRequest.getFilteringPolicies());
 
             return handleCoreSspResourceRequest(coreRequest, CoreOperationType.CREATE);
@@ -815,6 +1096,10 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            ResponseEntity rejection = validateSspResources(sspResourceRegistryRequest.getBody(), CoreOperationType.MODIFY);
+            if (rejection != null)
+                return rejection;
+
             CoreSspResourceRegistryRequest coreRequest = new CoreSspResourceRegistryRequest(securityRequest, sspResourceRegistryRequest.getBody(), sspId, sdevId, sspResourceRegistryRequest.getFilteringPolicies());
 
             return handleCoreSspResourceRequest(coreRequest, CoreOperationType.MODIFY);
@@ -848,6 +1133,10 @@ public class CloudCoreInterfaceController {
                 throw new InvalidArgumentsException();
             SecurityRequest securityRequest = new SecurityRequest(httpHeaders.toSingleValueMap());
 
+            ResponseEntity rejection = validateSspResources(sspResourceRegistryRequest.getBody(), CoreOperationType.DELETE);
+            if (rejection != null)
+                return rejection;
+
             CoreSspResourceRegistryRequest coreRequest = new CoreSspResourceRegistryRequest(securityRequest, sspResourceRegistryRequest.getBody(), sspId, sdevId, sspResourceRegistryRequest.getFilteringPolicies());
 
             return handleCoreSspResourceRequest(coreRequest, CoreOperationType.DELETE);
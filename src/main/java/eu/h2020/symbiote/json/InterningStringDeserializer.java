@@ -0,0 +1,38 @@
+package eu.h2020.symbiote.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserializer of strings which canonicalizes them through the {@link StringInternTable} passed
+ * as the {@link #INTERN_TABLE} attribute of the reader. Without the attribute, strings are read as usual.
+ */
+class InterningStringDeserializer extends StdScalarDeserializer<String> {
+
+    static final String INTERN_TABLE = "cci.internTable";
+
+    InterningStringDeserializer() {
+        super(String.class);
+    }
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.hasToken(JsonToken.VALUE_STRING)) {
+            StringInternTable table = (StringInternTable) context.getAttribute(INTERN_TABLE);
+            if (table != null)
+                return table.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            return parser.getText();
+        }
+        return StringDeserializer.instance.deserialize(parser, context);
+    }
+
+    @Override
+    public boolean isCachable() {
+        return true;
+    }
+}
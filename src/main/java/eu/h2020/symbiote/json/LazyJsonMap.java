@@ -0,0 +1,229 @@
+package eu.h2020.symbiote.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only view of a JSON object whose values are objects, kept as raw JSON until they are accessed.
+ * <p>
+ * The map keeps the raw JSON and the positions of its values, which are found in one streaming pass. The pass only
+ * checks the structure of the values, skipping their content: every value must be an object or null, and an object
+ * must have the type property of the value type, if there is one. The first value of every type is also decoded,
+ * so an unknown type fails {@link #index} like it fails parsing of the whole map; other invalid content of a value
+ * fails its access.
+ * <p>
+ * A value is decoded on every access, straight from the raw JSON, and is not kept by the map, so that writing
+ * the map holds only one decoded value at a time besides the JSON. Callers which use a value repeatedly should
+ * keep it. The map is not thread-safe.
+ *
+ * @param <V> type of values of the map
+ */
+public final class LazyJsonMap<V> extends AbstractMap<String, V> {
+
+    private final String json;
+    private final ObjectReader valueReader;
+    private final Map<String, Integer> positions;
+    private final String[] keys;
+    private final int[] starts;
+    private final int[] ends;
+
+    private LazyJsonMap(String json, ObjectReader valueReader, Map<String, Integer> positions, int[] starts, int[] ends) {
+        this.json = json;
+        this.valueReader = valueReader;
+        this.positions = positions;
+        this.keys = positions.keySet().toArray(new String[positions.size()]);
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Finds the values of a JSON object.
+     *
+     * @param factory      factory of parsers
+     * @param json         JSON object whose values are objects or nulls
+     * @param valueReader  reader of values
+     * @param typeProperty name of the property holding the type of a value, or null if values have no type property
+     * @return view of the object, or null if the JSON is null
+     * @throws IOException if the JSON is malformed, it is not an object of objects, a value has no type or the first
+     *                     value of a type cannot be decoded
+     */
+    static <V> LazyJsonMap<V> index(JsonFactory factory, String json, ObjectReader valueReader, String typeProperty)
+            throws IOException {
+        try (JsonParser parser = factory.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL)
+                return null;
+            if (token != JsonToken.START_OBJECT)
+                throw JsonMappingException.from(parser, "Expected JSON object, got " + token);
+
+            Map<String, Integer> positions = new LinkedHashMap<>();
+            Set<String> decodedTypes = new HashSet<>();
+            int[] starts = new int[16];
+            int[] ends = new int[16];
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                int start;
+                int end;
+                token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    start = -1;
+                    end = -1;
+                } else if (token == JsonToken.START_OBJECT) {
+                    start = (int) parser.getTokenLocation().getCharOffset();
+                    String type = skipValue(parser, key, typeProperty);
+                    end = (int) parser.getCurrentLocation().getCharOffset();
+                    if (decodedTypes.add(type))
+                        valueReader.readValue(new RegionReader(json, start, end));
+                } else {
+                    throw JsonMappingException.from(parser, "Expected JSON object as value of " + key + ", got " + token);
+                }
+
+                // a repeated key replaces the earlier value in its place, as it does in a parsed map
+                Integer position = positions.get(key);
+                if (position == null) {
+                    position = positions.size();
+                    positions.put(key, position);
+                    if (position == starts.length) {
+                        starts = Arrays.copyOf(starts, position * 2);
+                        ends = Arrays.copyOf(ends, position * 2);
+                    }
+                }
+                starts[position] = start;
+                ends[position] = end;
+            }
+            if (token != JsonToken.END_OBJECT)
+                throw JsonMappingException.from(parser, "Unexpected end of JSON object");
+            return new LazyJsonMap<>(json, valueReader, positions, starts, ends);
+        }
+    }
+
+    /**
+     * Skips an object value, leaving the parser at its end.
+     *
+     * @return type of the value, or null if values have no type property
+     */
+    private static String skipValue(JsonParser parser, String key, String typeProperty) throws IOException {
+        String type = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING && field.equals(typeProperty))
+                type = parser.getText();
+            else
+                parser.skipChildren();
+        }
+        if (token != JsonToken.END_OBJECT)
+            throw JsonMappingException.from(parser, "Unexpected end of value of " + key);
+        if (typeProperty != null && type == null)
+            throw JsonMappingException.from(parser, "Missing type property " + typeProperty + " in value of " + key);
+        return type;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return positions.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        Integer position = positions.get(key);
+        return position != null ? decode(position) : null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<Entry<String, V>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        if (next >= keys.length)
+                            throw new NoSuchElementException();
+                        int position = next++;
+                        return new SimpleImmutableEntry<>(keys[position], decode(position));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    private V decode(int position) {
+        if (starts[position] < 0)
+            return null;
+        try {
+            return valueReader.readValue(new RegionReader(json, starts[position], ends[position]));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid value of " + keys[position], e);
+        }
+    }
+
+    /**
+     * Reader of a region of a string, which does not copy the region.
+     */
+    private static class RegionReader extends Reader {
+        private final String string;
+        private final int end;
+        private int next;
+
+        RegionReader(String string, int start, int end) {
+            this.string = string;
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (next >= end)
+                return -1;
+            int count = Math.min(length, end - next);
+            string.getChars(next, next + count, buffer, offset);
+            next += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package eu.h2020.symbiote.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serializes large maps to JSON on several cores.
+ * <p>
+ * Maps with at least <i>cci.serialization.parallel.threshold</i> entries are split into segments of
+ * <i>cci.serialization.parallel.segmentSize</i> entries, which are written to separate byte buffers by a dedicated
+ * pool of <i>cci.serialization.parallel.threads</i> threads (number of processors by default). When the queue of
+ * the pool is full, segments are written on the calling thread, so concurrent requests cannot queue up unbounded
+ * work. The segments are then joined into one JSON object, in the iteration order of the map, so the result is the
+ * same as that of serializing the whole map with the same mapper. Smaller maps, and all maps when
+ * <i>cci.serialization.parallel.enabled</i> is false, are serialized on the calling thread.
+ */
+@Component
+public class ParallelMapSerializer {
+    private static final int QUEUED_SEGMENTS_PER_THREAD = 16;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Class<?>, ObjectWriter> mapWriters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> valueWriters = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final int threshold;
+    private final int segmentSize;
+    private final ExecutorService executor;
+
+    /**
+     * @param enabled     whether large maps are serialized in parallel
+     * @param threshold   lowest number of entries of a map serialized in parallel
+     * @param segmentSize number of entries serialized by one task
+     * @param threads     number of threads serializing segments, number of processors if not positive
+     */
+    @Autowired
+    public ParallelMapSerializer(@Value("${cci.serialization.parallel.enabled:true}") boolean enabled,
+                                 @Value("${cci.serialization.parallel.threshold:10000}") int threshold,
+                                 @Value("${cci.serialization.parallel.segmentSize:1000}") int segmentSize,
+                                 @Value("${cci.serialization.parallel.threads:0}") int threads) {
+        this.enabled = enabled;
+        this.threshold = Math.max(1, threshold);
+        this.segmentSize = Math.max(1, segmentSize);
+
+        if (enabled) {
+            int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+            AtomicInteger threadCounter = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(poolSize * QUEUED_SEGMENTS_PER_THREAD),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "parallel-serializer-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    // rejected segments, also those submitted after shutdown, are written on the calling thread
+                    (runnable, pool) -> runnable.run());
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stops threads serializing segments. Maps are serialized on the calling thread afterwards.
+     */
+    @PreDestroy
+    public void close() {
+        if (executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * Serializes map to JSON object.
+     *
+     * @param map       map to be serialized
+     * @param valueType declared type of values of the map
+     * @return JSON object
+     * @throws JsonProcessingException if a value cannot be serialized or the map has a null key
+     */
+    public <V> String writeValueAsString(Map<String, ? extends V> map, Class<V> valueType) throws JsonProcessingException {
+        if (!isParallel(map))
+            return getMapWriter(valueType).writeValueAsString(map);
+        return new String(writeValueAsBytes(map, valueType), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serializes map to JSON object encoded in UTF-8.
+     *
+     * @param map       map to be serialized
+     * @param valueType declared type of values of the map
+     * @return JSON object
+     * @throws JsonProcessingException if a value cannot be serialized or the map has a null key
+     */
+    public <V> byte[] writeValueAsBytes(Map<String, ? extends V> map, Class<V> valueType) throws JsonProcessingException {
+        if (!isParallel(map))
+            return getMapWriter(valueType).writeValueAsBytes(map);
+
+        List<Map.Entry<String, ? extends V>> entries = new ArrayList<>(map.entrySet());
+        ObjectWriter valueWriter = getValueWriter(valueType);
+        List<Future<byte[]>> futures = new ArrayList<>((entries.size() + segmentSize - 1) / segmentSize);
+        try {
+            for (int first = 0; first < entries.size(); first += segmentSize) {
+                int from = first;
+                int to = Math.min(entries.size(), first + segmentSize);
+                futures.add(executor.submit(() -> writeSegment(valueWriter, entries, from, to)));
+            }
+
+            byte[][] segments = new byte[futures.size()][];
+            for (int i = 0; i < segments.length; i++)
+                segments[i] = futures.get(i).get();
+            return join(segments);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JsonProcessingException)
+                throw (JsonProcessingException) cause;
+            if (cause instanceof IOException)
+                throw JsonMappingException.fromUnexpectedIOE((IOException) cause);
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw (Error) cause;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JsonMappingException.fromUnexpectedIOE(new InterruptedIOException("Serialization interrupted"));
+        } finally {
+            for (Future<byte[]> future : futures)
+                future.cancel(false);
+        }
+    }
+
+    private boolean isParallel(Map<String, ?> map) {
+        return enabled && map != null && map.size() >= threshold;
+    }
+
+    private ObjectWriter getMapWriter(Class<?> valueType) {
+        return mapWriters.computeIfAbsent(valueType, type -> mapper.writerFor(
+                mapper.getTypeFactory().constructMapType(Map.class, String.class, type)));
+    }
+
+    /**
+     * Segments are written to memory buffers, so the writer does not flush after every value.
+     */
+    private ObjectWriter getValueWriter(Class<?> valueType) {
+        return valueWriters.computeIfAbsent(valueType,
+                type -> mapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+    }
+
+    private <V> byte[] writeSegment(ObjectWriter valueWriter, List<Map.Entry<String, ? extends V>> entries,
+                                    int first, int last) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * (last - first));
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            for (int i = first; i < last; i++) {
+                Map.Entry<String, ? extends V> entry = entries.get(i);
+                if (entry.getKey() == null)
+                    // same failure as that of the mapper serializing the whole map
+                    throw JsonMappingException.from(generator,
+                            "Null key for a Map not allowed in JSON (use a converting NullKeySerializer?)");
+                generator.writeFieldName(entry.getKey());
+                valueWriter.writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Joins segments, every one of them a JSON object, into one object.
+     */
+    private static byte[] join(byte[][] segments) {
+        int length = 1;
+        for (byte[] segment : segments)
+            length += segment.length - 1;
+
+        byte[] result = new byte[length];
+        int position = 0;
+        for (byte[] segment : segments) {
+            // the opening brace of the first segment is kept, the others are replaced with commas
+            result[position] = position == 0 ? (byte) '{' : (byte) ',';
+            System.arraycopy(segment, 1, result, position + 1, segment.length - 2);
+            position += segment.length - 1;
+        }
+        result[position] = '}';
+        return result;
+    }
+}
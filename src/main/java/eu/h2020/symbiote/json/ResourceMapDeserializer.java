@@ -0,0 +1,103 @@
+package eu.h2020.symbiote.json;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import eu.h2020.symbiote.model.cim.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Deserializer of resource maps returned by core services, which keeps their footprint on the heap low.
+ * <p>
+ * Resources of one map repeat many values: platform IDs, property names, units, interworking service URLs. With
+ * <i>cci.deserialization.intern.enabled</i>, strings of the map are canonicalized through a {@link StringInternTable}
+ * created for every parsed map and bounded by <i>cci.deserialization.intern.maxEntries</i> and
+ * <i>cci.deserialization.intern.maxLength</i>, so that equal values share one instance.
+ * <p>
+ * With <i>cci.deserialization.lazy.enabled</i>, the map is returned as {@link LazyJsonMap}, which checks the structure
+ * of every resource while parsing, but holds it only as raw JSON and decodes it when it is accessed, usually while
+ * the response is written. The intern table then lives as long as the map and is shared by all decoded resources.
+ */
+@Component
+public class ResourceMapDeserializer {
+
+    private final ObjectMapper mapper;
+    private final ObjectReader mapReader;
+    private final ObjectReader resourceReader;
+
+    private final boolean internEnabled;
+    private final int internMaxEntries;
+    private final int internMaxLength;
+    private final boolean lazyEnabled;
+    // property holding the subtype of a resource
+    private final String typeProperty;
+
+    /**
+     * @param internEnabled    whether repeated strings are canonicalized
+     * @param internMaxEntries maximum number of canonical strings of one map
+     * @param internMaxLength  maximum length of canonicalized strings
+     * @param lazyEnabled      whether resources are decoded only when they are accessed
+     */
+    @Autowired
+    public ResourceMapDeserializer(@Value("${cci.deserialization.intern.enabled:true}") boolean internEnabled,
+                                   @Value("${cci.deserialization.intern.maxEntries:65536}") int internMaxEntries,
+                                   @Value("${cci.deserialization.intern.maxLength:256}") int internMaxLength,
+                                   @Value("${cci.deserialization.lazy.enabled:false}") boolean lazyEnabled) {
+        this.internEnabled = internEnabled;
+        this.internMaxEntries = internMaxEntries;
+        this.internMaxLength = internMaxLength;
+        this.lazyEnabled = lazyEnabled;
+
+        this.mapper = new ObjectMapper();
+        if (internEnabled)
+            this.mapper.registerModule(new SimpleModule("StringInterning").addDeserializer(String.class,
+                    new InterningStringDeserializer()));
+        this.mapReader = mapper.readerFor(new TypeReference<Map<String, Resource>>() {
+        });
+        this.resourceReader = mapper.readerFor(Resource.class);
+        this.typeProperty = typeProperty(Resource.class);
+    }
+
+    public boolean isInternEnabled() {
+        return internEnabled;
+    }
+
+    public boolean isLazyEnabled() {
+        return lazyEnabled;
+    }
+
+    /**
+     * Deserializes map of resources.
+     *
+     * @param json JSON object of resources keyed by their IDs
+     * @return map of resources, or null if the JSON is null
+     * @throws IOException if the JSON is malformed or a resource is invalid; a lazy map only checks what
+     *                     {@link LazyJsonMap} describes, and other invalid content fails access of the resource
+     */
+    public Map<String, Resource> readResources(String json) throws IOException {
+        if (lazyEnabled)
+            return LazyJsonMap.index(mapper.getFactory(), json, withInternTable(resourceReader), typeProperty);
+        return withInternTable(mapReader).readValue(json);
+    }
+
+    private static String typeProperty(Class<?> type) {
+        JsonTypeInfo typeInfo = type.getAnnotation(JsonTypeInfo.class);
+        if (typeInfo == null || typeInfo.include() != JsonTypeInfo.As.PROPERTY)
+            return null;
+        return typeInfo.property().isEmpty() ? typeInfo.use().getDefaultPropertyName() : typeInfo.property();
+    }
+
+    private ObjectReader withInternTable(ObjectReader reader) {
+        if (!internEnabled)
+            return reader;
+        return reader.withAttribute(InterningStringDeserializer.INTERN_TABLE,
+                new StringInternTable(internMaxEntries, internMaxLength));
+    }
+}
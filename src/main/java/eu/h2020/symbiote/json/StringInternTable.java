@@ -0,0 +1,108 @@
+package eu.h2020.symbiote.json;
+
+/**
+ * Bounded table of canonical strings, used to share repeated values within one parsed document.
+ * <p>
+ * Strings are looked up by their characters, so a value which is already in the table is returned without creating
+ * a new string. Strings longer than the length limit are not stored, and once the table holds the maximum number of
+ * entries, new values are returned as they are. The table is not thread safe; it is meant to live as long as
+ * the parsing of one document.
+ */
+public class StringInternTable {
+
+    private final int maxEntries;
+    private final int maxLength;
+
+    private String[] table;
+    private int size;
+    private long hits;
+
+    /**
+     * @param maxEntries maximum number of strings stored in the table
+     * @param maxLength  maximum length of strings stored in the table
+     */
+    public StringInternTable(int maxEntries, int maxLength) {
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns canonical string with the given characters.
+     *
+     * @param chars  buffer holding the characters
+     * @param offset offset of the first character in the buffer
+     * @param length number of characters
+     * @return string equal to the characters, the same instance for equal values stored in the table
+     */
+    public String intern(char[] chars, int offset, int length) {
+        if (length > maxLength || maxEntries <= 0)
+            return new String(chars, offset, length);
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+            hash = 31 * hash + chars[i];
+
+        if (table == null)
+            table = new String[16];
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        String candidate;
+        while ((candidate = table[slot]) != null) {
+            if (candidate.hashCode() == hash && matches(candidate, chars, offset, length)) {
+                hits++;
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String value = new String(chars, offset, length);
+        if (size < maxEntries) {
+            table[slot] = value;
+            if (++size * 2 > table.length)
+                grow();
+        }
+        return value;
+    }
+
+    /**
+     * @return number of strings stored in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of values which were found in the table
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    private static boolean matches(String candidate, char[] chars, int offset, int length) {
+        if (candidate.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (candidate.charAt(i) != chars[offset + i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        String[] grown = new String[table.length * 2];
+        int mask = grown.length - 1;
+        for (String value : table) {
+            if (value == null)
+                continue;
+            int slot = spread(value.hashCode()) & mask;
+            while (grown[slot] != null)
+                slot = (slot + 1) & mask;
+            grown[slot] = value;
+        }
+        table = grown;
+    }
+}
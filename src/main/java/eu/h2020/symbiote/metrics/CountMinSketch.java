@@ -0,0 +1,93 @@
+package eu.h2020.symbiote.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free count-min sketch, estimating sums of values added for an unbounded set of keys in fixed memory.
+ * <p>
+ * Estimates are never lower than the real sums; they may be higher by a small fraction of the total of all
+ * added values, depending on the width of the sketch. Every row of counters is indexed by a 32-bit murmur3 hash
+ * of the key with its own seed, so that keys colliding in one row are unlikely to collide in the others.
+ */
+public class CountMinSketch {
+    private static final int[] SEEDS = {0x9E3779B9, 0x7F4A7C15, 0xC2B2AE3D, 0x27D4EB4F,
+            0x165667B1, 0xD6E8FEB8, 0x85EBCA6B, 0xBF58476D};
+
+    private final int depth;
+    private final int widthMask;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param depth number of hash functions, at most 8
+     * @param width number of counters per hash function, rounded up to a power of two
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length)
+            throw new IllegalArgumentException("Depth must be between 1 and " + SEEDS.length);
+        int roundedWidth = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.widthMask = roundedWidth - 1;
+        this.counters = new AtomicLongArray(depth * roundedWidth);
+    }
+
+    /**
+     * Adds value to the sum of a key.
+     *
+     * @param key   key
+     * @param value value to be added
+     * @return estimated sum of the key after the addition
+     */
+    public long add(String key, long value) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+            estimate = Math.min(estimate, counters.addAndGet(index(row, key), value));
+        return estimate;
+    }
+
+    /**
+     * @param key key
+     * @return estimated sum of the key
+     */
+    public long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+            estimate = Math.min(estimate, counters.get(index(row, key)));
+        return estimate;
+    }
+
+    private int index(int row, String key) {
+        return row * (widthMask + 1) + (murmur3(key, SEEDS[row]) & widthMask);
+    }
+
+    /**
+     * 32-bit murmur3 hash of the UTF-16 code units of a string, two per block.
+     */
+    static int murmur3(String key, int seed) {
+        int h = seed;
+        int length = key.length();
+        for (int i = 1; i < length; i += 2)
+            h = mixH(h, mixK(key.charAt(i - 1) | (key.charAt(i) << 16)));
+        if ((length & 1) == 1)
+            h ^= mixK(key.charAt(length - 1));
+
+        h ^= 2 * length;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mixK(int k) {
+        k *= 0xCC9E2D51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1B873593;
+    }
+
+    private static int mixH(int h, int k) {
+        h ^= k;
+        h = Integer.rotateLeft(h, 13);
+        return h * 5 + 0xE6546B64;
+    }
+}
@@ -0,0 +1,84 @@
+package eu.h2020.symbiote.metrics;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks keys with the largest sums of added values (top-K), using {@link CountMinSketch} for the estimates.
+ * <p>
+ * The top-K list is updated under a lock only when the estimate of a key exceeds the smallest estimate in the list,
+ * so adding values of keys which are not heavy hitters is lock-free.
+ */
+public class HeavyHitters {
+    private final CountMinSketch sketch;
+    private final int k;
+    private final Map<String, Long> top = new HashMap<>();
+    private volatile long threshold;
+
+    /**
+     * @param k     number of tracked keys
+     * @param depth depth of the count-min sketch
+     * @param width width of the count-min sketch
+     */
+    public HeavyHitters(int k, int depth, int width) {
+        this.sketch = new CountMinSketch(depth, width);
+        this.k = k;
+    }
+
+    /**
+     * Adds value to the sum of a key.
+     *
+     * @param key   key, ignored if null
+     * @param value value to be added
+     */
+    public void add(String key, long value) {
+        if (key == null || value <= 0)
+            return;
+
+        long estimate = sketch.add(key, value);
+        if (estimate <= threshold)
+            return;
+
+        synchronized (top) {
+            top.put(key, estimate);
+            if (top.size() > k)
+                top.remove(smallest());
+            if (top.size() >= k)
+                threshold = top.get(smallest());
+        }
+    }
+
+    /**
+     * @param key key
+     * @return estimated sum of the key
+     */
+    public long estimate(String key) {
+        return sketch.estimate(key);
+    }
+
+    /**
+     * @return tracked keys with their estimated sums, largest first
+     */
+    public List<Map.Entry<String, Long>> getTop() {
+        List<Map.Entry<String, Long>> result;
+        synchronized (top) {
+            result = new ArrayList<>(top.entrySet().size());
+            for (Map.Entry<String, Long> entry : top.entrySet())
+                result.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+        }
+        result.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return result;
+    }
+
+    private String smallest() {
+        Map.Entry<String, Long> smallest = null;
+        for (Map.Entry<String, Long> entry : top.entrySet()) {
+            if (smallest == null || entry.getValue() < smallest.getValue())
+                smallest = entry;
+        }
+        return smallest == null ? null : smallest.getKey();
+    }
+}
@@ -0,0 +1,149 @@
+package eu.h2020.symbiote.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies with log-linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Values are recorded in microseconds. Every power of two is split into 16 linear sub-buckets, which bounds the
+ * relative error of recorded values to about 6%. Values above 2^36 microseconds (about 19 hours) are recorded
+ * in the last bucket. Recording is a single atomic increment, so it can be done on the hot path by many threads.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 35;
+    static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumMicros = new LongAdder();
+
+    /**
+     * Records latency measured from given start time until now.
+     *
+     * @param startNanos start time taken from {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        recordMicros((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Records latency.
+     *
+     * @param micros latency in microseconds
+     */
+    public void recordMicros(long micros) {
+        long value = Math.max(0, micros);
+        buckets.incrementAndGet(index(value));
+        sumMicros.add(value);
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += buckets.get(i);
+        return count;
+    }
+
+    /**
+     * @return sum of recorded values in microseconds
+     */
+    public long getSumMicros() {
+        return sumMicros.sum();
+    }
+
+    /**
+     * Counts recorded values not greater than given bound, with the resolution of the histogram buckets.
+     *
+     * @param micros upper bound in microseconds
+     * @return number of values in buckets whose upper bound does not exceed the given one
+     */
+    public long getCountAtOrBelow(long micros) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS && upperBound(i) <= micros + 1; i++)
+            count += buckets.get(i);
+        return count;
+    }
+
+    /**
+     * Counts recorded values lower than given bound. The count is exact if the bound is an edge of the histogram
+     * buckets (see {@link #nearestBucketEdge(long)}): as values are truncated to whole microseconds, it is then the
+     * number of latencies not greater than the bound.
+     *
+     * @param micros bound in microseconds
+     * @return number of values in buckets whose exclusive upper bound does not exceed the given one
+     */
+    public long getCountBelow(long micros) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS && upperBound(i) <= micros; i++)
+            count += buckets.get(i);
+        return count;
+    }
+
+    /**
+     * Returns the bucket edge nearest to given value, preferring the lower one if both are equally near.
+     *
+     * @param micros value in microseconds
+     * @return lower or upper bound of the bucket containing the value, in microseconds
+     */
+    public static long nearestBucketEdge(long micros) {
+        int index = index(Math.max(0, micros));
+        long lower = index == 0 ? 0 : upperBound(index - 1);
+        long upper = upperBound(index);
+        return micros - lower <= upper - micros ? lower : upper;
+    }
+
+    /**
+     * Estimates value at given percentile.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket containing the value at the percentile, in microseconds
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return upperBound(i) - 1;
+        }
+        return upperBound(BUCKETS - 1) - 1;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return exclusive upper bound of values in the bucket
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index + 1;
+
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width;
+    }
+}
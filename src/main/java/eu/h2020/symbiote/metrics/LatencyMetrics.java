@@ -0,0 +1,150 @@
+package eu.h2020.symbiote.metrics;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of latency histograms of the stages of request handling.
+ * <p>
+ * Every histogram is tagged by the stage, the endpoint (URI pattern) of the request handled by the current thread,
+ * the routing key of the message to core services (empty for stages not related to a single message) and the outcome.
+ * Histograms are exposed in the Prometheus text format. The exported bucket bounds are edges of the log-linear
+ * buckets of {@link LatencyHistogram} (100 µs, 248 µs, ..., 30.4 s), so the cumulative counts are exact.
+ */
+@Component
+public class LatencyMetrics {
+
+    public static final String STAGE_REQUEST = "request";
+    public static final String STAGE_BINDING = "binding";
+    public static final String STAGE_PREPARE = "prepare";
+    public static final String STAGE_SERIALIZE = "serialize";
+    public static final String STAGE_PUBLISH = "publish";
+    public static final String STAGE_WAIT = "wait";
+    public static final String STAGE_PARSE = "parse";
+
+    public static final String OUTCOME_OK = "ok";
+    public static final String OUTCOME_TIMEOUT = "timeout";
+    public static final String OUTCOME_ERROR = "error";
+
+    static final String METRIC_NAME = "cci_stage_latency_seconds";
+
+    private static final String NO_ENDPOINT = "none";
+
+    // exported bounds are the histogram bucket edges nearest to these, so that every exported count is exact
+    private static final long[] NOMINAL_BOUNDS_MICROS = {100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000,
+            100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000, 20000000, 30000000};
+    private static final long[] BUCKET_BOUNDS_MICROS = new long[NOMINAL_BOUNDS_MICROS.length];
+    private static final String[] BUCKET_BOUNDS_LABELS = new String[NOMINAL_BOUNDS_MICROS.length];
+
+    static {
+        for (int i = 0; i < NOMINAL_BOUNDS_MICROS.length; i++) {
+            BUCKET_BOUNDS_MICROS[i] = LatencyHistogram.nearestBucketEdge(NOMINAL_BOUNDS_MICROS[i]);
+            BUCKET_BOUNDS_LABELS[i] = BigDecimal.valueOf(BUCKET_BOUNDS_MICROS[i], 6).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private final Map<SeriesKey, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Records latency of a stage measured from given start time until now.
+     *
+     * @param stage      stage of request handling
+     * @param routingKey routing key of the message, or null
+     * @param outcome    outcome of the stage
+     * @param startNanos start time taken from {@link System#nanoTime()}
+     */
+    public void record(String stage, String routingKey, String outcome, long startNanos) {
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        histogram(stage, currentEndpoint(), routingKey, outcome).recordMicros(micros);
+    }
+
+    /**
+     * Returns histogram of a series, creating it if needed.
+     *
+     * @param stage      stage of request handling
+     * @param endpoint   URI pattern of the endpoint, or null
+     * @param routingKey routing key of the message, or null
+     * @param outcome    outcome of the stage
+     * @return histogram of the series
+     */
+    public LatencyHistogram histogram(String stage, String endpoint, String routingKey, String outcome) {
+        SeriesKey key = new SeriesKey(stage, endpoint == null ? NO_ENDPOINT : endpoint,
+                routingKey == null ? "" : routingKey, outcome);
+        LatencyHistogram histogram = histograms.get(key);
+        return histogram != null ? histogram : histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Writes all histograms in the Prometheus text exposition format.
+     *
+     * @param out builder the histograms are appended to
+     */
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP ").append(METRIC_NAME).append(" Latency of request handling stages\n");
+        out.append("# TYPE ").append(METRIC_NAME).append(" histogram\n");
+
+        for (Map.Entry<SeriesKey, LatencyHistogram> entry : histograms.entrySet()) {
+            String labels = entry.getKey().toLabels();
+            LatencyHistogram histogram = entry.getValue();
+            long count = histogram.getCount();
+
+            for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+                out.append(METRIC_NAME).append("_bucket{").append(labels).append(",le=\"").append(BUCKET_BOUNDS_LABELS[i])
+                        .append("\"} ").append(histogram.getCountBelow(BUCKET_BOUNDS_MICROS[i])).append('\n');
+            }
+            out.append(METRIC_NAME).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+            out.append(METRIC_NAME).append("_sum{").append(labels).append("} ").append(histogram.getSumMicros() / 1e6).append('\n');
+            out.append(METRIC_NAME).append("_count{").append(labels).append("} ").append(count).append('\n');
+        }
+    }
+
+    private static String currentEndpoint() {
+        RequestContext context = RequestContext.current();
+        return context != null ? context.getEndpoint() : null;
+    }
+
+    private static final class SeriesKey {
+        private final String stage;
+        private final String endpoint;
+        private final String routingKey;
+        private final String outcome;
+        private final int hash;
+
+        SeriesKey(String stage, String endpoint, String routingKey, String outcome) {
+            this.stage = stage;
+            this.endpoint = endpoint;
+            this.routingKey = routingKey;
+            this.outcome = outcome;
+            this.hash = ((stage.hashCode() * 31 + endpoint.hashCode()) * 31 + routingKey.hashCode()) * 31 + outcome.hashCode();
+        }
+
+        String toLabels() {
+            return "stage=\"" + escape(stage) + "\",endpoint=\"" + escape(endpoint)
+                    + "\",routing_key=\"" + escape(routingKey) + "\",outcome=\"" + escape(outcome) + "\"";
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof SeriesKey))
+                return false;
+            SeriesKey other = (SeriesKey) o;
+            return stage.equals(other.stage) && endpoint.equals(other.endpoint)
+                    && routingKey.equals(other.routingKey) && outcome.equals(other.outcome);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package eu.h2020.symbiote.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates payload sizes and allocations of handled requests.
+ * <p>
+ * Inbound body bytes, bytes sent to core services, reply bytes and bytes allocated on the handling thread
+ * are summed per endpoint. Per platform, where the number of keys is not bounded, the platforms with the largest
+ * allocations and payloads are tracked as heavy hitters within fixed time windows; the current and the previous
+ * window are reported.
+ */
+@Component
+public class PayloadMetrics {
+
+    private final Map<String, EndpointTotals> endpoints = new ConcurrentHashMap<>();
+    private final AtomicReference<Window> currentWindow = new AtomicReference<>();
+    private volatile Window previousWindow;
+    private final int topK;
+    private final long windowMillis;
+
+    /**
+     * @param topK         number of platforms tracked as heavy hitters
+     * @param windowMillis length of the heavy hitters window in milliseconds
+     */
+    @Autowired
+    public PayloadMetrics(@Value("${cci.metrics.payload.topK:20}") int topK,
+                          @Value("${cci.metrics.payload.windowMillis:600000}") long windowMillis) {
+        this.topK = topK;
+        this.windowMillis = windowMillis;
+        this.currentWindow.set(new Window(System.currentTimeMillis() + windowMillis, topK));
+    }
+
+    /**
+     * Records sizes of a handled request.
+     *
+     * @param endpoint       URI pattern of the endpoint, or null
+     * @param platformId     ID of the platform the request refers to, or null
+     * @param inboundBytes   size of the request body
+     * @param outboundBytes  bytes sent to core services
+     * @param replyBytes     bytes received from core services
+     * @param allocatedBytes bytes allocated by the thread handling the request, negative if unknown
+     */
+    public void record(String endpoint, String platformId, long inboundBytes, long outboundBytes, long replyBytes, long allocatedBytes) {
+        EndpointTotals totals = endpoints.computeIfAbsent(endpoint == null ? "none" : endpoint, e -> new EndpointTotals());
+        totals.requests.increment();
+        totals.inboundBytes.add(Math.max(0, inboundBytes));
+        totals.outboundBytes.add(outboundBytes);
+        totals.replyBytes.add(replyBytes);
+        totals.allocatedBytes.add(Math.max(0, allocatedBytes));
+
+        if (platformId != null) {
+            Window window = window();
+            window.allocatedBytes.add(platformId, allocatedBytes);
+            window.payloadBytes.add(platformId, Math.max(0, inboundBytes) + outboundBytes + replyBytes);
+        }
+    }
+
+    private Window window() {
+        Window window = currentWindow.get();
+        long now = System.currentTimeMillis();
+        if (now < window.end)
+            return window;
+
+        Window next = new Window(now + windowMillis, topK);
+        if (currentWindow.compareAndSet(window, next)) {
+            previousWindow = window;
+            return next;
+        }
+        return currentWindow.get();
+    }
+
+    /**
+     * @return platforms with the largest allocations in the current window, largest first
+     */
+    public List<Map.Entry<String, Long>> getTopAllocatingPlatforms() {
+        return window().allocatedBytes.getTop();
+    }
+
+    /**
+     * Writes payload metrics in the Prometheus text exposition format.
+     *
+     * @param out builder the metrics are appended to
+     */
+    public void writePrometheus(StringBuilder out) {
+        out.append("# HELP cci_endpoint_requests_total Requests handled per endpoint\n");
+        out.append("# TYPE cci_endpoint_requests_total counter\n");
+        for (Map.Entry<String, EndpointTotals> entry : endpoints.entrySet())
+            out.append("cci_endpoint_requests_total{endpoint=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue().requests.sum()).append('\n');
+
+        out.append("# HELP cci_endpoint_bytes_total Payload and allocated bytes per endpoint\n");
+        out.append("# TYPE cci_endpoint_bytes_total counter\n");
+        for (Map.Entry<String, EndpointTotals> entry : endpoints.entrySet()) {
+            EndpointTotals totals = entry.getValue();
+            writeEndpointBytes(out, entry.getKey(), "inbound", totals.inboundBytes.sum());
+            writeEndpointBytes(out, entry.getKey(), "outbound", totals.outboundBytes.sum());
+            writeEndpointBytes(out, entry.getKey(), "reply", totals.replyBytes.sum());
+            writeEndpointBytes(out, entry.getKey(), "allocated", totals.allocatedBytes.sum());
+        }
+
+        out.append("# HELP cci_platform_bytes Estimated bytes of the heaviest platforms within the window\n");
+        out.append("# TYPE cci_platform_bytes gauge\n");
+        writeWindow(out, window(), "current");
+        Window previous = previousWindow;
+        if (previous != null)
+            writeWindow(out, previous, "previous");
+    }
+
+    private static void writeEndpointBytes(StringBuilder out, String endpoint, String kind, long bytes) {
+        out.append("cci_endpoint_bytes_total{endpoint=\"").append(endpoint).append("\",kind=\"").append(kind)
+                .append("\"} ").append(bytes).append('\n');
+    }
+
+    private static void writeWindow(StringBuilder out, Window window, String name) {
+        writeTop(out, window.allocatedBytes, "allocated", name);
+        writeTop(out, window.payloadBytes, "payload", name);
+    }
+
+    private static void writeTop(StringBuilder out, HeavyHitters heavyHitters, String kind, String window) {
+        for (Map.Entry<String, Long> entry : heavyHitters.getTop()) {
+            out.append("cci_platform_bytes{platform=\"").append(entry.getKey().replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\",kind=\"").append(kind).append("\",window=\"").append(window).append("\"} ")
+                    .append(entry.getValue()).append('\n');
+        }
+    }
+
+    private static class EndpointTotals {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder inboundBytes = new LongAdder();
+        private final LongAdder outboundBytes = new LongAdder();
+        private final LongAdder replyBytes = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+    }
+
+    private static class Window {
+        private final long end;
+        private final HeavyHitters allocatedBytes;
+        private final HeavyHitters payloadBytes;
+
+        Window(long end, int topK) {
+            this.end = end;
+            this.allocatedBytes = new HeavyHitters(topK, 4, 4096);
+            this.payloadBytes = new HeavyHitters(topK, 4, 4096);
+        }
+    }
+}
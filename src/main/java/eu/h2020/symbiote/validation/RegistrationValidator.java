@@ -0,0 +1,191 @@
+package eu.h2020.symbiote.validation;
+
+import eu.h2020.symbiote.cloud.model.ssp.SspRegInfo;
+import eu.h2020.symbiote.model.cim.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Checks registration requests before they are sent to core services, so that requests which Registry would reject
+ * anyway do not take its capacity.
+ * <p>
+ * Every resource of a request must be present; resources which are modified or removed must also have their symbIoTe
+ * ID. Platform resources which are created or modified must have a valid HTTP(S) interworking service URL, which is
+ * not required from SSP resources. A smart device request must have a body. The rules
+ * are built once, as plain getter calls, and every resource is checked against all of them, so that the response
+ * lists all problems of the request, up to <i>cci.validation.maxErrors</i>.
+ * <p>
+ * The validation is enabled by setting <i>cci.validation.enabled</i> to true.
+ */
+@Component
+public class RegistrationValidator {
+
+    private final boolean enabled;
+    private final int maxErrors;
+
+    private final List<Rule> creationRules = new ArrayList<>();
+    private final List<Rule> modificationRules = new ArrayList<>();
+    private final List<Rule> removalRules = new ArrayList<>();
+    // SSP resources are created without any rule besides their presence
+    private final List<Rule> sspCreationRules = Collections.emptyList();
+    private final List<Rule> sspModificationRules = new ArrayList<>();
+    private final List<Rule> sspRemovalRules = new ArrayList<>();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @Autowired
+    public RegistrationValidator(@Value("${cci.validation.enabled:false}") boolean enabled,
+                                 @Value("${cci.validation.maxErrors:100}") int maxErrors) {
+        this.enabled = enabled;
+        this.maxErrors = Math.max(1, maxErrors);
+
+        Rule id = new Rule("id", resource -> !isBlank(resource.getId()),
+                "symbIoTe ID of the resource is missing");
+        Rule interworkingServiceUrl = new Rule("interworkingServiceURL",
+                resource -> isHttpUrl(resource.getInterworkingServiceURL()),
+                "interworking service URL is missing or is not a valid HTTP(S) URL");
+
+        creationRules.add(interworkingServiceUrl);
+        modificationRules.add(id);
+        modificationRules.add(interworkingServiceUrl);
+        removalRules.add(id);
+        sspModificationRules.add(id);
+        sspRemovalRules.add(id);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return number of requests rejected by the validation
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @param resources platform resources to be created, keyed by their internal IDs
+     * @return problems found, empty if the request is valid or the validation is disabled
+     */
+    public List<ValidationError> validateCreation(Map<String, ? extends Resource> resources) {
+        return validate(resources, creationRules);
+    }
+
+    /**
+     * @param resources platform resources to be modified, keyed by their internal IDs
+     * @return problems found, empty if the request is valid or the validation is disabled
+     */
+    public List<ValidationError> validateModification(Map<String, ? extends Resource> resources) {
+        return validate(resources, modificationRules);
+    }
+
+    /**
+     * @param resources platform resources to be removed, keyed by their internal IDs
+     * @return problems found, empty if the request is valid or the validation is disabled
+     */
+    public List<ValidationError> validateRemoval(Map<String, ? extends Resource> resources) {
+        return validate(resources, removalRules);
+    }
+
+    /**
+     * @param resources SSP resources to be created, keyed by their internal IDs
+     * @return problems found, empty if the request is valid or the validation is disabled
+     */
+    public List<ValidationError> validateSspCreation(Map<String, ? extends Resource> resources) {
+        return validate(resources, sspCreationRules);
+    }
+
+    /**
+     * @param resources SSP resources to be modified, keyed by their internal IDs
+     * @return problems found, empty if the request is valid or the validation is disabled
+     */
+    public List<ValidationError> validateSspModification(Map<String, ? extends Resource> resources) {
+        return validate(resources, sspModificationRules);
+    }
+
+    /**
+     * @param resources SSP resources to be removed, keyed by their internal IDs
+     * @return problems found, empty if the request is valid or the validation is disabled
+     */
+    public List<ValidationError> validateSspRemoval(Map<String, ? extends Resource> resources) {
+        return validate(resources, sspRemovalRules);
+    }
+
+    /**
+     * @param sdev smart device to be registered, modified or removed
+     * @return problems found, empty if the request is valid or the validation is disabled
+     */
+    public List<ValidationError> validateSdev(SspRegInfo sdev) {
+        if (!enabled || sdev != null)
+            return Collections.emptyList();
+        rejectedCount.incrementAndGet();
+        return Collections.singletonList(new ValidationError(null, "body", "description of the smart device is missing"));
+    }
+
+    private List<ValidationError> validate(Map<String, ? extends Resource> resources, List<Rule> rules) {
+        if (!enabled)
+            return Collections.emptyList();
+        if (resources == null || resources.isEmpty()) {
+            rejectedCount.incrementAndGet();
+            return Collections.singletonList(new ValidationError(null, "body", "request contains no resources"));
+        }
+
+        List<ValidationError> errors = new ArrayList<>();
+        for (Map.Entry<String, ? extends Resource> entry : resources.entrySet()) {
+            Resource resource = entry.getValue();
+            if (resource == null) {
+                errors.add(new ValidationError(entry.getKey(), "resource", "description of the resource is missing"));
+            } else {
+                for (int i = 0; i < rules.size() && errors.size() < maxErrors; i++) {
+                    Rule rule = rules.get(i);
+                    if (!rule.check.test(resource))
+                        errors.add(new ValidationError(entry.getKey(), rule.field, rule.message));
+                }
+            }
+            if (errors.size() >= maxErrors)
+                break;
+        }
+        if (!errors.isEmpty())
+            rejectedCount.incrementAndGet();
+        return errors;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static boolean isHttpUrl(String value) {
+        if (isBlank(value))
+            return false;
+        try {
+            URI uri = new URI(value.trim());
+            return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+                    && uri.getHost() != null;
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private static final class Rule {
+        private final String field;
+        private final Predicate<Resource> check;
+        private final String message;
+
+        Rule(String field, Predicate<Resource> check, String message) {
+            this.field = field;
+            this.check = check;
+            this.message = message;
+        }
+    }
+}
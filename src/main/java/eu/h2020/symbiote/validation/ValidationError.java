@@ -0,0 +1,47 @@
+package eu.h2020.symbiote.validation;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Problem found in a registration request, serialized to JSON as <i>{resource, field, message}</i>.
+ */
+@JsonPropertyOrder({"resource", "field", "message"})
+public class ValidationError {
+
+    private final String resource;
+    private final String field;
+    private final String message;
+
+    /**
+     * @param resource key of the resource in the request, or null if the problem concerns the whole request
+     * @param field    name of the invalid field
+     * @param message  description of the problem
+     */
+    @JsonCreator
+    public ValidationError(@JsonProperty("resource") String resource,
+                           @JsonProperty("field") String field,
+                           @JsonProperty("message") String message) {
+        this.resource = resource;
+        this.field = field;
+        this.message = message;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return (resource != null ? resource + "." : "") + field + ": " + message;
+    }
+}
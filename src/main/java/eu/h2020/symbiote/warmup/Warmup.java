@@ -0,0 +1,265 @@
+package eu.h2020.symbiote.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.local.LocalTransport;
+import eu.h2020.symbiote.communication.local.StubRegistry;
+import eu.h2020.symbiote.controllers.CloudCoreInterfaceController;
+import eu.h2020.symbiote.core.cci.RDFFormat;
+import eu.h2020.symbiote.core.cci.RDFInfo;
+import eu.h2020.symbiote.core.cci.RDFResourceRegistryRequest;
+import eu.h2020.symbiote.core.cci.ResourceRegistryRequest;
+import eu.h2020.symbiote.core.cci.SspResourceRegistryRequest;
+import eu.h2020.symbiote.core.internal.*;
+import eu.h2020.symbiote.json.ParallelMapSerializer;
+import eu.h2020.symbiote.json.ResourceMapDeserializer;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import eu.h2020.symbiote.security.commons.exceptions.custom.InvalidArgumentsException;
+import eu.h2020.symbiote.security.communication.payloads.SecurityRequest;
+import eu.h2020.symbiote.validation.RegistrationValidator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional warmup of request handling code paths, run in the background while the application starts.
+ * <p>
+ * For <i>cci.warmup.durationMillis</i>, synthetic registrations of basic, RDF and SSP resources are passed through
+ * a separate controller instance whose core services are replaced by {@link StubRegistry}, but which serializes,
+ * deserializes and validates resources with the same beans as the application controller, and resource messages
+ * are marshalled and unmarshalled by a RabbitManager whose broker is stubbed. This loads and JIT-compiles
+ * the request preparation, Jackson and CIM model code before real traffic arrives. Nothing is sent to core services
+ * and no metrics are recorded. Until the warmup completes, the health of the application is reported as DOWN.
+ * <p>
+ * The warmup is enabled by setting <i>cci.warmup.enabled</i> to true.
+ */
+@Component
+public class Warmup {
+    private static Log log = LogFactory.getLog(Warmup.class);
+
+    private static final String[] PROPERTIES = {"Temperature", "Humidity", "AirQuality", "Pressure", "NoiseLevel"};
+
+    private final boolean enabled;
+    private final long durationMillis;
+    private final int resourcesPerRequest;
+
+    private ParallelMapSerializer parallelMapSerializer;
+    private ResourceMapDeserializer resourceMapDeserializer;
+    private RegistrationValidator registrationValidator;
+
+    private final AtomicLong iterations = new AtomicLong();
+    private volatile boolean complete;
+    private volatile boolean stopped;
+
+    @Autowired
+    public Warmup(@Value("${cci.warmup.enabled:false}") boolean enabled,
+                  @Value("${cci.warmup.durationMillis:10000}") long durationMillis,
+                  @Value("${cci.warmup.resourcesPerRequest:20}") int resourcesPerRequest) {
+        this.enabled = enabled;
+        this.durationMillis = durationMillis;
+        this.resourcesPerRequest = resourcesPerRequest;
+        this.complete = !enabled;
+    }
+
+    /**
+     * @param parallelMapSerializer ParallelMapSerializer bean used by the warmup controller
+     */
+    @Autowired(required = false)
+    public void setParallelMapSerializer(ParallelMapSerializer parallelMapSerializer) {
+        this.parallelMapSerializer = parallelMapSerializer;
+    }
+
+    /**
+     * @param resourceMapDeserializer ResourceMapDeserializer bean used by the warmup controller
+     */
+    @Autowired(required = false)
+    public void setResourceMapDeserializer(ResourceMapDeserializer resourceMapDeserializer) {
+        this.resourceMapDeserializer = resourceMapDeserializer;
+    }
+
+    /**
+     * @param registrationValidator RegistrationValidator bean used by the warmup controller
+     */
+    @Autowired(required = false)
+    public void setRegistrationValidator(RegistrationValidator registrationValidator) {
+        this.registrationValidator = registrationValidator;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+        Thread thread = new Thread(this::run, "warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Runs the warmup on the calling thread.
+     */
+    public void run() {
+        long startMillis = System.currentTimeMillis();
+        log.info("Warming up request handling for " + durationMillis + " ms");
+        try {
+            Fixtures fixtures = new Fixtures();
+            long deadline = startMillis + durationMillis;
+            do {
+                fixtures.iterate();
+                iterations.incrementAndGet();
+            } while (System.currentTimeMillis() < deadline && !stopped);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Warmup failed, continuing without it", e);
+        } finally {
+            complete = true;
+        }
+        log.info("Warmup completed after " + iterations.get() + " iterations in "
+                + (System.currentTimeMillis() - startMillis) + " ms");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if the warmup is disabled or has completed
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return number of completed warmup iterations
+     */
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    /**
+     * Synthetic requests and the stubbed components they are passed through.
+     */
+    private class Fixtures {
+        private final ObjectMapper mapper = new ObjectMapper();
+        private final CloudCoreInterfaceController controller;
+        private final RabbitManager rabbitManager;
+        private final HttpHeaders headers = securityHeaders();
+        private final String resourcesJson = resourcesJson(resourcesPerRequest);
+        private final String rdf = rdf(resourcesPerRequest);
+        private final CoreResourceRegistryRequest coreRequest;
+        private final CoreSspResourceRegistryRequest coreSspRequest;
+
+        Fixtures() throws IOException {
+            LocalTransport transport = new LocalTransport();
+            new StubRegistry(transport, 0).register();
+            controller = new CloudCoreInterfaceController(transport);
+            controller.setParallelMapSerializer(parallelMapSerializer);
+            controller.setResourceMapDeserializer(resourceMapDeserializer);
+            controller.setRegistrationValidator(registrationValidator);
+
+            SecurityRequest securityRequest;
+            try {
+                securityRequest = new SecurityRequest(headers.toSingleValueMap());
+            } catch (InvalidArgumentsException e) {
+                throw new IllegalStateException(e);
+            }
+            coreRequest = new CoreResourceRegistryRequest();
+            coreRequest.setSecurityRequest(securityRequest);
+            coreRequest.setDescriptionType(DescriptionType.BASIC);
+            coreRequest.setPlatformId("warmupPlatform");
+            coreRequest.setBody(resourcesJson);
+
+            SspResourceRegistryRequest sspRequest = mapper.readValue("{\"body\":" + resourcesJson + "}", SspResourceRegistryRequest.class);
+            coreSspRequest = new CoreSspResourceRegistryRequest(securityRequest, sspRequest.getBody(), "warmupSsp", "warmupSdev",
+                    sspRequest.getFilteringPolicies());
+
+            CoreResourceRegistryResponse response = new CoreResourceRegistryResponse();
+            response.setStatus(200);
+            response.setMessage("OK");
+            response.setBody(resourcesJson);
+            byte[] resourceResponse = mapper.writeValueAsBytes(response);
+            byte[] sspResponse = "{\"status\":200,\"message\":\"OK\",\"body\":{}}".getBytes(StandardCharsets.UTF_8);
+
+            rabbitManager = new RabbitManager() {
+                @Override
+                public byte[] sendRpcBytes(String exchangeName, String routingKey, byte[] body) {
+                    return routingKey.startsWith("ssp") ? sspResponse : resourceResponse;
+                }
+            };
+        }
+
+        void iterate() throws IOException {
+            ResourceRegistryRequest basicRequest = mapper.readValue("{\"body\":" + resourcesJson + "}", ResourceRegistryRequest.class);
+            controller.createResources("warmupPlatform", basicRequest, headers);
+            controller.modifyResource("warmupPlatform", basicRequest, headers);
+
+            RDFInfo rdfInfo = new RDFInfo();
+            rdfInfo.setRdf(rdf);
+            rdfInfo.setRdfFormat(RDFFormat.Turtle);
+            RDFResourceRegistryRequest rdfRequest = new RDFResourceRegistryRequest();
+            rdfRequest.setBody(rdfInfo);
+            controller.createRdfResources("warmupPlatform", rdfRequest, headers);
+
+            SspResourceRegistryRequest sspRequest = mapper.readValue("{\"body\":" + resourcesJson + "}", SspResourceRegistryRequest.class);
+            controller.createSspResource("warmupSsp", "warmupSdev", sspRequest, headers);
+
+            rabbitManager.sendRpcResourceMessage("warmup", "resource", coreRequest);
+            rabbitManager.sendRpcSspResourceMessage("warmup", "ssp", coreSspRequest);
+        }
+    }
+
+    private static HttpHeaders securityHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"token\"," +
+                "\"authenticationChallenge\":\"authenticationChallenge\"," +
+                "\"clientCertificate\":\"clientCertificate\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"clientCertificateSigningAAMCertificate\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"foreignTokenIssuingAAMCertificate\"}");
+        return headers;
+    }
+
+    private static String resourcesJson(int count) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("\"internal-").append(i).append("\":{")
+                    .append("\"@c\":\".StationarySensor\",")
+                    .append("\"id\":\"warmup-").append(i).append("\",")
+                    .append("\"name\":\"Warmup sensor ").append(i).append("\",")
+                    .append("\"description\":[\"Sensor ").append(i).append("\"],")
+                    .append("\"interworkingServiceURL\":\"https://warmup.example.com/rap\",")
+                    .append("\"locatedAt\":{\"@c\":\".WGS84Location\",\"longitude\":2.35,\"latitude\":48.85,")
+                    .append("\"altitude\":100,\"name\":\"Location ").append(i).append("\",\"description\":[\"Street\"]},")
+                    .append("\"featureOfInterest\":{\"name\":\"Room ").append(i).append("\",\"description\":[\"Room\"],")
+                    .append("\"hasProperty\":[\"").append(PROPERTIES[i % PROPERTIES.length]).append("\"]},")
+                    .append("\"observesProperty\":[\"").append(PROPERTIES[i % PROPERTIES.length]).append("\"]}");
+        }
+        return json.append('}').toString();
+    }
+
+    private static String rdf(int count) {
+        StringBuilder rdf = new StringBuilder("@prefix core: <http://www.symbiote-h2020.eu/ontology/core#> .\n\n");
+        for (int i = 0; i < count; i++) {
+            rdf.append(":sensor").append(i).append(" a core:StationarySensor ;\n")
+                    .append("    core:id \"internal-").append(i).append("\" ;\n")
+                    .append("    core:name \"Warmup sensor ").append(i).append("\" .\n\n");
+        }
+        return rdf.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.communication.CoreOperation;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.RoutingTransport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Sheds requests while RabbitMQ is blocking publishing on the connection of {@link RabbitManager}.
+ * <p>
+ * Publishing on a blocked connection hangs until the broker recovers, so instead of occupying a server thread
+ * the request is rejected at once with 503 and Retry-After. Removal and clear data requests are let through;
+ * RabbitManager allows them a short, bounded wait for the connection to be unblocked.
+ * <p>
+ * Requests are also rejected while RabbitManager is still initialising its connection in the background.
+ * <p>
+ * Monitoring updates and access notifications are never rejected: the controller aggregates them, or writes them
+ * to the message spool when RabbitManager cannot send them, and answers 202.
+ * <p>
+ * Only requests whose operation {@link RoutingTransport} sends via RabbitMQ are rejected; requests sent by other
+ * transports, and requests not sent to core services at all, are let through.
+ */
+@Component
+public class BrokerFlowControlInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Pattern RESOURCES_PATH = Pattern.compile(".*/platforms/[^/]+/(rdfResources|resources)/?");
+    private static final Pattern CLEAR_DATA_PATH = Pattern.compile(".*/platforms/[^/]+/clearData/?");
+    private static final Pattern MONITORING_PATH = Pattern.compile(".*/crm/Monitoring/[^/]+/devices/status/?");
+    private static final Pattern ACCESS_NOTIFICATIONS_PATH = Pattern.compile(".*/accessNotifications/?");
+    private static final Pattern SDEVS_PATH = Pattern.compile(".*/ssps/[^/]+/sdevs/?");
+    private static final Pattern SSP_RESOURCES_PATH = Pattern.compile(".*/ssps/[^/]+/sdevs/[^/]+/resources/?");
+
+    /**
+     * Operations which the controller aggregates or spools when they cannot be sent
+     */
+    private static final Set<CoreOperation> SPOOLED_OPERATIONS =
+            EnumSet.of(CoreOperation.MONITORING, CoreOperation.ACCESS_NOTIFICATION);
+
+    private final RabbitManager rabbitManager;
+    private final RoutingTransport routingTransport;
+    private final long retryAfterSeconds;
+    private final AtomicLong shedCount = new AtomicLong();
+
+    /**
+     * Creates interceptor of requests which are all sent via RabbitMQ.
+     *
+     * @param rabbitManager     RabbitManager bean
+     * @param retryAfterSeconds Retry-After of rejected requests
+     */
+    public BrokerFlowControlInterceptor(RabbitManager rabbitManager, long retryAfterSeconds) {
+        this(rabbitManager, null, retryAfterSeconds);
+    }
+
+    @Autowired
+    public BrokerFlowControlInterceptor(RabbitManager rabbitManager,
+                                        RoutingTransport routingTransport,
+                                        @Value("${rabbit.blocked.retryAfterSeconds:5}") long retryAfterSeconds) {
+        this.rabbitManager = rabbitManager;
+        this.routingTransport = routingTransport;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        CoreOperation operation = operationOf(request.getMethod(), request.getRequestURI());
+        if (SPOOLED_OPERATIONS.contains(operation) || !isSentViaRabbitManager(operation))
+            return true;
+        if (rabbitManager.isInitializing()) {
+            shedCount.incrementAndGet();
+            throw new ServiceUnavailableException("Core Services are temporarily unavailable: connection with message broker " +
+                    "is being initialised", retryAfterSeconds);
+        }
+        if (rabbitManager.isBlocked() && !isHighPriority(request)) {
+            shedCount.incrementAndGet();
+            throw new ServiceUnavailableException("Core Services are temporarily unavailable: message broker is blocked ("
+                    + rabbitManager.getBlockedReason() + ")", retryAfterSeconds);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of requests rejected because the broker was blocking the connection or was not yet connected
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    private boolean isSentViaRabbitManager(CoreOperation operation) {
+        if (routingTransport == null)
+            return true;
+        return operation != null && routingTransport.getTransport(operation) == rabbitManager;
+    }
+
+    /**
+     * Finds the core operation performed by a request.
+     *
+     * @param method HTTP method of the request
+     * @param path   path of the request
+     * @return operation sent to core services, or null if the request is not passed to core services
+     */
+    static CoreOperation operationOf(String method, String path) {
+        if (path == null)
+            return null;
+        if (RESOURCES_PATH.matcher(path).matches())
+            return byMethod(method, CoreOperation.RESOURCE_CREATION, CoreOperation.RESOURCE_MODIFICATION, CoreOperation.RESOURCE_REMOVAL);
+        if (CLEAR_DATA_PATH.matcher(path).matches())
+            return CoreOperation.CLEAR_DATA;
+        if (MONITORING_PATH.matcher(path).matches())
+            return CoreOperation.MONITORING;
+        if (ACCESS_NOTIFICATIONS_PATH.matcher(path).matches())
+            return CoreOperation.ACCESS_NOTIFICATION;
+        if (SDEVS_PATH.matcher(path).matches())
+            return byMethod(method, CoreOperation.SDEV_CREATION, CoreOperation.SDEV_MODIFICATION, CoreOperation.SDEV_REMOVAL);
+        if (SSP_RESOURCES_PATH.matcher(path).matches())
+            return byMethod(method, CoreOperation.SSP_RESOURCE_CREATION, CoreOperation.SSP_RESOURCE_MODIFICATION,
+                    CoreOperation.SSP_RESOURCE_REMOVAL);
+        return null;
+    }
+
+    private static CoreOperation byMethod(String method, CoreOperation post, CoreOperation put, CoreOperation delete) {
+        switch (method) {
+            case "POST":
+                return post;
+            case "PUT":
+                return put;
+            case "DELETE":
+                return delete;
+            default:
+                return null;
+        }
+    }
+
+    private boolean isHighPriority(HttpServletRequest request) {
+        return "DELETE".equals(request.getMethod()) || request.getRequestURI().endsWith("/clearData");
+    }
+}
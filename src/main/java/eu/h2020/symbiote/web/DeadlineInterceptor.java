@@ -0,0 +1,102 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sets the deadline of every request in its {@link RequestContext} and sheds requests which have already spent
+ * their time budget waiting.
+ * <p>
+ * The deadline is counted from the arrival of the request: the time a front proxy received it, if the proxy passes it
+ * in the <i>X-Request-Start</i> header (<i>t=</i> followed by epoch milliseconds or microseconds), otherwise the time
+ * the request handling started. The budget is the timeout the client passes in the <i>X-CCI-Timeout-Millis</i> header,
+ * capped by <i>cci.deadline.defaultMillis</i>, which is also used when the header is missing.
+ * {@link eu.h2020.symbiote.communication.RabbitManager} uses the deadline to reject messages which cannot be answered
+ * in time and to bound the wait for replies.
+ */
+@Component
+public class DeadlineInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * Header in which clients may pass how long they are going to wait for the response.
+     */
+    public static final String TIMEOUT_HEADER = "X-CCI-Timeout-Millis";
+
+    /**
+     * Header in which a front proxy may pass the time it received the request.
+     */
+    public static final String REQUEST_START_HEADER = "X-Request-Start";
+
+    private final boolean enabled;
+    private final long defaultMillis;
+    private final long retryAfterSeconds;
+    private final AtomicLong shedCount = new AtomicLong();
+
+    @Autowired
+    public DeadlineInterceptor(@Value("${cci.deadline.enabled:true}") boolean enabled,
+                               @Value("${cci.deadline.defaultMillis:20000}") long defaultMillis,
+                               @Value("${cci.deadline.retryAfterSeconds:1}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        this.defaultMillis = defaultMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestContext context = RequestContext.current();
+        if (!enabled || context == null)
+            return true;
+
+        long arrivalNanos = context.getStartNanos() - TimeUnit.MILLISECONDS.toNanos(getQueueMillis(request));
+        context.setDeadlineNanos(arrivalNanos + TimeUnit.MILLISECONDS.toNanos(getBudgetMillis(request)));
+
+        if (context.getRemainingMillis() <= 0) {
+            shedCount.incrementAndGet();
+            throw new ServiceUnavailableException("Request was not handled before its deadline", retryAfterSeconds);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of requests rejected because their deadline passed before handling started
+     */
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    private long getBudgetMillis(HttpServletRequest request) {
+        String value = request.getHeader(TIMEOUT_HEADER);
+        if (value == null)
+            return defaultMillis;
+        try {
+            return Math.max(0, Math.min(defaultMillis, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            return defaultMillis;
+        }
+    }
+
+    private long getQueueMillis(HttpServletRequest request) {
+        String value = request.getHeader(REQUEST_START_HEADER);
+        if (value == null)
+            return 0;
+        value = value.trim();
+        if (value.startsWith("t="))
+            value = value.substring(2);
+        try {
+            long start = Long.parseLong(value);
+            // values beyond year 5000 in milliseconds are taken as microseconds
+            long startMillis = start > 100_000_000_000_000L ? start / 1000 : start;
+            return Math.max(0, Math.min(defaultMillis, System.currentTimeMillis() - startMillis));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
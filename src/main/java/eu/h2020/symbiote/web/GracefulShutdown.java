@@ -0,0 +1,124 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains CloudCoreInterface before its beans are destroyed on shutdown.
+ * <p>
+ * When the application context is closing, new requests are rejected with 503 and Retry-After, so that clients and
+ * load balancers move them to another instance, and the shutdown waits up to <i>cci.shutdown.drainMillis</i>
+ * for requests in progress and RPC messages waiting for replies (including replayed spool messages) to complete.
+ * Only then RabbitManager closes its connection. The numbers of drained and abandoned requests and messages
+ * are logged.
+ */
+@Component
+public class GracefulShutdown extends HandlerInterceptorAdapter implements ApplicationListener<ContextClosedEvent> {
+    private static Log log = LogFactory.getLog(GracefulShutdown.class);
+
+    private final ApplicationContext applicationContext;
+    private final RabbitManager rabbitManager;
+    private final long drainMillis;
+    private final long retryAfterSeconds;
+
+    private final Object idleMonitor = new Object();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private volatile boolean draining;
+
+    @Autowired
+    public GracefulShutdown(ApplicationContext applicationContext,
+                            RabbitManager rabbitManager,
+                            @Value("${cci.shutdown.drainMillis:20000}") long drainMillis,
+                            @Value("${cci.shutdown.retryAfterSeconds:1}") long retryAfterSeconds) {
+        this.applicationContext = applicationContext;
+        this.rabbitManager = rabbitManager;
+        this.drainMillis = drainMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (draining)
+            throw new ServiceUnavailableException("CloudCoreInterface is shutting down", retryAfterSeconds);
+        requestsInFlight.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (requestsInFlight.decrementAndGet() == 0) {
+            synchronized (idleMonitor) {
+                idleMonitor.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        // closing of child contexts is propagated to this one as well
+        if (event.getApplicationContext() == applicationContext && drainMillis > 0)
+            drain();
+    }
+
+    /**
+     * Rejects new requests and waits for requests and RPC messages in progress to complete, at most for the drain time.
+     */
+    public void drain() {
+        draining = true;
+        long deadline = System.currentTimeMillis() + drainMillis;
+        int requestsAtStart = requestsInFlight.get();
+        int rpcAtStart = rabbitManager.getRpcInFlight();
+        log.info("Draining " + requestsAtStart + " requests and " + rpcAtStart + " RPC messages in progress");
+
+        int requestsLeft = awaitRequestsIdle(deadline);
+        int rpcLeft = rabbitManager.awaitRpcIdle(Math.max(0, deadline - System.currentTimeMillis()));
+
+        String result = "Drained " + Math.max(0, requestsAtStart - requestsLeft) + " requests and "
+                + Math.max(0, rpcAtStart - rpcLeft) + " RPC messages, abandoned " + requestsLeft + " requests and "
+                + rpcLeft + " RPC messages";
+        if (requestsLeft > 0 || rpcLeft > 0)
+            log.warn(result);
+        else
+            log.info(result);
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @return number of requests in progress
+     */
+    public int getRequestsInFlight() {
+        return requestsInFlight.get();
+    }
+
+    private int awaitRequestsIdle(long deadline) {
+        synchronized (idleMonitor) {
+            while (requestsInFlight.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    break;
+                try {
+                    idleMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return requestsInFlight.get();
+    }
+}
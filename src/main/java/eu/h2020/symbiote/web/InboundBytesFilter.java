@@ -0,0 +1,125 @@
+package eu.h2020.symbiote.web;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts bytes of request bodies actually read by the handlers.
+ * <p>
+ * The count is kept in the {@link #INBOUND_BYTES_ATTRIBUTE} request attribute and used by
+ * {@link PayloadMetricsInterceptor}, as the Content-Length header is missing for chunked requests.
+ */
+@Component
+public class InboundBytesFilter extends OncePerRequestFilter {
+
+    static final String INBOUND_BYTES_ATTRIBUTE = InboundBytesFilter.class.getName() + ".inboundBytes";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AtomicLong inboundBytes = new AtomicLong();
+        request.setAttribute(INBOUND_BYTES_ATTRIBUTE, inboundBytes);
+        filterChain.doFilter(new CountingRequestWrapper(request, inboundBytes), response);
+    }
+
+    /**
+     * @param request handled request
+     * @return number of body bytes read so far, or the Content-Length of the request if they are not counted
+     */
+    static long getInboundBytes(HttpServletRequest request) {
+        Object inboundBytes = request.getAttribute(INBOUND_BYTES_ATTRIBUTE);
+        return inboundBytes instanceof AtomicLong ? ((AtomicLong) inboundBytes).get() : request.getContentLengthLong();
+    }
+
+    private static class CountingRequestWrapper extends HttpServletRequestWrapper {
+        private final AtomicLong inboundBytes;
+        private ServletInputStream inputStream;
+        private BufferedReader reader;
+
+        CountingRequestWrapper(HttpServletRequest request, AtomicLong inboundBytes) {
+            super(request);
+            this.inboundBytes = inboundBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null)
+                inputStream = new CountingInputStream(super.getInputStream(), inboundBytes);
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                reader = new BufferedReader(new InputStreamReader(getInputStream(),
+                        encoding != null ? encoding : StandardCharsets.ISO_8859_1.name()));
+            }
+            return reader;
+        }
+    }
+
+    private static class CountingInputStream extends ServletInputStream {
+        private final ServletInputStream delegate;
+        private final AtomicLong inboundBytes;
+
+        CountingInputStream(ServletInputStream delegate, AtomicLong inboundBytes) {
+            this.delegate = delegate;
+            this.inboundBytes = inboundBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0)
+                inboundBytes.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = delegate.read(b, off, len);
+            if (read > 0)
+                inboundBytes.addAndGet(read);
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+    }
+}
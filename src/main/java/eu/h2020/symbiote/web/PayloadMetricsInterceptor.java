@@ -0,0 +1,49 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.metrics.PayloadMetrics;
+import eu.h2020.symbiote.metrics.ThreadAllocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records payload sizes and bytes allocated by the handling thread for every request.
+ * <p>
+ * The inbound size is the number of body bytes counted by {@link InboundBytesFilter}.
+ */
+@Component
+public class PayloadMetricsInterceptor extends HandlerInterceptorAdapter {
+
+    private final PayloadMetrics payloadMetrics;
+
+    @Autowired
+    public PayloadMetricsInterceptor(PayloadMetrics payloadMetrics) {
+        this.payloadMetrics = payloadMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestContext context = RequestContext.current();
+        if (context != null)
+            context.setAllocatedBytesAtStart(ThreadAllocation.currentThreadAllocatedBytes());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestContext context = RequestContext.current();
+        if (context == null)
+            return;
+
+        long allocatedBytes = -1;
+        if (context.getAllocatedBytesAtStart() >= 0)
+            allocatedBytes = ThreadAllocation.currentThreadAllocatedBytes() - context.getAllocatedBytesAtStart();
+
+        payloadMetrics.record(context.getEndpoint(), context.getPlatformId(), InboundBytesFilter.getInboundBytes(request),
+                context.getOutboundBytes(), context.getReplyBytes(), allocatedBytes);
+    }
+}
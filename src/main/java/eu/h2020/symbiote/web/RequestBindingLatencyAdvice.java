@@ -0,0 +1,49 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Records latency of binding request bodies (JSON parsing) of all endpoints.
+ */
+@ControllerAdvice
+public class RequestBindingLatencyAdvice extends RequestBodyAdviceAdapter {
+
+    private final LatencyMetrics latencyMetrics;
+
+    @Autowired
+    public RequestBindingLatencyAdvice(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContext context = RequestContext.current();
+        if (context != null)
+            context.setBindingStartNanos(System.nanoTime());
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContext context = RequestContext.current();
+        if (context != null && context.getBindingStartNanos() != 0)
+            latencyMetrics.record(LatencyMetrics.STAGE_BINDING, null, LatencyMetrics.OUTCOME_OK, context.getBindingStartNanos());
+        return body;
+    }
+}
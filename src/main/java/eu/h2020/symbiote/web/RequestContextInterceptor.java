@@ -0,0 +1,60 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Opens {@link RequestContext} for every handled request and fills it with the endpoint URI pattern, the platform ID
+ * taken from the path and the optional priority hint header.
+ */
+@Component
+public class RequestContextInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * Header in which clients may pass the requested AMQP priority of messages sent on their behalf.
+     */
+    public static final String PRIORITY_HEADER = "X-CCI-Priority";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestContext context = RequestContext.open();
+        Object endpoint = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        context.setEndpoint(endpoint != null ? endpoint.toString() : null);
+        context.setPlatformId(getPlatformId(request));
+        context.setPriorityHint(getPriorityHint(request));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestContext.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private String getPlatformId(HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (!(variables instanceof Map))
+            return null;
+
+        Map<String, String> pathVariables = (Map<String, String>) variables;
+        String platformId = pathVariables.get("platformId");
+        return platformId != null ? platformId : pathVariables.get("sspId");
+    }
+
+    private Integer getPriorityHint(HttpServletRequest request) {
+        String value = request.getHeader(PRIORITY_HEADER);
+        if (value == null)
+            return null;
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records total latency of handling every request, tagged by the endpoint and the outcome
+ * (gateway timeout is reported as timeout, other error statuses as error).
+ */
+@Component
+public class RequestLatencyInterceptor extends HandlerInterceptorAdapter {
+
+    private final LatencyMetrics latencyMetrics;
+
+    @Autowired
+    public RequestLatencyInterceptor(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestContext context = RequestContext.current();
+        if (context == null)
+            return;
+
+        latencyMetrics.record(LatencyMetrics.STAGE_REQUEST, null, getOutcome(response.getStatus(), ex), context.getStartNanos());
+    }
+
+    static String getOutcome(int status, Exception ex) {
+        if (status == HttpStatus.GATEWAY_TIMEOUT.value())
+            return LatencyMetrics.OUTCOME_TIMEOUT;
+        if (ex != null || status >= 400)
+            return LatencyMetrics.OUTCOME_ERROR;
+        return LatencyMetrics.OUTCOME_OK;
+    }
+}
@@ -0,0 +1,22 @@
+package eu.h2020.symbiote.web;
+
+/**
+ * Exception thrown when a request is rejected because CloudCoreInterface or core services are not able to handle it
+ * at the moment. It results in 503 Service Unavailable response with Retry-After header.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    /**
+     * @param message           reason of rejecting the request
+     * @param retryAfterSeconds number of seconds after which the client may retry the request
+     */
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,80 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.core.cci.ResourceRegistryResponse;
+import eu.h2020.symbiote.core.cci.SdevRegistryResponse;
+import eu.h2020.symbiote.core.cci.SspResourceReqistryResponse;
+import eu.h2020.symbiote.core.internal.ClearDataResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.regex.Pattern;
+
+/**
+ * Translates {@link ServiceUnavailableException} into 503 Service Unavailable response with Retry-After header.
+ * <p>
+ * The body has the type returned by the rejected endpoint, with the status and the reason of the rejection, so that
+ * clients parse it the way they parse other responses of the endpoint. Endpoints returning empty bodies get an empty body.
+ */
+@ControllerAdvice
+public class ServiceUnavailableExceptionHandler {
+    private static Log log = LogFactory.getLog(ServiceUnavailableExceptionHandler.class);
+
+    private static final Pattern RESOURCES_PATH = Pattern.compile(".*/platforms/[^/]+/(rdfResources|resources)/?");
+    private static final Pattern CLEAR_DATA_PATH = Pattern.compile(".*/platforms/[^/]+/clearData/?");
+    private static final Pattern SDEVS_PATH = Pattern.compile(".*/ssps/[^/]+/sdevs/?");
+    private static final Pattern SSP_RESOURCES_PATH = Pattern.compile(".*/ssps/[^/]+/sdevs/[^/]+/resources/?");
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Object> handleServiceUnavailable(ServiceUnavailableException e, HttpServletRequest request) {
+        log.debug("Request rejected: " + e.getMessage());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return new ResponseEntity<>(createBody(request.getRequestURI(), e.getMessage()), headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Creates body of a 503 response of the endpoint handling given path.
+     *
+     * @param path    path of the rejected request
+     * @param message reason of the rejection
+     * @return response body or null if the endpoint returns an empty body
+     */
+    static Object createBody(String path, String message) {
+        int status = HttpStatus.SERVICE_UNAVAILABLE.value();
+        if (path == null)
+            return null;
+
+        if (RESOURCES_PATH.matcher(path).matches()) {
+            ResourceRegistryResponse response = new ResourceRegistryResponse();
+            response.setStatus(status);
+            response.setMessage(message);
+            response.setBody(null);
+            return response;
+        }
+        if (CLEAR_DATA_PATH.matcher(path).matches()) {
+            return new ClearDataResponse(status, message, null);
+        }
+        if (SDEVS_PATH.matcher(path).matches()) {
+            SdevRegistryResponse response = new SdevRegistryResponse();
+            response.setStatus(status);
+            response.setMessage(message);
+            response.setBody(null);
+            return response;
+        }
+        if (SSP_RESOURCES_PATH.matcher(path).matches()) {
+            SspResourceReqistryResponse response = new SspResourceReqistryResponse();
+            response.setStatus(status);
+            response.setMessage(message);
+            response.setBody(null);
+            return response;
+        }
+        return null;
+    }
+}
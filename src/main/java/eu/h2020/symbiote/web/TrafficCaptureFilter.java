@@ -0,0 +1,177 @@
+package eu.h2020.symbiote.web;
+
+import eu.h2020.symbiote.capture.CaptureWriter;
+import eu.h2020.symbiote.capture.CapturedRequest;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.ManagementServerProperties;
+import org.springframework.boot.actuate.endpoint.mvc.MvcEndpoint;
+import org.springframework.boot.actuate.endpoint.mvc.MvcEndpoints;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Captures every request handled by CloudCoreInterface with {@link CaptureWriter}, when capturing is enabled.
+ * <p>
+ * Secrets are never written: security credentials headers are replaced by placeholder credentials of the same shape,
+ * so that replayed requests are still accepted by the endpoints, and other authentication headers are removed.
+ * <p>
+ * Requests of actuator endpoints (e.g. <i>/health</i>, <i>/prometheus</i>) are not captured. A request whose
+ * handling fails with an exception is captured with status 500.
+ * <p>
+ * At most {@link CaptureWriter#getMaxBodyBytes()} bytes of a body are kept in memory. A request with a larger body
+ * is not captured, since its truncated body could not be replayed, and is counted as dropped.
+ */
+@Component
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+    static final String REDACTED_CREDENTIALS = "{\"token\":\"redacted\"," +
+            "\"authenticationChallenge\":\"redacted\"," +
+            "\"clientCertificate\":\"redacted\"," +
+            "\"clientCertificateSigningAAMCertificate\":\"redacted\"," +
+            "\"foreignTokenIssuingAAMCertificate\":\"redacted\"}";
+
+    private static final Set<String> REMOVED_HEADERS = new HashSet<>(Arrays.asList("authorization", "proxy-authorization", "cookie"));
+
+    private static final String CREDENTIALS_HEADER_PREFIX = SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX.toLowerCase(Locale.ROOT);
+
+    private final CaptureWriter captureWriter;
+
+    private MvcEndpoints mvcEndpoints;
+
+    private String managementContextPath = "";
+
+    @Autowired
+    public TrafficCaptureFilter(CaptureWriter captureWriter) {
+        this.captureWriter = captureWriter;
+    }
+
+    /**
+     * Sets actuator endpoints, whose requests are not captured.
+     *
+     * @param mvcEndpoints MvcEndpoints bean
+     */
+    @Autowired(required = false)
+    public void setMvcEndpoints(MvcEndpoints mvcEndpoints) {
+        this.mvcEndpoints = mvcEndpoints;
+    }
+
+    /**
+     * Sets properties of the management server, whose context path prefixes paths of actuator endpoints.
+     *
+     * @param managementServerProperties ManagementServerProperties bean
+     */
+    @Autowired(required = false)
+    public void setManagementServerProperties(ManagementServerProperties managementServerProperties) {
+        String contextPath = managementServerProperties.getContextPath();
+        this.managementContextPath = contextPath != null ? contextPath : "";
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !captureWriter.isEnabled() || isActuatorRequest(request);
+    }
+
+    private boolean isActuatorRequest(HttpServletRequest request) {
+        if (mvcEndpoints == null)
+            return false;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(managementContextPath))
+            return false;
+        path = path.substring(managementContextPath.length());
+
+        for (MvcEndpoint endpoint : mvcEndpoints.getEndpoints()) {
+            String endpointPath = endpoint.getPath();
+            if (endpointPath != null && !endpointPath.isEmpty()
+                    && (path.equals(endpointPath) || path.startsWith(endpointPath + "/")))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int maxBodyBytes = captureWriter.getMaxBodyBytes();
+        LimitedCachingRequestWrapper cachingRequest = new LimitedCachingRequestWrapper(request, maxBodyBytes);
+        long timestampMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(cachingRequest, response);
+            failed = false;
+        } finally {
+            long durationMicros = (System.nanoTime() - startNanos) / 1000;
+            // an exception leaving the filter chain is turned into 500 by the container
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            if (cachingRequest.isOverflowed() || request.getContentLengthLong() > maxBodyBytes)
+                captureWriter.dropOversized();
+            else
+                captureWriter.offer(capture(cachingRequest, status, timestampMillis, durationMicros));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CapturedRequest capture(ContentCachingRequestWrapper request, int status, long timestampMillis, long durationMicros) {
+        String endpoint = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+
+        String uri = request.getRequestURI();
+        if (request.getQueryString() != null)
+            uri += "?" + request.getQueryString();
+
+        return new CapturedRequest(timestampMillis, request.getMethod(), endpoint != null ? endpoint : "", uri,
+                pathVariables != null ? new LinkedHashMap<>(pathVariables) : Collections.emptyMap(),
+                redactedHeaders(request), request.getContentAsByteArray(), status, durationMicros);
+    }
+
+    /**
+     * Caches the request body up to a limit and remembers whether the body was longer.
+     */
+    private static class LimitedCachingRequestWrapper extends ContentCachingRequestWrapper {
+        private boolean overflowed;
+
+        LimitedCachingRequestWrapper(HttpServletRequest request, int contentCacheLimit) {
+            super(request, contentCacheLimit);
+        }
+
+        @Override
+        protected void handleContentOverflow(int contentCacheLimit) {
+            overflowed = true;
+        }
+
+        boolean isOverflowed() {
+            return overflowed;
+        }
+    }
+
+    static Map<String, String> redactedHeaders(HttpServletRequest request) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            if (REMOVED_HEADERS.contains(lowerCaseName))
+                continue;
+            if (lowerCaseName.startsWith(CREDENTIALS_HEADER_PREFIX) && !isCredentialsMetadata(name))
+                headers.put(name, REDACTED_CREDENTIALS);
+            else
+                headers.put(name, request.getHeader(name));
+        }
+        return headers;
+    }
+
+    private static boolean isCredentialsMetadata(String name) {
+        return name.equalsIgnoreCase(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER)
+                || name.equalsIgnoreCase(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER);
+    }
+}
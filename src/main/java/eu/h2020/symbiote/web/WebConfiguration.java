@@ -0,0 +1,45 @@
+package eu.h2020.symbiote.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Registers interceptors applied to all REST endpoints.
+ */
+@Configuration
+public class WebConfiguration extends WebMvcConfigurerAdapter {
+
+    private final GracefulShutdown gracefulShutdown;
+    private final RequestContextInterceptor requestContextInterceptor;
+    private final RequestLatencyInterceptor requestLatencyInterceptor;
+    private final PayloadMetricsInterceptor payloadMetricsInterceptor;
+    private final DeadlineInterceptor deadlineInterceptor;
+    private final BrokerFlowControlInterceptor brokerFlowControlInterceptor;
+
+    @Autowired
+    public WebConfiguration(GracefulShutdown gracefulShutdown,
+                            RequestContextInterceptor requestContextInterceptor,
+                            RequestLatencyInterceptor requestLatencyInterceptor,
+                            PayloadMetricsInterceptor payloadMetricsInterceptor,
+                            DeadlineInterceptor deadlineInterceptor,
+                            BrokerFlowControlInterceptor brokerFlowControlInterceptor) {
+        this.gracefulShutdown = gracefulShutdown;
+        this.requestContextInterceptor = requestContextInterceptor;
+        this.requestLatencyInterceptor = requestLatencyInterceptor;
+        this.payloadMetricsInterceptor = payloadMetricsInterceptor;
+        this.deadlineInterceptor = deadlineInterceptor;
+        this.brokerFlowControlInterceptor = brokerFlowControlInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(gracefulShutdown);
+        registry.addInterceptor(requestContextInterceptor);
+        registry.addInterceptor(requestLatencyInterceptor);
+        registry.addInterceptor(payloadMetricsInterceptor);
+        registry.addInterceptor(deadlineInterceptor);
+        registry.addInterceptor(brokerFlowControlInterceptor);
+    }
+}
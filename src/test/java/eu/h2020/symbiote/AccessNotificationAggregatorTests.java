@@ -0,0 +1,181 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.aggregation.AccessNotificationAggregator;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.spool.MessageSpool;
+import eu.h2020.symbiote.core.cci.accessNotificationMessages.NotificationMessage;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
+import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AccessNotificationAggregatorTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAggregate_mergesNotificationsOfSameContext() throws IOException {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        AccessNotificationAggregator aggregator = aggregator(rabbitManager, 1000);
+
+        assertTrue(aggregator.aggregate(headers("token1", "1500000000"), null, notification(2, 1)));
+        assertTrue(aggregator.aggregate(headers("token1", "1500000001"), null, notification(3, 0)));
+        assertEquals(6, aggregator.getPendingEntries());
+        verify(rabbitManager, never()).sendAccessNotificationMessage(any());
+
+        aggregator.flushAll();
+
+        ArgumentCaptor<NotificationMessageSecured> captor = ArgumentCaptor.forClass(NotificationMessageSecured.class);
+        verify(rabbitManager, times(1)).sendAccessNotificationMessage(captor.capture());
+        NotificationMessage merged = captor.getValue().getBody();
+        assertEquals(5, merged.getSuccessfulAttempts().size());
+        assertEquals(1, merged.getFailedAttempts().size());
+        assertEquals(0, aggregator.getPendingEntries());
+    }
+
+    @Test
+    public void testAggregate_mergesRequestsWithDifferentChallenges() throws IOException {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        AccessNotificationAggregator aggregator = aggregator(rabbitManager, 1000);
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(aggregator.aggregate(headers("token1", String.valueOf(1500000000 + i)), null, notification(1, 0)));
+        assertEquals(1, aggregator.getPendingKeys());
+
+        aggregator.flushAll();
+
+        ArgumentCaptor<NotificationMessageSecured> captor = ArgumentCaptor.forClass(NotificationMessageSecured.class);
+        verify(rabbitManager, times(1)).sendAccessNotificationMessage(captor.capture());
+        assertEquals(100, captor.getValue().getBody().getSuccessfulAttempts().size());
+    }
+
+    @Test
+    public void testAggregate_separateSecurityContexts() throws IOException {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        AccessNotificationAggregator aggregator = aggregator(rabbitManager, 1000);
+
+        aggregator.aggregate(headers("token1", "1500000000"), null, notification(1, 0));
+        aggregator.aggregate(headers("token2", "1500000000"), null, notification(1, 0));
+        aggregator.flushAll();
+
+        verify(rabbitManager, times(2)).sendAccessNotificationMessage(any());
+    }
+
+    @Test
+    public void testAggregate_fullAccumulatorRejects() throws IOException {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        AccessNotificationAggregator aggregator = aggregator(rabbitManager, 3);
+
+        assertTrue(aggregator.aggregate(headers("token1", "1500000000"), null, notification(2, 0)));
+        assertFalse(aggregator.aggregate(headers("token1", "1500000000"), null, notification(2, 0)));
+        assertEquals(2, aggregator.getPendingEntries());
+    }
+
+    @Test
+    public void testAggregate_journalsUntilDelivered() throws IOException {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        MessageSpool journal = journal();
+        AccessNotificationAggregator aggregator = new AccessNotificationAggregator(rabbitManager, journal, true, 60000, 1000, 1000, 1);
+
+        assertTrue(aggregator.aggregate(headers("token1", "1500000000"), null, notification(1, 0)));
+        assertTrue(aggregator.aggregate(headers("token2", "1500000000"), null, notification(1, 0)));
+        assertEquals(2, journal.getPendingMessages());
+
+        Mockito.when(rabbitManager.sendAccessNotificationMessage(any()))
+                .thenReturn(Mockito.mock(NotificationMessageResponseSecured.class));
+        aggregator.flushAll();
+
+        assertEquals(0, journal.getPendingMessages());
+        assertEquals(0, aggregator.getPendingEntries());
+    }
+
+    @Test
+    public void testAggregate_closedJournalRejects() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        MessageSpool journal = new MessageSpool(true, folder.getRoot().getPath(), 1 << 20, 4, false);
+        AccessNotificationAggregator aggregator = new AccessNotificationAggregator(rabbitManager, journal, true, 60000, 1000, 1000, 1);
+
+        assertFalse(aggregator.aggregate(headers("token1", "1500000000"), null, notification(1, 0)));
+        assertEquals(0, aggregator.getPendingEntries());
+        assertEquals(0, aggregator.getPendingKeys());
+    }
+
+    @Test
+    public void testStart_deliversNotificationsLeftInJournal() throws IOException {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        AccessNotificationAggregator aggregator = new AccessNotificationAggregator(rabbitManager, journal(), true, 60000, 1000, 1000, 1);
+        aggregator.aggregate(headers("token1", "1500000000"), null, notification(2, 0));
+        aggregator.aggregate(headers("token1", "1500000001"), null, notification(1, 1));
+        // CRAM is not reachable, so the notifications stay in the journal
+        aggregator.stop();
+
+        RabbitManager restartedRabbitManager = Mockito.mock(RabbitManager.class);
+        Mockito.when(restartedRabbitManager.sendAccessNotificationMessage(any()))
+                .thenReturn(Mockito.mock(NotificationMessageResponseSecured.class));
+        MessageSpool journal = new MessageSpool(true, folder.getRoot().getPath(), 1 << 20, 4, false);
+        AccessNotificationAggregator restarted = new AccessNotificationAggregator(restartedRabbitManager, journal, true, 60000, 1000, 1000, 1);
+        restarted.start();
+        assertEquals(4, restarted.getPendingEntries());
+
+        restarted.flushAll();
+
+        ArgumentCaptor<NotificationMessageSecured> captor = ArgumentCaptor.forClass(NotificationMessageSecured.class);
+        verify(restartedRabbitManager, times(2)).sendAccessNotificationMessage(captor.capture());
+        int successfulAttempts = 0;
+        for (NotificationMessageSecured request : captor.getAllValues())
+            successfulAttempts += request.getBody().getSuccessfulAttempts().size();
+        assertEquals(3, successfulAttempts);
+        assertEquals(0, journal.getPendingMessages());
+        restarted.stop();
+    }
+
+    private AccessNotificationAggregator aggregator(RabbitManager rabbitManager, long maxPendingEntries) throws IOException {
+        return new AccessNotificationAggregator(rabbitManager, journal(), true, 60000, 1000, maxPendingEntries, 1);
+    }
+
+    private MessageSpool journal() throws IOException {
+        MessageSpool journal = new MessageSpool(true, folder.getRoot().getPath(), 1 << 20, 4, false);
+        journal.open();
+        return journal;
+    }
+
+    private Map<String, String> headers(String token, String timestamp) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, timestamp);
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        // the authentication challenge is bound to the timestamp, so it differs in every request
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"" + token + "\"," +
+                "\"authenticationChallenge\":\"challenge-" + timestamp + "\"," +
+                "\"clientCertificate\":\"\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"\"}");
+        return headers;
+    }
+
+    private NotificationMessage notification(int successful, int failed) {
+        NotificationMessage notification = new NotificationMessage();
+        notification.setSuccessfulAttempts(new ArrayList<>(Collections.nCopies(successful, null)));
+        notification.setFailedAttempts(new ArrayList<>(Collections.nCopies(failed, null)));
+        return notification;
+    }
+}
@@ -0,0 +1,92 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.CoreTransport;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.RoutingTransport;
+import eu.h2020.symbiote.web.BrokerFlowControlInterceptor;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BrokerFlowControlInterceptorTests {
+
+    @Test
+    public void testNotBlocked_requestPasses() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.isBlocked()).thenReturn(false);
+
+        BrokerFlowControlInterceptor interceptor = new BrokerFlowControlInterceptor(rabbitManager, 5);
+
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("POST", "/platforms/platformId/resources"), new MockHttpServletResponse(), null));
+        assertEquals(0, interceptor.getShedCount());
+    }
+
+    @Test
+    public void testBlocked_requestShed() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.isBlocked()).thenReturn(true);
+        when(rabbitManager.getBlockedReason()).thenReturn("low on memory");
+
+        BrokerFlowControlInterceptor interceptor = new BrokerFlowControlInterceptor(rabbitManager, 5);
+
+        try {
+            interceptor.preHandle(new MockHttpServletRequest("POST", "/platforms/platformId/resources"), new MockHttpServletResponse(), null);
+            fail("Request should be shed");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(5, e.getRetryAfterSeconds());
+        }
+        assertEquals(1, interceptor.getShedCount());
+    }
+
+    @Test
+    public void testBlocked_highPriorityRequestPasses() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.isBlocked()).thenReturn(true);
+
+        BrokerFlowControlInterceptor interceptor = new BrokerFlowControlInterceptor(rabbitManager, 5);
+
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("DELETE", "/platforms/platformId/resources"), new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("POST", "/platforms/platformId/clearData"), new MockHttpServletResponse(), null));
+        assertEquals(0, interceptor.getShedCount());
+    }
+
+    @Test
+    public void testInitializing_onlyRequestsSentViaRabbitMQShed() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.isInitializing()).thenReturn(true);
+        RoutingTransport routingTransport = new RoutingTransport(rabbitManager, Mockito.mock(CoreTransport.class), "RESOURCE_CREATION");
+
+        BrokerFlowControlInterceptor interceptor = new BrokerFlowControlInterceptor(rabbitManager, routingTransport, 5);
+
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("POST", "/platforms/platformId/resources"), new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/info"), new MockHttpServletResponse(), null));
+        try {
+            interceptor.preHandle(new MockHttpServletRequest("PUT", "/platforms/platformId/resources"), new MockHttpServletResponse(), null);
+            fail("Request should be shed");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(5, e.getRetryAfterSeconds());
+        }
+        assertEquals(1, interceptor.getShedCount());
+    }
+
+    @Test
+    public void testInitializingOrBlocked_spooledOperationsPass() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.isInitializing()).thenReturn(true);
+        when(rabbitManager.isBlocked()).thenReturn(true);
+
+        BrokerFlowControlInterceptor interceptor = new BrokerFlowControlInterceptor(rabbitManager, 5);
+
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("POST", "/crm/Monitoring/platformId/devices/status"), new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("POST", "/accessNotifications"), new MockHttpServletResponse(), null));
+        assertEquals(0, interceptor.getShedCount());
+    }
+}
@@ -15,6 +15,7 @@ import eu.h2020.symbiote.model.cim.FeatureOfInterest;
 import eu.h2020.symbiote.model.cim.StationarySensor;
 import eu.h2020.symbiote.model.cim.SymbolicLocation;
 import eu.h2020.symbiote.security.commons.SecurityConstants;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
@@ -735,6 +736,40 @@ public class CloudCoreInterfaceControllerTests {
         assertNull(response.getBody());
     }
 
+    @Test
+    public void testMonitoring_rejectedByLimiterSpooled() {
+        Metric metric = new Metric();
+        metric.setTag("metric1");
+        metric.setValue("value1");
+
+        CloudMonitoringDevice cloudMonitoringDevice = new CloudMonitoringDevice();
+        cloudMonitoringDevice.setId("deviceId");
+        cloudMonitoringDevice.setMetrics(Collections.singletonList(metric));
+
+        CloudMonitoringPlatform cloudMonitoringPlatform = new CloudMonitoringPlatform();
+        cloudMonitoringPlatform.setPlatformId("platformId");
+        cloudMonitoringPlatform.setMetrics(Collections.singletonList(cloudMonitoringDevice));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"token\"," +
+                "\"authenticationChallenge\":\"authenticationChallenge\"," +
+                "\"clientCertificate\":\"clientCertificate\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"clientCertificateSigningAAMCertificate\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"foreignTokenIssuingAAMCertificate\"}");
+
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.sendMonitoringMessage(any())).thenThrow(new ServiceUnavailableException("Limit reached", 1));
+        when(rabbitManager.spoolMonitoringMessage(any())).thenReturn(true);
+
+        CloudCoreInterfaceController controller = new CloudCoreInterfaceController(rabbitManager);
+        ResponseEntity response = controller.monitoring("platformId", cloudMonitoringPlatform, headers);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
     @Test
     public void testAccessNotification_fail() {
         HttpHeaders headers = new HttpHeaders();
@@ -781,6 +816,28 @@ public class CloudCoreInterfaceControllerTests {
         assertNull(response.getBody());
     }
 
+    @Test
+    public void testAccessNotification_rejectedByLimiterSpooled() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"token\"," +
+                "\"authenticationChallenge\":\"authenticationChallenge\"," +
+                "\"clientCertificate\":\"clientCertificate\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"clientCertificateSigningAAMCertificate\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"foreignTokenIssuingAAMCertificate\"}");
+
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.sendAccessNotificationMessage(any())).thenThrow(new ServiceUnavailableException("Limit reached", 1));
+        when(rabbitManager.spoolAccessNotificationMessage(any())).thenReturn(true);
+
+        CloudCoreInterfaceController controller = new CloudCoreInterfaceController(rabbitManager);
+        ResponseEntity response = controller.accessNotifications(new NotificationMessage(), headers);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
     @Test
     public void testAccessNotification_noHeaders() {
         RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
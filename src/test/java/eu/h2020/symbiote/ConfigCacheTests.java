@@ -0,0 +1,172 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.config.CachingConfigServicePropertySourceLocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConfigCacheTests {
+
+    private Path directory;
+    private Path cacheFile;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("config-cache");
+        cacheFile = directory.resolve("CloudCoreInterface-dev-master.properties");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (File file : directory.toFile().listFiles())
+            file.delete();
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testFetchedConfigurationCachedAndUsedOnNextStart() throws Exception {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put("rabbit.host", "rabbit");
+        configuration.put("rabbit.username", "guest");
+
+        StandardEnvironment environment = environment("dev");
+        StubLocator first = new StubLocator(configuration, null);
+        assertEquals("rabbit", first.locate(environment).getProperty("rabbit.host"));
+        assertEquals(1, first.fetches.get());
+        assertTrue(Files.isRegularFile(cacheFile));
+
+        configuration.put("rabbit.host", "other-rabbit");
+        configuration.remove("rabbit.username");
+        CountDownLatch fetchAllowed = new CountDownLatch(1);
+        StubLocator second = new StubLocator(configuration, fetchAllowed);
+
+        PropertySource<?> located = second.locate(environment);
+        assertEquals("rabbit", located.getProperty("rabbit.host"));
+        assertEquals("guest", located.getProperty("rabbit.username"));
+
+        fetchAllowed.countDown();
+        Set<String> changed = second.getRefresh().get(5, TimeUnit.SECONDS);
+        assertEquals(new TreeSet<>(Arrays.asList("rabbit.host", "rabbit.username")), changed);
+
+        StubLocator third = new StubLocator(configuration, null);
+        located = third.locate(environment);
+        assertEquals("other-rabbit", located.getProperty("rabbit.host"));
+        assertNull(located.getProperty("rabbit.username"));
+    }
+
+    @Test
+    public void testConfigServerUnavailable_cachedConfigurationKept() throws Exception {
+        StandardEnvironment environment = environment("dev");
+        new StubLocator(Collections.singletonMap("rabbit.host", "rabbit"), null).locate(environment);
+
+        StubLocator locator = new StubLocator(null, null);
+        assertEquals("rabbit", locator.locate(environment).getProperty("rabbit.host"));
+        assertTrue(locator.getRefresh().get(5, TimeUnit.SECONDS).isEmpty());
+
+        assertEquals("rabbit", new StubLocator(null, null).locate(environment).getProperty("rabbit.host"));
+    }
+
+    @Test
+    public void testRefreshFetchesSynchronously() throws Exception {
+        new StubLocator(Collections.singletonMap("rabbit.host", "rabbit"), null).locate(environment("dev"));
+
+        StandardEnvironment refreshEnvironment = environment("dev");
+        refreshEnvironment.getPropertySources().addFirst(new MapPropertySource("refreshArgs", Collections.singletonMap("spring.jmx.enabled", false)));
+        StubLocator locator = new StubLocator(Collections.singletonMap("rabbit.host", "other-rabbit"), null);
+        assertEquals("other-rabbit", locator.locate(refreshEnvironment).getProperty("rabbit.host"));
+        assertEquals(1, locator.fetches.get());
+
+        assertEquals("other-rabbit", new StubLocator(null, null).locate(environment("dev")).getProperty("rabbit.host"));
+
+        StubLocator failing = new StubLocator(null, null);
+        failing.failure = new IllegalStateException("Could not locate PropertySource and the fail fast property is set, failing");
+        assertEquals("other-rabbit", failing.locate(refreshEnvironment).getProperty("rabbit.host"));
+    }
+
+    @Test
+    public void testCachePerProfileAndReadableByOwnerOnly() throws Exception {
+        new StubLocator(Collections.singletonMap("rabbit.host", "dev-rabbit"), null).locate(environment("dev"));
+
+        StubLocator prodLocator = new StubLocator(Collections.singletonMap("rabbit.host", "prod-rabbit"), null);
+        assertEquals("prod-rabbit", prodLocator.locate(environment("prod")).getProperty("rabbit.host"));
+        assertEquals(1, prodLocator.fetches.get());
+        assertTrue(Files.isRegularFile(directory.resolve("CloudCoreInterface-prod-master.properties")));
+
+        assertEquals("dev-rabbit", new StubLocator(null, null).locate(environment("dev")).getProperty("rabbit.host"));
+
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(cacheFile));
+    }
+
+    @Test
+    public void testNoCache_failureOfConfigServerPropagated() {
+        StubLocator locator = new StubLocator(null, null);
+        locator.failure = new IllegalStateException("fail fast");
+        try {
+            locator.locate(environment("dev"));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertEquals("fail fast", e.getMessage());
+        }
+        assertFalse(Files.exists(cacheFile));
+    }
+
+    private static StandardEnvironment environment(String profile) {
+        StandardEnvironment environment = new StandardEnvironment();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.application.name", "CloudCoreInterface");
+        properties.put("spring.cloud.config.profile", profile);
+        properties.put("spring.cloud.config.label", "master");
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        return environment;
+    }
+
+    private class StubLocator extends CachingConfigServicePropertySourceLocator {
+        private final Map<String, Object> configuration;
+        private final CountDownLatch fetchAllowed;
+        private final AtomicInteger fetches = new AtomicInteger();
+        private RuntimeException failure;
+
+        StubLocator(Map<String, Object> configuration, CountDownLatch fetchAllowed) {
+            super(new ConfigClientProperties(new StandardEnvironment()), directory);
+            this.configuration = configuration == null ? null : new HashMap<>(configuration);
+            this.fetchAllowed = fetchAllowed;
+        }
+
+        @Override
+        protected PropertySource<?> fetch(Environment environment) {
+            fetches.incrementAndGet();
+            try {
+                if (fetchAllowed != null)
+                    fetchAllowed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null)
+                throw failure;
+            if (configuration == null)
+                return null;
+            CompositePropertySource composite = new CompositePropertySource("configService");
+            composite.addPropertySource(new MapPropertySource("configClient", configuration));
+            return composite;
+        }
+    }
+}
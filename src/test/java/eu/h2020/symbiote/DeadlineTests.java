@@ -0,0 +1,76 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.web.DeadlineInterceptor;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.Assert.*;
+
+public class DeadlineTests {
+
+    @After
+    public void tearDown() {
+        RequestContext.close();
+    }
+
+    @Test
+    public void testDeadlineFromClientTimeout() {
+        RequestContext context = RequestContext.open();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        request.addHeader(DeadlineInterceptor.TIMEOUT_HEADER, "5000");
+
+        assertTrue(new DeadlineInterceptor(true, 20000, 1).preHandle(request, new MockHttpServletResponse(), null));
+        assertTrue(context.getRemainingMillis() > 4000 && context.getRemainingMillis() <= 5000);
+    }
+
+    @Test
+    public void testClientTimeoutCappedByDefault() {
+        RequestContext context = RequestContext.open();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        request.addHeader(DeadlineInterceptor.TIMEOUT_HEADER, "60000");
+
+        new DeadlineInterceptor(true, 20000, 1).preHandle(request, new MockHttpServletResponse(), null);
+        assertTrue(context.getRemainingMillis() <= 20000);
+    }
+
+    @Test
+    public void testRequestQueuedPastDeadline_shed() {
+        RequestContext.open();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        request.addHeader(DeadlineInterceptor.REQUEST_START_HEADER, "t=" + (System.currentTimeMillis() - 3000));
+        request.addHeader(DeadlineInterceptor.TIMEOUT_HEADER, "2000");
+
+        DeadlineInterceptor interceptor = new DeadlineInterceptor(true, 20000, 1);
+        try {
+            interceptor.preHandle(request, new MockHttpServletResponse(), null);
+            fail("Request should be shed");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(1, e.getRetryAfterSeconds());
+        }
+        assertEquals(1, interceptor.getShedCount());
+    }
+
+    @Test
+    public void testMessagePastDeadline_notSent() {
+        RequestContext.open().setDeadlineNanos(System.nanoTime() - 1);
+
+        RabbitManager rabbitManager = new RabbitManager();
+        try {
+            rabbitManager.sendRpcMessage("symbIoTe.test", "create", "{}");
+            fail("Message should be rejected");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(1, rabbitManager.getRejectedPastDeadlineCount());
+        }
+    }
+
+    @Test
+    public void testNoContext_noDeadline() {
+        assertNull(RequestContext.current());
+        assertNull(new RabbitManager().sendRpcMessage("symbIoTe.test", "create", "{}"));
+    }
+}
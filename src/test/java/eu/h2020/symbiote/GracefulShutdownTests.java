@@ -0,0 +1,72 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.web.GracefulShutdown;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class GracefulShutdownTests {
+
+    @Test
+    public void testRequestsInProgressDrained() throws Exception {
+        ApplicationContext applicationContext = Mockito.mock(ApplicationContext.class);
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        GracefulShutdown gracefulShutdown = new GracefulShutdown(applicationContext, rabbitManager, 5000, 1);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(gracefulShutdown.preHandle(request, response, null));
+
+        Thread completion = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            gracefulShutdown.afterCompletion(request, response, null, null);
+        });
+        completion.start();
+
+        long start = System.currentTimeMillis();
+        gracefulShutdown.onApplicationEvent(new ContextClosedEvent(applicationContext));
+        assertTrue(System.currentTimeMillis() - start < 4000);
+        assertEquals(0, gracefulShutdown.getRequestsInFlight());
+        verify(rabbitManager).awaitRpcIdle(anyLong());
+
+        try {
+            gracefulShutdown.preHandle(new MockHttpServletRequest("POST", "/platforms/platformId/resources"), new MockHttpServletResponse(), null);
+            fail("Request should be rejected while draining");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(1, e.getRetryAfterSeconds());
+        }
+    }
+
+    @Test
+    public void testRequestAbandonedAfterDrainTime() throws Exception {
+        ApplicationContext applicationContext = Mockito.mock(ApplicationContext.class);
+        GracefulShutdown gracefulShutdown = new GracefulShutdown(applicationContext, Mockito.mock(RabbitManager.class), 100, 1);
+        assertTrue(gracefulShutdown.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null));
+
+        long start = System.currentTimeMillis();
+        gracefulShutdown.drain();
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(1, gracefulShutdown.getRequestsInFlight());
+    }
+
+    @Test
+    public void testChildContextClosed_notDrained() {
+        GracefulShutdown gracefulShutdown = new GracefulShutdown(Mockito.mock(ApplicationContext.class), Mockito.mock(RabbitManager.class), 100, 1);
+
+        gracefulShutdown.onApplicationEvent(new ContextClosedEvent(Mockito.mock(ApplicationContext.class)));
+        assertFalse(gracefulShutdown.isDraining());
+    }
+}
@@ -0,0 +1,114 @@
+package eu.h2020.symbiote;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.limit.ConcurrencyLimits;
+import eu.h2020.symbiote.communication.limit.GradientLimiter;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class GradientLimiterTests {
+
+    @Test
+    public void testRequestsAboveLimitRejected() {
+        GradientLimiter limiter = new GradientLimiter(2, 1, 10, 0.2, 1.5, 0.9, 100);
+
+        GradientLimiter.Permit first = limiter.tryAcquire();
+        GradientLimiter.Permit second = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+        assertEquals(1, limiter.getRejected());
+
+        GradientLimiter.Permit forced = limiter.acquire();
+        assertEquals(3, limiter.getInFlight());
+
+        first.onIgnore();
+        second.onIgnore();
+        forced.onIgnore();
+        assertEquals(0, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testRabbitManagerReleasesPermits() throws Exception {
+        ConcurrencyLimits limits = new ConcurrencyLimits(true, 1, 1, 1, 0.2, 1.5, 0.9, 100, 1);
+        RabbitManager rabbitManager = new RabbitManager();
+        rabbitManager.setConcurrencyLimits(limits);
+
+        Connection connection = Mockito.mock(Connection.class);
+        Channel channel = Mockito.mock(Channel.class);
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(channel.isOpen()).thenReturn(true);
+        Mockito.when(channel.queueDeclare(anyString(), anyBoolean(), anyBoolean(), anyBoolean(), anyMap()))
+                .thenThrow(new IOException("Queue cannot be declared"));
+        ReflectionTestUtils.setField(rabbitManager, "connection", connection);
+        ReflectionTestUtils.setField(rabbitManager, "channel", channel);
+
+        // failed message gives its permit back
+        assertNull(rabbitManager.sendRpcBytes("symbIoTe.test", "create", new byte[0]));
+        GradientLimiter limiter = limits.get("symbIoTe.test");
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, rabbitManager.getRpcInFlight());
+
+        // rejected message neither holds a permit nor counts as in flight
+        GradientLimiter.Permit held = limiter.tryAcquire();
+        try {
+            rabbitManager.sendRpcBytes("symbIoTe.test", "create", new byte[0]);
+            fail("Message above the limit should be rejected");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(1, limiter.getInFlight());
+        }
+        assertEquals(0, rabbitManager.getRpcInFlight());
+        verify(channel, never()).basicCancel(anyString());
+        held.onIgnore();
+    }
+
+    @Test
+    public void testLimitGrowsWhileRoundTripsStable() throws Exception {
+        GradientLimiter limiter = new GradientLimiter(4, 1, 100, 0.5, 1.5, 0.9, 100);
+
+        for (int i = 0; i < 20; i++) {
+            List<GradientLimiter.Permit> permits = new ArrayList<>();
+            GradientLimiter.Permit permit;
+            while ((permit = limiter.tryAcquire()) != null)
+                permits.add(permit);
+            Thread.sleep(1);
+            permits.forEach(GradientLimiter.Permit::onSuccess);
+        }
+
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    public void testLimitReducedOnSlowdownAndTimeouts() throws Exception {
+        GradientLimiter limiter = new GradientLimiter(50, 1, 100, 0.5, 1.5, 0.5, 100);
+
+        for (int i = 0; i < 10; i++)
+            limiter.tryAcquire().onSuccess();
+        int limit = limiter.getLimit();
+
+        GradientLimiter.Permit slow = limiter.tryAcquire();
+        Thread.sleep(50);
+        slow.onSuccess();
+        assertTrue(limiter.getLimit() < limit);
+
+        limit = limiter.getLimit();
+        limiter.tryAcquire().onDropped();
+        assertEquals(limit / 2, limiter.getLimit(), 1);
+    }
+}
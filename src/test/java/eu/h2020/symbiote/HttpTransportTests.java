@@ -0,0 +1,137 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.CoreOperation;
+import eu.h2020.symbiote.communication.CoreTransport;
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.communication.RoutingTransport;
+import eu.h2020.symbiote.communication.http.HttpTransport;
+import eu.h2020.symbiote.communication.limit.ConcurrencyLimits;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryRequest;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryResponse;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class HttpTransportTests {
+
+    private MockWebServer server;
+    private HttpTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        server.start();
+        transport = new HttpTransport(server.url("/core").toString(), 2000, 2000, 4, 300000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RequestContext.close();
+        transport.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void testResourceCreationOverHttp2() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"status\":200,\"message\":\"success\",\"descriptionType\":\"BASIC\",\"body\":\"body\"}"));
+
+        CoreResourceRegistryResponse response = transport.sendResourceCreationRequest(new CoreResourceRegistryRequest());
+
+        assertNotNull(response);
+        assertEquals(200, response.getStatus());
+        assertEquals("body", response.getBody());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("/core/resource-creation", request.getPath());
+        assertEquals(Protocol.H2_PRIOR_KNOWLEDGE, request.getProtocol());
+    }
+
+    @Test
+    public void testErrorStatusTreatedAsMissingResponse() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        assertNull(transport.sendResourceRemovalRequest(new CoreResourceRegistryRequest()));
+    }
+
+    @Test
+    public void testRoutingPerOperation() {
+        CoreTransport defaultTransport = Mockito.mock(CoreTransport.class);
+        CoreTransport httpTransport = Mockito.mock(CoreTransport.class);
+        RoutingTransport routingTransport = new RoutingTransport(defaultTransport, httpTransport, "RESOURCE_CREATION, SSP_RESOURCE_CREATION");
+
+        assertSame(httpTransport, routingTransport.getTransport(CoreOperation.RESOURCE_CREATION));
+        assertSame(httpTransport, routingTransport.getTransport(CoreOperation.SSP_RESOURCE_CREATION));
+        assertSame(defaultTransport, routingTransport.getTransport(CoreOperation.RESOURCE_REMOVAL));
+
+        routingTransport.sendResourceCreationRequest(new CoreResourceRegistryRequest());
+        routingTransport.sendResourceRemovalRequest(new CoreResourceRegistryRequest());
+        verify(httpTransport).sendResourceCreationRequest(any());
+        verify(defaultTransport).sendResourceRemovalRequest(any());
+        verifyNoMoreInteractions(httpTransport, defaultTransport);
+    }
+
+    @Test
+    public void testRequestPastDeadlineNotSent() {
+        RequestContext.open().setDeadlineNanos(System.nanoTime() - 1);
+
+        try {
+            transport.sendResourceCreationRequest(new CoreResourceRegistryRequest());
+            fail("ServiceUnavailableException expected");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(1, e.getRetryAfterSeconds());
+        }
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void testLimitsAndLatencyApplied() {
+        ConcurrencyLimits concurrencyLimits = new ConcurrencyLimits(true, 20, 4, 500, 0.2, 1.5, 0.9, 600, 1);
+        LatencyMetrics latencyMetrics = new LatencyMetrics();
+        transport.setConcurrencyLimits(concurrencyLimits);
+        transport.setLatencyMetrics(latencyMetrics);
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"status\":200,\"message\":\"success\",\"descriptionType\":\"BASIC\",\"body\":\"body\"}"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        assertNotNull(transport.sendResourceCreationRequest(new CoreResourceRegistryRequest()));
+        assertNull(transport.sendResourceCreationRequest(new CoreResourceRegistryRequest()));
+
+        assertEquals(0, concurrencyLimits.get("http:resource-creation").getInFlight());
+        assertEquals(1, latencyMetrics.histogram(LatencyMetrics.STAGE_WAIT, null, "resource-creation",
+                LatencyMetrics.OUTCOME_OK).getCount());
+        assertEquals(1, latencyMetrics.histogram(LatencyMetrics.STAGE_WAIT, null, "resource-creation",
+                LatencyMetrics.OUTCOME_ERROR).getCount());
+        assertEquals(1, latencyMetrics.histogram(LatencyMetrics.STAGE_PARSE, null, "resource-creation",
+                LatencyMetrics.OUTCOME_OK).getCount());
+    }
+
+    @Test
+    public void testUnknownOperationReported() {
+        try {
+            new RoutingTransport(Mockito.mock(CoreTransport.class), Mockito.mock(CoreTransport.class), "RESOURCE_CREATION, RESOURCE_DELETION");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("'RESOURCE_DELETION'"));
+            assertTrue(e.getMessage().contains(CoreOperation.RESOURCE_REMOVAL.name()));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.metrics.LatencyHistogram;
+import eu.h2020.symbiote.metrics.LatencyMetrics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class LatencyMetricsTests {
+
+    @After
+    public void tearDown() {
+        RequestContext.close();
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+            histogram.recordMicros(i * 1000L);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500000L, histogram.getSumMicros());
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.07);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.07);
+        assertEquals(100, histogram.getCountAtOrBelow(100000), 100 * 0.07);
+    }
+
+    @Test
+    public void testHistogramExtremeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(-5);
+        histogram.recordMicros(0);
+        histogram.recordMicros(Long.MAX_VALUE / 2);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(2, histogram.getCountAtOrBelow(0));
+    }
+
+    @Test
+    public void testSeriesTaggedWithEndpointOfCurrentRequest() {
+        LatencyMetrics metrics = new LatencyMetrics();
+        RequestContext.open().setEndpoint("/platforms/{platformId}/resources");
+
+        metrics.record(LatencyMetrics.STAGE_WAIT, "resource.creationRequested", LatencyMetrics.OUTCOME_TIMEOUT, System.nanoTime());
+        RequestContext.close();
+        metrics.record(LatencyMetrics.STAGE_WAIT, "resource.creationRequested", LatencyMetrics.OUTCOME_TIMEOUT, System.nanoTime());
+
+        assertEquals(1, metrics.histogram(LatencyMetrics.STAGE_WAIT, "/platforms/{platformId}/resources",
+                "resource.creationRequested", LatencyMetrics.OUTCOME_TIMEOUT).getCount());
+        assertEquals(1, metrics.histogram(LatencyMetrics.STAGE_WAIT, null,
+                "resource.creationRequested", LatencyMetrics.OUTCOME_TIMEOUT).getCount());
+    }
+
+    @Test
+    public void testPrometheusFormat() {
+        LatencyMetrics metrics = new LatencyMetrics();
+        metrics.histogram(LatencyMetrics.STAGE_REQUEST, "/accessNotifications", null, LatencyMetrics.OUTCOME_OK).recordMicros(1500);
+
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+
+        String labels = "stage=\"request\",endpoint=\"/accessNotifications\",routing_key=\"\",outcome=\"ok\"";
+        assertTrue(text.contains("# TYPE cci_stage_latency_seconds histogram\n"));
+        assertTrue(text.contains("cci_stage_latency_seconds_bucket{" + labels + ",le=\"0.000992\"} 0\n"));
+        assertTrue(text.contains("cci_stage_latency_seconds_bucket{" + labels + ",le=\"0.00256\"} 1\n"));
+        assertTrue(text.contains("cci_stage_latency_seconds_bucket{" + labels + ",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("cci_stage_latency_seconds_sum{" + labels + "} 0.0015\n"));
+        assertTrue(text.contains("cci_stage_latency_seconds_count{" + labels + "} 1\n"));
+    }
+
+    @Test
+    public void testPrometheusBoundsAlignedToBuckets() {
+        LatencyMetrics metrics = new LatencyMetrics();
+        LatencyHistogram histogram = metrics.histogram(LatencyMetrics.STAGE_WAIT, null, "resource.creationRequested", LatencyMetrics.OUTCOME_OK);
+        // 99 µs is below 100 µs, 100 µs is in the bucket [100, 104) and counted from the next bound
+        histogram.recordMicros(99);
+        histogram.recordMicros(100);
+        histogram.recordMicros(247);
+        histogram.recordMicros(248);
+
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+
+        String prefix = "cci_stage_latency_seconds_bucket{stage=\"wait\",endpoint=\"none\",routing_key=\"resource.creationRequested\",outcome=\"ok\",le=\"";
+        assertTrue(text.contains(prefix + "0.0001\"} 1\n"));
+        assertTrue(text.contains(prefix + "0.000248\"} 3\n"));
+        assertTrue(text.contains(prefix + "0.000496\"} 4\n"));
+
+        String[] bounds = {"0.0001", "0.000248", "0.000496", "0.000992", "0.00256", "0.00512", "0.01024", "0.024576",
+                "0.049152", "0.098304", "0.253952", "0.507904", "1.015808", "2.490368", "4.980736", "9.961472",
+                "19.922944", "30.408704", "+Inf"};
+        for (String bound : bounds)
+            assertTrue(bound, text.contains(prefix + bound + "\"} "));
+        assertEquals(bounds.length, text.split(Pattern.quote(prefix), -1).length - 1);
+    }
+
+    @Test
+    public void testBucketEdges() {
+        assertEquals(100, LatencyHistogram.nearestBucketEdge(100));
+        assertEquals(248, LatencyHistogram.nearestBucketEdge(250));
+        assertEquals(2560, LatencyHistogram.nearestBucketEdge(2500));
+        assertEquals(15, LatencyHistogram.nearestBucketEdge(15));
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordMicros(2559);
+        histogram.recordMicros(2560);
+        assertEquals(1, histogram.getCountBelow(2560));
+        assertEquals(2, histogram.getCountBelow(2688));
+    }
+}
@@ -0,0 +1,88 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.CoreOperation;
+import eu.h2020.symbiote.communication.local.LocalTransport;
+import eu.h2020.symbiote.communication.local.StubRegistry;
+import eu.h2020.symbiote.controllers.CloudCoreInterfaceController;
+import eu.h2020.symbiote.core.cci.ResourceRegistryRequest;
+import eu.h2020.symbiote.core.cci.ResourceRegistryResponse;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryRequest;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryResponse;
+import eu.h2020.symbiote.model.cim.StationarySensor;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class LocalTransportTests {
+
+    private HttpHeaders headers;
+
+    @Before
+    public void setUp() {
+        headers = new HttpHeaders();
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"token\"," +
+                "\"authenticationChallenge\":\"authenticationChallenge\"," +
+                "\"clientCertificate\":\"clientCertificate\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"clientCertificateSigningAAMCertificate\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"foreignTokenIssuingAAMCertificate\"}");
+    }
+
+    @Test
+    public void testRequestPassedToHandlerByReference() {
+        LocalTransport transport = new LocalTransport();
+        CoreResourceRegistryRequest request = new CoreResourceRegistryRequest();
+        CoreResourceRegistryResponse expected = new CoreResourceRegistryResponse();
+        transport.registerHandler(CoreOperation.RESOURCE_CREATION, (CoreResourceRegistryRequest received) -> {
+            assertSame(request, received);
+            return expected;
+        });
+
+        assertSame(expected, transport.sendResourceCreationRequest(request));
+        assertNull(transport.sendResourceRemovalRequest(request));
+    }
+
+    @Test
+    public void testFailingHandlerTreatedAsMissingResponse() {
+        LocalTransport transport = new LocalTransport();
+        transport.registerHandler(CoreOperation.RESOURCE_CREATION, request -> {
+            throw new IllegalStateException("failure");
+        });
+
+        assertNull(transport.sendResourceCreationRequest(new CoreResourceRegistryRequest()));
+    }
+
+    @Test
+    public void testCreateResourcesWithStubRegistry() {
+        LocalTransport transport = new LocalTransport();
+        new StubRegistry(transport, 0).register();
+
+        StationarySensor stationarySensor = new StationarySensor();
+        stationarySensor.setName("Stationary 1");
+        ResourceRegistryRequest request = new ResourceRegistryRequest();
+        request.setBody(Collections.singletonMap("id1", stationarySensor));
+
+        CloudCoreInterfaceController controller = new CloudCoreInterfaceController(transport);
+        ResponseEntity<?> response = controller.createResources("platformId", request, headers);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        ResourceRegistryResponse body = (ResourceRegistryResponse) response.getBody();
+        assertEquals("Stationary 1", body.getBody().get("id1").getName());
+    }
+
+    @Test
+    public void testMissingHandlerReturnsTimeout() {
+        CloudCoreInterfaceController controller = new CloudCoreInterfaceController(new LocalTransport());
+        ResponseEntity<?> response = controller.createResources("platformId", new ResourceRegistryRequest(), headers);
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+    }
+}
@@ -0,0 +1,83 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.web.RequestContextInterceptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class MessagePriorityTests {
+
+    private RabbitManager rabbitManager;
+
+    @Before
+    public void setUp() {
+        rabbitManager = new RabbitManager();
+        ReflectionTestUtils.setField(rabbitManager, "resourceClearDataRequestedRoutingKey", "clearData");
+        ReflectionTestUtils.setField(rabbitManager, "resourceRemovalRequestedRoutingKey", "delete");
+        ReflectionTestUtils.setField(rabbitManager, "resourceCreationRequestedRoutingKey", "create");
+        ReflectionTestUtils.setField(rabbitManager, "crmMonitoringRoutingKey", "monitoring");
+        ReflectionTestUtils.setField(rabbitManager, "clearDataPriority", 9);
+        ReflectionTestUtils.setField(rabbitManager, "deletePriority", 8);
+        ReflectionTestUtils.setField(rabbitManager, "createPriority", 4);
+        ReflectionTestUtils.setField(rabbitManager, "monitoringPriority", 2);
+        ReflectionTestUtils.setField(rabbitManager, "priorityHintDefaultCap", 4);
+        ReflectionTestUtils.setField(rabbitManager, "priorityHintPlatformCaps", "smallPlatform:7");
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.close();
+    }
+
+    @Test
+    public void testOperationPriorities() {
+        assertEquals(Integer.valueOf(9), rabbitManager.getMessagePriority("clearData"));
+        assertEquals(Integer.valueOf(8), rabbitManager.getMessagePriority("delete"));
+        assertEquals(Integer.valueOf(4), rabbitManager.getMessagePriority("create"));
+        assertEquals(Integer.valueOf(2), rabbitManager.getMessagePriority("monitoring"));
+        assertNull(rabbitManager.getMessagePriority("unknown"));
+    }
+
+    @Test
+    public void testPriorityHintIgnoredWhenDisabled() {
+        RequestContext.open().setPriorityHint(9);
+
+        assertEquals(Integer.valueOf(4), rabbitManager.getMessagePriority("create"));
+    }
+
+    @Test
+    public void testPriorityHintCappedPerPlatform() throws Exception {
+        ReflectionTestUtils.setField(rabbitManager, "priorityHintEnabled", true);
+
+        openContext("bigPlatform", "9");
+        assertEquals(Integer.valueOf(4), rabbitManager.getMessagePriority("create"));
+
+        openContext("smallPlatform", "9");
+        assertEquals(Integer.valueOf(7), rabbitManager.getMessagePriority("create"));
+
+        openContext("smallPlatform", "1");
+        assertEquals(Integer.valueOf(1), rabbitManager.getMessagePriority("delete"));
+
+        openContext("smallPlatform", "invalid");
+        assertEquals(Integer.valueOf(8), rabbitManager.getMessagePriority("delete"));
+    }
+
+    private void openContext(String platformId, String priorityHint) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.singletonMap("platformId", platformId));
+        request.addHeader(RequestContextInterceptor.PRIORITY_HEADER, priorityHint);
+
+        new RequestContextInterceptor().preHandle(request, new MockHttpServletResponse(), null);
+        assertEquals(platformId, RequestContext.current().getPlatformId());
+    }
+}
@@ -0,0 +1,140 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.spool.MessageSpool;
+import eu.h2020.symbiote.communication.spool.SpooledMessage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MessageSpoolTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndReplayInOrder() throws IOException {
+        MessageSpool spool = openSpool(4096, 4);
+
+        assertTrue(spool.append("exchange", "key1", bytes("message1")));
+        assertTrue(spool.append("exchange", "key2", bytes("message2")));
+        assertEquals(2, spool.getPendingMessages());
+
+        SpooledMessage message = spool.peek();
+        assertEquals("exchange", message.getExchangeName());
+        assertEquals("key1", message.getRoutingKey());
+        assertEquals("message1", message.getPayloadAsString());
+
+        // not acknowledged message is returned again
+        assertEquals("message1", spool.peek().getPayloadAsString());
+        spool.acknowledge();
+
+        assertEquals("message2", spool.peek().getPayloadAsString());
+        spool.acknowledge();
+
+        assertNull(spool.peek());
+        assertEquals(0, spool.getPendingMessages());
+        spool.close();
+    }
+
+    @Test
+    public void testSegmentRotation() throws IOException {
+        MessageSpool spool = openSpool(64, 8);
+
+        for (int i = 0; i < 10; i++)
+            assertTrue(spool.append("e", "k", bytes("message" + i)));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("message" + i, spool.peek().getPayloadAsString());
+            spool.acknowledge();
+        }
+        assertNull(spool.peek());
+        spool.close();
+    }
+
+    @Test
+    public void testFullSpoolRejectsMessages() throws IOException {
+        MessageSpool spool = openSpool(64, 2);
+
+        int accepted = 0;
+        while (spool.append("e", "k", bytes("message")))
+            accepted++;
+
+        assertTrue(accepted > 0);
+        assertEquals(accepted, spool.getPendingMessages());
+        assertFalse(spool.append("e", "k", new byte[128]));
+        spool.close();
+    }
+
+    @Test
+    public void testRecoveryAfterReopen() throws IOException {
+        MessageSpool spool = openSpool(64, 8);
+        for (int i = 0; i < 6; i++)
+            spool.append("e", "k", bytes("message" + i));
+        spool.peek();
+        spool.acknowledge();
+        spool.peek();
+        spool.acknowledge();
+        spool.close();
+
+        MessageSpool reopened = openSpool(64, 8);
+        assertEquals(4, reopened.getPendingMessages());
+        for (int i = 2; i < 6; i++) {
+            assertEquals("message" + i, reopened.peek().getPayloadAsString());
+            reopened.acknowledge();
+        }
+        assertNull(reopened.peek());
+
+        assertTrue(reopened.append("e", "k", bytes("afterRecovery")));
+        assertEquals("afterRecovery", reopened.peek().getPayloadAsString());
+        reopened.close();
+    }
+
+    @Test
+    public void testReadPendingAndSkip() throws IOException {
+        MessageSpool spool = openSpool(64, 8);
+
+        for (int i = 0; i < 6; i++)
+            assertTrue(spool.append("e", "k", bytes("message" + i)));
+        assertTrue(spool.skip());
+        assertTrue(spool.skip());
+
+        List<SpooledMessage> pending = spool.readPending();
+        assertEquals(4, pending.size());
+        for (int i = 0; i < 4; i++)
+            assertEquals("message" + (i + 2), pending.get(i).getPayloadAsString());
+        // reading pending messages does not remove them
+        assertEquals(4, spool.getPendingMessages());
+        assertEquals("message2", spool.peek().getPayloadAsString());
+
+        for (int i = 0; i < 4; i++)
+            assertTrue(spool.skip());
+        assertFalse(spool.skip());
+        assertTrue(spool.readPending().isEmpty());
+        spool.close();
+    }
+
+    @Test
+    public void testDisabledSpool() throws IOException {
+        MessageSpool spool = new MessageSpool(false, folder.getRoot().getAbsolutePath(), 4096, 4, false);
+        spool.open();
+
+        assertFalse(spool.append("e", "k", bytes("message")));
+        assertNull(spool.peek());
+    }
+
+    private MessageSpool openSpool(int segmentSize, int maxSegments) throws IOException {
+        MessageSpool spool = new MessageSpool(true, folder.getRoot().getAbsolutePath(), segmentSize, maxSegments, false);
+        spool.open();
+        return spool;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,149 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.aggregation.MonitoringAggregator;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringDevice;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatform;
+import eu.h2020.symbiote.cloud.monitoring.model.CloudMonitoringPlatformRequest;
+import eu.h2020.symbiote.cloud.monitoring.model.Metric;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import eu.h2020.symbiote.security.communication.payloads.SecurityRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MonitoringAggregatorTests {
+
+    @Test
+    public void testAggregate_keepsLatestStatusPerDevice() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        MonitoringAggregator aggregator = new MonitoringAggregator(rabbitManager, true, 60000, 100, 1);
+
+        aggregator.aggregate("platformId", null, null, platform(device("device1", "old"), device("device2", "value2")));
+        aggregator.aggregate("platformId", null, null, platform(device("device1", "new")));
+
+        verify(rabbitManager, never()).sendMonitoringMessage(any());
+
+        aggregator.flushAll();
+
+        ArgumentCaptor<CloudMonitoringPlatformRequest> captor = ArgumentCaptor.forClass(CloudMonitoringPlatformRequest.class);
+        verify(rabbitManager, times(1)).sendMonitoringMessage(captor.capture());
+
+        CloudMonitoringPlatform merged = captor.getValue().getBody();
+        assertEquals("platformId", merged.getPlatformId());
+        assertEquals(2, merged.getMetrics().size());
+        for (CloudMonitoringDevice device : merged.getMetrics()) {
+            if ("device1".equals(device.getId()))
+                assertEquals("new", device.getMetrics().get(0).getValue());
+        }
+        assertEquals(0, aggregator.getPendingKeys());
+    }
+
+    @Test
+    public void testAggregate_separatePlatforms() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        MonitoringAggregator aggregator = new MonitoringAggregator(rabbitManager, true, 60000, 100, 1);
+
+        aggregator.aggregate("platform1", null, null, platform(device("device1", "value")));
+        aggregator.aggregate("platform2", null, null, platform(device("device1", "value")));
+        aggregator.flushAll();
+
+        verify(rabbitManager, times(2)).sendMonitoringMessage(any());
+    }
+
+    @Test
+    public void testAggregate_separateSecurityContexts() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        MonitoringAggregator aggregator = new MonitoringAggregator(rabbitManager, true, 60000, 100, 1);
+
+        aggregator.aggregate("platformId", headers("token1", "1500000000"), null, platform(device("device1", "value")));
+        aggregator.aggregate("platformId", headers("token1", "1500000001"), null, platform(device("device2", "value")));
+        aggregator.aggregate("platformId", headers("token2", "1500000000"), null, platform(device("device1", "value")));
+        assertEquals(2, aggregator.getPendingKeys());
+
+        aggregator.flushAll();
+
+        ArgumentCaptor<CloudMonitoringPlatformRequest> captor = ArgumentCaptor.forClass(CloudMonitoringPlatformRequest.class);
+        verify(rabbitManager, times(2)).sendMonitoringMessage(captor.capture());
+        for (CloudMonitoringPlatformRequest request : captor.getAllValues())
+            assertEquals("platformId", request.getBody().getPlatformId());
+    }
+
+    @Test
+    public void testAggregate_sameTokenWithDifferentChallengesMerged() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        MonitoringAggregator aggregator = new MonitoringAggregator(rabbitManager, true, 60000, 100, 1);
+
+        SecurityRequest first = Mockito.mock(SecurityRequest.class);
+        SecurityRequest latest = Mockito.mock(SecurityRequest.class);
+        aggregator.aggregate("platformId", headers("token1", "1500000000"), first, platform(device("device1", "value")));
+        aggregator.aggregate("platformId", headers("token1", "1500000005"), latest, platform(device("device2", "value")));
+        assertEquals(1, aggregator.getPendingKeys());
+
+        aggregator.flushAll();
+
+        ArgumentCaptor<CloudMonitoringPlatformRequest> captor = ArgumentCaptor.forClass(CloudMonitoringPlatformRequest.class);
+        verify(rabbitManager, times(1)).sendMonitoringMessage(captor.capture());
+        assertEquals(2, captor.getValue().getBody().getMetrics().size());
+        assertSame(latest, captor.getValue().getSecurityRequest());
+    }
+
+    @Test
+    public void testAggregate_overflowFlushesImmediately() {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        MonitoringAggregator aggregator = new MonitoringAggregator(rabbitManager, true, 60000, 2, 1);
+
+        aggregator.aggregate("platformId", null, null, platform(device("device1", "value")));
+        verify(rabbitManager, never()).sendMonitoringMessage(any());
+
+        aggregator.aggregate("platformId", null, null, platform(device("device2", "value")));
+        verify(rabbitManager, times(1)).sendMonitoringMessage(any());
+        assertEquals(0, aggregator.getPendingKeys());
+    }
+
+    private Map<String, String> headers(String token, String timestamp) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, timestamp);
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        // the authentication challenge is bound to the timestamp, so it differs in every request
+        headers.put(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"" + token + "\"," +
+                "\"authenticationChallenge\":\"challenge-" + timestamp + "\"," +
+                "\"clientCertificate\":\"\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"\"}");
+        return headers;
+    }
+
+    private CloudMonitoringPlatform platform(CloudMonitoringDevice... devices) {
+        CloudMonitoringPlatform platform = new CloudMonitoringPlatform();
+        platform.setPlatformId("platformId");
+        platform.setMetrics(Arrays.asList(devices));
+        return platform;
+    }
+
+    private CloudMonitoringDevice device(String id, String value) {
+        Metric metric = new Metric();
+        metric.setTag("metric1");
+        metric.setValue(value);
+
+        CloudMonitoringDevice device = new CloudMonitoringDevice();
+        device.setId(id);
+        device.setMetrics(Collections.singletonList(metric));
+        return device;
+    }
+}
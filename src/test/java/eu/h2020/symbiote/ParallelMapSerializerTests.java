@@ -0,0 +1,145 @@
+package eu.h2020.symbiote;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.json.ParallelMapSerializer;
+import eu.h2020.symbiote.model.cim.Resource;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+public class ParallelMapSerializerTests {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testParallelOutputMatchesSequential() throws Exception {
+        Map<String, Resource> resources = resources(2503);
+        String expected = sequential(resources);
+
+        ParallelMapSerializer serializer = new ParallelMapSerializer(true, 100, 64, 4);
+        assertEquals(expected, serializer.writeValueAsString(resources, Resource.class));
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), serializer.writeValueAsBytes(resources, Resource.class));
+    }
+
+    @Test
+    public void testSingleEntrySegments() throws Exception {
+        Map<String, Resource> resources = resources(17);
+
+        ParallelMapSerializer serializer = new ParallelMapSerializer(true, 1, 1, 4);
+        assertEquals(sequential(resources), serializer.writeValueAsString(resources, Resource.class));
+    }
+
+    @Test
+    public void testSmallAndEmptyMapsSerializedSequentially() throws Exception {
+        ParallelMapSerializer serializer = new ParallelMapSerializer(true, 100, 10, 4);
+
+        Map<String, Resource> resources = resources(5);
+        assertEquals(sequential(resources), serializer.writeValueAsString(resources, Resource.class));
+        assertEquals("{}", serializer.writeValueAsString(new LinkedHashMap<>(), Resource.class));
+        assertEquals("null", serializer.writeValueAsString(null, Resource.class));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Map<String, Resource> resources = resources(300);
+
+        ParallelMapSerializer serializer = new ParallelMapSerializer(false, 1, 10, 4);
+        assertFalse(serializer.isEnabled());
+        assertEquals(sequential(resources), serializer.writeValueAsString(resources, Resource.class));
+    }
+
+    @Test
+    public void testNullKeyRejected() throws Exception {
+        Map<String, Resource> resources = new HashMap<>(resources(300));
+        resources.put(null, new Resource());
+
+        try {
+            sequential(resources);
+            fail("Null key accepted by the mapper");
+        } catch (JsonMappingException e) {
+            assertTrue(e.getMessage().startsWith("Null key for a Map not allowed in JSON"));
+        }
+
+        ParallelMapSerializer serializer = new ParallelMapSerializer(true, 100, 10, 4);
+        try {
+            serializer.writeValueAsString(resources, Resource.class);
+            fail("Null key accepted by the serializer");
+        } catch (JsonMappingException e) {
+            assertTrue(e.getMessage().startsWith("Null key for a Map not allowed in JSON"));
+        }
+    }
+
+    @Test
+    public void testSegmentsWrittenByBoundedPool() throws Exception {
+        Map<String, ThreadRecording> values = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++)
+            values.put("key" + i, new ThreadRecording());
+
+        ParallelMapSerializer serializer = new ParallelMapSerializer(true, 1, 1, 2);
+        serializer.writeValueAsString(values, ThreadRecording.class);
+
+        Set<String> poolThreads = new HashSet<>(ThreadRecording.threads);
+        poolThreads.remove(Thread.currentThread().getName());
+        assertTrue(poolThreads.size() <= 2);
+        assertTrue(poolThreads.stream().allMatch(name -> name.startsWith("parallel-serializer-")));
+    }
+
+    @Test
+    public void testSerializedOnCallingThreadAfterClose() throws Exception {
+        Map<String, Resource> resources = resources(300);
+
+        ParallelMapSerializer serializer = new ParallelMapSerializer(true, 100, 10, 4);
+        serializer.close();
+        assertEquals(sequential(resources), serializer.writeValueAsString(resources, Resource.class));
+    }
+
+    public static class ThreadRecording {
+        static final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        public String getThread() {
+            threads.add(Thread.currentThread().getName());
+            return "";
+        }
+    }
+
+    private String sequential(Map<String, Resource> resources) throws Exception {
+        return mapper.writerFor(new TypeReference<Map<String, Resource>>() {
+        }).writeValueAsString(resources);
+    }
+
+    /**
+     * Resources with keys and names which need escaping, and with a missing resource every hundred entries.
+     */
+    private Map<String, Resource> resources(int count) throws Exception {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("\"internal-\\u00f3\\\"").append(i).append("\":");
+            if (i % 100 == 99) {
+                json.append("null");
+                continue;
+            }
+            json.append("{\"@c\":\".StationarySensor\",")
+                    .append("\"name\":\"Sensor \\u2013 ").append(i).append("\\n\",")
+                    .append("\"description\":[\"Sensor ").append(i).append("\"],")
+                    .append("\"interworkingServiceURL\":\"https://example.com/rap\",")
+                    .append("\"locatedAt\":{\"@c\":\".WGS84Location\",\"longitude\":2.35,\"latitude\":48.85,")
+                    .append("\"altitude\":").append(i).append(",\"name\":\"Location\",\"description\":[\"Street\"]},")
+                    .append("\"observesProperty\":[\"Temperature\"]}");
+        }
+        json.append('}');
+        return mapper.readValue(json.toString(), new TypeReference<LinkedHashMap<String, Resource>>() {
+        });
+    }
+}
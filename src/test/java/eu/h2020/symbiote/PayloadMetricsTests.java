@@ -0,0 +1,123 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.RequestContext;
+import eu.h2020.symbiote.metrics.CountMinSketch;
+import eu.h2020.symbiote.metrics.HeavyHitters;
+import eu.h2020.symbiote.metrics.PayloadMetrics;
+import eu.h2020.symbiote.metrics.ThreadAllocation;
+import eu.h2020.symbiote.web.InboundBytesFilter;
+import eu.h2020.symbiote.web.PayloadMetricsInterceptor;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PayloadMetricsTests {
+
+    @After
+    public void tearDown() {
+        RequestContext.close();
+    }
+
+    @Test
+    public void testHeavyHittersAmongManySmallKeys() {
+        HeavyHitters heavyHitters = new HeavyHitters(3, 4, 1024);
+        for (int i = 0; i < 10000; i++)
+            heavyHitters.add("small" + (i % 500), 10);
+        for (int i = 0; i < 100; i++) {
+            heavyHitters.add("big1", 1000);
+            heavyHitters.add("big2", 700);
+            heavyHitters.add("big3", 400);
+        }
+
+        List<Map.Entry<String, Long>> top = heavyHitters.getTop();
+        assertEquals(3, top.size());
+        assertEquals("big1", top.get(0).getKey());
+        assertEquals("big2", top.get(1).getKey());
+        assertEquals("big3", top.get(2).getKey());
+        assertTrue(top.get(0).getValue() >= 100000);
+    }
+
+    @Test
+    public void testRecordPerEndpointAndPlatform() {
+        PayloadMetrics metrics = new PayloadMetrics(5, 60000);
+        metrics.record("/platforms/{platformId}/resources", "bigPlatform", 100, 200, 300, 5000);
+        metrics.record("/platforms/{platformId}/resources", "smallPlatform", 10, 20, 30, 50);
+        metrics.record(null, null, -1, 0, 0, -1);
+
+        List<Map.Entry<String, Long>> top = metrics.getTopAllocatingPlatforms();
+        assertEquals("bigPlatform", top.get(0).getKey());
+        assertEquals(Long.valueOf(5000), top.get(0).getValue());
+
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+        assertTrue(text.contains("cci_endpoint_requests_total{endpoint=\"/platforms/{platformId}/resources\"} 2\n"));
+        assertTrue(text.contains("cci_endpoint_bytes_total{endpoint=\"/platforms/{platformId}/resources\",kind=\"reply\"} 330\n"));
+        assertTrue(text.contains("cci_platform_bytes{platform=\"bigPlatform\",kind=\"payload\",window=\"current\"} 600\n"));
+    }
+
+    @Test
+    public void testThreadAllocationCounterGrows() {
+        long before = ThreadAllocation.currentThreadAllocatedBytes();
+        if (before < 0)
+            return;
+
+        byte[][] garbage = new byte[16][];
+        for (int i = 0; i < garbage.length; i++)
+            garbage[i] = new byte[64 * 1024];
+
+        assertTrue(ThreadAllocation.currentThreadAllocatedBytes() - before >= 16 * 64 * 1024);
+        assertEquals(16, garbage.length);
+    }
+
+    @Test
+    public void testSketchRowsHashedIndependently() {
+        // "Aa" and "BB" have the same String.hashCode
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        sketch.add("Aa", 1000);
+        sketch.add("BB", 1);
+
+        assertEquals(1000, sketch.estimate("Aa"));
+        assertEquals(1, sketch.estimate("BB"));
+    }
+
+    @Test
+    public void testInboundBytesCountedWhenRead() throws Exception {
+        PayloadMetrics metrics = new PayloadMetrics(5, 60000);
+        PayloadMetricsInterceptor interceptor = new PayloadMetricsInterceptor(metrics);
+        // chunked request without Content-Length
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/accessNotifications") {
+            @Override
+            public int getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.setContent("{\"successfulAttempts\":[]}".getBytes(StandardCharsets.UTF_8));
+        request.addHeader("Transfer-Encoding", "chunked");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContext.open().setEndpoint("/accessNotifications");
+
+        new InboundBytesFilter().doFilter(request, response, (req, res) -> {
+            StreamUtils.copyToByteArray(req.getInputStream());
+            interceptor.afterCompletion((HttpServletRequest) req, response, null, null);
+        });
+
+        StringBuilder out = new StringBuilder();
+        metrics.writePrometheus(out);
+        assertTrue(out.toString().contains("cci_endpoint_bytes_total{endpoint=\"/accessNotifications\",kind=\"inbound\"} 25\n"));
+    }
+}
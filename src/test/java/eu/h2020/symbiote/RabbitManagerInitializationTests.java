@@ -0,0 +1,91 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.actuator.RabbitManagerHealthIndicator;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.RoutingTransport;
+import eu.h2020.symbiote.communication.http.HttpTransport;
+import eu.h2020.symbiote.communication.local.LocalTransport;
+import eu.h2020.symbiote.web.BrokerFlowControlInterceptor;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RabbitManagerInitializationTests {
+
+    @Test
+    public void testNotReadyWhileBrokerUnavailable() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        RabbitManager rabbitManager = new RabbitManager();
+        rabbitManager.setTestParameters("localhost", "guest", "guest", "symbIoTe.test", "topic", true, false, false);
+        ReflectionTestUtils.setField(rabbitManager, "rabbitPort", closedPort);
+
+        CompletableFuture<Boolean> initialization = rabbitManager.initCommunicationAsync();
+        assertSame(initialization, rabbitManager.initCommunicationAsync());
+        assertTrue(rabbitManager.isInitializationStarted());
+        assertTrue(rabbitManager.isInitializing());
+        assertFalse(rabbitManager.isReady());
+
+        Health health = new RabbitManagerHealthIndicator(rabbitManager).health();
+        assertEquals(Status.DOWN, health.getStatus());
+        assertEquals(false, health.getDetails().get("ready"));
+
+        BrokerFlowControlInterceptor interceptor = new BrokerFlowControlInterceptor(rabbitManager, 5);
+        try {
+            interceptor.preHandle(new MockHttpServletRequest("POST", "/platforms/platformId/resources"), new MockHttpServletResponse(), null);
+            fail("Request should be rejected");
+        } catch (ServiceUnavailableException e) {
+            assertEquals(5, e.getRetryAfterSeconds());
+        }
+
+        rabbitManager.cleanup();
+        assertFalse(initialization.get(5, TimeUnit.SECONDS));
+        assertFalse(rabbitManager.isInitializing());
+        assertFalse(rabbitManager.isReady());
+    }
+
+    @Test
+    public void testLocalTransportWithoutBroker() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        RabbitManager rabbitManager = new RabbitManager();
+        rabbitManager.setTestParameters("localhost", "guest", "guest", "symbIoTe.test", "topic", true, false, false);
+        ReflectionTestUtils.setField(rabbitManager, "rabbitPort", closedPort);
+        ReflectionTestUtils.setField(rabbitManager, "asyncInitialization", true);
+
+        RoutingTransport routingTransport = new RoutingTransport(rabbitManager, Optional.of(new LocalTransport()),
+                Optional.<HttpTransport>empty(), "");
+        routingTransport.start();
+
+        assertFalse(routingTransport.isUsed(rabbitManager));
+        assertFalse(rabbitManager.isInitializationStarted());
+        assertFalse(rabbitManager.isInitializing());
+
+        Health health = new RabbitManagerHealthIndicator(rabbitManager, routingTransport).health();
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(false, health.getDetails().get("used"));
+
+        BrokerFlowControlInterceptor interceptor = new BrokerFlowControlInterceptor(rabbitManager, routingTransport, 5);
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("POST", "/platforms/platformId/resources"), new MockHttpServletResponse(), null));
+        assertEquals(0, interceptor.getShedCount());
+
+        rabbitManager.cleanup();
+    }
+}
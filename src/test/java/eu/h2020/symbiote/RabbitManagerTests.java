@@ -6,14 +6,24 @@ import eu.h2020.symbiote.core.internal.*;
 import eu.h2020.symbiote.core.internal.cram.NotificationMessageResponseSecured;
 import eu.h2020.symbiote.core.internal.cram.NotificationMessageSecured;
 import eu.h2020.symbiote.core.internal.crm.MonitoringResponseSecured;
+import com.rabbitmq.client.BlockedListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RabbitManagerTests {
@@ -21,7 +31,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendResourceCreationRequest_timeout() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(null).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(null).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreResourceRegistryRequest request = new CoreResourceRegistryRequest();
         CoreResourceRegistryResponse response = rabbitManager.sendResourceCreationRequest(request);
@@ -39,7 +49,7 @@ public class RabbitManagerTests {
                 "}";
 
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(jsonResponse).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8(jsonResponse)).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreResourceRegistryRequest request = new CoreResourceRegistryRequest();
         CoreResourceRegistryResponse response = rabbitManager.sendResourceCreationRequest(request);
@@ -60,7 +70,7 @@ public class RabbitManagerTests {
                 "}";
 
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(jsonResponse).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8(jsonResponse)).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreResourceRegistryRequest request = new CoreResourceRegistryRequest();
         CoreResourceRegistryResponse response = rabbitManager.sendResourceModificationRequest(request);
@@ -81,7 +91,7 @@ public class RabbitManagerTests {
                 "}";
 
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(jsonResponse).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8(jsonResponse)).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreResourceRegistryRequest request = new CoreResourceRegistryRequest();
         CoreResourceRegistryResponse response = rabbitManager.sendResourceRemovalRequest(request);
@@ -99,7 +109,7 @@ public class RabbitManagerTests {
                 "}";
 
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(jsonResponse).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8(jsonResponse)).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreResourceRegistryRequest request = new CoreResourceRegistryRequest();
         CoreResourceRegistryResponse response = rabbitManager.sendResourceRemovalRequest(request);
@@ -113,7 +123,7 @@ public class RabbitManagerTests {
         String serviceResponse = "testResponse";
         responseSecured.setServiceResponse(serviceResponse);
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{\"serviceResponse\":\"testResponse\",\"status\":200}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{\"serviceResponse\":\"testResponse\",\"status\":200}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         MonitoringResponseSecured response = rabbitManager.sendMonitoringMessage(new CloudMonitoringPlatformRequest());
 
@@ -124,7 +134,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendMonitoringMessage_timeout() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(null).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(null).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         MonitoringResponseSecured response = rabbitManager.sendMonitoringMessage(new CloudMonitoringPlatformRequest());
 
@@ -134,7 +144,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendMonitoringMessage_failedUnmarshalling() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("invalid json body").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("invalid json body")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         MonitoringResponseSecured response = rabbitManager.sendMonitoringMessage(new CloudMonitoringPlatformRequest());
 
@@ -147,7 +157,7 @@ public class RabbitManagerTests {
         NotificationMessageResponseSecured responseSecured = new NotificationMessageResponseSecured();
         String serviceResponse = "TestResponse";
         responseSecured.setServiceResponse(serviceResponse);
-        doReturn("{\"serviceResponse\":\"TestResponse\",\"status\":200}}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{\"serviceResponse\":\"TestResponse\",\"status\":200}}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         NotificationMessageResponseSecured response = rabbitManager.sendAccessNotificationMessage(new NotificationMessageSecured());
         assertEquals(serviceResponse, response.getServiceResponse());
@@ -157,7 +167,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendAccessNotificationMessage_timeout() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(null).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(null).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         NotificationMessageResponseSecured response = rabbitManager.sendAccessNotificationMessage(new NotificationMessageSecured());
 
@@ -167,7 +177,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendAccessNotificationMessage_failedUnmarshalling() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("invalid json body").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("invalid json body")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         NotificationMessageResponseSecured response = rabbitManager.sendAccessNotificationMessage(new NotificationMessageSecured());
 
@@ -177,7 +187,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSdevCreationRequest_timeout() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(null).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(null).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSdevRegistryRequest request = new CoreSdevRegistryRequest();
         CoreSdevRegistryResponse response = rabbitManager.sendSdevCreationRequest(request);
@@ -188,7 +198,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSdevCreationRequest_failedUnmarshalling() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("invalid json description").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("invalid json description")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSdevRegistryRequest request = new CoreSdevRegistryRequest();
         CoreSdevRegistryResponse response = rabbitManager.sendSdevCreationRequest(request);
@@ -199,7 +209,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSdevCreationRequest_success() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSdevRegistryRequest request = new CoreSdevRegistryRequest();
         CoreSdevRegistryResponse response = rabbitManager.sendSdevCreationRequest(request);
@@ -210,7 +220,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSdevRemovalRequest_success() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSdevRegistryRequest request = new CoreSdevRegistryRequest();
         CoreSdevRegistryResponse response = rabbitManager.sendSdevRemovalRequest(request);
@@ -221,7 +231,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSdevModificationRequest_success() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSdevRegistryRequest request = new CoreSdevRegistryRequest();
         CoreSdevRegistryResponse response = rabbitManager.sendSdevModificationRequest(request);
@@ -232,7 +242,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSspCreationRequest_timeout() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(null).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(null).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSspResourceRegistryRequest request = new CoreSspResourceRegistryRequest();
         CoreSspResourceRegistryResponse response = rabbitManager.sendSspResourceCreationRequest(request);
@@ -243,7 +253,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSspCreationRequest_failedUnmarshalling() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("invalid json description").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("invalid json description")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSspResourceRegistryRequest request = new CoreSspResourceRegistryRequest();
         CoreSspResourceRegistryResponse response = rabbitManager.sendSspResourceCreationRequest(request);
@@ -254,7 +264,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSspCreationRequest_success() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSspResourceRegistryRequest request = new CoreSspResourceRegistryRequest();
         CoreSspResourceRegistryResponse response = rabbitManager.sendSspResourceCreationRequest(request);
@@ -265,7 +275,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSspRemovalRequest_success() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSspResourceRegistryRequest request = new CoreSspResourceRegistryRequest();
         CoreSspResourceRegistryResponse response = rabbitManager.sendSspResourceRemovalRequest(request);
@@ -276,7 +286,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendSspModificationRequest_success() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         CoreSspResourceRegistryRequest request = new CoreSspResourceRegistryRequest();
         CoreSspResourceRegistryResponse response = rabbitManager.sendSspResourceModificationRequest(request);
@@ -287,7 +297,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendClearDataRequest_timeout() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn(null).when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(null).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         ClearDataRequest request = new ClearDataRequest();
         ClearDataResponse response = rabbitManager.sendClearDataRequest(request);
@@ -298,7 +308,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendClearDataRequest_failedUnmarshalling() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("invalid json description").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("invalid json description")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         ClearDataRequest request = new ClearDataRequest();
         ClearDataResponse response = rabbitManager.sendClearDataRequest(request);
@@ -309,7 +319,7 @@ public class RabbitManagerTests {
     @Test
     public void testSendClearDataRequest_success() {
         RabbitManager rabbitManager = spy(new RabbitManager());
-        doReturn("{}").when(rabbitManager).sendRpcMessage(any(), any(), any());
+        doReturn(utf8("{}")).when(rabbitManager).sendRpcBytes(any(), any(), any());
 
         ClearDataRequest request = new ClearDataRequest();
         ClearDataResponse response = rabbitManager.sendClearDataRequest(request);
@@ -317,4 +327,62 @@ public class RabbitManagerTests {
         assertNotNull(response);
     }
 
+    @Test
+    public void testSendResourceCreationRequest_utf8Response() {
+        String jsonResponse = "{" +
+                "\"status\" : 200," +
+                "\"message\" : \"Zas\u00f3b utworzony \u2013 ok\"," +
+                "\"descriptionType\" : \"BASIC\"," +
+                "\"body\" : \"body\"" +
+                "}";
+
+        RabbitManager rabbitManager = spy(new RabbitManager());
+        doReturn(utf8(jsonResponse)).when(rabbitManager).sendRpcBytes(any(), any(), any());
+
+        CoreResourceRegistryResponse response = rabbitManager.sendResourceCreationRequest(new CoreResourceRegistryRequest());
+
+        assertNotNull(response);
+        assertEquals("Zas\u00f3b utworzony \u2013 ok", response.getMessage());
+    }
+
+    @Test
+    public void testBlockedClearedWhenConnectionShutsDown() {
+        RabbitManager rabbitManager = new RabbitManager();
+        Connection connection = mock(Connection.class);
+        ReflectionTestUtils.invokeMethod(rabbitManager, "addConnectionListeners", connection);
+
+        ArgumentCaptor<BlockedListener> blockedListener = ArgumentCaptor.forClass(BlockedListener.class);
+        ArgumentCaptor<ShutdownListener> shutdownListener = ArgumentCaptor.forClass(ShutdownListener.class);
+        verify(connection).addBlockedListener(blockedListener.capture());
+        verify(connection).addShutdownListener(shutdownListener.capture());
+
+        blockedListener.getValue().handleBlocked("low on memory");
+        assertTrue(rabbitManager.isBlocked());
+        assertEquals("low on memory", rabbitManager.getBlockedReason());
+
+        // the connection is dropped while blocked and recovered without an unblocked notification
+        shutdownListener.getValue().shutdownCompleted(new ShutdownSignalException(true, false, null, connection));
+        assertFalse(rabbitManager.isBlocked());
+        assertNull(rabbitManager.getBlockedReason());
+        assertTrue(rabbitManager.awaitUnblocked(0));
+    }
+
+    @Test
+    public void testBlockedClearedWhenConnectionClosed() throws Exception {
+        RabbitManager rabbitManager = new RabbitManager();
+        Connection connection = mock(Connection.class);
+        ReflectionTestUtils.invokeMethod(rabbitManager, "addConnectionListeners", connection);
+        ArgumentCaptor<BlockedListener> blockedListener = ArgumentCaptor.forClass(BlockedListener.class);
+        verify(connection).addBlockedListener(blockedListener.capture());
+
+        blockedListener.getValue().handleBlocked("low on disk");
+        assertTrue(rabbitManager.isBlocked());
+
+        rabbitManager.cleanup();
+        assertFalse(rabbitManager.isBlocked());
+    }
+
+    private static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
 }
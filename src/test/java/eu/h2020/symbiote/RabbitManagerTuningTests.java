@@ -0,0 +1,89 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.communication.limit.ConcurrencyLimits;
+import eu.h2020.symbiote.communication.limit.GradientLimiter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RabbitManagerTuningTests {
+
+    private RabbitManager rabbitManager;
+    private MockEnvironment environment;
+
+    @Before
+    public void setUp() {
+        rabbitManager = new RabbitManager();
+        rabbitManager.setTestParameters("localhost", "guest", "guest", "symbIoTe.test", "topic", true, false, false);
+        ReflectionTestUtils.setField(rabbitManager, "resourceCreationRequestedRoutingKey", "create");
+        ReflectionTestUtils.setField(rabbitManager, "createPriority", 4);
+        ReflectionTestUtils.setField(rabbitManager, "blockedMaxWaitMillis", 2000L);
+
+        environment = new MockEnvironment();
+        rabbitManager.setEnvironment(environment);
+    }
+
+    @Test
+    public void testTuningReloadedOnEnvironmentChange() {
+        environment.setProperty("rabbit.rpc.replyTimeoutMillis", "5000");
+        environment.setProperty("spring.rabbitmq.template.reply-timeout", "10000");
+        environment.setProperty("rabbit.priority.create", "6");
+        rabbitManager.onEnvironmentChange(new EnvironmentChangeEvent(environment, Collections.singleton("rabbit.priority.create")));
+
+        assertEquals(5000L, rabbitManager.getTuning().get("rabbit.rpc.replyTimeoutMillis"));
+        assertEquals(10000, rabbitManager.getTuning().get("spring.rabbitmq.template.reply-timeout"));
+        assertEquals(2000L, rabbitManager.getTuning().get("rabbit.blocked.maxWaitMillis"));
+        assertEquals(Integer.valueOf(6), rabbitManager.getMessagePriority("create"));
+        assertEquals(Collections.singletonMap("x-message-ttl", 10000), ReflectionTestUtils.getField(rabbitManager, "queueArgs"));
+    }
+
+    @Test
+    public void testUnrelatedChangeIgnored() {
+        environment.setProperty("rabbit.rpc.replyTimeoutMillis", "5000");
+        rabbitManager.onEnvironmentChange(new EnvironmentChangeEvent(environment, Collections.singleton("logging.level.root")));
+
+        assertEquals(20000L, rabbitManager.getTuning().get("rabbit.rpc.replyTimeoutMillis"));
+    }
+
+    @Test
+    public void testInvalidValuesIgnored() {
+        environment.setProperty("rabbit.rpc.replyTimeoutMillis", "0");
+        environment.setProperty("rabbit.blocked.maxWaitMillis", "soon");
+        rabbitManager.applyTuning(environment);
+
+        assertEquals(20000L, rabbitManager.getTuning().get("rabbit.rpc.replyTimeoutMillis"));
+        assertEquals(2000L, rabbitManager.getTuning().get("rabbit.blocked.maxWaitMillis"));
+    }
+
+    @Test
+    public void testConcurrencyLimitsReloadedOnEnvironmentChange() {
+        ConcurrencyLimits limits = new ConcurrencyLimits(true, 20, 4, 500, 0.2, 1.5, 0.9, 600, 1);
+        rabbitManager.setConcurrencyLimits(limits);
+        GradientLimiter limiter = limits.get("symbIoTe.test");
+
+        environment.setProperty("rabbit.limit.maxLimit", "10");
+        environment.setProperty("rabbit.limit.initialLimit", "8");
+        environment.setProperty("rabbit.limit.retryAfterSeconds", "5");
+        environment.setProperty("rabbit.limit.backoffRatio", "2");
+        rabbitManager.onEnvironmentChange(new EnvironmentChangeEvent(environment, Collections.singleton("rabbit.limit.maxLimit")));
+
+        assertEquals(10, rabbitManager.getTuning().get("rabbit.limit.maxLimit"));
+        assertEquals(5L, rabbitManager.getTuning().get("rabbit.limit.retryAfterSeconds"));
+        assertEquals(0.9, rabbitManager.getTuning().get("rabbit.limit.backoffRatio"));
+        assertEquals(10, limiter.getLimit());
+        assertEquals(8, limits.get("symbIoTe.other").getLimit());
+        assertEquals(5L, limits.getRetryAfterSeconds());
+
+        environment.setProperty("rabbit.limit.enabled", "false");
+        rabbitManager.applyTuning(environment);
+        assertNull(limits.get("symbIoTe.test"));
+    }
+}
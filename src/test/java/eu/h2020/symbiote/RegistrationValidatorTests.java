@@ -0,0 +1,234 @@
+package eu.h2020.symbiote;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.communication.RabbitManager;
+import eu.h2020.symbiote.controllers.CloudCoreInterfaceController;
+import eu.h2020.symbiote.core.cci.ResourceRegistryRequest;
+import eu.h2020.symbiote.core.cci.SdevRegistryRequest;
+import eu.h2020.symbiote.core.cci.SspResourceRegistryRequest;
+import eu.h2020.symbiote.core.cci.ResourceRegistryResponse;
+import eu.h2020.symbiote.core.cci.SdevRegistryResponse;
+import eu.h2020.symbiote.core.cci.SspResourceReqistryResponse;
+import eu.h2020.symbiote.core.internal.CoreResourceRegistryResponse;
+import eu.h2020.symbiote.core.internal.CoreSspResourceRegistryResponse;
+import eu.h2020.symbiote.model.cim.Resource;
+import eu.h2020.symbiote.model.cim.StationarySensor;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import eu.h2020.symbiote.validation.RegistrationValidator;
+import eu.h2020.symbiote.validation.ValidationError;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RegistrationValidatorTests {
+
+    @Test
+    public void testValidCreation() {
+        RegistrationValidator validator = new RegistrationValidator(true, 100);
+
+        assertTrue(validator.validateCreation(resources(sensor(null, "https://platform.example.com/rap"))).isEmpty());
+        assertEquals(0, validator.getRejectedCount());
+    }
+
+    @Test
+    public void testInvalidResourcesReported() {
+        RegistrationValidator validator = new RegistrationValidator(true, 100);
+
+        List<ValidationError> errors = validator.validateModification(resources(
+                sensor("id1", "https://platform.example.com/rap"),
+                sensor(null, "ftp://platform.example.com/rap"),
+                null,
+                sensor("id4", "not a url")));
+
+        assertEquals(4, errors.size());
+        assertError(errors.get(0), "internal-2", "id");
+        assertError(errors.get(1), "internal-2", "interworkingServiceURL");
+        assertError(errors.get(2), "internal-3", "resource");
+        assertError(errors.get(3), "internal-4", "interworkingServiceURL");
+        assertEquals(1, validator.getRejectedCount());
+    }
+
+    @Test
+    public void testRemovalRequiresOnlyIds() {
+        RegistrationValidator validator = new RegistrationValidator(true, 100);
+
+        assertTrue(validator.validateRemoval(resources(sensor("id1", null))).isEmpty());
+        assertError(validator.validateRemoval(resources(sensor(" ", null))).get(0), "internal-1", "id");
+    }
+
+    @Test
+    public void testSspResourcesNotRequiredToHaveHttpUrl() {
+        RegistrationValidator validator = new RegistrationValidator(true, 100);
+
+        assertTrue(validator.validateSspCreation(resources(sensor(null, null), sensor(null, "coap://ssp.example.com/rap"))).isEmpty());
+        assertTrue(validator.validateSspModification(resources(sensor("id1", null))).isEmpty());
+        assertError(validator.validateSspModification(resources(sensor(null, null))).get(0), "internal-1", "id");
+        assertError(validator.validateSspRemoval(resources(sensor(null, null))).get(0), "internal-1", "id");
+        assertError(validator.validateSspCreation(null).get(0), null, "body");
+    }
+
+    @Test
+    public void testEmptyRequests() {
+        RegistrationValidator validator = new RegistrationValidator(true, 100);
+
+        assertError(validator.validateCreation(null).get(0), null, "body");
+        assertError(validator.validateCreation(Collections.emptyMap()).get(0), null, "body");
+        assertError(validator.validateSdev(null).get(0), null, "body");
+    }
+
+    @Test
+    public void testErrorsLimited() {
+        RegistrationValidator validator = new RegistrationValidator(true, 3);
+
+        Resource[] invalid = new Resource[10];
+        for (int i = 0; i < invalid.length; i++)
+            invalid[i] = sensor(null, null);
+        assertEquals(3, validator.validateModification(resources(invalid)).size());
+    }
+
+    @Test
+    public void testDisabled() {
+        RegistrationValidator validator = new RegistrationValidator(false, 100);
+
+        assertTrue(validator.validateCreation(null).isEmpty());
+        assertTrue(validator.validateModification(resources(sensor(null, null))).isEmpty());
+        assertTrue(validator.validateSdev(null).isEmpty());
+    }
+
+    @Test
+    public void testInvalidRequestNotSentToCoreServices() throws Exception {
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        CloudCoreInterfaceController controller = new CloudCoreInterfaceController(rabbitManager);
+        controller.setRegistrationValidator(new RegistrationValidator(true, 100));
+
+        ResourceRegistryRequest request = new ResourceRegistryRequest();
+        request.setBody(resources(sensor(null, "http://platform.example.com/rap"), sensor(null, null)));
+        ResponseEntity<?> response = controller.createResources("platform1", request, securityHeaders());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        ResourceRegistryResponse body = (ResourceRegistryResponse) response.getBody();
+        assertEquals(400, body.getStatus());
+        List<ValidationError> errors = errors(body.getMessage());
+        assertEquals(1, errors.size());
+        assertError(errors.get(0), "internal-2", "interworkingServiceURL");
+        assertNull(body.getBody());
+        verify(rabbitManager, never()).sendResourceCreationRequest(any());
+
+        SspResourceRegistryRequest sspRequest = new ObjectMapper().readValue("{\"body\":{\"internal-1\":{" +
+                "\"@c\":\".StationarySensor\",\"name\":\"Sensor\",\"interworkingServiceURL\":\"http://ssp.example.com/rap\"}}}",
+                SspResourceRegistryRequest.class);
+        response = controller.deleteSspResource("ssp1", "sdev1", sspRequest, securityHeaders());
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        SspResourceReqistryResponse sspBody = (SspResourceReqistryResponse) response.getBody();
+        assertEquals(400, sspBody.getStatus());
+        errors = errors(sspBody.getMessage());
+        assertEquals(1, errors.size());
+        assertError(errors.get(0), "internal-1", "id");
+        verify(rabbitManager, never()).sendSspResourceRemovalRequest(any());
+
+        response = controller.createSdev("ssp1", new SdevRegistryRequest(), securityHeaders());
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        SdevRegistryResponse sdevBody = (SdevRegistryResponse) response.getBody();
+        assertEquals(400, sdevBody.getStatus());
+        assertError(errors(sdevBody.getMessage()).get(0), null, "body");
+        verify(rabbitManager, never()).sendSdevCreationRequest(any());
+    }
+
+    @Test
+    public void testValidRequestSentToCoreServices() {
+        CoreResourceRegistryResponse coreResponse = new CoreResourceRegistryResponse();
+        coreResponse.setStatus(200);
+        coreResponse.setBody("{}");
+
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.sendResourceModificationRequest(any())).thenReturn(coreResponse);
+        CloudCoreInterfaceController controller = new CloudCoreInterfaceController(rabbitManager);
+        controller.setRegistrationValidator(new RegistrationValidator(true, 100));
+
+        ResourceRegistryRequest request = new ResourceRegistryRequest();
+        request.setBody(resources(sensor("id1", "https://platform.example.com/rap")));
+        ResponseEntity<?> response = controller.modifyResource("platform1", request, securityHeaders());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(rabbitManager).sendResourceModificationRequest(any());
+    }
+
+    @Test
+    public void testSspResourceWithoutHttpUrlSentToCoreServices() throws Exception {
+        CoreSspResourceRegistryResponse coreResponse = new CoreSspResourceRegistryResponse();
+        coreResponse.setStatus(200);
+        coreResponse.setBody(new HashMap<>());
+
+        RabbitManager rabbitManager = Mockito.mock(RabbitManager.class);
+        when(rabbitManager.sendSspResourceCreationRequest(any())).thenReturn(coreResponse);
+        CloudCoreInterfaceController controller = new CloudCoreInterfaceController(rabbitManager);
+        controller.setRegistrationValidator(new RegistrationValidator(true, 100));
+
+        SspResourceRegistryRequest sspRequest = new ObjectMapper().readValue("{\"body\":{\"internal-1\":{" +
+                "\"@c\":\".StationarySensor\",\"name\":\"Sensor\"}}}",
+                SspResourceRegistryRequest.class);
+        ResponseEntity<?> response = controller.createSspResource("ssp1", "sdev1", sspRequest, securityHeaders());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(rabbitManager).sendSspResourceCreationRequest(any());
+    }
+
+    /**
+     * Parses errors listed in the message of a rejected request.
+     */
+    private static List<ValidationError> errors(String message) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode tree = mapper.readTree(message);
+        assertTrue(tree.get("message").asText().startsWith("Request is invalid"));
+        return mapper.convertValue(tree.get("errors"), new TypeReference<List<ValidationError>>() {
+        });
+    }
+
+    private static void assertError(ValidationError error, String resource, String field) {
+        assertEquals(resource, error.getResource());
+        assertEquals(field, error.getField());
+        assertNotNull(error.getMessage());
+    }
+
+    private static StationarySensor sensor(String id, String interworkingServiceUrl) {
+        StationarySensor sensor = new StationarySensor();
+        sensor.setId(id);
+        sensor.setName("Sensor");
+        sensor.setInterworkingServiceURL(interworkingServiceUrl);
+        return sensor;
+    }
+
+    private static Map<String, Resource> resources(Resource... resources) {
+        Map<String, Resource> map = new LinkedHashMap<>();
+        for (int i = 0; i < resources.length; i++)
+            map.put("internal-" + (i + 1), resources[i]);
+        return map;
+    }
+
+    private static HttpHeaders securityHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        headers.add(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"token\"," +
+                "\"authenticationChallenge\":\"authenticationChallenge\"," +
+                "\"clientCertificate\":\"clientCertificate\"," +
+                "\"clientCertificateSigningAAMCertificate\":\"clientCertificateSigningAAMCertificate\"," +
+                "\"foreignTokenIssuingAAMCertificate\":\"foreignTokenIssuingAAMCertificate\"}");
+        return headers;
+    }
+}
@@ -0,0 +1,192 @@
+package eu.h2020.symbiote;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.h2020.symbiote.json.LazyJsonMap;
+import eu.h2020.symbiote.json.ResourceMapDeserializer;
+import eu.h2020.symbiote.json.StringInternTable;
+import eu.h2020.symbiote.model.cim.Resource;
+import eu.h2020.symbiote.model.cim.StationarySensor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResourceMapDeserializerTests {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testRepeatedStringsShared() throws Exception {
+        String json = resourcesJson(500);
+        Map<String, Resource> resources = new ResourceMapDeserializer(true, 1000, 256, false).readResources(json);
+
+        assertEquals(serialize(parse(json)), serialize(resources));
+        assertSame(resources.get("internal-1").getInterworkingServiceURL(), resources.get("internal-2").getInterworkingServiceURL());
+        assertSame(((StationarySensor) resources.get("internal-1")).getObservesProperty().get(0),
+                ((StationarySensor) resources.get("internal-6")).getObservesProperty().get(0));
+    }
+
+    @Test
+    public void testInterningDisabled() throws Exception {
+        String json = resourcesJson(10);
+        Map<String, Resource> resources = new ResourceMapDeserializer(false, 1000, 256, false).readResources(json);
+
+        assertEquals(serialize(parse(json)), serialize(resources));
+        assertNotSame(resources.get("internal-1").getInterworkingServiceURL(), resources.get("internal-2").getInterworkingServiceURL());
+    }
+
+    @Test
+    public void testInternTableBounded() {
+        char[] chars = "abcdabcd".toCharArray();
+        StringInternTable table = new StringInternTable(2, 3);
+
+        assertSame(table.intern(chars, 0, 2), table.intern(chars, 4, 2));
+        assertEquals(1, table.getHits());
+        // longer than the length limit
+        assertNotSame(table.intern(chars, 0, 4), table.intern(chars, 4, 4));
+        assertEquals(1, table.size());
+
+        assertEquals("b", table.intern(chars, 1, 1));
+        assertEquals("c", table.intern(chars, 2, 1));
+        assertEquals(2, table.size());
+        // table is full
+        assertNotSame(table.intern(chars, 2, 1), table.intern(chars, 6, 1));
+    }
+
+    @Test
+    public void testLazyMap() throws Exception {
+        String json = resourcesJson(300);
+        Map<String, Resource> eager = parse(json);
+        Map<String, Resource> lazy = new ResourceMapDeserializer(true, 1000, 256, true).readResources(json);
+
+        assertTrue(lazy instanceof LazyJsonMap);
+        assertEquals(eager.size(), lazy.size());
+        assertEquals(Arrays.asList(eager.keySet().toArray()), Arrays.asList(lazy.keySet().toArray()));
+        assertEquals(serialize(eager), serialize(lazy));
+        assertEquals(serialize(eager.get("internal-42")), serialize(lazy.get("internal-42")));
+        assertTrue(lazy.containsKey("internal-99"));
+        assertNull(lazy.get("internal-99"));
+        assertFalse(lazy.containsKey("missing"));
+        assertNull(lazy.get("missing"));
+    }
+
+    @Test
+    public void testLazyMapOfNull() throws Exception {
+        assertNull(new ResourceMapDeserializer(true, 1000, 256, true).readResources("null"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLazyMapOfArray() throws Exception {
+        new ResourceMapDeserializer(true, 1000, 256, true).readResources("[{}]");
+    }
+
+    @Test(expected = IOException.class)
+    public void testLazyMapOfTruncatedJson() throws Exception {
+        new ResourceMapDeserializer(true, 1000, 256, true).readResources(resourcesJson(3).substring(0, 100));
+    }
+
+    @Test
+    public void testLazyMapOfInvalidResource() throws Exception {
+        String json = resourcesJson(3).replace("\".StationarySensor\"", "\".UnknownSensor\"");
+        try {
+            new ResourceMapDeserializer(true, 1000, 256, true).readResources(json);
+            fail("Invalid resource accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("UnknownSensor"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLazyMapOfResourceWithoutType() throws Exception {
+        String json = resourcesJson(3).replaceFirst("\"@c\":\".StationarySensor\",", "");
+        new ResourceMapDeserializer(true, 1000, 256, true).readResources(json);
+    }
+
+    @Test
+    public void testLazyMapValuesNotKept() throws Exception {
+        Map<String, Resource> lazy = new ResourceMapDeserializer(true, 1000, 256, true).readResources(resourcesJson(10));
+
+        Resource resource = lazy.get("internal-3");
+        assertNotSame(resource, lazy.get("internal-3"));
+        assertEquals(serialize(resource), serialize(lazy.get("internal-3")));
+        // strings of the map are still canonicalized across decoded values
+        assertSame(resource.getInterworkingServiceURL(), lazy.get("internal-4").getInterworkingServiceURL());
+    }
+
+    @Test
+    public void testLazyMapRetainsLessHeap() throws Exception {
+        String json = resourcesJson(20000);
+        ResourceMapDeserializer eagerDeserializer = new ResourceMapDeserializer(true, 65536, 256, false);
+        ResourceMapDeserializer lazyDeserializer = new ResourceMapDeserializer(true, 65536, 256, true);
+        // loads the classes used by both modes before measuring
+        eagerDeserializer.readResources(resourcesJson(10));
+        serialize(lazyDeserializer.readResources(resourcesJson(10)));
+
+        long baseline = usedHeap();
+        Map<String, Resource> eager = eagerDeserializer.readResources(json);
+        long eagerBytes = usedHeap() - baseline;
+        assertEquals(20000, eager.size());
+        eager = null;
+
+        baseline = usedHeap();
+        Map<String, Resource> lazy = lazyDeserializer.readResources(json);
+        long lazyBytes = usedHeap() - baseline;
+        assertEquals(20000, lazy.size());
+
+        assertTrue("lazy map retains " + lazyBytes + " bytes, eager map " + eagerBytes, lazyBytes * 2 < eagerBytes);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // collects until the used heap stops shrinking
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(20);
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used)
+                break;
+            used = current;
+        }
+        return used;
+    }
+
+    private Map<String, Resource> parse(String json) throws IOException {
+        return mapper.readValue(json, new TypeReference<Map<String, Resource>>() {
+        });
+    }
+
+    private String serialize(Object value) throws IOException {
+        return mapper.writeValueAsString(value);
+    }
+
+    /**
+     * Resources sharing URLs and properties, with a missing resource every hundred entries.
+     */
+    private static String resourcesJson(int count) {
+        String[] properties = {"Temperature", "Humidity", "AirQuality", "Pressure", "NoiseLevel"};
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("\"internal-").append(i).append("\":");
+            if (i % 100 == 99) {
+                json.append("null");
+                continue;
+            }
+            json.append("{\"@c\":\".StationarySensor\",")
+                    .append("\"name\":\"Sensor ").append(i).append("\",")
+                    .append("\"description\":[\"Sensor in room \\u00f3 ").append(i % 7).append("\"],")
+                    .append("\"interworkingServiceURL\":\"https://example.com/rap\",")
+                    .append("\"locatedAt\":{\"@c\":\".WGS84Location\",\"longitude\":2.35,\"latitude\":48.85,")
+                    .append("\"altitude\":100,\"name\":\"Location\",\"description\":[\"Street\"]},")
+                    .append("\"observesProperty\":[\"").append(properties[i % properties.length]).append("\"]}");
+        }
+        json.append('}');
+        return json.toString();
+    }
+}
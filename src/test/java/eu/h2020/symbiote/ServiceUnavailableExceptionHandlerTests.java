@@ -0,0 +1,65 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.core.cci.ResourceRegistryResponse;
+import eu.h2020.symbiote.core.cci.SdevRegistryResponse;
+import eu.h2020.symbiote.core.cci.SspResourceReqistryResponse;
+import eu.h2020.symbiote.core.internal.ClearDataResponse;
+import eu.h2020.symbiote.web.ServiceUnavailableException;
+import eu.h2020.symbiote.web.ServiceUnavailableExceptionHandler;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.Assert.*;
+
+public class ServiceUnavailableExceptionHandlerTests {
+
+    private final ServiceUnavailableExceptionHandler handler = new ServiceUnavailableExceptionHandler();
+
+    @Test
+    public void testResourcesEndpoint_resourceRegistryResponse() {
+        ResponseEntity<Object> response = handle("POST", "/platforms/platform1/resources");
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        ResourceRegistryResponse body = (ResourceRegistryResponse) response.getBody();
+        assertEquals(503, body.getStatus());
+        assertEquals("Broker is busy", body.getMessage());
+
+        assertTrue(handle("PUT", "/cloudCoreInterface/v1/platforms/platform1/rdfResources").getBody() instanceof ResourceRegistryResponse);
+    }
+
+    @Test
+    public void testClearDataEndpoint_clearDataResponse() {
+        ClearDataResponse body = (ClearDataResponse) handle("POST", "/platforms/platform1/clearData").getBody();
+        assertEquals(503, body.getStatus());
+        assertEquals("Broker is busy", body.getMessage());
+    }
+
+    @Test
+    public void testSspEndpoints_sspResponses() {
+        SdevRegistryResponse sdevBody = (SdevRegistryResponse) handle("POST", "/ssps/ssp1/sdevs").getBody();
+        assertEquals(503, sdevBody.getStatus());
+
+        SspResourceReqistryResponse resourceBody = (SspResourceReqistryResponse) handle("POST", "/ssps/ssp1/sdevs/sdev1/resources").getBody();
+        assertEquals(503, resourceBody.getStatus());
+        assertEquals("Broker is busy", resourceBody.getMessage());
+    }
+
+    @Test
+    public void testEndpointsWithEmptyBody_emptyBody() {
+        ResponseEntity<Object> response = handle("POST", "/accessNotifications");
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("5", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNull(response.getBody());
+
+        assertNull(handle("POST", "/crm/Monitoring/platform1/devices/status").getBody());
+    }
+
+    private ResponseEntity<Object> handle(String method, String path) {
+        return handler.handleServiceUnavailable(new ServiceUnavailableException("Broker is busy", 5),
+                new MockHttpServletRequest(method, path));
+    }
+}
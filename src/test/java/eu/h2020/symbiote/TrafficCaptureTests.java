@@ -0,0 +1,188 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.capture.CaptureReader;
+import eu.h2020.symbiote.capture.CaptureWriter;
+import eu.h2020.symbiote.capture.CapturedRequest;
+import eu.h2020.symbiote.security.commons.SecurityConstants;
+import eu.h2020.symbiote.web.TrafficCaptureFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.endpoint.mvc.MvcEndpoint;
+import org.springframework.boot.actuate.endpoint.mvc.MvcEndpoints;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TrafficCaptureTests {
+
+    private Path directory;
+    private CaptureWriter captureWriter;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("capture");
+        captureWriter = new CaptureWriter(true, directory.toString(), 100, 1024, 10);
+        captureWriter.open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        captureWriter.close();
+        for (File file : directory.toFile().listFiles())
+            file.delete();
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testCapturedRequestWithSecretsRedacted() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        request.setQueryString("dryRun=true");
+        request.setContentType("application/json");
+        request.setContent("{\"body\":{}}".getBytes(StandardCharsets.UTF_8));
+        request.addHeader(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER, "1500000000");
+        request.addHeader(SecurityConstants.SECURITY_CREDENTIALS_SIZE_HEADER, "1");
+        request.addHeader(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1", "{\"token\":\"secretToken\"}");
+        request.addHeader("Authorization", "Bearer secret");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new TrafficCaptureFilter(captureWriter).doFilter(request, response, (req, res) -> {
+            StreamUtils.copyToByteArray(req.getInputStream());
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/platforms/{platformId}/resources");
+            req.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.singletonMap("platformId", "platformId"));
+            ((MockHttpServletResponse) res).setStatus(201);
+        });
+        captureWriter.close();
+
+        CapturedRequest captured;
+        try (CaptureReader reader = new CaptureReader(captureWriter.getFile())) {
+            captured = reader.next();
+            assertNull(reader.next());
+        }
+
+        assertEquals("POST", captured.getMethod());
+        assertEquals("/platforms/{platformId}/resources", captured.getEndpoint());
+        assertEquals("/platforms/platformId/resources?dryRun=true", captured.getUri());
+        assertEquals("platformId", captured.getPathVariables().get("platformId"));
+        assertEquals("{\"body\":{}}", captured.getBodyAsString());
+        assertEquals(201, captured.getStatus());
+        assertEquals("1500000000", captured.getHeaders().get(SecurityConstants.SECURITY_CREDENTIALS_TIMESTAMP_HEADER));
+        assertFalse(captured.getHeaders().containsKey("Authorization"));
+        String credentials = captured.getHeaders().get(SecurityConstants.SECURITY_CREDENTIALS_HEADER_PREFIX + "1");
+        assertTrue(credentials.contains("\"token\":\"redacted\""));
+        assertFalse(captured.getHeaders().values().stream().collect(Collectors.joining()).contains("secret"));
+    }
+
+    @Test
+    public void testTruncatedCaptureReadUpToLastCompleteRecord() throws Exception {
+        for (int i = 0; i < 50; i++)
+            assertTrue(captureWriter.offer(new CapturedRequest(i, "PUT", "/accessNotifications", "/accessNotifications",
+                    Collections.emptyMap(), Collections.emptyMap(), new byte[]{(byte) i}, 200, 1000)));
+        assertFalse(captureWriter.offer(new CapturedRequest(0, "PUT", "", "/", Collections.emptyMap(),
+                Collections.emptyMap(), new byte[2048], 200, 0)));
+        captureWriter.close();
+        assertEquals(50, captureWriter.getWritten());
+        assertEquals(1, captureWriter.getDropped());
+
+        try (RandomAccessFile file = new RandomAccessFile(captureWriter.getFile().toFile(), "rw")) {
+            file.setLength(file.length() - 12);
+        }
+
+        int count = 0;
+        try (CaptureReader reader = new CaptureReader(captureWriter.getFile())) {
+            CapturedRequest captured;
+            while ((captured = reader.next()) != null)
+                assertEquals(count++, captured.getBody()[0]);
+        }
+        assertTrue(count > 0 && count <= 50);
+    }
+
+    @Test
+    public void testFailedRequestCapturedWithServerError() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try {
+            new TrafficCaptureFilter(captureWriter).doFilter(request, response, (req, res) -> {
+                throw new IllegalStateException("handler failed");
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertEquals("handler failed", e.getMessage());
+        }
+        captureWriter.close();
+
+        try (CaptureReader reader = new CaptureReader(captureWriter.getFile())) {
+            assertEquals(500, reader.next().getStatus());
+        }
+    }
+
+    @Test
+    public void testOversizedBodyDropped() throws Exception {
+        TrafficCaptureFilter filter = new TrafficCaptureFilter(captureWriter);
+        MockHttpServletRequest small = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        small.setContent(new byte[1024]);
+        MockHttpServletRequest large = new MockHttpServletRequest("POST", "/platforms/platformId/resources");
+        large.setContent(new byte[4096]);
+        // chunked request, whose size is only known once the body is read
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/platforms/platformId/resources") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.setContent(new byte[4096]);
+
+        for (MockHttpServletRequest request : Arrays.asList(small, large, chunked))
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                assertEquals(request.getContentLength(), StreamUtils.copyToByteArray(req.getInputStream()).length);
+                assertTrue(((ContentCachingRequestWrapper) req).getContentAsByteArray().length <= 1024);
+            });
+        captureWriter.close();
+
+        assertEquals(1, captureWriter.getWritten());
+        assertEquals(2, captureWriter.getDropped());
+        try (CaptureReader reader = new CaptureReader(captureWriter.getFile())) {
+            assertEquals(1024, reader.next().getBody().length);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testActuatorRequestsNotCaptured() throws Exception {
+        MvcEndpoint health = mock(MvcEndpoint.class);
+        when(health.getPath()).thenReturn("/health");
+        MvcEndpoint prometheus = mock(MvcEndpoint.class);
+        when(prometheus.getPath()).thenReturn("/prometheus");
+        MvcEndpoints mvcEndpoints = mock(MvcEndpoints.class);
+        when(mvcEndpoints.getEndpoints()).thenReturn(new HashSet<>(Arrays.asList(health, prometheus)));
+        TrafficCaptureFilter filter = new TrafficCaptureFilter(captureWriter);
+        filter.setMvcEndpoints(mvcEndpoints);
+
+        for (String uri : Arrays.asList("/health", "/prometheus", "/health/rabbitManager", "/healthCheck"))
+            filter.doFilter(new MockHttpServletRequest("GET", uri), new MockHttpServletResponse(), (req, res) -> { });
+        captureWriter.close();
+
+        try (CaptureReader reader = new CaptureReader(captureWriter.getFile())) {
+            assertEquals("/healthCheck", reader.next().getUri());
+            assertNull(reader.next());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package eu.h2020.symbiote;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WaitForPortTests {
+
+    @Test
+    public void testServicesProbedInParallel() throws Exception {
+        int delayedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            delayedPort = socket.getLocalPort();
+        }
+
+        Thread delayedService = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+                try (ServerSocket socket = new ServerSocket(delayedPort)) {
+                    Thread.sleep(3000);
+                }
+            } catch (IOException | InterruptedException e) {
+                // the test fails on timeout
+            }
+        });
+
+        try (ServerSocket available = new ServerSocket(0)) {
+            delayedService.start();
+            long start = System.currentTimeMillis();
+            new WaitForPort(500, 10, 100, 3000).start("localhost:" + available.getLocalPort() + ";localhost:" + delayedPort);
+            assertTrue(System.currentTimeMillis() - start < 2000);
+        } finally {
+            delayedService.interrupt();
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            new WaitForPort(100, 10, 50, 300).start("localhost:" + closedPort);
+            fail("Service should not be available");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("localhost:" + closedPort));
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+}
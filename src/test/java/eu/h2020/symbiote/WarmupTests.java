@@ -0,0 +1,59 @@
+package eu.h2020.symbiote;
+
+import eu.h2020.symbiote.actuator.WarmupHealthIndicator;
+import eu.h2020.symbiote.json.ParallelMapSerializer;
+import eu.h2020.symbiote.json.ResourceMapDeserializer;
+import eu.h2020.symbiote.validation.RegistrationValidator;
+import eu.h2020.symbiote.warmup.Warmup;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.junit.Assert.*;
+
+public class WarmupTests {
+
+    @Test
+    public void testWarmupRunsForConfiguredDuration() {
+        Warmup warmup = new Warmup(true, 300, 5);
+        WarmupHealthIndicator healthIndicator = new WarmupHealthIndicator(warmup);
+        assertFalse(warmup.isComplete());
+        assertEquals(Status.DOWN, healthIndicator.health().getStatus());
+
+        long start = System.currentTimeMillis();
+        warmup.run();
+
+        assertTrue(System.currentTimeMillis() - start >= 300);
+        assertTrue(warmup.isComplete());
+        assertTrue(warmup.getIterations() > 1);
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+    }
+
+    @Test
+    public void testDisabledWarmupComplete() {
+        Warmup warmup = new Warmup(false, 300, 5);
+        warmup.start();
+
+        assertTrue(warmup.isComplete());
+        assertEquals(0, warmup.getIterations());
+        assertEquals(Status.UP, new WarmupHealthIndicator(warmup).health().getStatus());
+    }
+
+    @Test
+    public void testWarmupUsesApplicationBeans() {
+        ParallelMapSerializer parallelMapSerializer = new ParallelMapSerializer(true, 2, 1, 2);
+        RegistrationValidator registrationValidator = new RegistrationValidator(true, 100);
+        Warmup warmup = new Warmup(true, 100, 5);
+        warmup.setParallelMapSerializer(parallelMapSerializer);
+        warmup.setResourceMapDeserializer(new ResourceMapDeserializer(true, 65536, 256, true));
+        warmup.setRegistrationValidator(registrationValidator);
+
+        try {
+            warmup.run();
+        } finally {
+            parallelMapSerializer.close();
+        }
+
+        assertTrue(warmup.getIterations() > 1);
+        assertEquals(0, registrationValidator.getRejectedCount());
+    }
+}